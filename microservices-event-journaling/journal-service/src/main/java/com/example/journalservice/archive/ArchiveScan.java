@@ -0,0 +1,81 @@
+package com.example.journalservice.archive;
+
+import com.example.journalservice.entity.JournalEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * State of one newest-first read across segments: the filter, the keyset position to continue
+ * before, how many matches are still to be skipped (offset paging) and the rows collected so far.
+ */
+final class ArchiveScan {
+    private final Long userId;
+    private final long from;
+    private final long to;
+    private final long beforeTimestamp;
+    private final long beforeId;
+    private final int limit;
+    private long remainingSkip;
+    private final List<JournalEntry> results = new ArrayList<>();
+
+    ArchiveScan(Long userId, long from, long to, long beforeTimestamp, long beforeId, long skip, int limit) {
+        this.userId = userId;
+        this.from = from;
+        this.to = to;
+        this.beforeTimestamp = beforeTimestamp;
+        this.beforeId = beforeId;
+        this.remainingSkip = skip;
+        this.limit = limit;
+    }
+
+    Long userId() {
+        return userId;
+    }
+
+    long from() {
+        return from;
+    }
+
+    long to() {
+        return to;
+    }
+
+    long beforeTimestamp() {
+        return beforeTimestamp;
+    }
+
+    boolean matches(long timestamp, long id) {
+        return timestamp >= from && timestamp < to
+                && (timestamp < beforeTimestamp || (timestamp == beforeTimestamp && id < beforeId));
+    }
+
+    boolean canSkipWhole() {
+        return remainingSkip > 0;
+    }
+
+    /** Skips a whole block of matches if the offset still covers it. */
+    boolean skipWhole(long matches) {
+        if (remainingSkip < matches) {
+            return false;
+        }
+        remainingSkip -= matches;
+        return true;
+    }
+
+    void offer(JournalSegment.DecodedGroup group, int index) {
+        if (remainingSkip > 0) {
+            remainingSkip--;
+        } else {
+            results.add(group.entry(index));
+        }
+    }
+
+    boolean isFull() {
+        return results.size() >= limit;
+    }
+
+    List<JournalEntry> results() {
+        return results;
+    }
+}
@@ -0,0 +1,229 @@
+package com.example.journalservice.archive;
+
+import com.example.journalservice.entity.JournalEntry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Catalog of the cold tier: every segment file under {@code journal.archive.dir}, newest first.
+ * Segments never overlap in time (each comes from one monthly partition), so newest-first reads
+ * simply walk the segments in order and stop as soon as enough rows are collected.
+ */
+@Component
+public class JournalArchiveStore {
+    private static final Logger logger = LoggerFactory.getLogger(JournalArchiveStore.class);
+    private static final Comparator<JournalSegment> NEWEST_FIRST =
+            Comparator.comparing(JournalSegment::getMaxTimestamp).reversed();
+
+    @Value("${journal.archive.dir:journal-archive}")
+    private String archiveDir;
+
+    private Path directory;
+    private volatile List<JournalSegment> segments = List.of();
+
+    @PostConstruct
+    public void loadSegments() throws IOException {
+        directory = Paths.get(archiveDir);
+        Files.createDirectories(directory);
+        List<JournalSegment> loaded = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(SegmentFormat.FILE_SUFFIX + ".tmp")) {
+                    Files.delete(file); // Left over from an archival run that did not finish
+                } else if (name.endsWith(SegmentFormat.FILE_SUFFIX)) {
+                    JournalSegment segment = openOrQuarantine(file);
+                    if (segment != null) {
+                        loaded.add(segment);
+                    }
+                }
+            }
+        }
+        loaded.sort(NEWEST_FIRST);
+        segments = List.copyOf(loaded);
+        logger.info("Loaded {} journal archive segments from {}", loaded.size(), directory.toAbsolutePath());
+    }
+
+    /**
+     * Opens a segment found at startup. A file that cannot be parsed (truncated or corrupt) is moved
+     * to {@code quarantine/} rather than failing startup; its rows are missing from reads until it is
+     * repaired and moved back. It is kept, not deleted, because its partition may already be dropped.
+     */
+    private JournalSegment openOrQuarantine(Path file) throws IOException {
+        try {
+            return JournalSegment.open(file);
+        } catch (IllegalStateException e) {
+            Path quarantine = directory.resolve("quarantine");
+            Files.createDirectories(quarantine);
+            Path target = quarantine.resolve(file.getFileName());
+            Files.move(file, target, StandardCopyOption.REPLACE_EXISTING);
+            logger.error("Unreadable journal archive segment {} moved to {}; its rows are not served", file, target, e);
+            return null;
+        }
+    }
+
+    /** Path for the {@code sequence}-th segment file of a partition. */
+    public Path segmentPath(String partitionName, int sequence) {
+        return directory.resolve(String.format("%s-%04d%s", partitionName, sequence, SegmentFormat.FILE_SUFFIX));
+    }
+
+    public synchronized void register(List<Path> files) throws IOException {
+        List<JournalSegment> updated = new ArrayList<>(segments);
+        for (Path file : files) {
+            updated.add(JournalSegment.open(file));
+        }
+        updated.sort(NEWEST_FIRST);
+        segments = List.copyOf(updated);
+    }
+
+    /**
+     * Removes and deletes every segment of a partition, e.g. before re-archiving it after an
+     * interrupted run.
+     */
+    public synchronized void discardPartition(String partitionName) throws IOException {
+        removeWhere(segment -> segment.getPath().getFileName().toString().startsWith(partitionName + "-"));
+        // Also files a failed run wrote but never registered
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, partitionName + "-*" + SegmentFormat.FILE_SUFFIX)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /** Retention: removes and deletes segments whose newest row is before {@code cutoff}. */
+    public synchronized int discardOlderThan(LocalDateTime cutoff) throws IOException {
+        return removeWhere(segment -> segment.getMaxTimestamp().isBefore(cutoff));
+    }
+
+    public boolean isEmpty() {
+        return segments.isEmpty();
+    }
+
+    /** Newest archived event timestamp, if anything is archived. */
+    public Optional<LocalDateTime> getNewestTimestamp() {
+        List<JournalSegment> current = segments;
+        return current.isEmpty() ? Optional.empty() : Optional.of(current.get(0).getMaxTimestamp());
+    }
+
+    /** Oldest archived event timestamp, if anything is archived. */
+    public Optional<LocalDateTime> getOldestTimestamp() {
+        List<JournalSegment> current = segments;
+        return current.isEmpty() ? Optional.empty() : Optional.of(current.get(current.size() - 1).getMinTimestamp());
+    }
+
+    /** Smallest archived id, if anything is archived. Ids are not ordered by timestamp, so every segment is checked. */
+    public OptionalLong getOldestId() {
+        List<JournalSegment> current = segments;
+        return current.stream().mapToLong(JournalSegment::getMinId).filter(id -> id != Long.MAX_VALUE).min();
+    }
+
+    public Optional<JournalEntry> findById(long id) {
+        for (JournalSegment segment : segments) {
+            JournalEntry entry = segment.findById(id);
+            if (entry != null) {
+                return Optional.of(entry);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Keyset read: up to {@code limit} entries strictly before ({@code timestamp}, {@code id}),
+     * newest first, optionally for one user.
+     */
+    public List<JournalEntry> findBefore(Long userId, LocalDateTime timestamp, long id, int limit) {
+        ArchiveScan scan = new ArchiveScan(userId, Long.MIN_VALUE, Long.MAX_VALUE,
+                SegmentFormat.toMicros(timestamp), id, 0, limit);
+        return scan(scan);
+    }
+
+    /**
+     * Offset read of {@code from <= eventTimestamp < to} (null bounds are open), newest first.
+     */
+    public List<JournalEntry> findInTimeRange(Long userId, LocalDateTime from, LocalDateTime to, long offset, int limit) {
+        ArchiveScan scan = new ArchiveScan(userId, fromMicros(from), toMicros(to), Long.MAX_VALUE, Long.MAX_VALUE,
+                offset, limit);
+        return scan(scan);
+    }
+
+    public long countInTimeRange(Long userId, LocalDateTime from, LocalDateTime to) {
+        long count = 0;
+        for (JournalSegment segment : segments) {
+            count += segment.count(userId, fromMicros(from), toMicros(to));
+        }
+        return count;
+    }
+
+    /**
+     * Feeds every archived entry to {@code consumer} oldest first, a row group at a time. Segments of
+     * {@code hotPartitions} are skipped: a partition is archived before it is dropped, so for a
+     * moment its rows are in both tiers.
+     */
+    public void replayOldestFirst(Set<String> hotPartitions, Consumer<List<JournalEntry>> consumer) {
+        List<JournalSegment> current = segments;
+        for (int s = current.size() - 1; s >= 0; s--) {
+            JournalSegment segment = current.get(s);
+            if (!hotPartitions.contains(partitionOf(segment))) {
+                segment.forEachRowGroup(consumer);
+            }
+        }
+    }
+
+    private static String partitionOf(JournalSegment segment) {
+        // <partition>-<sequence>.seg, see segmentPath
+        String name = segment.getPath().getFileName().toString();
+        return name.substring(0, name.lastIndexOf('-'));
+    }
+
+    private List<JournalEntry> scan(ArchiveScan scan) {
+        for (JournalSegment segment : segments) {
+            if (scan.isFull()) {
+                break;
+            }
+            segment.scan(scan);
+        }
+        return scan.results();
+    }
+
+    private int removeWhere(Predicate<JournalSegment> condition) throws IOException {
+        List<JournalSegment> kept = new ArrayList<>();
+        List<JournalSegment> removed = new ArrayList<>();
+        for (JournalSegment segment : segments) {
+            (condition.test(segment) ? removed : kept).add(segment);
+        }
+        segments = List.copyOf(kept);
+        for (JournalSegment segment : removed) {
+            // Readers still holding the old list keep a valid mapping; the pages go once it is collected
+            Files.deleteIfExists(segment.getPath());
+            logger.info("Deleted journal archive segment {}", segment.getPath());
+        }
+        return removed.size();
+    }
+
+    private static long fromMicros(LocalDateTime from) {
+        return from != null ? SegmentFormat.toMicros(from) : Long.MIN_VALUE;
+    }
+
+    private static long toMicros(LocalDateTime to) {
+        return to != null ? SegmentFormat.toMicros(to) : Long.MAX_VALUE;
+    }
+}
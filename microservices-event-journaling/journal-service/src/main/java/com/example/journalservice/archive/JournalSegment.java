@@ -0,0 +1,409 @@
+package com.example.journalservice.archive;
+
+import com.example.journalservice.entity.JournalEntry;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Read-only view of one segment file through a memory mapping. Only the footer is parsed up front;
+ * column chunks are inflated straight from the mapping when a row group is actually read, and the
+ * user index is binary searched in place. Instances are safe for concurrent readers.
+ */
+public class JournalSegment {
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final long rowCount;
+    private final long minTimestamp;
+    private final long maxTimestamp;
+    private final List<RowGroup> rowGroups;
+    private final int usersOffset;
+    private final int userCount;
+    private final int postingsOffset;
+
+    private JournalSegment(Path path, MappedByteBuffer buffer) {
+        this.path = path;
+        this.buffer = buffer;
+        int trailer = buffer.capacity() - SegmentFormat.TRAILER_SIZE;
+        if (buffer.capacity() < SegmentFormat.HEADER_SIZE + SegmentFormat.TRAILER_SIZE
+                || buffer.getInt(0) != SegmentFormat.MAGIC
+                || buffer.getInt(trailer + 36) != SegmentFormat.MAGIC) {
+            throw new IllegalStateException("Not a journal segment: " + path);
+        }
+        if (buffer.getInt(trailer + 32) != SegmentFormat.VERSION) {
+            throw new IllegalStateException("Unsupported segment version " + buffer.getInt(trailer + 32) + ": " + path);
+        }
+        long footer = buffer.getLong(trailer);
+        if (footer < SegmentFormat.HEADER_SIZE || footer > trailer - 4) {
+            throw new IllegalStateException("Bad footer offset " + footer + ": " + path);
+        }
+        this.rowCount = buffer.getLong(trailer + 8);
+        this.minTimestamp = buffer.getLong(trailer + 16);
+        this.maxTimestamp = buffer.getLong(trailer + 24);
+
+        int groupCount = buffer.getInt((int) footer);
+        int position = (int) footer + 4;
+        List<RowGroup> groups = new ArrayList<>(groupCount);
+        for (int g = 0; g < groupCount; g++) {
+            long[] chunkOffsets = new long[SegmentFormat.COLUMN_COUNT];
+            int[] compressedLengths = new int[SegmentFormat.COLUMN_COUNT];
+            int[] rawLengths = new int[SegmentFormat.COLUMN_COUNT];
+            int columns = position + 40;
+            for (int c = 0; c < SegmentFormat.COLUMN_COUNT; c++) {
+                chunkOffsets[c] = buffer.getLong(columns + c * 16);
+                compressedLengths[c] = buffer.getInt(columns + c * 16 + 8);
+                rawLengths[c] = buffer.getInt(columns + c * 16 + 12);
+            }
+            groups.add(new RowGroup(buffer.getInt(position), buffer.getInt(position + 4),
+                    buffer.getLong(position + 8), buffer.getLong(position + 16),
+                    buffer.getLong(position + 24), buffer.getLong(position + 32),
+                    chunkOffsets, compressedLengths, rawLengths));
+            position = columns + SegmentFormat.COLUMN_COUNT * 16;
+        }
+        this.rowGroups = List.copyOf(groups);
+        this.usersOffset = (int) buffer.getLong(position);
+        this.userCount = buffer.getInt(position + 8);
+        this.postingsOffset = (int) buffer.getLong(position + 12);
+    }
+
+    /**
+     * Maps the file and parses its footer.
+     *
+     * @throws IllegalStateException if the file is not a complete segment (truncated, corrupt or unknown version)
+     */
+    public static JournalSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return new JournalSegment(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IllegalStateException("Truncated or corrupt journal segment: " + path, e);
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public LocalDateTime getMinTimestamp() {
+        return SegmentFormat.fromMicros(minTimestamp);
+    }
+
+    public LocalDateTime getMaxTimestamp() {
+        return SegmentFormat.fromMicros(maxTimestamp);
+    }
+
+    /** Smallest id in the segment, from the row group metadata; Long.MAX_VALUE if it is empty. */
+    public long getMinId() {
+        long minId = Long.MAX_VALUE;
+        for (RowGroup group : rowGroups) {
+            minId = Math.min(minId, group.minId());
+        }
+        return minId;
+    }
+
+    public JournalEntry findById(long id) {
+        for (RowGroup group : rowGroups) {
+            if (id < group.minId() || id > group.maxId()) {
+                continue;
+            }
+            long[] ids = decodeLongs(group, SegmentFormat.COL_ID);
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] == id) {
+                    return new DecodedGroup(group).entry(i);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Counts rows of {@code userId} (null for all users) with {@code from <= eventTimestamp < to},
+     * both in epoch microseconds. Row groups entirely inside the window are counted from metadata.
+     */
+    long count(Long userId, long from, long to) {
+        if (maxTimestamp < from || minTimestamp >= to) {
+            return 0;
+        }
+        if (userId == null) {
+            long count = 0;
+            for (RowGroup group : rowGroups) {
+                if (group.maxTimestamp() < from || group.minTimestamp() >= to) {
+                    continue;
+                }
+                if (group.minTimestamp() >= from && group.maxTimestamp() < to) {
+                    count += group.rowCount();
+                } else {
+                    long[] timestamps = decodeLongs(group, SegmentFormat.COL_EVENT_TIMESTAMP);
+                    for (long timestamp : timestamps) {
+                        if (timestamp >= from && timestamp < to) {
+                            count++;
+                        }
+                    }
+                }
+            }
+            return count;
+        }
+        int[] postings = postingsFor(userId);
+        if (postings == null) {
+            return 0;
+        }
+        if (minTimestamp >= from && maxTimestamp < to) {
+            return postings[1];
+        }
+        long count = 0;
+        RowGroup group = null;
+        long[] timestamps = null;
+        for (int p = 0; p < postings[1]; p++) {
+            int row = posting(postings[0] + p);
+            if (group == null || row >= group.firstRow() + group.rowCount()) {
+                group = groupOf(row);
+                timestamps = decodeLongs(group, SegmentFormat.COL_EVENT_TIMESTAMP);
+            }
+            long timestamp = timestamps[row - group.firstRow()];
+            if (timestamp >= from && timestamp < to) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Hands every row to {@code consumer} oldest first, one decoded row group at a time.
+     */
+    void forEachRowGroup(Consumer<List<JournalEntry>> consumer) {
+        for (RowGroup group : rowGroups) {
+            DecodedGroup decoded = new DecodedGroup(group);
+            List<JournalEntry> entries = new ArrayList<>(group.rowCount());
+            for (int i = 0; i < group.rowCount(); i++) {
+                entries.add(decoded.entry(i));
+            }
+            consumer.accept(entries);
+        }
+    }
+
+    /**
+     * Feeds matching rows to the scan newest first, until the scan is full or the segment is exhausted.
+     */
+    void scan(ArchiveScan scan) {
+        if (maxTimestamp < scan.from() || minTimestamp >= scan.to() || minTimestamp > scan.beforeTimestamp()) {
+            return;
+        }
+        if (scan.userId() == null) {
+            for (int g = rowGroups.size() - 1; g >= 0 && !scan.isFull(); g--) {
+                RowGroup group = rowGroups.get(g);
+                if (group.maxTimestamp() < scan.from() || group.minTimestamp() >= scan.to()
+                        || group.minTimestamp() > scan.beforeTimestamp()) {
+                    continue;
+                }
+                if (scan.canSkipWhole() && group.minTimestamp() >= scan.from() && group.maxTimestamp() < scan.to()
+                        && group.maxTimestamp() < scan.beforeTimestamp() && scan.skipWhole(group.rowCount())) {
+                    continue; // Skipped by offset without inflating anything
+                }
+                DecodedGroup decoded = new DecodedGroup(group);
+                for (int i = group.rowCount() - 1; i >= 0 && !scan.isFull(); i--) {
+                    if (scan.matches(decoded.timestamps[i], decoded.ids()[i])) {
+                        scan.offer(decoded, i);
+                    }
+                }
+            }
+            return;
+        }
+        int[] postings = postingsFor(scan.userId());
+        if (postings == null) {
+            return;
+        }
+        DecodedGroup decoded = null;
+        for (int p = postings[1] - 1; p >= 0 && !scan.isFull(); p--) {
+            int row = posting(postings[0] + p);
+            if (decoded == null || row < decoded.group.firstRow()) {
+                decoded = new DecodedGroup(groupOf(row));
+            }
+            int index = row - decoded.group.firstRow();
+            if (decoded.timestamps[index] < scan.from()) {
+                return; // Postings are in time order, so everything further back is older still
+            }
+            if (scan.matches(decoded.timestamps[index], decoded.ids()[index])) {
+                scan.offer(decoded, index);
+            }
+        }
+    }
+
+    // {first posting index, posting count} for the user, or null when the user has no rows here
+    private int[] postingsFor(long userId) {
+        int low = 0;
+        int high = userCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int entry = usersOffset + mid * SegmentFormat.USER_INDEX_ENTRY_SIZE;
+            long candidate = buffer.getLong(entry);
+            if (candidate < userId) {
+                low = mid + 1;
+            } else if (candidate > userId) {
+                high = mid - 1;
+            } else {
+                return new int[]{buffer.getInt(entry + 8), buffer.getInt(entry + 12)};
+            }
+        }
+        return null;
+    }
+
+    private int posting(int index) {
+        return buffer.getInt(postingsOffset + index * 4);
+    }
+
+    private RowGroup groupOf(int row) {
+        int low = 0;
+        int high = rowGroups.size() - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (rowGroups.get(mid).firstRow() <= row) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return rowGroups.get(low);
+    }
+
+    private ByteBuffer inflate(RowGroup group, int column) {
+        byte[] raw = new byte[group.rawLengths()[column]];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(buffer.slice((int) group.chunkOffsets()[column], group.compressedLengths()[column]));
+            int inflated = 0;
+            while (inflated < raw.length && !inflater.finished()) {
+                inflated += inflater.inflate(raw, inflated, raw.length - inflated);
+            }
+            if (inflated != raw.length) {
+                throw new IllegalStateException("Truncated column chunk in " + path);
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt column chunk in " + path, e);
+        } finally {
+            inflater.end();
+        }
+        return ByteBuffer.wrap(raw);
+    }
+
+    private long[] decodeLongs(RowGroup group, int column) {
+        ByteBuffer in = inflate(group, column);
+        long[] values = new long[group.rowCount()];
+        long previous = 0;
+        for (int i = 0; i < values.length; i++) {
+            previous += SegmentFormat.readVarLong(in);
+            values[i] = previous;
+        }
+        return values;
+    }
+
+    private static String readString(ByteBuffer in, int length) {
+        String value = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    record RowGroup(int firstRow, int rowCount, long minTimestamp, long maxTimestamp, long minId, long maxId,
+                    long[] chunkOffsets, int[] compressedLengths, int[] rawLengths) {
+    }
+
+    /**
+     * A row group with its timestamps inflated; the remaining columns are inflated on first use,
+     * so rows that are only filtered or skipped never pay for the details column.
+     */
+    final class DecodedGroup {
+        private final RowGroup group;
+        private final long[] timestamps;
+        private long[] ids;
+        private LocalDateTime[] receivedTimestamps;
+        private Long[] userIds;
+        private String[] eventTypes;
+        private String[] usernames;
+        private String[] details;
+
+        private DecodedGroup(RowGroup group) {
+            this.group = group;
+            this.timestamps = decodeLongs(group, SegmentFormat.COL_EVENT_TIMESTAMP);
+        }
+
+        long[] ids() {
+            if (ids == null) {
+                ids = decodeLongs(group, SegmentFormat.COL_ID);
+            }
+            return ids;
+        }
+
+        JournalEntry entry(int index) {
+            if (details == null) {
+                decodeRemainingColumns();
+            }
+            JournalEntry entry = new JournalEntry();
+            entry.setId(ids()[index]);
+            entry.setEventTimestamp(SegmentFormat.fromMicros(timestamps[index]));
+            entry.setReceivedTimestamp(receivedTimestamps[index]);
+            entry.setUserId(userIds[index]);
+            entry.setEventType(eventTypes[index]);
+            entry.setUsername(usernames[index]);
+            entry.setDetailsJson(details[index]);
+            return entry;
+        }
+
+        private void decodeRemainingColumns() {
+            int rows = group.rowCount();
+            receivedTimestamps = new LocalDateTime[rows];
+            ByteBuffer in = inflate(group, SegmentFormat.COL_RECEIVED_TIMESTAMP);
+            long previous = 0;
+            for (int i = 0; i < rows; i++) {
+                if (in.get() != 0) {
+                    previous += SegmentFormat.readVarLong(in);
+                    receivedTimestamps[i] = SegmentFormat.fromMicros(previous);
+                }
+            }
+            userIds = new Long[rows];
+            in = inflate(group, SegmentFormat.COL_USER_ID);
+            for (int i = 0; i < rows; i++) {
+                if (in.get() != 0) {
+                    userIds[i] = SegmentFormat.readVarLong(in);
+                }
+            }
+            eventTypes = decodeDictionary(SegmentFormat.COL_EVENT_TYPE);
+            usernames = decodeDictionary(SegmentFormat.COL_USERNAME);
+            String[] detailValues = new String[rows];
+            in = inflate(group, SegmentFormat.COL_DETAILS);
+            for (int i = 0; i < rows; i++) {
+                int length = (int) SegmentFormat.readVarLong(in);
+                if (length >= 0) {
+                    detailValues[i] = readString(in, length);
+                }
+            }
+            details = detailValues;
+        }
+
+        private String[] decodeDictionary(int column) {
+            ByteBuffer in = inflate(group, column);
+            String[] dictionary = new String[(int) SegmentFormat.readVarLong(in) + 1];
+            for (int d = 1; d < dictionary.length; d++) {
+                dictionary[d] = readString(in, (int) SegmentFormat.readVarLong(in));
+            }
+            String[] values = new String[group.rowCount()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = dictionary[(int) SegmentFormat.readVarLong(in)];
+            }
+            return values;
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package com.example.journalservice.archive;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes one immutable segment file from rows supplied in (event_timestamp, id) order.
+ * The file is built under a temporary name, fsynced and atomically renamed by {@link #finish()},
+ * so a segment is either complete on disk or absent.
+ */
+public class JournalSegmentWriter implements Closeable {
+    private final Path target;
+    private final Path tempFile;
+    private final FileChannel channel;
+    private final int rowGroupSize;
+
+    // Current row group, column by column
+    private final long[] ids;
+    private final long[] eventTimestamps;
+    private final LocalDateTime[] receivedTimestamps;
+    private final Long[] userIds;
+    private final String[] eventTypes;
+    private final String[] usernames;
+    private final String[] details;
+    private int groupRows;
+
+    private final List<long[]> groupMetadata = new ArrayList<>();
+    private final List<long[][]> groupChunks = new ArrayList<>();
+    private final Map<Long, IntList> postings = new HashMap<>();
+    private int rowCount;
+    private long lastTimestamp = Long.MIN_VALUE;
+    private long lastId = Long.MIN_VALUE;
+    private long minTimestamp;
+    private long maxTimestamp;
+    private boolean finished;
+
+    public JournalSegmentWriter(Path target, int rowGroupSize) throws IOException {
+        this.target = target;
+        this.tempFile = target.resolveSibling(target.getFileName() + ".tmp");
+        this.rowGroupSize = rowGroupSize;
+        this.ids = new long[rowGroupSize];
+        this.eventTimestamps = new long[rowGroupSize];
+        this.receivedTimestamps = new LocalDateTime[rowGroupSize];
+        this.userIds = new Long[rowGroupSize];
+        this.eventTypes = new String[rowGroupSize];
+        this.usernames = new String[rowGroupSize];
+        this.details = new String[rowGroupSize];
+        this.channel = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(SegmentFormat.HEADER_SIZE)
+                .putInt(SegmentFormat.MAGIC).putInt(SegmentFormat.VERSION).flip();
+        writeFully(header);
+    }
+
+    public void append(long id, LocalDateTime eventTimestamp, LocalDateTime receivedTimestamp, Long userId,
+                       String eventType, String username, String detailsJson) throws IOException {
+        long timestamp = SegmentFormat.toMicros(eventTimestamp);
+        if (timestamp < lastTimestamp || (timestamp == lastTimestamp && id <= lastId)) {
+            throw new IllegalStateException("Segment rows must be appended in (event_timestamp, id) order");
+        }
+        if (rowCount == 0) {
+            minTimestamp = timestamp;
+        }
+        maxTimestamp = timestamp;
+        lastTimestamp = timestamp;
+        lastId = id;
+
+        ids[groupRows] = id;
+        eventTimestamps[groupRows] = timestamp;
+        receivedTimestamps[groupRows] = receivedTimestamp;
+        userIds[groupRows] = userId;
+        eventTypes[groupRows] = eventType;
+        usernames[groupRows] = username;
+        details[groupRows] = detailsJson;
+        if (userId != null) {
+            postings.computeIfAbsent(userId, key -> new IntList()).add(rowCount);
+        }
+        groupRows++;
+        rowCount++;
+        if (groupRows == rowGroupSize) {
+            flushGroup();
+        }
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /** Bytes written so far; only grows at row group boundaries. */
+    public long getBytesWritten() throws IOException {
+        return channel.position();
+    }
+
+    public boolean isAtGroupBoundary() {
+        return groupRows == 0;
+    }
+
+    /**
+     * Writes the index, footer and trailer, fsyncs and moves the file into place.
+     */
+    public Path finish() throws IOException {
+        flushGroup();
+
+        long usersOffset = channel.position();
+        TreeMap<Long, IntList> sortedPostings = new TreeMap<>(postings);
+        ByteBuffer users = ByteBuffer.allocate(sortedPostings.size() * SegmentFormat.USER_INDEX_ENTRY_SIZE);
+        int firstPosting = 0;
+        for (Map.Entry<Long, IntList> user : sortedPostings.entrySet()) {
+            users.putLong(user.getKey()).putInt(firstPosting).putInt(user.getValue().size);
+            firstPosting += user.getValue().size;
+        }
+        writeFully(users.flip());
+
+        long postingsOffset = channel.position();
+        ByteBuffer postingBuffer = ByteBuffer.allocate(64 * 1024);
+        for (IntList rows : sortedPostings.values()) {
+            for (int i = 0; i < rows.size; i++) {
+                if (!postingBuffer.hasRemaining()) {
+                    writeFully(postingBuffer.flip());
+                    postingBuffer.clear();
+                }
+                postingBuffer.putInt(rows.values[i]);
+            }
+        }
+        writeFully(postingBuffer.flip());
+
+        long footerOffset = channel.position();
+        int groupEntrySize = 40 + SegmentFormat.COLUMN_COUNT * 16;
+        ByteBuffer footer = ByteBuffer.allocate(4 + groupMetadata.size() * groupEntrySize + 20 + SegmentFormat.TRAILER_SIZE);
+        footer.putInt(groupMetadata.size());
+        for (int g = 0; g < groupMetadata.size(); g++) {
+            long[] meta = groupMetadata.get(g);
+            footer.putInt((int) meta[0]).putInt((int) meta[1])
+                    .putLong(meta[2]).putLong(meta[3]).putLong(meta[4]).putLong(meta[5]);
+            for (long[] chunk : groupChunks.get(g)) {
+                footer.putLong(chunk[0]).putInt((int) chunk[1]).putInt((int) chunk[2]);
+            }
+        }
+        footer.putLong(usersOffset).putInt(sortedPostings.size()).putLong(postingsOffset);
+        footer.putLong(footerOffset).putLong(rowCount).putLong(minTimestamp).putLong(maxTimestamp)
+                .putInt(SegmentFormat.VERSION).putInt(SegmentFormat.MAGIC);
+        writeFully(footer.flip());
+
+        channel.force(true);
+        channel.close();
+        Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE);
+        finished = true;
+        return target;
+    }
+
+    /** Discards an unfinished segment; a no-op after {@link #finish()}. */
+    @Override
+    public void close() throws IOException {
+        if (!finished) {
+            channel.close();
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private void flushGroup() throws IOException {
+        if (groupRows == 0) {
+            return;
+        }
+        int firstRow = rowCount - groupRows;
+        long minId = Long.MAX_VALUE;
+        long maxId = Long.MIN_VALUE;
+        for (int i = 0; i < groupRows; i++) {
+            minId = Math.min(minId, ids[i]);
+            maxId = Math.max(maxId, ids[i]);
+        }
+        groupMetadata.add(new long[]{firstRow, groupRows, eventTimestamps[0], eventTimestamps[groupRows - 1], minId, maxId});
+
+        long[][] chunks = new long[SegmentFormat.COLUMN_COUNT][];
+        chunks[SegmentFormat.COL_ID] = writeChunk(out -> writeDeltas(out, ids));
+        chunks[SegmentFormat.COL_EVENT_TIMESTAMP] = writeChunk(out -> writeDeltas(out, eventTimestamps));
+        chunks[SegmentFormat.COL_RECEIVED_TIMESTAMP] = writeChunk(out -> {
+            long previous = 0;
+            for (int i = 0; i < groupRows; i++) {
+                out.writeBoolean(receivedTimestamps[i] != null);
+                if (receivedTimestamps[i] != null) {
+                    long micros = SegmentFormat.toMicros(receivedTimestamps[i]);
+                    SegmentFormat.writeVarLong(out, micros - previous);
+                    previous = micros;
+                }
+            }
+        });
+        chunks[SegmentFormat.COL_USER_ID] = writeChunk(out -> {
+            for (int i = 0; i < groupRows; i++) {
+                out.writeBoolean(userIds[i] != null);
+                if (userIds[i] != null) {
+                    SegmentFormat.writeVarLong(out, userIds[i]);
+                }
+            }
+        });
+        chunks[SegmentFormat.COL_EVENT_TYPE] = writeChunk(out -> writeDictionary(out, eventTypes));
+        chunks[SegmentFormat.COL_USERNAME] = writeChunk(out -> writeDictionary(out, usernames));
+        chunks[SegmentFormat.COL_DETAILS] = writeChunk(out -> {
+            for (int i = 0; i < groupRows; i++) {
+                if (details[i] == null) {
+                    SegmentFormat.writeVarLong(out, -1);
+                } else {
+                    byte[] bytes = details[i].getBytes(StandardCharsets.UTF_8);
+                    SegmentFormat.writeVarLong(out, bytes.length);
+                    out.write(bytes);
+                }
+            }
+        });
+        groupChunks.add(chunks);
+
+        Arrays.fill(receivedTimestamps, 0, groupRows, null);
+        Arrays.fill(userIds, 0, groupRows, null);
+        Arrays.fill(eventTypes, 0, groupRows, null);
+        Arrays.fill(usernames, 0, groupRows, null);
+        Arrays.fill(details, 0, groupRows, null);
+        groupRows = 0;
+    }
+
+    private void writeDeltas(DataOutputStream out, long[] values) throws IOException {
+        long previous = 0;
+        for (int i = 0; i < groupRows; i++) {
+            SegmentFormat.writeVarLong(out, values[i] - previous);
+            previous = values[i];
+        }
+    }
+
+    // Code 0 is null; codes 1..n index the dictionary written ahead of them
+    private void writeDictionary(DataOutputStream out, String[] values) throws IOException {
+        Map<String, Integer> codes = new HashMap<>();
+        List<String> dictionary = new ArrayList<>();
+        int[] rowCodes = new int[groupRows];
+        for (int i = 0; i < groupRows; i++) {
+            if (values[i] != null) {
+                rowCodes[i] = codes.computeIfAbsent(values[i], value -> {
+                    dictionary.add(value);
+                    return dictionary.size();
+                });
+            }
+        }
+        SegmentFormat.writeVarLong(out, dictionary.size());
+        for (String value : dictionary) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            SegmentFormat.writeVarLong(out, bytes.length);
+            out.write(bytes);
+        }
+        for (int i = 0; i < groupRows; i++) {
+            SegmentFormat.writeVarLong(out, rowCodes[i]);
+        }
+    }
+
+    private long[] writeChunk(ChunkEncoder encoder) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        int rawLength;
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new DeflaterOutputStream(compressed, deflater), 64 * 1024));
+            encoder.encode(out);
+            rawLength = out.size();
+            out.close();
+        } finally {
+            deflater.end();
+        }
+        long offset = channel.position();
+        writeFully(ByteBuffer.wrap(compressed.toByteArray()));
+        return new long[]{offset, compressed.size(), rawLength};
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ChunkEncoder {
+        void encode(DataOutputStream out) throws IOException;
+    }
+
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
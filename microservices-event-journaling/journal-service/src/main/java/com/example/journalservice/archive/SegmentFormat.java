@@ -0,0 +1,76 @@
+package com.example.journalservice.archive;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * On-disk layout of a journal segment file, shared by {@link JournalSegmentWriter} and {@link JournalSegment}.
+ * <pre>
+ * header   int magic, int version
+ * groups   per row group, one deflate-compressed chunk per column
+ * users    per distinct user id, ascending: long userId, int firstPosting, int postingCount
+ * postings int row ordinals, ascending within each user
+ * footer   int groupCount, per group: int firstRow, int rowCount, long minTs, long maxTs, long minId,
+ *          long maxId, per column: long offset, int compressedLength, int rawLength;
+ *          then long usersOffset, int userCount, long postingsOffset
+ * trailer  long footerOffset, long rowCount, long minTs, long maxTs, int version, int magic
+ * </pre>
+ * Rows are stored in (event_timestamp, id) order. Timestamps are microseconds since the epoch (the
+ * precision PostgreSQL keeps); ids and timestamps are delta-encoded as zigzag varints, event types
+ * and usernames are dictionary-encoded per row group. The user index and postings are left
+ * uncompressed so they can be binary searched in place through the memory mapping.
+ */
+final class SegmentFormat {
+    static final int MAGIC = 0x4A53_4547; // "JSEG"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    static final int TRAILER_SIZE = 40;
+    static final int USER_INDEX_ENTRY_SIZE = 16;
+
+    static final int COL_ID = 0;
+    static final int COL_EVENT_TIMESTAMP = 1;
+    static final int COL_RECEIVED_TIMESTAMP = 2;
+    static final int COL_USER_ID = 3;
+    static final int COL_EVENT_TYPE = 4;
+    static final int COL_USERNAME = 5;
+    static final int COL_DETAILS = 6;
+    static final int COLUMN_COUNT = 7;
+
+    static final String FILE_SUFFIX = ".seg";
+
+    private SegmentFormat() {
+    }
+
+    static long toMicros(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + timestamp.getNano() / 1_000;
+    }
+
+    static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+
+    static void writeVarLong(DataOutput out, long value) throws IOException {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            out.writeByte((int) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        out.writeByte((int) zigzag);
+    }
+
+    static long readVarLong(ByteBuffer in) {
+        long zigzag = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            zigzag |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+}
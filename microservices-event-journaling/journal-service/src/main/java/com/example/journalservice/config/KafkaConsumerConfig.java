@@ -1,16 +1,20 @@
 package com.example.journalservice.config;
 
 import com.example.journalservice.dto.UserEvent;
+import com.example.journalservice.serialization.UserEventDeserializer;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
 import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
-import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -24,22 +28,28 @@ public class KafkaConsumerConfig {
     @Value("${spring.kafka.consumer.group-id}")
     private String groupId;
 
+    @Value("${journal.consumer.max-poll-records:500}")
+    private int maxPollRecords;
+
+    @Value("${journal.consumer.concurrency:1}")
+    private int concurrency;
+
+    @Value("${journal.consumer.shard-workers:1}")
+    private int shardWorkers;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
     @Bean
     public ConsumerFactory<String, UserEvent> userEventConsumerFactory() {
         Map<String, Object> props = new HashMap<>();
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
 
-
-        JsonDeserializer<UserEvent> jsonDeserializer = new JsonDeserializer<>(UserEvent.class);
-        jsonDeserializer.setRemoveTypeHeaders(false);
-        jsonDeserializer.addTrustedPackages("*");
-        jsonDeserializer.setUseTypeMapperForKey(true);
-
-
-
+        // Accepts both JSON and the binary UserEvent encoding, so producers can be switched one at a time
         ErrorHandlingDeserializer<UserEvent> errorHandlingDeserializer =
-                new ErrorHandlingDeserializer<>(jsonDeserializer);
+                new ErrorHandlingDeserializer<>(new UserEventDeserializer());
 
 
         return new DefaultKafkaConsumerFactory<>(
@@ -54,6 +64,39 @@ public class KafkaConsumerConfig {
         ConcurrentKafkaListenerContainerFactory<String, UserEvent> factory =
                 new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(userEventConsumerFactory());
+        // Deliver each poll as one List so it can be written in a single JDBC batch.
+        // Offsets are acknowledged by the JournalSink commit callback, which may run after the listener returns.
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        // One consumer thread per partition up to this limit; extra threads stay idle
+        factory.setConcurrency(concurrency);
+        if (virtualThreads) {
+            // Boot only applies spring.threads.virtual.enabled to the factory it configures itself
+            SimpleAsyncTaskExecutor consumerExecutor = new SimpleAsyncTaskExecutor("journal-consumer-");
+            consumerExecutor.setVirtualThreads(true);
+            factory.getContainerProperties().setListenerTaskExecutor(consumerExecutor);
+        }
         return factory;
     }
-}
\ No newline at end of file
+
+    /**
+     * Workers that write the key-sharded slices of a batch in parallel. Each listener
+     * thread can have up to shard-workers slices in flight, so the pool is sized for all of them.
+     * With virtual threads each slice gets a fresh virtual thread, capped at the same count.
+     */
+    @Bean
+    public AsyncTaskExecutor journalShardExecutor() {
+        int poolSize = Math.max(1, concurrency * shardWorkers);
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("journal-shard-");
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(poolSize);
+            return executor;
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setThreadNamePrefix("journal-shard-");
+        return executor;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.journalservice.config;
+
+import jakarta.annotation.PostConstruct;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.common.errors.TopicExistsException;
+import org.apache.kafka.common.errors.UnknownTopicOrPartitionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.KafkaAdmin;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates user-events with {@code journal.topic.partitions} partitions if it does not exist. An
+ * existing topic is never resized: user-service keys events by userId, and adding partitions re-maps
+ * keys, so events still queued on a user's old partition could be journaled after newer ones from
+ * the new partition. A differing partition count is only logged; to grow the topic, stop user-service
+ * publishing (its outbox holds new events), let journal-service drain the topic, then run
+ * {@code kafka-topics --alter --partitions N} and restart publishing. Partitions are the unit of
+ * parallelism across listener threads and journal-service instances.
+ */
+@Configuration
+public class KafkaTopicConfig {
+    private static final Logger logger = LoggerFactory.getLogger(KafkaTopicConfig.class);
+
+    @Autowired
+    private KafkaAdmin kafkaAdmin;
+
+    @Value("${journal.topic.name:user-events}")
+    private String topicName;
+
+    @Value("${journal.topic.partitions:6}")
+    private int partitions;
+
+    @Value("${journal.topic.replicas:1}")
+    private short replicas;
+
+    @PostConstruct
+    public void ensureUserEventsTopic() {
+        try (AdminClient admin = AdminClient.create(kafkaAdmin.getConfigurationProperties())) {
+            Integer existing = partitionCount(admin);
+            if (existing == null) {
+                NewTopic topic = TopicBuilder.name(topicName).partitions(partitions).replicas(replicas).build();
+                admin.createTopics(List.of(topic)).all().get(kafkaAdmin.getOperationTimeout(), TimeUnit.SECONDS);
+                logger.info("Created topic {} with {} partitions", topicName, partitions);
+            } else if (existing != partitions) {
+                logger.warn("Topic {} has {} partitions but journal.topic.partitions={}; leaving it unchanged. "
+                        + "Drain the topic before resizing it, or per-user event order can break", topicName, existing, partitions);
+            }
+        } catch (ExecutionException e) {
+            if (!(e.getCause() instanceof TopicExistsException)) {
+                // Same as KafkaAdmin's default: an unreachable broker does not stop startup
+                logger.error("Could not check or create topic {}", topicName, e.getCause());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.error("Could not check or create topic {}", topicName, e);
+        }
+    }
+
+    /** The topic's partition count, or null if it does not exist. */
+    private Integer partitionCount(AdminClient admin) throws Exception {
+        try {
+            TopicDescription description = admin.describeTopics(List.of(topicName)).allTopicNames()
+                    .get(kafkaAdmin.getOperationTimeout(), TimeUnit.SECONDS).get(topicName);
+            return description.partitions().size();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UnknownTopicOrPartitionException) {
+                return null;
+            }
+            throw e;
+        }
+    }
+}
@@ -26,6 +26,7 @@ public class SecurityConfig {
         http
                 .csrf(csrf -> csrf.disable())
                 .authorizeHttpRequests(auth -> auth
+                        .requestMatchers("/actuator/health", "/actuator/prometheus").permitAll() // Probes and metric scrapers carry no JWT
                         .requestMatchers("/api/journal/**").hasAnyRole("ADMIN", "AUDITOR")
                         .anyRequest().authenticated()
                 )
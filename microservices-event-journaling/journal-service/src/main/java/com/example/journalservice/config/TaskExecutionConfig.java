@@ -0,0 +1,30 @@
+package com.example.journalservice.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.task.SimpleAsyncTaskExecutorBuilder;
+import org.springframework.boot.task.ThreadPoolTaskExecutorBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+
+@Configuration
+public class TaskExecutionConfig {
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    /**
+     * Boot only creates its applicationTaskExecutor when no other Executor bean exists, and
+     * journalShardExecutor is one, so it is declared here from Boot's own builders. It runs
+     * {@code @Async} methods and async MVC responses (exports), on virtual threads when
+     * spring.threads.virtual.enabled is set.
+     */
+    @Bean(name = {"applicationTaskExecutor", "taskExecutor"})
+    public AsyncTaskExecutor applicationTaskExecutor(SimpleAsyncTaskExecutorBuilder simpleAsyncTaskExecutorBuilder,
+                                                     ThreadPoolTaskExecutorBuilder threadPoolTaskExecutorBuilder) {
+        if (virtualThreads) {
+            return simpleAsyncTaskExecutorBuilder.build(); // The builder already carries virtualThreads(true)
+        }
+        return threadPoolTaskExecutorBuilder.build();
+    }
+}
@@ -1,26 +1,55 @@
 package com.example.journalservice.controller;
 
+import com.example.journalservice.dto.EventCountDto;
+import com.example.journalservice.dto.JournalCursorPage;
 import com.example.journalservice.dto.JournalEntryDto;
+import com.example.journalservice.dto.JournalRebuildRequest;
+import com.example.journalservice.dto.JournalRebuildStatus;
+import com.example.journalservice.dto.UserActivitySummaryDto;
+import com.example.journalservice.service.JournalExportService;
+import com.example.journalservice.service.JournalLiveTail;
 import com.example.journalservice.service.JournalQueryService;
+import com.example.journalservice.service.JournalRebuildService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/journal")
 public class JournalController {
     @Autowired
     private JournalQueryService journalQueryService;
+    @Autowired
+    private JournalExportService journalExportService;
+    @Autowired
+    private JournalLiveTail journalLiveTail;
+    @Autowired
+    private JournalRebuildService journalRebuildService;
 
     @GetMapping("/events")
     @PreAuthorize("hasRole('ADMIN')") // Or a specific ROLE_AUDITOR
     public ResponseEntity<Page<JournalEntryDto>> getAllEvents(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
             @PageableDefault(size = 20) Pageable pageable) {
-        return ResponseEntity.ok(journalQueryService.getAllJournalEntries(pageable));
+        return ResponseEntity.ok(journalQueryService.getAllJournalEntries(from, to, pageable));
     }
 
     @GetMapping("/events/{id}")
@@ -33,7 +62,184 @@ public class JournalController {
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<Page<JournalEntryDto>> getEventsByUserId(
             @PathVariable Long userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @PageableDefault(size = 20) Pageable pageable) {
+        return ResponseEntity.ok(journalQueryService.getJournalEntriesByUserId(userId, from, to, pageable));
+    }
+
+    @GetMapping("/users/{userId}/summary")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<UserActivitySummaryDto> getUserActivitySummary(@PathVariable Long userId) {
+        return ResponseEntity.ok(journalQueryService.getUserActivitySummary(userId));
+    }
+
+    /**
+     * Regenerates every user activity summary from the journal; returns the number of entries replayed.
+     */
+    @PostMapping("/users/summary/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Long>> rebuildUserActivitySummaries() {
+        return ResponseEntity.ok(Map.of("replayedEntries", journalQueryService.rebuildUserActivitySummaries()));
+    }
+
+    /**
+     * Event counts per {@code granularity} (HOUR or DAY) bucket, answered from pre-aggregated rollups,
+     * e.g. {@code ?granularity=DAY&eventType=ROLE_ASSIGNED&byRole=true} for role changes per day by role.
+     */
+    @GetMapping("/analytics/event-counts")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<EventCountDto>> getEventCounts(
+            @RequestParam(defaultValue = "HOUR") String granularity,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String eventType,
+            @RequestParam(required = false) String role,
+            @RequestParam(defaultValue = "false") boolean byRole) {
+        return ResponseEntity.ok(journalQueryService.getEventCounts(granularity, from, to, eventType, role, byRole));
+    }
+
+    /**
+     * Recomputes rollups from the journal and its archive, from the start of {@code from}'s day, or from
+     * the oldest entry still held if omitted or earlier; buckets older than that are kept as they are.
+     */
+    @PostMapping("/analytics/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Integer>> rebuildRollups(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from) {
+        return ResponseEntity.ok(Map.of("rollupRows", journalQueryService.rebuildRollups(from)));
+    }
+
+    /**
+     * Replays user-events from Kafka into a new table in the background; poll the status endpoint for progress.
+     */
+    @PostMapping("/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<JournalRebuildStatus> startRebuild(@RequestBody(required = false) JournalRebuildRequest request) {
+        JournalRebuildRequest rebuildRequest = request != null ? request : new JournalRebuildRequest();
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(journalRebuildService.start(rebuildRequest));
+    }
+
+    @GetMapping("/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<JournalRebuildStatus> getRebuildStatus() {
+        return ResponseEntity.ok(journalRebuildService.getStatus());
+    }
+
+    @PostMapping("/rebuild/cancel")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<JournalRebuildStatus> cancelRebuild() {
+        return ResponseEntity.ok(journalRebuildService.cancel());
+    }
+
+    /**
+     * Combined filter over user, event type, username and time range (all optional), newest first.
+     */
+    @GetMapping("/events/search")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Page<JournalEntryDto>> searchEvents(
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) String eventType,
+            @RequestParam(required = false) String username,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @PageableDefault(size = 20, sort = "eventTimestamp", direction = Sort.Direction.DESC) Pageable pageable) {
+        return ResponseEntity.ok(journalQueryService.searchJournalEntries(userId, eventType, username, from, to, pageable));
+    }
+
+    /**
+     * Index-backed search by username substring and/or words in detail values (e.g. an email),
+     * newest first. Requires {@code journal.search-index.enabled=true}. A page can be short, even
+     * empty, while {@code nextCursor} is set; keep following it until it is null.
+     */
+    @GetMapping("/events/index-search")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<JournalCursorPage> searchEventsByIndex(
+            @RequestParam(required = false) String username,
+            @RequestParam(required = false) String detail,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(journalQueryService.searchIndexedEntries(username, detail, cursor, size));
+    }
+
+    /**
+     * Keyset-paginated variant of {@code /events}, newest first. Follow {@code nextCursor}
+     * until it is null; deep pages cost the same as the first one.
+     */
+    @GetMapping("/events/cursor")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<JournalCursorPage> getEventsByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(journalQueryService.getJournalEntriesAfterCursor(cursor, size));
+    }
+
+    @GetMapping("/events/user/{userId}/cursor")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<JournalCursorPage> getEventsByUserIdAndCursor(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(journalQueryService.getJournalEntriesByUserIdAfterCursor(userId, cursor, size));
+    }
+
+    /**
+     * Filters on event details, e.g. {@code ?eventType=ROLE_ASSIGNED&details.assignedRole=ROLE_ADMIN}
+     * or {@code ?contains={"assignedRole":"ROLE_ADMIN"}}. Key-path values are matched as strings;
+     * use {@code contains} for typed (numeric, boolean, array) matches.
+     */
+    @GetMapping("/events/by-details")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Page<JournalEntryDto>> getEventsByDetails(
+            @RequestParam(required = false) String eventType,
+            @RequestParam(required = false) String contains,
+            @RequestParam Map<String, String> params,
             @PageableDefault(size = 20) Pageable pageable) {
-        return ResponseEntity.ok(journalQueryService.getJournalEntriesByUserId(userId, pageable));
+        Map<String, String> keyPaths = new LinkedHashMap<>();
+        params.forEach((name, value) -> {
+            if (name.startsWith("details.") && name.length() > "details.".length()) {
+                keyPaths.put(name.substring("details.".length()), value);
+            }
+        });
+        return ResponseEntity.ok(journalQueryService.getJournalEntriesByDetails(contains, keyPaths, eventType, pageable));
+    }
+
+    /**
+     * Streams the full (optionally filtered) journal, oldest first, as gzip-compressed NDJSON or CSV.
+     * Rows go from a database cursor straight to the response, so exports of any size use constant memory.
+     */
+    @GetMapping("/events/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportEvents(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) String eventType,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        JournalExportService.Format exportFormat = JournalExportService.parseFormat(format);
+        StreamingResponseBody body = out -> {
+            GZIPOutputStream gzip = new GZIPOutputStream(out, 64 * 1024);
+            journalExportService.export(exportFormat, userId, eventType, from, to, gzip);
+            gzip.finish();
+        };
+        boolean csv = exportFormat == JournalExportService.Format.CSV;
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv") : MediaType.parseMediaType("application/x-ndjson"))
+                .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"journal-export." + (csv ? "csv" : "ndjson") + "\"")
+                .body(body);
+    }
+
+    /**
+     * Live tail: newly persisted entries pushed as Server-Sent Events ({@code journal-entry}),
+     * optionally filtered by user and event type.
+     */
+    @GetMapping(value = "/events/live", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public SseEmitter liveEvents(
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) String eventType) {
+        return journalLiveTail.subscribe(userId, eventType);
     }
 }
\ No newline at end of file
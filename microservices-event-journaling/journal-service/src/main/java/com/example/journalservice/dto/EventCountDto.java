@@ -0,0 +1,14 @@
+package com.example.journalservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+@Data @NoArgsConstructor @AllArgsConstructor
+public class EventCountDto {
+    private LocalDateTime bucketStart;
+    private String eventType;
+    private String role; // Null for all-role totals
+    private long count;
+}
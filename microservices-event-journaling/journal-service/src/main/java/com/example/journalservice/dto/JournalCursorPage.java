@@ -0,0 +1,12 @@
+package com.example.journalservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+@Data @NoArgsConstructor @AllArgsConstructor
+public class JournalCursorPage {
+    private List<JournalEntryDto> content;
+    private String nextCursor; // Opaque; null when there are no older entries
+}
@@ -0,0 +1,13 @@
+package com.example.journalservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+@Data @NoArgsConstructor @AllArgsConstructor
+public class JournalRebuildRequest {
+    private String targetTable; // Defaults to journal_entries_rebuild_<timestamp>; must not exist yet
+    private LocalDateTime fromTimestamp; // Start of the replay by record timestamp...
+    private Long fromOffset; // ...or by offset, applied to every partition; neither means from the beginning
+}
@@ -0,0 +1,30 @@
+package com.example.journalservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data @NoArgsConstructor @AllArgsConstructor
+public class JournalRebuildStatus {
+    private String state; // RUNNING, COMPLETED, FAILED or CANCELLED
+    private String targetTable;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private long recordsTotal;
+    private long recordsRead;
+    private long entriesWritten;
+    private long recordsSkipped;
+    private double entriesPerSecond;
+    private String error;
+    private List<PartitionProgress> partitions;
+
+    @Data @NoArgsConstructor @AllArgsConstructor
+    public static class PartitionProgress {
+        private int partition;
+        private long startOffset;
+        private long position;
+        private long endOffset;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.journalservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@Data @NoArgsConstructor @AllArgsConstructor
+public class UserActivitySummaryDto {
+    private Long userId;
+    private String username;
+    private long totalEvents;
+    private Map<String, Long> eventCounts; // eventType -> number of events
+    private List<String> roles; // Current roles, replayed from USER_CREATED / ROLE_ASSIGNED / ROLE_REMOVED
+    private LocalDateTime firstSeen;
+    private LocalDateTime lastSeen;
+}
@@ -4,24 +4,34 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "journal_entries")
 @Getter @Setter @NoArgsConstructor
 public class JournalEntry {
+    /** Ids handed out per sequence call; bulk writers reserving ids directly must use the same block size. */
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    // Sequence with a pooled allocation so Hibernate can batch inserts (IDENTITY disables JDBC batching)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "journal_entries_seq")
+    @SequenceGenerator(name = "journal_entries_seq", sequenceName = "journal_entries_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     private String eventType;
     private Long userId;
     private String username;
 
-    @Column(columnDefinition = "TIMESTAMP")
+    // Partition key of journal_entries, so it can never be null
+    @Column(columnDefinition = "TIMESTAMP", nullable = false)
     private LocalDateTime eventTimestamp;
 
-    @Lob
+    // Stored as jsonb so detail filters run in the database (GIN index created by JournalSchemaInitializer)
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(columnDefinition = "jsonb")
     private String detailsJson;
 
     @Column(columnDefinition = "TIMESTAMP")
@@ -31,8 +41,8 @@ public class JournalEntry {
         this.eventType = eventType;
         this.userId = userId;
         this.username = username;
-        this.eventTimestamp = eventTimestamp;
         this.detailsJson = detailsJson;
         this.receivedTimestamp = LocalDateTime.now();
+        this.eventTimestamp = eventTimestamp != null ? eventTimestamp : this.receivedTimestamp;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,17 @@
+package com.example.journalservice.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidJournalQueryException extends RuntimeException {
+
+    public InvalidJournalQueryException(String message) {
+        super(message);
+    }
+
+    public InvalidJournalQueryException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
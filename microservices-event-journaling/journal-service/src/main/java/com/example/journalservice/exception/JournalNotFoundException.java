@@ -0,0 +1,13 @@
+package com.example.journalservice.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class JournalNotFoundException extends RuntimeException {
+
+    public JournalNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.journalservice.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class RebuildInProgressException extends RuntimeException {
+
+    public RebuildInProgressException(String message) {
+        super(message);
+    }
+}
@@ -4,8 +4,63 @@ import com.example.journalservice.entity.JournalEntry;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-public interface JournalEntryRepository extends JpaRepository<JournalEntry, Long> {
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface JournalEntryRepository extends JpaRepository<JournalEntry, Long>, JpaSpecificationExecutor<JournalEntry> {
     Page<JournalEntry> findByUserId(Long userId, Pageable pageable);
     Page<JournalEntry> findByEventType(String eventType, Pageable pageable);
+
+    // Half-open [from, to) ranges on the partition key, so PostgreSQL prunes partitions outside the window
+    @Query("SELECT e FROM JournalEntry e WHERE e.eventTimestamp >= :from AND e.eventTimestamp < :to")
+    Page<JournalEntry> findInTimeRange(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to, Pageable pageable);
+
+    @Query("SELECT e FROM JournalEntry e WHERE e.userId = :userId AND e.eventTimestamp >= :from AND e.eventTimestamp < :to")
+    Page<JournalEntry> findByUserIdInTimeRange(@Param("userId") Long userId,
+                                               @Param("from") LocalDateTime from,
+                                               @Param("to") LocalDateTime to,
+                                               Pageable pageable);
+
+    // Oldest hot entry of a window, to tell whether it overlaps the archive (min() is one index probe)
+    @Query("SELECT min(e.eventTimestamp) FROM JournalEntry e WHERE e.eventTimestamp >= :from AND e.eventTimestamp < :to")
+    LocalDateTime findOldestTimestamp(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("SELECT min(e.eventTimestamp) FROM JournalEntry e "
+            + "WHERE e.userId = :userId AND e.eventTimestamp >= :from AND e.eventTimestamp < :to")
+    LocalDateTime findOldestTimestampByUserId(@Param("userId") Long userId,
+                                              @Param("from") LocalDateTime from,
+                                              @Param("to") LocalDateTime to);
+
+    // Keyset pages, newest first: a row-value comparison against the last (event_timestamp, id) seen,
+    // answered by a backward range scan on idx_journal_entries_ts_id / idx_journal_entries_user_ts_id
+    @Query(value = "SELECT * FROM journal_entries WHERE (event_timestamp, id) < (:timestamp, :id) "
+            + "ORDER BY event_timestamp DESC, id DESC LIMIT :limit", nativeQuery = true)
+    List<JournalEntry> findPageBefore(@Param("timestamp") LocalDateTime timestamp,
+                                      @Param("id") long id,
+                                      @Param("limit") int limit);
+
+    @Query(value = "SELECT * FROM journal_entries WHERE user_id = :userId AND (event_timestamp, id) < (:timestamp, :id) "
+            + "ORDER BY event_timestamp DESC, id DESC LIMIT :limit", nativeQuery = true)
+    List<JournalEntry> findPageBeforeByUserId(@Param("userId") Long userId,
+                                              @Param("timestamp") LocalDateTime timestamp,
+                                              @Param("id") long id,
+                                              @Param("limit") int limit);
+
+    // Containment (@>) is served by the jsonb_path_ops GIN index on details_json.
+    // Native queries: sort properties must be column names, e.g. sort=event_timestamp,desc
+    @Query(value = "SELECT * FROM journal_entries WHERE details_json @> CAST(:filter AS jsonb)",
+            countQuery = "SELECT count(*) FROM journal_entries WHERE details_json @> CAST(:filter AS jsonb)",
+            nativeQuery = true)
+    Page<JournalEntry> findByDetailsContaining(@Param("filter") String filterJson, Pageable pageable);
+
+    @Query(value = "SELECT * FROM journal_entries WHERE event_type = :eventType AND details_json @> CAST(:filter AS jsonb)",
+            countQuery = "SELECT count(*) FROM journal_entries WHERE event_type = :eventType AND details_json @> CAST(:filter AS jsonb)",
+            nativeQuery = true)
+    Page<JournalEntry> findByEventTypeAndDetailsContaining(@Param("eventType") String eventType,
+                                                          @Param("filter") String filterJson,
+                                                          Pageable pageable);
 }
\ No newline at end of file
@@ -0,0 +1,37 @@
+package com.example.journalservice.repository;
+
+import com.example.journalservice.entity.JournalEntry;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+
+/**
+ * Building blocks for multi-criteria journal queries. Every combination of these predicates
+ * has a matching composite index (see JournalSchemaInitializer) with event_timestamp last,
+ * so the time range and the default newest-first order come from the same index.
+ */
+public final class JournalEntrySpecifications {
+
+    private JournalEntrySpecifications() {
+    }
+
+    public static Specification<JournalEntry> hasUserId(Long userId) {
+        return (root, query, cb) -> userId == null ? null : cb.equal(root.get("userId"), userId);
+    }
+
+    public static Specification<JournalEntry> hasEventType(String eventType) {
+        return (root, query, cb) -> eventType == null ? null : cb.equal(root.get("eventType"), eventType);
+    }
+
+    public static Specification<JournalEntry> hasUsername(String username) {
+        return (root, query, cb) -> username == null ? null : cb.equal(root.get("username"), username);
+    }
+
+    public static Specification<JournalEntry> occurredFrom(LocalDateTime from) {
+        return (root, query, cb) -> from == null ? null : cb.greaterThanOrEqualTo(root.get("eventTimestamp"), from);
+    }
+
+    public static Specification<JournalEntry> occurredBefore(LocalDateTime to) {
+        return (root, query, cb) -> to == null ? null : cb.lessThan(root.get("eventTimestamp"), to);
+    }
+}
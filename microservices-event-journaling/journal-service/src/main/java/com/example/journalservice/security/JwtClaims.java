@@ -0,0 +1,19 @@
+package com.example.journalservice.security;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * The claims of a token whose signature and expiry {@link JwtUtil#verify} has checked.
+ * Immutable, so one instance can be shared by every request carrying the same token.
+ */
+public record JwtClaims(String username, List<String> roles, Instant expiresAt) {
+
+    public JwtClaims {
+        roles = roles != null ? List.copyOf(roles) : List.of();
+    }
+
+    public boolean isExpired(Instant now) {
+        return expiresAt != null && !now.isBefore(expiresAt);
+    }
+}
@@ -19,7 +19,6 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.List;
 
 @Component
 public class JwtRequestFilter extends OncePerRequestFilter {
@@ -38,13 +37,13 @@ public class JwtRequestFilter extends OncePerRequestFilter {
 
         final String authorizationHeader = request.getHeader("Authorization");
 
-        String username = null;
-        String jwt = null;
+        JwtClaims claims = null;
 
         if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-            jwt = authorizationHeader.substring(7);
+            String jwt = authorizationHeader.substring(7);
             try {
-                username = jwtUtil.extractUsername(jwt);
+                // Signature and expiry are checked here, once per token rather than once per claim
+                claims = jwtUtil.verify(jwt);
             } catch (IllegalArgumentException e) {
                 logger.error("Unable to get JWT Token", e);
             } catch (ExpiredJwtException e) {
@@ -62,13 +61,10 @@ public class JwtRequestFilter extends OncePerRequestFilter {
             }
         }
 
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            // Validate token (username extracted from token must match, and not expired)
-            if (jwtUtil.validateToken(jwt, username)) { // Using the simpler validateToken(jwt, usernameFromToken)
-                List<String> roles = jwtUtil.extractRoles(jwt);
-
+        if (claims != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            if (claims.username() != null) {
                 // Use the helper method from UserDetailsServiceImpl to build UserDetails
-                UserDetails userDetails = userDetailsServiceImpl.buildUserDetailsFromJwt(username, roles);
+                UserDetails userDetails = userDetailsServiceImpl.buildUserDetailsFromJwt(claims.username(), claims.roles());
 
                 UsernamePasswordAuthenticationToken usernamePasswordAuthenticationToken =
                         new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
@@ -77,7 +73,7 @@ public class JwtRequestFilter extends OncePerRequestFilter {
                 SecurityContextHolder.getContext().setAuthentication(usernamePasswordAuthenticationToken);
                 logger.debug("Set SecurityContext for user '{}', authorities: {}", userDetails.getUsername(), userDetails.getAuthorities());
             } else {
-                logger.warn("JWT token validation failed for user: {}", username);
+                logger.warn("JWT token has no subject");
             }
         }
         chain.doFilter(request, response);
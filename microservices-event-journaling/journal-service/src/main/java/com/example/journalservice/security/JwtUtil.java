@@ -1,21 +1,74 @@
 package com.example.journalservice.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import javax.crypto.SecretKey;
-import java.util.Date;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
 import java.util.List;
-import java.util.function.Function;
 
+/**
+ * Verifies the HS256 tokens issued by user-service. The key and parser are built once; a token's
+ * claims are parsed and its signature checked on first sight, then served from a bounded cache keyed
+ * by the SHA-256 of the token until the token expires. Tokens that fail verification are not cached.
+ */
 @Component
 public class JwtUtil {
 
     @Value("${jwt.secret}")
     private String secretString;
 
+    @Value("${jwt.cache.max-size:10000}")
+    private long cacheMaxSize;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private JwtParser parser;
+    private Cache<String, JwtClaims> verifiedTokens;
+
+    @PostConstruct
+    public void init() {
+        parser = Jwts.parserBuilder().setSigningKey(getSigningKey()).build();
+        verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new Expiry<String, JwtClaims>() {
+                    @Override
+                    public long expireAfterCreate(String key, JwtClaims claims, long currentTime) {
+                        return claims.expiresAt() == null ? Long.MAX_VALUE
+                                : Math.max(0, Duration.between(Instant.now(), claims.expiresAt()).toNanos());
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, JwtClaims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, JwtClaims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "jwt.verified-tokens");
+    }
+
     private SecretKey getSigningKey() {
         byte[] keyBytes = secretString.getBytes();
         if (keyBytes.length < 32) { // HS256 needs at least 256 bits / 32 bytes
@@ -26,40 +79,36 @@ public class JwtUtil {
         return Keys.hmacShaKeyFor(keyBytes);
     }
 
-    public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
-    }
-
-    public List<String> extractRoles(String token) {
-        final Claims claims = extractAllClaims(token);
-        // Assuming roles are stored as a List<String> under the claim "roles"
-        return claims.get("roles", List.class);
-    }
-
-    public Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
-    }
-
-    public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
-    }
-
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder().setSigningKey(getSigningKey()).build().parseClaimsJws(token).getBody();
-    }
-
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
-
-    public Boolean validateToken(String token, String usernameFromToken) {
-        final String usernameInToken = extractUsername(token);
-        return (usernameInToken.equals(usernameFromToken) && !isTokenExpired(token));
+    /**
+     * Returns the token's claims, verifying it unless an earlier request already did.
+     *
+     * @throws io.jsonwebtoken.JwtException if the token is malformed, forged or expired
+     * @throws IllegalArgumentException     if the token is empty
+     */
+    public JwtClaims verify(String token) {
+        String digest = digest(token);
+        JwtClaims cached = verifiedTokens.getIfPresent(digest);
+        if (cached != null) {
+            if (!cached.isExpired(Instant.now())) {
+                return cached;
+            }
+            verifiedTokens.invalidate(digest);
+        }
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        @SuppressWarnings("unchecked")
+        List<String> roles = claims.get("roles", List.class); // Stored as a List<String> under the claim "roles"
+        JwtClaims verified = new JwtClaims(claims.getSubject(), roles,
+                claims.getExpiration() != null ? claims.getExpiration().toInstant() : null);
+        verifiedTokens.put(digest, verified);
+        return verified;
     }
 
-    public Boolean validateToken(String token, org.springframework.security.core.userdetails.UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e); // Required of every JRE
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,44 @@
+package com.example.journalservice.serialization;
+
+import com.example.journalservice.dto.UserEvent;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+/**
+ * Reads user-events in either wire format: payloads starting with the binary magic byte go
+ * through {@link UserEventBinaryCodec}, everything else is treated as JSON. This lets the
+ * journal consume a topic that mixes both while producers are being upgraded.
+ */
+public class UserEventDeserializer implements Deserializer<UserEvent> {
+
+    private final JsonDeserializer<UserEvent> jsonDeserializer;
+
+    public UserEventDeserializer() {
+        // Bind to our own UserEvent and ignore producer type headers instead of trusting arbitrary packages
+        this.jsonDeserializer = new JsonDeserializer<>(UserEvent.class, false);
+    }
+
+    @Override
+    public UserEvent deserialize(String topic, byte[] data) {
+        return deserialize(topic, null, data);
+    }
+
+    @Override
+    public UserEvent deserialize(String topic, Headers headers, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        if (UserEventBinaryCodec.isBinary(data)) {
+            return UserEventBinaryCodec.decode(data);
+        }
+        return headers != null
+                ? jsonDeserializer.deserialize(topic, headers, data)
+                : jsonDeserializer.deserialize(topic, data);
+    }
+
+    @Override
+    public void close() {
+        jsonDeserializer.close();
+    }
+}
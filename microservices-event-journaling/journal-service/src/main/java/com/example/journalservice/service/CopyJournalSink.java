@@ -0,0 +1,166 @@
+package com.example.journalservice.service;
+
+import com.example.journalservice.entity.JournalEntry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Buffers journal entries and writes them with PostgreSQL binary COPY, flushing when
+ * the buffer reaches {@code journal.sink.copy.flush-size} entries or every
+ * {@code journal.sink.copy.flush-interval-ms}, whichever comes first. Each {@link #write}
+ * waits for the flush that carries its entries: the commit callback (Kafka acknowledgement)
+ * runs once that flush has committed, and if it failed the exception is rethrown to the
+ * listener so Kafka redelivers the batch.
+ * <p>
+ * If the datasource is not PostgreSQL, or a COPY fails, the flush falls back to
+ * {@link JournalEntryWriter} so entries are still persisted through JPA.
+ */
+@Service
+@ConditionalOnProperty(name = "journal.sink", havingValue = "copy")
+public class CopyJournalSink implements JournalSink {
+    private static final Logger logger = LoggerFactory.getLogger(CopyJournalSink.class);
+
+    @Autowired
+    private JournalCopyWriter journalCopyWriter;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JournalEntryWriter journalEntryWriter;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private JournalMetrics journalMetrics;
+
+    @Value("${journal.sink.copy.flush-size:5000}")
+    private int flushSize;
+
+    @Value("${journal.sink.copy.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    // Locks rather than monitors: the flush lock is held across the COPY round trip, which would pin a virtual listener thread
+    private final ReentrantLock bufferLock = new ReentrantLock();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private List<JournalEntry> bufferedEntries = new ArrayList<>();
+    private CompletableFuture<Void> bufferedFlush = new CompletableFuture<>(); // Completes when bufferedEntries are committed
+    private ScheduledExecutorService flushScheduler;
+
+    @PostConstruct
+    public void start() {
+        flushScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "journal-copy-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flushScheduler.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        flushScheduler.shutdown();
+        flushQuietly();
+    }
+
+    @Override
+    public void write(List<JournalEntry> entries, Runnable onCommitted) {
+        if (entries.isEmpty()) {
+            onCommitted.run();
+            return;
+        }
+        boolean full;
+        CompletableFuture<Void> committed;
+        bufferLock.lock();
+        try {
+            bufferedEntries.addAll(entries);
+            committed = bufferedFlush;
+            full = bufferedEntries.size() >= flushSize;
+        } finally {
+            bufferLock.unlock();
+        }
+        if (full) {
+            flush(); // Size-triggered flushes run on the caller, which throttles the listener while the DB catches up
+        }
+        try {
+            committed.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+        onCommitted.run();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            logger.error("Scheduled journal COPY flush failed", e);
+        }
+    }
+
+    private void flush() {
+        // Flushes are serialized so entries and their acknowledgements are committed in arrival order
+        flushLock.lock();
+        try {
+            List<JournalEntry> entries;
+            CompletableFuture<Void> committed;
+            bufferLock.lock();
+            try {
+                if (bufferedEntries.isEmpty()) {
+                    return;
+                }
+                entries = bufferedEntries;
+                committed = bufferedFlush;
+                bufferedEntries = new ArrayList<>();
+                bufferedFlush = new CompletableFuture<>();
+            } finally {
+                bufferLock.unlock();
+            }
+
+            try {
+                copyWithFallback(entries);
+                committed.complete(null);
+            } catch (RuntimeException | Error e) {
+                // Every writer waiting on this flush rethrows, so none of its offsets are acknowledged
+                logger.error("Flush of {} journal entries failed; their batches will be redelivered", entries.size(), e);
+                committed.completeExceptionally(e);
+                throw e;
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void copyWithFallback(List<JournalEntry> entries) {
+        try {
+            journalMetrics.timeWrite("copy", "batch", () -> transactionTemplate.executeWithoutResult(status -> {
+                journalCopyWriter.copy("journal_entries", entries);
+                eventPublisher.publishEvent(new JournalEntriesPersistedEvent(entries));
+            }));
+            logger.debug("Copied {} journal entries", entries.size());
+        } catch (Exception e) {
+            logger.warn("COPY of {} journal entries failed, falling back to JPA", entries.size(), e);
+            journalMetrics.recordError("copy", e);
+            entries.forEach(entry -> entry.setId(null));
+            journalEntryWriter.writeWithFallback(entries); // Rethrows unless every entry was written or rejected as bad data
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.journalservice.service;
+
+import com.example.journalservice.archive.JournalArchiveStore;
+import com.example.journalservice.archive.JournalSegmentWriter;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moves whole monthly partitions older than {@code journal.archive.after-days} into the cold tier:
+ * the partition is streamed in (event_timestamp, id) order into compressed columnar segment files,
+ * the segments are fsynced and registered with {@link JournalArchiveStore}, and only then is the
+ * partition dropped. A crash before the drop leaves the partition in place and the next run
+ * rewrites its segments from scratch.
+ * <p>
+ * Events that arrive late for a month that is already archived land in the default partition,
+ * which is never archived: segments must not overlap in time. Those rows stay in the hot tier,
+ * where reads merge them with the archive by timestamp, and each run logs how many there are.
+ */
+@Component
+public class JournalArchiver {
+    private static final Logger logger = LoggerFactory.getLogger(JournalArchiver.class);
+
+    private static final String EXPORT_SQL = "SELECT id, event_timestamp, received_timestamp, user_id, event_type, "
+            + "username, details_json::text FROM %s ORDER BY event_timestamp, id";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JournalPartitionManager journalPartitionManager;
+
+    @Autowired
+    private JournalArchiveStore journalArchiveStore;
+
+    @Value("${journal.archive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${journal.archive.after-days:90}")
+    private int afterDays;
+
+    @Value("${journal.archive.row-group-size:65536}")
+    private int rowGroupSize;
+
+    @Value("${journal.archive.max-segment-mb:1024}")
+    private long maxSegmentMb;
+
+    @Value("${journal.archive.fetch-size:5000}")
+    private int fetchSize;
+
+    @Value("${journal.retention.months:0}")
+    private int retentionMonths;
+
+    private JdbcTemplate cursorJdbcTemplate;
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    public void init() {
+        cursorJdbcTemplate = new JdbcTemplate(dataSource);
+        cursorJdbcTemplate.setFetchSize(fetchSize);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    @Scheduled(cron = "${journal.archive.cron:0 30 1 * * *}")
+    public void archiveEligiblePartitions() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime cutoff = LocalDate.now().minusDays(afterDays).atStartOfDay();
+        for (JournalPartitionManager.PartitionInfo partition : journalPartitionManager.listRangePartitions()) {
+            if (!partition.upperBound().isAfter(cutoff)) {
+                try {
+                    archivePartition(partition.name());
+                } catch (IOException | RuntimeException e) {
+                    logger.error("Archiving journal partition {} failed; it stays in the hot table", partition.name(), e);
+                }
+            }
+        }
+        Long lateRows = jdbcTemplate.queryForObject("SELECT count(*) FROM " + JournalSchemaInitializer.DEFAULT_PARTITION
+                + " WHERE event_timestamp < ?", Long.class, Timestamp.valueOf(cutoff));
+        if (lateRows != null && lateRows > 0) {
+            logger.warn("{} journal entries older than the archive cutoff are in {} and stay in the hot tier",
+                    lateRows, JournalSchemaInitializer.DEFAULT_PARTITION);
+        }
+        if (retentionMonths > 0) {
+            try {
+                LocalDateTime retentionCutoff = LocalDate.now().withDayOfMonth(1).minusMonths(retentionMonths).atStartOfDay();
+                journalArchiveStore.discardOlderThan(retentionCutoff);
+            } catch (IOException e) {
+                logger.error("Applying retention to journal archive segments failed", e);
+            }
+        }
+    }
+
+    /**
+     * Archives one partition and drops it. Returns the number of rows moved.
+     */
+    public long archivePartition(String partitionName) throws IOException {
+        journalArchiveStore.discardPartition(partitionName);
+        long maxSegmentBytes = maxSegmentMb * 1024 * 1024;
+        List<Path> written = new ArrayList<>();
+        SegmentRollover rollover = new SegmentRollover(partitionName, maxSegmentBytes, written);
+        try {
+            readOnlyTransaction.executeWithoutResult(status ->
+                    cursorJdbcTemplate.query(String.format(EXPORT_SQL, partitionName), rs -> {
+                        try {
+                            Timestamp received = rs.getTimestamp(3);
+                            long userId = rs.getLong(4);
+                            Long nullableUserId = rs.wasNull() ? null : userId;
+                            rollover.current().append(rs.getLong(1), rs.getTimestamp(2).toLocalDateTime(),
+                                    received != null ? received.toLocalDateTime() : null, nullableUserId,
+                                    rs.getString(5), rs.getString(6), rs.getString(7));
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }));
+            rollover.finish();
+        } catch (IOException | RuntimeException e) {
+            rollover.close();
+            for (Path file : written) {
+                Files.deleteIfExists(file); // Never leave a partial copy that would be loaded next to the partition
+            }
+            if (e instanceof UncheckedIOException unchecked) {
+                throw unchecked.getCause();
+            }
+            throw e;
+        }
+
+        journalArchiveStore.register(written);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + partitionName);
+        logger.info("Archived journal partition {}: {} rows in {} segment(s)", partitionName, rollover.rows, written.size());
+        return rollover.rows;
+    }
+
+    /**
+     * Starts a new segment file whenever the current one grows past the size limit, keeping every
+     * file small enough to be memory-mapped in one piece.
+     */
+    private final class SegmentRollover {
+        private final String partitionName;
+        private final long maxSegmentBytes;
+        private final List<Path> written;
+        private JournalSegmentWriter writer;
+        private long rows;
+
+        private SegmentRollover(String partitionName, long maxSegmentBytes, List<Path> written) {
+            this.partitionName = partitionName;
+            this.maxSegmentBytes = maxSegmentBytes;
+            this.written = written;
+        }
+
+        private JournalSegmentWriter current() throws IOException {
+            if (writer != null && writer.isAtGroupBoundary() && writer.getBytesWritten() >= maxSegmentBytes) {
+                finish();
+            }
+            if (writer == null) {
+                writer = new JournalSegmentWriter(journalArchiveStore.segmentPath(partitionName, written.size()), rowGroupSize);
+            }
+            rows++;
+            return writer;
+        }
+
+        private void finish() throws IOException {
+            if (writer != null && writer.getRowCount() > 0) {
+                written.add(writer.finish());
+            }
+            close();
+            writer = null;
+        }
+
+        private void close() throws IOException {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+    }
+}
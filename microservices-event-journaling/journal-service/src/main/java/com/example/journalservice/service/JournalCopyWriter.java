@@ -0,0 +1,136 @@
+package com.example.journalservice.service;
+
+import com.example.journalservice.entity.JournalEntry;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Bulk-loads journal entries with PostgreSQL binary COPY. Shared by {@link CopyJournalSink} and
+ * {@link JournalRebuildService}; callers publish persistence events themselves where needed.
+ */
+@Component
+public class JournalCopyWriter {
+    private static final String COPY_SQL = "COPY %s (id, event_type, user_id, username, event_timestamp, "
+            + "details_json, received_timestamp) FROM STDIN (FORMAT BINARY)";
+    private static final String NEXTVAL_SQL = "SELECT nextval('journal_entries_seq') FROM generate_series(1, ?)";
+    private static final byte[] COPY_SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+    private static final short COLUMN_COUNT = 7;
+    private static final LocalDateTime POSTGRES_EPOCH = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Assigns ids and COPYs the entries into {@code table}, which must have the journal_entries
+     * columns. Joins the caller's transaction, so run it inside one.
+     */
+    public void copy(String table, List<JournalEntry> entries) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            if (!connection.isWrapperFor(PGConnection.class)) {
+                throw new IllegalStateException("COPY requires a PostgreSQL connection");
+            }
+            assignIds(entries);
+            byte[] payload = encode(entries);
+            connection.unwrap(PGConnection.class).getCopyAPI()
+                    .copyIn(String.format(COPY_SQL, table), new ByteArrayInputStream(payload));
+        } catch (SQLException | IOException e) {
+            throw new IllegalStateException("COPY into " + table + " failed", e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    /**
+     * Reserves ids from the same pooled-lo sequence Hibernate uses: each nextval
+     * hands out a block of {@link JournalEntry#ID_ALLOCATION_SIZE} ids starting at the returned value.
+     */
+    private void assignIds(List<JournalEntry> entries) {
+        int blocks = (entries.size() + JournalEntry.ID_ALLOCATION_SIZE - 1) / JournalEntry.ID_ALLOCATION_SIZE;
+        List<Long> blockStarts = jdbcTemplate.queryForList(NEXTVAL_SQL, Long.class, blocks);
+        for (int i = 0; i < entries.size(); i++) {
+            long blockStart = blockStarts.get(i / JournalEntry.ID_ALLOCATION_SIZE);
+            entries.get(i).setId(blockStart + i % JournalEntry.ID_ALLOCATION_SIZE);
+        }
+    }
+
+    private byte[] encode(List<JournalEntry> entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(entries.size() * 256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.write(COPY_SIGNATURE);
+        out.writeInt(0); // flags
+        out.writeInt(0); // header extension length
+        for (JournalEntry entry : entries) {
+            out.writeShort(COLUMN_COUNT);
+            writeLong(out, entry.getId());
+            writeText(out, entry.getEventType());
+            writeLong(out, entry.getUserId());
+            writeText(out, entry.getUsername());
+            writeTimestamp(out, entry.getEventTimestamp());
+            writeJsonb(out, entry.getDetailsJson());
+            writeTimestamp(out, entry.getReceivedTimestamp());
+        }
+        out.writeShort(-1); // trailer
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void writeLong(DataOutputStream out, Long value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(Long.BYTES);
+        out.writeLong(value);
+    }
+
+    private static void writeText(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static void writeJsonb(DataOutputStream out, String json) throws IOException {
+        if (json == null) {
+            out.writeInt(-1);
+            return;
+        }
+        // Binary jsonb: a format version byte (1) followed by the JSON text
+        byte[] utf8 = json.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length + 1);
+        out.writeByte(1);
+        out.write(utf8);
+    }
+
+    private static void writeTimestamp(DataOutputStream out, LocalDateTime value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        // Binary timestamp: microseconds since 2000-01-01 00:00:00
+        out.writeInt(Long.BYTES);
+        out.writeLong(ChronoUnit.MICROS.between(POSTGRES_EPOCH, value));
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.journalservice.service;
+
+import com.example.journalservice.entity.JournalEntry;
+
+import java.util.List;
+
+/**
+ * Published by every journal write path inside the transaction that inserts the entries.
+ * Plain {@code @EventListener}s run in that transaction (use them for projections that must
+ * commit or roll back with the journal); {@code @TransactionalEventListener}s run after commit.
+ */
+public record JournalEntriesPersistedEvent(List<JournalEntry> entries) {
+}
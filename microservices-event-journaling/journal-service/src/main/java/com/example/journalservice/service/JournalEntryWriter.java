@@ -0,0 +1,115 @@
+package com.example.journalservice.service;
+
+import com.example.journalservice.entity.JournalEntry;
+import com.example.journalservice.repository.JournalEntryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+@Service
+public class JournalEntryWriter {
+    private static final Logger logger = LoggerFactory.getLogger(JournalEntryWriter.class);
+
+    @Autowired
+    private JournalEntryRepository journalEntryRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private JournalMetrics journalMetrics;
+
+    /**
+     * Persists all entries in one transaction. With a pooled sequence and
+     * hibernate.jdbc.batch_size set, Hibernate sends them as JDBC batches.
+     */
+    public void writeBatch(List<JournalEntry> entries) {
+        writeBatch(entries, () -> { });
+    }
+
+    /**
+     * Like {@link #writeBatch(List)}, also running {@code inSameTransaction} before the commit so
+     * that bookkeeping (e.g. a replay checkpoint) commits or rolls back together with the entries.
+     */
+    public void writeBatch(List<JournalEntry> entries, Runnable inSameTransaction) {
+        journalMetrics.timeWrite("jpa", "batch", () -> transactionTemplate.executeWithoutResult(status -> {
+            journalEntryRepository.saveAll(entries);
+            eventPublisher.publishEvent(new JournalEntriesPersistedEvent(entries));
+            inSameTransaction.run();
+        }));
+    }
+
+    /**
+     * Writes the entries as one batch. If the database rejects the batch's data, falls back to
+     * {@link #writeIndividually}. Any other failure (database down, timeouts) is rethrown, so the
+     * caller never acknowledges entries that were not written.
+     */
+    public void writeWithFallback(List<JournalEntry> entries) {
+        try {
+            writeBatch(entries);
+            logger.info("Persisted {} journal entries", entries.size());
+        } catch (RuntimeException e) {
+            journalMetrics.recordError("write-batch", e);
+            if (!isRejectedData(e)) {
+                throw e;
+            }
+            logger.warn("Batch insert of {} journal entries was rejected, retrying one by one", entries.size(), e);
+            entries.forEach(entry -> entry.setId(null)); // The ids assigned during the failed batch were never written
+            int persisted = writeIndividually(entries);
+            logger.info("Persisted {} of {} journal entries individually", persisted, entries.size());
+        }
+    }
+
+    /**
+     * Fallback used when a batch is rejected: each entry is saved in its own transaction so one bad
+     * row does not take the rest of the poll down with it. Entries the database rejects are logged
+     * and skipped; any other failure is rethrown, and the entries saved before it stay committed.
+     *
+     * @return the number of entries that were persisted
+     */
+    public int writeIndividually(List<JournalEntry> entries) {
+        int persisted = 0;
+        for (JournalEntry entry : entries) {
+            entry.setId(null); // The id assigned during the failed batch was never written
+            try {
+                journalMetrics.timeWrite("jpa", "single", () -> transactionTemplate.executeWithoutResult(status -> {
+                    journalEntryRepository.save(entry);
+                    eventPublisher.publishEvent(new JournalEntriesPersistedEvent(List.of(entry)));
+                }));
+                persisted++;
+            } catch (RuntimeException e) {
+                journalMetrics.recordError("write-entry", e);
+                if (!isRejectedData(e)) {
+                    throw e;
+                }
+                logger.error("Skipping journal entry for user {} ({}) rejected by the database",
+                        entry.getUserId(), entry.getEventType(), e);
+            }
+        }
+        return persisted;
+    }
+
+    /**
+     * True when the database refused the rows themselves (constraint violations and invalid values,
+     * SQLSTATE classes 22 and 23), as opposed to the write failing for reasons unrelated to the rows.
+     */
+    static boolean isRejectedData(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DataIntegrityViolationException
+                    || cause instanceof org.hibernate.exception.ConstraintViolationException
+                    || cause instanceof org.hibernate.exception.DataException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
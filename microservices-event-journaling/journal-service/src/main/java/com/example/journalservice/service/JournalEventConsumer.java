@@ -3,15 +3,28 @@ package com.example.journalservice.service;
 
 import com.example.journalservice.dto.UserEvent;
 import com.example.journalservice.entity.JournalEntry;
-import com.example.journalservice.repository.JournalEntryRepository;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
 @Service
 public class JournalEventConsumer {
     private static final Logger logger = LoggerFactory.getLogger(JournalEventConsumer.class);
@@ -19,36 +32,95 @@ public class JournalEventConsumer {
     private static final String GROUP_ID = "journal-group";
 
     @Autowired
-    private JournalEntryRepository journalEntryRepository;
+    private JournalSink journalSink;
 
     @Autowired
     private ObjectMapper objectMapper; // For converting Map to JSON string
 
+    @Autowired
+    private JournalMetrics journalMetrics;
+
+    @Autowired
+    @Qualifier("journalShardExecutor")
+    private AsyncTaskExecutor journalShardExecutor;
+
+    @Value("${journal.consumer.shard-workers:1}")
+    private int shardWorkers;
+
     @KafkaListener(topics = TOPIC_NAME, groupId = GROUP_ID,
             containerFactory = "userEventKafkaListenerContainerFactory") // Reference the factory
-    public void consumeUserEvent(UserEvent event) {
-        logger.info("Received event from Kafka: {}", event);
+    public void consumeUserEvents(List<ConsumerRecord<String, UserEvent>> records, Acknowledgment acknowledgment,
+                                  Consumer<?, ?> consumer) {
+        logger.info("Received {} events from Kafka", records.size());
+        journalMetrics.recordLag(consumer);
+        List<JournalEntry> entries = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, UserEvent> record : records) {
+            JournalEntry entry = toJournalEntry(record);
+            if (entry != null) {
+                journalMetrics.recordReceived(entry);
+                entries.add(entry);
+            }
+        }
+        if (entries.isEmpty()) {
+            acknowledgment.acknowledge();
+            return;
+        }
+
+        Map<Integer, List<JournalEntry>> shards = shardByUser(entries);
+        if (shards.size() == 1) {
+            journalSink.write(entries, acknowledgment::acknowledge);
+            return;
+        }
+        // Different users are written in parallel; each shard keeps its users' events in poll order.
+        // The batch is acknowledged only once the sink reports every shard as committed.
+        AtomicInteger pendingShards = new AtomicInteger(shards.size());
+        Runnable onShardCommitted = () -> {
+            if (pendingShards.decrementAndGet() == 0) {
+                acknowledgment.acknowledge();
+            }
+        };
+        CompletableFuture.allOf(shards.values().stream()
+                        .map(shard -> CompletableFuture.runAsync(() -> journalSink.write(shard, onShardCommitted), journalShardExecutor))
+                        .toArray(CompletableFuture[]::new))
+                .join();
+    }
+
+    private Map<Integer, List<JournalEntry>> shardByUser(List<JournalEntry> entries) {
+        Map<Integer, List<JournalEntry>> shards = new LinkedHashMap<>();
+        for (JournalEntry entry : entries) {
+            int shard = shardWorkers > 1 ? Math.floorMod(Objects.hashCode(entry.getUserId()), shardWorkers) : 0;
+            shards.computeIfAbsent(shard, k -> new ArrayList<>()).add(entry);
+        }
+        return shards;
+    }
+
+    // Also used by JournalRebuildService, so replayed records map to entries exactly as live ones do
+    JournalEntry toJournalEntry(ConsumerRecord<String, UserEvent> record) {
+        UserEvent event = record.value();
+        if (event == null) {
+            // ErrorHandlingDeserializer hands us a null value when the payload could not be deserialized
+            logger.error("Skipping undeserializable record at {}-{}@{}", record.topic(), record.partition(), record.offset());
+            journalMetrics.recordError("deserialize", "DeserializationException");
+            return null;
+        }
         try {
             String detailsJson = null;
             if (event.getDetails() != null) {
                 detailsJson = objectMapper.writeValueAsString(event.getDetails());
             }
 
-            JournalEntry entry = new JournalEntry(
+            return new JournalEntry(
                     event.getEventType(),
                     event.getUserId(),
                     event.getUsername(),
                     event.getTimestamp(),
                     detailsJson
             );
-            journalEntryRepository.save(entry);
-            logger.info("Persisted journal entry: {}", entry.getId());
         } catch (JsonProcessingException e) {
             logger.error("Error serializing event details to JSON: {}", event.getDetails(), e);
+            journalMetrics.recordError("map", e);
             // Decide how to handle: DLQ, log and skip, etc.
-        } catch (Exception e) {
-            logger.error("Error processing consumed event: {}", event, e);
-            // Potentially rethrow to trigger Kafka error handling / retry
+            return null;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,201 @@
+package com.example.journalservice.service;
+
+import com.example.journalservice.exception.InvalidJournalQueryException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams journal entries straight from a PostgreSQL server-side cursor to an output stream.
+ * Rows are fetched {@code journal.export.fetch-size} at a time and written as they arrive,
+ * so memory use does not depend on how many rows are exported.
+ */
+@Service
+public class JournalExportService {
+
+    public enum Format { NDJSON, CSV }
+
+    private static final String CSV_HEADER = "id,event_type,user_id,username,event_timestamp,details_json,received_timestamp";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${journal.export.fetch-size:1000}")
+    private int fetchSize;
+
+    private JdbcTemplate cursorJdbcTemplate;
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    public void init() {
+        cursorJdbcTemplate = new JdbcTemplate(dataSource);
+        cursorJdbcTemplate.setFetchSize(fetchSize);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    public static Format parseFormat(String format) {
+        try {
+            return Format.valueOf(format.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidJournalQueryException("Unsupported export format: " + format);
+        }
+    }
+
+    /**
+     * Writes every entry matching the (all optional) filters, oldest first, to {@code out}.
+     * The stream is flushed but not closed.
+     */
+    public void export(Format format, Long userId, String eventType, LocalDateTime from, LocalDateTime to,
+                       OutputStream out) throws IOException {
+        StringBuilder sql = new StringBuilder("SELECT id, event_type, user_id, username, event_timestamp, "
+                + "details_json, received_timestamp FROM journal_entries WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+        if (userId != null) {
+            sql.append(" AND user_id = ?");
+            params.add(userId);
+        }
+        if (eventType != null) {
+            sql.append(" AND event_type = ?");
+            params.add(eventType);
+        }
+        if (from != null) {
+            sql.append(" AND event_timestamp >= ?");
+            params.add(Timestamp.valueOf(from));
+        }
+        if (to != null) {
+            sql.append(" AND event_timestamp < ?");
+            params.add(Timestamp.valueOf(to));
+        }
+        sql.append(" ORDER BY event_timestamp, id");
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        JsonGenerator generator = null;
+        RowCallbackHandler rowWriter;
+        if (format == Format.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+            rowWriter = csvRowWriter(writer);
+        } else {
+            generator = objectMapper.getFactory().createGenerator(writer);
+            // Keep flushes inside our buffers and leave closing the response stream to the caller
+            generator.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            rowWriter = ndjsonRowWriter(generator);
+        }
+        try {
+            // The PostgreSQL driver only uses a server-side cursor (honouring fetch size) outside autocommit
+            readOnlyTransaction.executeWithoutResult(status ->
+                    cursorJdbcTemplate.query(sql.toString(), rowWriter, params.toArray()));
+        } catch (UncheckedIOException e) {
+            throw e.getCause(); // Client went away or similar; surface the original I/O failure
+        }
+        if (generator != null) {
+            generator.flush();
+        }
+        writer.flush();
+    }
+
+    private RowCallbackHandler ndjsonRowWriter(JsonGenerator generator) {
+        return rs -> {
+            try {
+                generator.writeStartObject();
+                generator.writeNumberField("id", rs.getLong("id"));
+                generator.writeStringField("eventType", rs.getString("event_type"));
+                writeNullableLong(generator, "userId", rs, "user_id");
+                generator.writeStringField("username", rs.getString("username"));
+                generator.writeStringField("eventTimestamp", timestampString(rs, "event_timestamp"));
+                String details = rs.getString("details_json");
+                generator.writeFieldName("details");
+                if (details != null) {
+                    generator.writeRawValue(details);
+                } else {
+                    generator.writeNull();
+                }
+                generator.writeStringField("receivedTimestamp", timestampString(rs, "received_timestamp"));
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    private RowCallbackHandler csvRowWriter(Writer writer) {
+        return rs -> {
+            try {
+                writer.write(Long.toString(rs.getLong("id")));
+                writer.write(',');
+                writer.write(csv(rs.getString("event_type")));
+                writer.write(',');
+                long userId = rs.getLong("user_id");
+                writer.write(rs.wasNull() ? "" : Long.toString(userId));
+                writer.write(',');
+                writer.write(csv(rs.getString("username")));
+                writer.write(',');
+                writer.write(csv(timestampString(rs, "event_timestamp")));
+                writer.write(',');
+                writer.write(csv(rs.getString("details_json")));
+                writer.write(',');
+                writer.write(csv(timestampString(rs, "received_timestamp")));
+                writer.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    private static void writeNullableLong(JsonGenerator generator, String field, ResultSet rs, String column)
+            throws IOException, SQLException {
+        long value = rs.getLong(column);
+        if (rs.wasNull()) {
+            generator.writeNullField(field);
+        } else {
+            generator.writeNumberField(field, value);
+        }
+    }
+
+    private static String timestampString(ResultSet rs, String column) throws SQLException {
+        Timestamp timestamp = rs.getTimestamp(column);
+        return timestamp != null ? timestamp.toLocalDateTime().toString() : null;
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
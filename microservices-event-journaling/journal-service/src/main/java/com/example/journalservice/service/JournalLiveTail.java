@@ -0,0 +1,273 @@
+package com.example.journalservice.service;
+
+import com.example.journalservice.dto.JournalEntryDto;
+import com.example.journalservice.entity.JournalEntry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes newly committed journal entries to Server-Sent Events subscribers.
+ * <p>
+ * The committing thread (a Kafka listener or sink flush thread) only does a non-blocking offer into
+ * each matching subscriber's bounded queue. Network writes happen on a separate sender pool, so a
+ * slow client can never stall ingestion. When a subscriber's queue is full, the entry is either
+ * dropped (the client receives a {@code dropped} event with the count) or the subscriber is
+ * disconnected, depending on {@code journal.live.overflow}.
+ * <p>
+ * Each subscriber has at most one sender thread at a time, and only that thread touches its
+ * emitter, completion included, so closing a subscriber never waits on a write in progress. A write
+ * blocked for longer than {@code journal.live.write-timeout-ms} disconnects the subscriber and the
+ * pool grows by one thread until that write returns, so stuck clients cannot starve the others.
+ */
+@Service
+public class JournalLiveTail {
+    private static final Logger logger = LoggerFactory.getLogger(JournalLiveTail.class);
+
+    public enum OverflowPolicy { DROP, DISCONNECT }
+
+    @Autowired
+    private JournalQueryService journalQueryService;
+
+    @Value("${journal.live.buffer-size:256}")
+    private int bufferSize;
+
+    @Value("${journal.live.overflow:drop}")
+    private String overflow;
+
+    @Value("${journal.live.sender-threads:4}")
+    private int senderThreads;
+
+    @Value("${journal.live.write-timeout-ms:10000}")
+    private long writeTimeoutMs;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger stalledSenders = new AtomicInteger();
+    private OverflowPolicy overflowPolicy;
+    private ThreadPoolExecutor senders;
+
+    @PostConstruct
+    public void start() {
+        overflowPolicy = OverflowPolicy.valueOf(overflow.trim().toUpperCase());
+        AtomicInteger threadCount = new AtomicInteger();
+        senders = new ThreadPoolExecutor(senderThreads, senderThreads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "journal-live-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        subscribers.forEach(Subscriber::close);
+        senders.shutdownNow();
+    }
+
+    /**
+     * Registers a subscriber; null filters match everything.
+     */
+    public SseEmitter subscribe(Long userId, String eventType) {
+        return subscribe(new SseEmitter(), userId, eventType); // Uses the MVC async timeout (disabled for this service)
+    }
+
+    SseEmitter subscribe(SseEmitter emitter, Long userId, String eventType) {
+        Subscriber subscriber = new Subscriber(emitter, userId, eventType);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(error -> subscriber.close());
+        subscribers.add(subscriber);
+        logger.info("Live tail subscriber added (userId={}, eventType={}), {} active", userId, eventType, subscribers.size());
+        return emitter;
+    }
+
+    @TransactionalEventListener
+    public void onEntriesPersisted(JournalEntriesPersistedEvent event) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        for (JournalEntry entry : event.entries()) {
+            JournalEntryDto dto = null;
+            for (Subscriber subscriber : subscribers) {
+                if (subscriber.matches(entry)) {
+                    if (dto == null) {
+                        dto = journalQueryService.mapToDto(entry);
+                    }
+                    subscriber.offer(dto);
+                }
+            }
+        }
+    }
+
+    /**
+     * Periodic comment line so proxies keep idle streams open and dead clients are noticed.
+     */
+    @Scheduled(fixedDelayString = "${journal.live.heartbeat-ms:15000}")
+    public void sendHeartbeats() {
+        subscribers.forEach(Subscriber::requestHeartbeat);
+    }
+
+    /**
+     * Disconnects subscribers whose current write has been blocked for longer than the write timeout.
+     */
+    @Scheduled(fixedDelayString = "${journal.live.stall-check-ms:1000}")
+    public void disconnectStalledSubscribers() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.checkStalled(now);
+        }
+    }
+
+    // Keeps senderThreads threads free for healthy subscribers while stalled writes occupy others
+    private synchronized void resizeSenders(int stalled) {
+        int size = senderThreads + Math.max(0, stalled);
+        if (size > senders.getMaximumPoolSize()) {
+            senders.setMaximumPoolSize(size);
+            senders.setCorePoolSize(size);
+        } else {
+            senders.setCorePoolSize(size);
+            senders.setMaximumPoolSize(size);
+        }
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final Long userId;
+        private final String eventType;
+        private final BlockingQueue<JournalEntryDto> queue = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicLong dropped = new AtomicLong();
+        private final AtomicBoolean stalled = new AtomicBoolean();
+        private volatile long writeStartedNanos; // 0 while no write is in progress
+        private volatile boolean heartbeatDue;
+        private volatile boolean closed;
+        private boolean completed; // Only touched by the thread holding draining
+
+        private Subscriber(SseEmitter emitter, Long userId, String eventType) {
+            this.emitter = emitter;
+            this.userId = userId;
+            this.eventType = eventType;
+        }
+
+        private boolean matches(JournalEntry entry) {
+            return !closed
+                    && (userId == null || userId.equals(entry.getUserId()))
+                    && (eventType == null || eventType.equals(entry.getEventType()));
+        }
+
+        private void offer(JournalEntryDto dto) {
+            if (!queue.offer(dto)) {
+                if (overflowPolicy == OverflowPolicy.DISCONNECT) {
+                    logger.warn("Disconnecting slow live tail subscriber (userId={}, eventType={})", userId, eventType);
+                    close();
+                    return;
+                }
+                dropped.incrementAndGet();
+            }
+            scheduleDrain();
+        }
+
+        private void requestHeartbeat() {
+            heartbeatDue = true;
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (!closed && draining.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                while (!closed) {
+                    if (heartbeatDue) {
+                        heartbeatDue = false;
+                        send(SseEmitter.event().comment("heartbeat"));
+                    }
+                    long droppedCount = dropped.getAndSet(0);
+                    if (droppedCount > 0) {
+                        send(SseEmitter.event().name("dropped").data(droppedCount));
+                    }
+                    JournalEntryDto next = queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    send(SseEmitter.event()
+                            .name("journal-entry")
+                            .id(String.valueOf(next.getId()))
+                            .data(next, MediaType.APPLICATION_JSON));
+                }
+            } catch (IOException | IllegalStateException e) {
+                logger.debug("Live tail subscriber went away", e);
+                close();
+            } finally {
+                if (stalled.getAndSet(false)) {
+                    resizeSenders(stalledSenders.decrementAndGet());
+                }
+                if (closed && !completed) {
+                    completed = true;
+                    subscribers.remove(this);
+                    emitter.complete();
+                }
+                draining.set(false);
+            }
+            if (!closed && (!queue.isEmpty() || heartbeatDue || dropped.get() > 0)) {
+                scheduleDrain(); // Work arrived after the last poll but before the flag was cleared
+            }
+        }
+
+        private void send(SseEmitter.SseEventBuilder event) throws IOException {
+            writeStartedNanos = System.nanoTime();
+            try {
+                emitter.send(event);
+            } finally {
+                writeStartedNanos = 0;
+            }
+        }
+
+        private void checkStalled(long now) {
+            long started = writeStartedNanos;
+            if (started != 0 && now - started > TimeUnit.MILLISECONDS.toNanos(writeTimeoutMs)
+                    && stalled.compareAndSet(false, true)) {
+                logger.warn("Disconnecting live tail subscriber blocked in a write for over {} ms (userId={}, eventType={})",
+                        writeTimeoutMs, userId, eventType);
+                resizeSenders(stalledSenders.incrementAndGet());
+                close();
+            }
+        }
+
+        /**
+         * Stops delivery. Safe from any thread: the emitter is completed (and the subscriber removed)
+         * by this subscriber's sender, right away if it is idle or once its current write returns.
+         */
+        private void close() {
+            if (!closed) {
+                closed = true;
+                queue.clear();
+                if (!senders.isShutdown() && draining.compareAndSet(false, true)) {
+                    senders.execute(this::drain);
+                }
+            }
+        }
+    }
+}
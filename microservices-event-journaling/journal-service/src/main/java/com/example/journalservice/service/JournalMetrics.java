@@ -0,0 +1,137 @@
+package com.example.journalservice.service;
+
+import com.example.journalservice.entity.JournalEntry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ingest metrics for the journal pipeline, exported through {@code /actuator/prometheus}:
+ * <ul>
+ *     <li>{@code journal.ingest.receive.delay} - event time to the consumer building the entry</li>
+ *     <li>{@code journal.ingest.persist.delay} - event time to the entry's transaction committing</li>
+ *     <li>{@code journal.db.write} - duration of each write, tagged {@code sink}, {@code mode} and {@code outcome}</li>
+ *     <li>{@code journal.consumer.lag} - records behind the log end, per assigned partition, as of the last poll</li>
+ *     <li>{@code journal.errors} - failures tagged with the pipeline {@code stage} and {@code exception} class</li>
+ * </ul>
+ * Delays are measured against the producer's event timestamp, so they include clock skew between hosts.
+ */
+@Component
+public class JournalMetrics {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<TopicPartition, AtomicLong> partitionLag = new ConcurrentHashMap<>();
+    private Timer receiveDelay;
+    private Timer persistDelay;
+
+    @PostConstruct
+    public void init() {
+        receiveDelay = delayTimer("journal.ingest.receive.delay",
+                "Time from the event being produced to the journal consumer receiving it");
+        persistDelay = delayTimer("journal.ingest.persist.delay",
+                "Time from the event being produced to its journal entry being committed");
+    }
+
+    private Timer delayTimer(String name, String description) {
+        return Timer.builder(name)
+                .description(description)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofHours(1))
+                .register(meterRegistry);
+    }
+
+    public void recordReceived(JournalEntry entry) {
+        recordDelay(receiveDelay, entry.getEventTimestamp(), entry.getReceivedTimestamp());
+    }
+
+    @TransactionalEventListener
+    public void onEntriesPersisted(JournalEntriesPersistedEvent event) {
+        LocalDateTime committedAt = LocalDateTime.now();
+        for (JournalEntry entry : event.entries()) {
+            recordDelay(persistDelay, entry.getEventTimestamp(), committedAt);
+        }
+    }
+
+    private static void recordDelay(Timer timer, LocalDateTime from, LocalDateTime to) {
+        if (from != null && to != null) {
+            // Producer clocks running ahead would give negative delays; count them as zero
+            timer.record(Math.max(0, ChronoUnit.MICROS.between(from, to)), TimeUnit.MICROSECONDS);
+        }
+    }
+
+    /**
+     * Refreshes the lag gauges of the partitions assigned to {@code consumer}. Uses the lag the
+     * client already knows from its last fetch, so this makes no broker round trip. A partition that
+     * moves to another instance keeps its last value here until it is assigned back.
+     */
+    public void recordLag(Consumer<?, ?> consumer) {
+        for (TopicPartition partition : consumer.assignment()) {
+            OptionalLong lag = consumer.currentLag(partition);
+            if (lag.isPresent()) {
+                partitionLag.computeIfAbsent(partition, this::registerLagGauge).set(lag.getAsLong());
+            }
+        }
+    }
+
+    private AtomicLong registerLagGauge(TopicPartition partition) {
+        AtomicLong lag = new AtomicLong();
+        Gauge.builder("journal.consumer.lag", lag, AtomicLong::get)
+                .description("Records between the journal consumer's position and the end of the partition")
+                .tag("topic", partition.topic())
+                .tag("partition", String.valueOf(partition.partition()))
+                .register(meterRegistry);
+        return lag;
+    }
+
+    /**
+     * Times one database write. {@code sink} is the writing component (jpa, copy), {@code mode}
+     * how the entries went in (batch, single); failures are timed too, tagged {@code outcome=failure}.
+     */
+    public void timeWrite(String sink, String mode, Runnable write) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failure";
+        try {
+            write.run();
+            outcome = "success";
+        } finally {
+            sample.stop(Timer.builder("journal.db.write")
+                    .description("Duration of journal database writes")
+                    .tag("sink", sink)
+                    .tag("mode", mode)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
+    }
+
+    public void recordError(String stage, Throwable error) {
+        recordError(stage, error.getClass().getSimpleName());
+    }
+
+    public void recordError(String stage, String exception) {
+        Counter.builder("journal.errors")
+                .description("Journal pipeline failures")
+                .tag("stage", stage)
+                .tag("exception", exception)
+                .register(meterRegistry)
+                .increment();
+    }
+}
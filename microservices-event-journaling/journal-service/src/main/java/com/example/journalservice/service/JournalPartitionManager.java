@@ -0,0 +1,124 @@
+package com.example.journalservice.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps monthly journal_entries partitions ahead of the clock and applies retention by
+ * dropping whole partitions, which is instant and leaves nothing to vacuum.
+ */
+@Component
+public class JournalPartitionManager {
+    private static final Logger logger = LoggerFactory.getLogger(JournalPartitionManager.class);
+
+    private static final Pattern UPPER_BOUND = Pattern.compile("TO \\('([^']+)'\\)");
+    private static final DateTimeFormatter BOUND_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${journal.partitions.premake-months:3}")
+    private int premakeMonths;
+
+    @Value("${journal.retention.months:0}")
+    private int retentionMonths;
+
+    @Scheduled(cron = "${journal.partitions.maintenance-cron:0 0 1 * * *}")
+    public void maintainPartitions() {
+        createFuturePartitions();
+        if (retentionMonths > 0) {
+            dropExpiredPartitions();
+        }
+    }
+
+    /**
+     * Creates one partition per month from the current month (or the end of the newest existing
+     * range, if later) up to {@code premake-months} ahead. Rows that already landed in the default
+     * partition for a new month are moved into it, since PostgreSQL refuses to create a partition
+     * whose range the default partition still holds.
+     */
+    public void createFuturePartitions() {
+        LocalDate currentMonth = LocalDate.now().withDayOfMonth(1);
+        LocalDate month = currentMonth;
+        for (PartitionInfo partition : listRangePartitions()) {
+            LocalDate upper = partition.upperBound().toLocalDate();
+            if (upper.isAfter(month)) {
+                month = upper;
+            }
+        }
+        LocalDate last = currentMonth.plusMonths(premakeMonths);
+        for (; !month.isAfter(last); month = month.plusMonths(1)) {
+            createPartition("journal_entries_p" + month.format(PARTITION_SUFFIX), month, month.plusMonths(1));
+        }
+    }
+
+    private void createPartition(String name, LocalDate from, LocalDate to) {
+        String createSql = "CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF journal_entries "
+                + "FOR VALUES FROM ('" + from + "') TO ('" + to + "')";
+        String inRange = " WHERE event_timestamp >= '" + from + "' AND event_timestamp < '" + to + "'";
+        String defaultPartition = JournalSchemaInitializer.DEFAULT_PARTITION;
+        boolean defaultHasRows = Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM " + defaultPartition + inRange + ")", Boolean.class));
+        if (!defaultHasRows) {
+            logger.info("Creating journal partition {}", name);
+            jdbcTemplate.execute(createSql);
+            return;
+        }
+        // Detaching takes the parent's ACCESS EXCLUSIVE lock, so inserts wait until the rows have moved
+        logger.info("Creating journal partition {} and moving its rows out of {}", name, defaultPartition);
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("ALTER TABLE journal_entries DETACH PARTITION " + defaultPartition);
+            jdbcTemplate.execute(createSql);
+            int moved = jdbcTemplate.update("INSERT INTO " + name + " SELECT * FROM " + defaultPartition + inRange);
+            jdbcTemplate.update("DELETE FROM " + defaultPartition + inRange);
+            jdbcTemplate.execute("ALTER TABLE journal_entries ATTACH PARTITION " + defaultPartition + " DEFAULT");
+            logger.info("Moved {} journal entries from {} into {}", moved, defaultPartition, name);
+        });
+    }
+
+    /**
+     * Drops every range partition whose upper bound is at or before the retention cutoff.
+     */
+    public void dropExpiredPartitions() {
+        LocalDateTime cutoff = LocalDate.now().withDayOfMonth(1).minusMonths(retentionMonths).atStartOfDay();
+        for (PartitionInfo partition : listRangePartitions()) {
+            if (!partition.upperBound().isAfter(cutoff)) {
+                logger.info("Dropping journal partition {} (data before {})", partition.name(), partition.upperBound());
+                jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition.name());
+            }
+        }
+    }
+
+    public List<PartitionInfo> listRangePartitions() {
+        return jdbcTemplate.query(
+                "SELECT c.relname, pg_get_expr(c.relpartbound, c.oid) FROM pg_inherits i "
+                        + "JOIN pg_class c ON c.oid = i.inhrelid "
+                        + "WHERE i.inhparent = 'journal_entries'::regclass ORDER BY c.relname",
+                (rs, rowNum) -> {
+                    Matcher matcher = UPPER_BOUND.matcher(rs.getString(2));
+                    return matcher.find()
+                            ? new PartitionInfo(rs.getString(1), LocalDateTime.parse(matcher.group(1), BOUND_FORMAT))
+                            : null; // DEFAULT partition
+                }).stream().filter(partition -> partition != null).toList();
+    }
+
+    public record PartitionInfo(String name, LocalDateTime upperBound) {
+    }
+}
@@ -1,37 +1,453 @@
 package com.example.journalservice.service;
 
+import com.example.journalservice.archive.JournalArchiveStore;
+import com.example.journalservice.dto.EventCountDto;
+import com.example.journalservice.dto.JournalCursorPage;
 import com.example.journalservice.dto.JournalEntryDto;
+import com.example.journalservice.dto.UserActivitySummaryDto;
 import com.example.journalservice.entity.JournalEntry;
+import com.example.journalservice.exception.InvalidJournalQueryException;
+import com.example.journalservice.exception.JournalNotFoundException;
+import com.example.journalservice.exception.SearchIndexUnavailableException;
 import com.example.journalservice.repository.JournalEntryRepository;
+import com.example.journalservice.repository.JournalEntrySpecifications;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.roaringbitmap.longlong.LongIterator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Read side of the journal. Lookups by id, time-window listings and keyset pages span both the hot
+ * journal_entries table and the archived segments of {@link JournalArchiveStore}; search, detail
+ * filters and exports only cover the hot table.
+ */
 @Service
 public class JournalQueryService {
+    // Open ends of a time window; both are far outside any partition we create
+    private static final LocalDateTime EARLIEST = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime LATEST = LocalDateTime.of(9999, 12, 31, 0, 0);
+    private static final int MAX_CURSOR_PAGE_SIZE = 1000;
+    private static final int MAX_ROLLUP_BUCKETS = 10_000;
+    private static final Comparator<JournalEntry> NEWEST_FIRST = Comparator
+            .comparing(JournalEntry::getEventTimestamp).thenComparing(JournalEntry::getId).reversed();
+    private static final Sort NEWEST_FIRST_SORT = Sort.by(Sort.Order.desc("eventTimestamp"), Sort.Order.desc("id"));
+
     @Autowired
     private JournalEntryRepository journalEntryRepository;
     @Autowired
     private ObjectMapper objectMapper;
+    @Autowired
+    private UserActivityProjection userActivityProjection;
+    @Autowired
+    private JournalReadCache journalReadCache;
+    @Autowired
+    private JournalArchiveStore journalArchiveStore;
+    @Autowired
+    private JournalRollupProjection journalRollupProjection;
+    @Autowired(required = false) // Only present with journal.search-index.enabled=true
+    private JournalSearchIndex journalSearchIndex;
+    @Value("${journal.search-index.max-candidates:10000}")
+    private int maxSearchCandidates;
 
     public Page<JournalEntryDto> getAllJournalEntries(Pageable pageable) {
-        return journalEntryRepository.findAll(pageable).map(this::mapToDto);
+        return withArchivedEntries(journalEntryRepository::findAll, null, null, null, pageable);
+    }
+
+    /**
+     * Lists entries with {@code from <= eventTimestamp < to}; only the partitions overlapping the
+     * window are scanned. Either bound may be null for an open-ended window.
+     */
+    public Page<JournalEntryDto> getAllJournalEntries(LocalDateTime from, LocalDateTime to, Pageable pageable) {
+        if (from == null && to == null) {
+            return getAllJournalEntries(pageable);
+        }
+        return withArchivedEntries(page -> journalEntryRepository.findInTimeRange(orEarliest(from), orLatest(to), page),
+                null, from, to, pageable);
     }
 
     public JournalEntryDto getJournalEntryById(Long id) {
-        return journalEntryRepository.findById(id)
+        return journalReadCache.getEntry(id, key -> journalEntryRepository.findById(key)
+                        .or(() -> journalArchiveStore.findById(key)))
                 .map(this::mapToDto)
-                .orElseThrow(() -> new RuntimeException("Journal entry not found: " + id));
+                .orElseThrow(() -> new JournalNotFoundException("Journal entry not found: " + id));
     }
 
     public Page<JournalEntryDto> getJournalEntriesByUserId(Long userId, Pageable pageable) {
-        return journalEntryRepository.findByUserId(userId, pageable).map(this::mapToDto);
+        return withArchivedEntries(page -> journalEntryRepository.findByUserId(userId, page), userId, null, null, pageable);
+    }
+
+    public Page<JournalEntryDto> getJournalEntriesByUserId(Long userId, LocalDateTime from, LocalDateTime to,
+                                                          Pageable pageable) {
+        if (from == null && to == null) {
+            return getJournalEntriesByUserId(userId, pageable);
+        }
+        return withArchivedEntries(
+                page -> journalEntryRepository.findByUserIdInTimeRange(userId, orEarliest(from), orLatest(to), page),
+                userId, from, to, pageable);
+    }
+
+    /**
+     * Single-row lookup in the user_activity_summary projection.
+     */
+    public UserActivitySummaryDto getUserActivitySummary(Long userId) {
+        return userActivityProjection.findSummary(userId)
+                .orElseThrow(() -> new JournalNotFoundException("No journal activity for user: " + userId));
+    }
+
+    public long rebuildUserActivitySummaries() {
+        return userActivityProjection.rebuild();
+    }
+
+    /**
+     * Event counts per hour or day from the rollup table; the cost depends on the number of buckets
+     * asked for, not on how many entries they count. Defaults to the last 7 days (HOUR) or 90 days (DAY).
+     */
+    public List<EventCountDto> getEventCounts(String granularity, LocalDateTime from, LocalDateTime to,
+                                              String eventType, String role, boolean byRole) {
+        JournalRollupProjection.Granularity unit;
+        try {
+            unit = JournalRollupProjection.Granularity.valueOf(granularity.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidJournalQueryException("Unsupported granularity: " + granularity);
+        }
+        LocalDateTime end = to != null ? to : unit.truncate(LocalDateTime.now()).plus(1, unit.getUnit());
+        LocalDateTime start = from != null ? from
+                : end.minusDays(unit == JournalRollupProjection.Granularity.HOUR ? 7 : 90);
+        if (!start.isBefore(end)) {
+            throw new InvalidJournalQueryException("'from' must be before 'to'");
+        }
+        if (unit.getUnit().between(start, end) > MAX_ROLLUP_BUCKETS) {
+            throw new InvalidJournalQueryException("At most " + MAX_ROLLUP_BUCKETS + " buckets per query");
+        }
+        return journalRollupProjection.findCounts(unit, unit.truncate(start), end, eventType, role, byRole);
+    }
+
+    public int rebuildRollups(LocalDateTime from) {
+        return journalRollupProjection.rebuild(from);
+    }
+
+    /**
+     * Filters by any mix of user, event type, username and time window; null criteria are ignored.
+     */
+    public Page<JournalEntryDto> searchJournalEntries(Long userId, String eventType, String username,
+                                                      LocalDateTime from, LocalDateTime to, Pageable pageable) {
+        Specification<JournalEntry> spec = Specification.where(JournalEntrySpecifications.hasUserId(userId))
+                .and(JournalEntrySpecifications.hasEventType(eventType))
+                .and(JournalEntrySpecifications.hasUsername(username))
+                .and(JournalEntrySpecifications.occurredFrom(from))
+                .and(JournalEntrySpecifications.occurredBefore(to));
+        return journalEntryRepository.findAll(spec, pageable).map(this::mapToDto);
+    }
+
+    /**
+     * Keyset-paginated listing, newest first. Pass the previous page's {@code nextCursor} to continue;
+     * every page is one index range scan with no OFFSET and no count query.
+     */
+    public JournalCursorPage getJournalEntriesAfterCursor(String cursor, int size) {
+        int limit = clampPageSize(size);
+        CursorPosition position = decodeCursor(cursor);
+        List<JournalEntry> entries = journalEntryRepository.findPageBefore(position.timestamp(), position.id(), limit + 1);
+        return toCursorPage(mergeArchivedPage(entries, null, position, limit + 1), limit);
+    }
+
+    public JournalCursorPage getJournalEntriesByUserIdAfterCursor(Long userId, String cursor, int size) {
+        int limit = clampPageSize(size);
+        if ((cursor == null || cursor.isBlank()) && limit <= journalReadCache.getTimelineSize()) {
+            // First page of a user's timeline: served from the cached per-user ring when possible
+            JournalReadCache.RecentEntries recent = journalReadCache.getRecentEntries(userId, limit, count ->
+                    journalEntryRepository.findPageBeforeByUserId(userId, LATEST, Long.MAX_VALUE, count));
+            // A short hot timeline may continue in the archive, which the ring knows nothing about
+            if (recent.hasOlder() || journalArchiveStore.isEmpty()) {
+                JournalEntry last = recent.entries().isEmpty() ? null : recent.entries().get(recent.entries().size() - 1);
+                String nextCursor = recent.hasOlder() && last != null ? encodeCursor(last.getEventTimestamp(), last.getId()) : null;
+                return new JournalCursorPage(recent.entries().stream().map(this::mapToDto).toList(), nextCursor);
+            }
+        }
+        CursorPosition position = decodeCursor(cursor);
+        List<JournalEntry> entries = journalEntryRepository.findPageBeforeByUserId(
+                userId, position.timestamp(), position.id(), limit + 1);
+        return toCursorPage(mergeArchivedPage(entries, userId, position, limit + 1), limit);
+    }
+
+    /**
+     * Completes a keyset page from the archive. Skipped when the hot rows already fill the page with
+     * entries newer than anything archived, which is the common case for recent pages.
+     */
+    private List<JournalEntry> mergeArchivedPage(List<JournalEntry> hot, Long userId, CursorPosition position, int limit) {
+        LocalDateTime newestArchived = journalArchiveStore.getNewestTimestamp().orElse(null);
+        if (newestArchived == null
+                || (hot.size() >= limit && hot.get(hot.size() - 1).getEventTimestamp().isAfter(newestArchived))) {
+            return hot;
+        }
+        List<JournalEntry> archived = journalArchiveStore.findBefore(userId, position.timestamp(), position.id(), limit);
+        // Keyed by id: a partition being archived can briefly be visible in both tiers
+        Map<Long, JournalEntry> merged = new LinkedHashMap<>();
+        hot.forEach(entry -> merged.put(entry.getId(), entry));
+        archived.forEach(entry -> merged.putIfAbsent(entry.getId(), entry));
+        return merged.values().stream().sorted(NEWEST_FIRST).limit(limit).toList();
+    }
+
+    /**
+     * Pages over both tiers when the archive holds matching entries: totals include both, and pages
+     * are newest first, the only order the archive can be read in (any other sort is rejected then).
+     * Usually every hot entry is newer than the archive and pages simply continue into it once the
+     * hot rows run out. Hot entries older than the newest archived one (late events kept in the
+     * default partition, or a partition whose archival failed) are merged in by timestamp instead,
+     * which reads offset + size rows from each tier.
+     */
+    private Page<JournalEntryDto> withArchivedEntries(Function<Pageable, Page<JournalEntry>> hotQuery, Long userId,
+                                                      LocalDateTime from, LocalDateTime to, Pageable pageable) {
+        if (journalArchiveStore.isEmpty() || pageable.isUnpaged()) {
+            return hotQuery.apply(pageable).map(this::mapToDto);
+        }
+        long archivedTotal = journalArchiveStore.countInTimeRange(userId, from, to);
+        if (archivedTotal == 0) {
+            return hotQuery.apply(pageable).map(this::mapToDto);
+        }
+        if (!isNewestFirst(pageable.getSort())) {
+            throw new InvalidJournalQueryException("Results that include archived entries can only be sorted "
+                    + "newest first (eventTimestamp,desc); narrow the time range to the hot tier for other sorts");
+        }
+        LocalDateTime newestArchived = journalArchiveStore.getNewestTimestamp().orElseThrow();
+        LocalDateTime oldestHot = userId == null
+                ? journalEntryRepository.findOldestTimestamp(orEarliest(from), orLatest(to))
+                : journalEntryRepository.findOldestTimestampByUserId(userId, orEarliest(from), orLatest(to));
+
+        if (oldestHot == null || oldestHot.isAfter(newestArchived)) {
+            Page<JournalEntry> hot = hotQuery.apply(
+                    PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), NEWEST_FIRST_SORT));
+            List<JournalEntry> content = new ArrayList<>(hot.getContent());
+            int missing = pageable.getPageSize() - content.size();
+            if (missing > 0) {
+                long archiveOffset = Math.max(0, pageable.getOffset() - hot.getTotalElements());
+                content.addAll(journalArchiveStore.findInTimeRange(userId, from, to, archiveOffset, missing));
+            }
+            return new PageImpl<>(content.stream().map(this::mapToDto).toList(), pageable,
+                    hot.getTotalElements() + archivedTotal);
+        }
+
+        int window = Math.toIntExact(Math.min(pageable.getOffset() + pageable.getPageSize(), Integer.MAX_VALUE));
+        Page<JournalEntry> hot = hotQuery.apply(PageRequest.of(0, window, NEWEST_FIRST_SORT));
+        List<JournalEntry> archived = journalArchiveStore.findInTimeRange(userId, from, to, 0, window);
+        // Keyed by id: a partition being archived can briefly be visible in both tiers
+        Map<Long, JournalEntry> merged = new LinkedHashMap<>();
+        hot.forEach(entry -> merged.put(entry.getId(), entry));
+        archived.forEach(entry -> merged.putIfAbsent(entry.getId(), entry));
+        List<JournalEntryDto> content = merged.values().stream()
+                .sorted(NEWEST_FIRST)
+                .skip(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .map(this::mapToDto)
+                .toList();
+        return new PageImpl<>(content, pageable, hot.getTotalElements() + archivedTotal);
+    }
+
+    private static boolean isNewestFirst(Sort sort) {
+        List<Sort.Order> orders = sort.toList();
+        return orders.isEmpty()
+                || (orders.get(0).getProperty().equals("eventTimestamp") && orders.get(0).isDescending()
+                && orders.stream().skip(1).allMatch(order -> order.getProperty().equals("id") && order.isDescending()));
+    }
+
+    /**
+     * Index-backed search by username substring and/or detail words, newest id first. The cursor is
+     * the last id of the previous page. Candidates come from {@link JournalSearchIndex}; only the
+     * rows of the requested page are read from the database. At most {@code max-candidates} ids are
+     * looked up per request: when they run out first, the page is short (possibly empty) and its
+     * {@code nextCursor} continues after the last id looked up.
+     */
+    public JournalCursorPage searchIndexedEntries(String username, String detail, String cursor, int size) {
+        if (journalSearchIndex == null) {
+            throw new SearchIndexUnavailableException("Journal search index is disabled");
+        }
+        if ((username == null || username.isBlank()) && (detail == null || detail.isBlank())) {
+            throw new InvalidJournalQueryException("A username or detail search term is required");
+        }
+        int limit = clampPageSize(size);
+        long beforeId;
+        try {
+            beforeId = cursor == null || cursor.isBlank() ? Long.MAX_VALUE : Long.parseLong(cursor);
+        } catch (NumberFormatException e) {
+            throw new InvalidJournalQueryException("Invalid cursor: " + cursor, e);
+        }
+        String usernameTerm = username == null || username.isBlank() ? null : username.trim();
+        String detailTerm = detail == null || detail.isBlank() ? null : detail.trim();
+
+        LongIterator ids = journalSearchIndex.findCandidates(usernameTerm, detailTerm).getReverseLongIterator();
+        String needle = usernameTerm != null ? usernameTerm.toLowerCase(Locale.ROOT) : null;
+        List<JournalEntry> matches = new ArrayList<>();
+        List<Long> chunk = new ArrayList<>(limit + 1);
+        int examined = 0;
+        long lastExamined = beforeId;
+        boolean capped = false;
+        while (matches.size() <= limit && ids.hasNext()) {
+            long id = ids.next();
+            if (id >= beforeId) {
+                continue;
+            }
+            if (examined == maxSearchCandidates) {
+                capped = true;
+                break;
+            }
+            examined++;
+            lastExamined = id;
+            chunk.add(id);
+            if (chunk.size() > limit) {
+                addVerifiedMatches(chunk, needle, matches);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty() && matches.size() <= limit) {
+            addVerifiedMatches(chunk, needle, matches);
+        }
+
+        boolean hasMore = matches.size() > limit;
+        List<JournalEntry> page = hasMore ? matches.subList(0, limit) : matches;
+        String nextCursor = hasMore ? String.valueOf(page.get(page.size() - 1).getId())
+                : capped ? String.valueOf(lastExamined) : null;
+        return new JournalCursorPage(page.stream().map(this::mapToDto).toList(), nextCursor);
+    }
+
+    // Loads the candidate ids (hot table first, then the archive) and keeps real username substring matches
+    private void addVerifiedMatches(List<Long> ids, String usernameNeedle, List<JournalEntry> matches) {
+        Map<Long, JournalEntry> found = new HashMap<>();
+        journalEntryRepository.findAllById(ids).forEach(entry -> found.put(entry.getId(), entry));
+        for (Long id : ids) {
+            JournalEntry entry = found.get(id);
+            if (entry == null && !journalArchiveStore.isEmpty()) {
+                entry = journalArchiveStore.findById(id).orElse(null);
+            }
+            if (entry != null && (usernameNeedle == null || (entry.getUsername() != null
+                    && entry.getUsername().toLowerCase(Locale.ROOT).contains(usernameNeedle)))) {
+                matches.add(entry);
+            }
+        }
+    }
+
+    private JournalCursorPage toCursorPage(List<JournalEntry> entries, int limit) {
+        // One extra row was fetched to tell whether another page exists
+        boolean hasMore = entries.size() > limit;
+        List<JournalEntry> page = hasMore ? entries.subList(0, limit) : entries;
+        String nextCursor = null;
+        if (hasMore) {
+            JournalEntry last = page.get(page.size() - 1);
+            nextCursor = encodeCursor(last.getEventTimestamp(), last.getId());
+        }
+        return new JournalCursorPage(page.stream().map(this::mapToDto).toList(), nextCursor);
+    }
+
+    private static int clampPageSize(int size) {
+        if (size < 1) {
+            throw new InvalidJournalQueryException("Page size must be positive: " + size);
+        }
+        return Math.min(size, MAX_CURSOR_PAGE_SIZE);
+    }
+
+    private static String encodeCursor(LocalDateTime timestamp, Long id) {
+        String position = timestamp + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static CursorPosition decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return new CursorPosition(LATEST, Long.MAX_VALUE); // First page: everything sorts before this
+        }
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = position.indexOf('|');
+            return new CursorPosition(LocalDateTime.parse(position.substring(0, separator)),
+                    Long.parseLong(position.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new InvalidJournalQueryException("Invalid cursor: " + cursor, e);
+        }
+    }
+
+    private record CursorPosition(LocalDateTime timestamp, long id) {
+    }
+
+    /**
+     * Finds entries whose details contain the given JSON document and/or key paths.
+     * Key paths such as {@code assignedRole} or {@code updatedFields.email} are folded into the
+     * containment document ({@code {"updatedFields":{"email":...}}}), so every filter is a single
+     * GIN-indexed {@code @>} predicate.
+     *
+     * @param containsJson optional JSON object the details must contain
+     * @param keyPaths     dotted detail paths mapped to the string value they must equal
+     * @param eventType    optional event type filter
+     */
+    public Page<JournalEntryDto> getJournalEntriesByDetails(String containsJson, Map<String, String> keyPaths,
+                                                            String eventType, Pageable pageable) {
+        String filter = buildContainmentFilter(containsJson, keyPaths);
+        Page<JournalEntry> entries = eventType != null
+                ? journalEntryRepository.findByEventTypeAndDetailsContaining(eventType, filter, pageable)
+                : journalEntryRepository.findByDetailsContaining(filter, pageable);
+        return entries.map(this::mapToDto);
+    }
+
+    private String buildContainmentFilter(String containsJson, Map<String, String> keyPaths) {
+        ObjectNode filter;
+        if (containsJson != null && !containsJson.isBlank()) {
+            try {
+                JsonNode parsed = objectMapper.readTree(containsJson);
+                if (!parsed.isObject()) {
+                    throw new InvalidJournalQueryException("Details filter must be a JSON object: " + containsJson);
+                }
+                filter = (ObjectNode) parsed;
+            } catch (JsonProcessingException e) {
+                throw new InvalidJournalQueryException("Details filter is not valid JSON: " + containsJson, e);
+            }
+        } else {
+            filter = objectMapper.createObjectNode();
+        }
+
+        for (Map.Entry<String, String> keyPath : keyPaths.entrySet()) {
+            String[] segments = keyPath.getKey().split("\\.");
+            ObjectNode parent = filter;
+            for (int i = 0; i < segments.length - 1; i++) {
+                JsonNode child = parent.get(segments[i]);
+                parent = child instanceof ObjectNode ? (ObjectNode) child : parent.putObject(segments[i]);
+            }
+            parent.put(segments[segments.length - 1], keyPath.getValue());
+        }
+
+        if (filter.isEmpty()) {
+            throw new InvalidJournalQueryException("At least one details filter is required");
+        }
+        return filter.toString();
+    }
+
+    private static LocalDateTime orEarliest(LocalDateTime from) {
+        return from != null ? from : EARLIEST;
+    }
+
+    private static LocalDateTime orLatest(LocalDateTime to) {
+        return to != null ? to : LATEST;
     }
 
-    private JournalEntryDto mapToDto(JournalEntry entry) {
+    public JournalEntryDto mapToDto(JournalEntry entry) {
         return new JournalEntryDto(
                 entry.getId(),
                 entry.getEventType(),
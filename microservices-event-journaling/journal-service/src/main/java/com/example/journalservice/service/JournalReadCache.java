@@ -0,0 +1,133 @@
+package com.example.journalservice.service;
+
+import com.example.journalservice.entity.JournalEntry;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * In-process cache for journal reads. Entries never change after insert, so they are cached by id
+ * until evicted by size. Each cached user also gets a small timeline of their most recent entries,
+ * seeded from the database on first read and then kept current by appending newly committed
+ * entries, so a hot user's latest events are served without a query.
+ * <p>
+ * Hit, miss and eviction counts are published to Micrometer as {@code cache.*} meters tagged
+ * {@code cache=journal.entries} and {@code cache=journal.user-timelines}.
+ */
+@Service
+public class JournalReadCache {
+
+    private static final Comparator<JournalEntry> NEWEST_FIRST = Comparator
+            .comparing(JournalEntry::getEventTimestamp)
+            .thenComparing(JournalEntry::getId)
+            .reversed();
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${journal.cache.entries.max-size:100000}")
+    private long maxEntries;
+
+    @Value("${journal.cache.users.max-size:10000}")
+    private long maxUsers;
+
+    @Value("${journal.cache.users.timeline-size:50}")
+    private int timelineSize;
+
+    private Cache<Long, JournalEntry> entriesById;
+    private Cache<Long, UserTimeline> timelinesByUser;
+
+    @PostConstruct
+    public void init() {
+        entriesById = Caffeine.newBuilder().maximumSize(maxEntries).recordStats().build();
+        timelinesByUser = Caffeine.newBuilder().maximumSize(maxUsers).recordStats().build();
+        CaffeineCacheMetrics.monitor(meterRegistry, entriesById, "journal.entries");
+        CaffeineCacheMetrics.monitor(meterRegistry, timelinesByUser, "journal.user-timelines");
+    }
+
+    public int getTimelineSize() {
+        return timelineSize;
+    }
+
+    public Optional<JournalEntry> getEntry(Long id, Function<Long, Optional<JournalEntry>> loader) {
+        // A null mapping result is not cached, so unknown ids keep going to the database
+        return Optional.ofNullable(entriesById.get(id, key -> loader.apply(key).orElse(null)));
+    }
+
+    /**
+     * Returns up to {@code limit} (at most the timeline size) of the user's newest entries, plus whether
+     * older ones exist. On a miss, {@code loader} is asked for the newest {@code timelineSize + 1} entries.
+     */
+    public RecentEntries getRecentEntries(Long userId, int limit, IntFunction<List<JournalEntry>> loader) {
+        UserTimeline timeline = timelinesByUser.get(userId, key -> {
+            List<JournalEntry> newest = loader.apply(timelineSize + 1);
+            UserTimeline loaded = new UserTimeline(newest.size() > timelineSize);
+            newest.stream().limit(timelineSize).forEach(loaded::add);
+            return loaded;
+        });
+        return timeline.newest(limit);
+    }
+
+    @TransactionalEventListener
+    public void onEntriesPersisted(JournalEntriesPersistedEvent event) {
+        for (JournalEntry entry : event.entries()) {
+            entriesById.put(entry.getId(), entry);
+            if (entry.getUserId() != null) {
+                // Only extend timelines that are already cached; others are seeded from the database on demand.
+                // computeIfPresent serializes with a concurrent seed, and add() ignores entries the seed already saw.
+                timelinesByUser.asMap().computeIfPresent(entry.getUserId(), (userId, timeline) -> {
+                    timeline.add(entry);
+                    return timeline;
+                });
+            }
+        }
+    }
+
+    public record RecentEntries(List<JournalEntry> entries, boolean hasOlder) {
+    }
+
+    /** Bounded, newest-first ring of one user's entries. */
+    private class UserTimeline {
+        private final List<JournalEntry> entries = new ArrayList<>(timelineSize + 1);
+        private boolean hasOlder;
+
+        private UserTimeline(boolean hasOlder) {
+            this.hasOlder = hasOlder;
+        }
+
+        private synchronized void add(JournalEntry entry) {
+            for (JournalEntry existing : entries) {
+                if (existing.getId().equals(entry.getId())) {
+                    return;
+                }
+            }
+            int position = 0;
+            while (position < entries.size() && NEWEST_FIRST.compare(entries.get(position), entry) < 0) {
+                position++;
+            }
+            entries.add(position, entry);
+            if (entries.size() > timelineSize) {
+                entries.remove(entries.size() - 1);
+                hasOlder = true;
+            }
+        }
+
+        private synchronized RecentEntries newest(int limit) {
+            int count = Math.min(limit, entries.size());
+            return new RecentEntries(new ArrayList<>(entries.subList(0, count)), hasOlder || entries.size() > count);
+        }
+    }
+}
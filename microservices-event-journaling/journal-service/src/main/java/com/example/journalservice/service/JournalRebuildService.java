@@ -0,0 +1,357 @@
+package com.example.journalservice.service;
+
+import com.example.journalservice.dto.JournalRebuildRequest;
+import com.example.journalservice.dto.JournalRebuildStatus;
+import com.example.journalservice.dto.UserEvent;
+import com.example.journalservice.entity.JournalEntry;
+import com.example.journalservice.exception.InvalidJournalQueryException;
+import com.example.journalservice.exception.JournalNotFoundException;
+import com.example.journalservice.exception.RebuildInProgressException;
+import com.example.journalservice.serialization.UserEventDeserializer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Rebuilds the journal from Kafka into a fresh table, e.g. after a schema change or losing the
+ * journal database. Replays {@code user-events} from the beginning, a timestamp or an offset up
+ * to the end offsets seen at start, using consumers that are assigned partitions directly: they
+ * have no group id and never commit, so the live {@code journal-group} offsets are untouched.
+ * Partitions are split across {@code journal.rebuild.readers} threads, each bulk-loading its polls
+ * with binary COPY; indexes are created once the load finishes. Swapping the rebuilt table in is a
+ * deliberate manual step.
+ */
+@Service
+public class JournalRebuildService {
+    private static final Logger logger = LoggerFactory.getLogger(JournalRebuildService.class);
+
+    private static final Pattern TABLE_NAME = Pattern.compile("[a-z_][a-z0-9_]{0,62}");
+    private static final DateTimeFormatter DEFAULT_TABLE_SUFFIX = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    @Autowired
+    private JournalEventConsumer journalEventConsumer;
+
+    @Autowired
+    private JournalCopyWriter journalCopyWriter;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${spring.kafka.bootstrap-servers}")
+    private String bootstrapServers;
+
+    @Value("${journal.rebuild.topic:user-events}")
+    private String topic;
+
+    @Value("${journal.rebuild.readers:4}")
+    private int readers;
+
+    @Value("${journal.rebuild.batch-size:5000}")
+    private int batchSize;
+
+    @Value("${journal.rebuild.progress-log-interval-ms:10000}")
+    private long progressLogIntervalMs;
+
+    private RebuildJob currentJob;
+
+    public synchronized JournalRebuildStatus start(JournalRebuildRequest request) {
+        if (currentJob != null && currentJob.state.equals("RUNNING")) {
+            throw new RebuildInProgressException("A journal rebuild into " + currentJob.targetTable + " is already running");
+        }
+        if (request.getFromTimestamp() != null && request.getFromOffset() != null) {
+            throw new InvalidJournalQueryException("Specify either fromTimestamp or fromOffset, not both");
+        }
+        String table = request.getTargetTable() != null ? request.getTargetTable().trim()
+                : "journal_entries_rebuild_" + LocalDateTime.now().format(DEFAULT_TABLE_SUFFIX);
+        if (!TABLE_NAME.matcher(table).matches() || table.equals("journal_entries")) {
+            throw new InvalidJournalQueryException("Invalid rebuild target table: " + table);
+        }
+        if (jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, table)) {
+            throw new InvalidJournalQueryException("Rebuild target table already exists: " + table);
+        }
+
+        RebuildJob job = new RebuildJob(table, planPartitions(request));
+        // A plain (unpartitioned) copy of the columns; indexes are added after the bulk load
+        jdbcTemplate.execute("CREATE TABLE " + table + " (LIKE journal_entries INCLUDING DEFAULTS)");
+        currentJob = job;
+        Thread coordinator = new Thread(() -> run(job), "journal-rebuild");
+        coordinator.setDaemon(true);
+        coordinator.start();
+        logger.info("Started journal rebuild into {}: {} records in {} partitions", table,
+                job.recordsTotal, job.partitions.size());
+        return job.toStatus();
+    }
+
+    public synchronized JournalRebuildStatus getStatus() {
+        if (currentJob == null) {
+            throw new JournalNotFoundException("No journal rebuild has been started");
+        }
+        return currentJob.toStatus();
+    }
+
+    /** Stops the readers; the partially loaded table is left in place for inspection or dropping. */
+    public synchronized JournalRebuildStatus cancel() {
+        if (currentJob == null || !currentJob.state.equals("RUNNING")) {
+            throw new JournalNotFoundException("No journal rebuild is running");
+        }
+        currentJob.cancelled = true;
+        return currentJob.toStatus();
+    }
+
+    private Map<TopicPartition, PartitionProgress> planPartitions(JournalRebuildRequest request) {
+        try (KafkaConsumer<String, UserEvent> consumer = createConsumer()) {
+            List<TopicPartition> partitions = new ArrayList<>();
+            for (PartitionInfo info : consumer.partitionsFor(topic)) {
+                partitions.add(new TopicPartition(topic, info.partition()));
+            }
+            Map<TopicPartition, Long> beginning = consumer.beginningOffsets(partitions);
+            Map<TopicPartition, Long> end = consumer.endOffsets(partitions);
+            Map<TopicPartition, OffsetAndTimestamp> byTime = null;
+            if (request.getFromTimestamp() != null) {
+                long millis = request.getFromTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+                Map<TopicPartition, Long> query = new HashMap<>();
+                partitions.forEach(partition -> query.put(partition, millis));
+                byTime = consumer.offsetsForTimes(query);
+            }
+            Map<TopicPartition, PartitionProgress> plan = new HashMap<>();
+            for (TopicPartition partition : partitions) {
+                long endOffset = end.get(partition);
+                long startOffset = beginning.get(partition);
+                if (byTime != null) {
+                    OffsetAndTimestamp found = byTime.get(partition);
+                    startOffset = found != null ? found.offset() : endOffset; // Nothing that recent
+                } else if (request.getFromOffset() != null) {
+                    startOffset = Math.max(startOffset, Math.min(request.getFromOffset(), endOffset));
+                }
+                plan.put(partition, new PartitionProgress(partition.partition(), startOffset, endOffset));
+            }
+            return plan;
+        }
+    }
+
+    private void run(RebuildJob job) {
+        List<List<TopicPartition>> assignments = new ArrayList<>();
+        List<TopicPartition> pending = job.partitions.entrySet().stream()
+                .filter(partition -> partition.getValue().startOffset < partition.getValue().endOffset)
+                .map(Map.Entry::getKey)
+                .toList();
+        int readerCount = Math.max(1, Math.min(readers, pending.size()));
+        for (int i = 0; i < readerCount; i++) {
+            assignments.add(new ArrayList<>());
+        }
+        for (int i = 0; i < pending.size(); i++) {
+            assignments.get(i % readerCount).add(pending.get(i));
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService readerPool = Executors.newFixedThreadPool(readerCount, r -> {
+            Thread thread = new Thread(r, "journal-rebuild-reader-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            CompletableFuture<?>[] readersDone = assignments.stream()
+                    .filter(assignment -> !assignment.isEmpty())
+                    .map(assignment -> CompletableFuture.runAsync(() -> {
+                        try {
+                            read(job, assignment);
+                        } catch (RuntimeException e) {
+                            job.cancelled = true; // Stop the other readers instead of loading a table that will be discarded
+                            throw e;
+                        }
+                    }, readerPool))
+                    .toArray(CompletableFuture[]::new);
+            CompletableFuture<Void> allDone = CompletableFuture.allOf(readersDone);
+            while (true) {
+                try {
+                    allDone.get(progressLogIntervalMs, TimeUnit.MILLISECONDS);
+                    break;
+                } catch (TimeoutException e) {
+                    JournalRebuildStatus status = job.toStatus();
+                    logger.info("Journal rebuild into {}: {}/{} records, {} entries/s", job.targetTable,
+                            status.getRecordsRead(), status.getRecordsTotal(), Math.round(status.getEntriesPerSecond()));
+                }
+            }
+            if (job.cancelled) {
+                job.finish("CANCELLED", null);
+                logger.info("Journal rebuild into {} cancelled", job.targetTable);
+                return;
+            }
+            createIndexes(job.targetTable);
+            job.finish("COMPLETED", null);
+            logger.info("Journal rebuild into {} completed: {} entries at {} entries/s", job.targetTable,
+                    job.entriesWritten.get(), Math.round(job.toStatus().getEntriesPerSecond()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.cancelled = true;
+            job.finish("FAILED", "Interrupted");
+        } catch (ExecutionException | RuntimeException e) {
+            Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+            job.finish("FAILED", String.valueOf(cause.getMessage()));
+            logger.error("Journal rebuild into {} failed", job.targetTable, cause);
+        } finally {
+            readerPool.shutdown();
+        }
+    }
+
+    private void read(RebuildJob job, Collection<TopicPartition> partitions) {
+        try (KafkaConsumer<String, UserEvent> consumer = createConsumer()) {
+            consumer.assign(partitions);
+            partitions.forEach(partition -> consumer.seek(partition, job.partitions.get(partition).startOffset));
+            Set<TopicPartition> remaining = new HashSet<>(partitions);
+            while (!remaining.isEmpty() && !job.cancelled) {
+                ConsumerRecords<String, UserEvent> records = consumer.poll(Duration.ofMillis(500));
+                List<JournalEntry> batch = new ArrayList<>(records.count());
+                for (TopicPartition partition : records.partitions()) {
+                    long endOffset = job.partitions.get(partition).endOffset;
+                    for (ConsumerRecord<String, UserEvent> record : records.records(partition)) {
+                        if (record.offset() >= endOffset) {
+                            break; // Written after the rebuild started; the live consumer handles it
+                        }
+                        job.recordsRead.incrementAndGet();
+                        JournalEntry entry = journalEventConsumer.toJournalEntry(record);
+                        if (entry == null) {
+                            job.recordsSkipped.incrementAndGet();
+                            continue;
+                        }
+                        // The original receive time is gone; the broker timestamp is the closest stand-in
+                        entry.setReceivedTimestamp(LocalDateTime.ofInstant(Instant.ofEpochMilli(record.timestamp()),
+                                ZoneId.systemDefault()));
+                        batch.add(entry);
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    transactionTemplate.executeWithoutResult(status -> journalCopyWriter.copy(job.targetTable, batch));
+                    job.entriesWritten.addAndGet(batch.size());
+                }
+                for (TopicPartition partition : new ArrayList<>(remaining)) {
+                    PartitionProgress progress = job.partitions.get(partition);
+                    long position = consumer.position(partition);
+                    progress.position.set(Math.min(position, progress.endOffset));
+                    if (position >= progress.endOffset) {
+                        remaining.remove(partition);
+                        consumer.pause(List.of(partition));
+                    }
+                }
+            }
+        }
+    }
+
+    private void createIndexes(String table) {
+        jdbcTemplate.execute("ALTER TABLE " + table + " ADD PRIMARY KEY (id, event_timestamp)");
+        jdbcTemplate.execute("CREATE INDEX " + table + "_ts_id ON " + table + " (event_timestamp, id)");
+        jdbcTemplate.execute("CREATE INDEX " + table + "_user_ts_id ON " + table + " (user_id, event_timestamp, id)");
+        jdbcTemplate.execute("CREATE INDEX " + table + "_details ON " + table + " USING GIN (details_json jsonb_path_ops)");
+        jdbcTemplate.execute("ANALYZE " + table);
+    }
+
+    /**
+     * A consumer outside any group: no group.id, no auto-commit, partitions assigned by hand.
+     */
+    private KafkaConsumer<String, UserEvent> createConsumer() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, batchSize);
+        props.put(ConsumerConfig.FETCH_MAX_BYTES_CONFIG, 64 * 1024 * 1024);
+        props.put(ConsumerConfig.MAX_PARTITION_FETCH_BYTES_CONFIG, 8 * 1024 * 1024);
+        props.put(ConsumerConfig.CLIENT_ID_CONFIG, "journal-rebuild");
+        return new KafkaConsumer<>(props, new StringDeserializer(),
+                new ErrorHandlingDeserializer<>(new UserEventDeserializer()));
+    }
+
+    private static final class PartitionProgress {
+        private final int partition;
+        private final long startOffset;
+        private final long endOffset;
+        private final AtomicLong position;
+
+        private PartitionProgress(int partition, long startOffset, long endOffset) {
+            this.partition = partition;
+            this.startOffset = startOffset;
+            this.endOffset = endOffset;
+            this.position = new AtomicLong(startOffset);
+        }
+    }
+
+    private static final class RebuildJob {
+        private final String targetTable;
+        private final Map<TopicPartition, PartitionProgress> partitions;
+        private final long recordsTotal;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final long startedNanos = System.nanoTime();
+        private final AtomicLong recordsRead = new AtomicLong();
+        private final AtomicLong entriesWritten = new AtomicLong();
+        private final AtomicLong recordsSkipped = new AtomicLong();
+        private volatile boolean cancelled;
+        private volatile String state = "RUNNING";
+        private volatile String error;
+        private volatile LocalDateTime finishedAt;
+        private volatile long finishedNanos;
+
+        private RebuildJob(String targetTable, Map<TopicPartition, PartitionProgress> partitions) {
+            this.targetTable = targetTable;
+            this.partitions = partitions;
+            this.recordsTotal = partitions.values().stream()
+                    .mapToLong(partition -> partition.endOffset - partition.startOffset).sum();
+        }
+
+        private void finish(String finalState, String failure) {
+            finishedNanos = System.nanoTime();
+            finishedAt = LocalDateTime.now();
+            error = failure;
+            state = finalState;
+        }
+
+        private JournalRebuildStatus toStatus() {
+            long elapsedNanos = (finishedAt != null ? finishedNanos : System.nanoTime()) - startedNanos;
+            double seconds = Math.max(elapsedNanos / 1e9, 0.001);
+            List<JournalRebuildStatus.PartitionProgress> progress = partitions.values().stream()
+                    .sorted((a, b) -> Integer.compare(a.partition, b.partition))
+                    .map(partition -> new JournalRebuildStatus.PartitionProgress(partition.partition,
+                            partition.startOffset, partition.position.get(), partition.endOffset))
+                    .toList();
+            return new JournalRebuildStatus(state, targetTable, startedAt, finishedAt, recordsTotal,
+                    recordsRead.get(), entriesWritten.get(), recordsSkipped.get(), entriesWritten.get() / seconds,
+                    error, progress);
+        }
+    }
+}
@@ -0,0 +1,377 @@
+package com.example.journalservice.service;
+
+import com.example.journalservice.archive.JournalArchiveStore;
+import com.example.journalservice.dto.EventCountDto;
+import com.example.journalservice.entity.JournalEntry;
+import com.example.journalservice.exception.RebuildInProgressException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains journal_rollups: event counts per hour and per day, by event type, and additionally by
+ * role for role events (USER_CREATED roles, ROLE_ASSIGNED, ROLE_REMOVED). Like
+ * {@link UserActivityProjection} it runs inside the transaction that inserts the entries, so the
+ * counters never drift from the journal. Rows with an empty role hold the per-type totals.
+ * <p>
+ * Each transaction adds its counts to one randomly chosen stripe of every bucket, so parallel
+ * writers rarely wait on each other's row locks for the same hot bucket; reads sum the stripes.
+ */
+@Service
+public class JournalRollupProjection {
+    private static final Logger logger = LoggerFactory.getLogger(JournalRollupProjection.class);
+
+    public enum Granularity {
+        HOUR(ChronoUnit.HOURS), DAY(ChronoUnit.DAYS);
+
+        private final ChronoUnit unit;
+
+        Granularity(ChronoUnit unit) {
+            this.unit = unit;
+        }
+
+        public LocalDateTime truncate(LocalDateTime timestamp) {
+            return timestamp.truncatedTo(unit);
+        }
+
+        public ChronoUnit getUnit() {
+            return unit;
+        }
+    }
+
+    private static final String ALL_ROLES = "";
+    private static final String ROLLUP_TABLE = "journal_rollups";
+    private static final String SHADOW_TABLE = "journal_rollups_rebuild";
+    // Keys of entries committed while a rebuild runs; its existence is what tells writers to record them
+    private static final String PENDING_TABLE = "journal_rollups_pending";
+    private static final String UPSERT_SQL = "INSERT INTO %1$s "
+            + "(granularity, bucket_start, event_type, role, stripe, event_count) VALUES (?, ?, ?, ?, ?, ?) "
+            + "ON CONFLICT (granularity, bucket_start, event_type, role, stripe) "
+            + "DO UPDATE SET event_count = %1$s.event_count + EXCLUDED.event_count";
+    private static final int REBUILD_CHUNK_SIZE = 5000;
+    // Rebuild start when no journal data is held at all: every existing bucket is kept
+    private static final LocalDateTime NOTHING_HELD = LocalDateTime.of(9999, 1, 1, 0, 0);
+
+    // Role dimension of one entry for the set-based rebuild: the all-roles row plus any roles it names
+    private static final String ROLES_OF_ENTRY_SQL = "SELECT '' AS role "
+            + "UNION ALL SELECT e.details_json ->> 'assignedRole' "
+            + "WHERE e.event_type = 'ROLE_ASSIGNED' AND e.details_json ->> 'assignedRole' IS NOT NULL "
+            + "UNION ALL SELECT e.details_json ->> 'removedRole' "
+            + "WHERE e.event_type = 'ROLE_REMOVED' AND e.details_json ->> 'removedRole' IS NOT NULL "
+            + "UNION ALL SELECT jsonb_array_elements_text(e.details_json -> 'roles') "
+            + "WHERE e.event_type = 'USER_CREATED' AND jsonb_typeof(e.details_json -> 'roles') = 'array'";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JournalPartitionManager journalPartitionManager;
+
+    @Autowired
+    private JournalArchiveStore journalArchiveStore;
+
+    @Value("${journal.rollups.stripes:8}")
+    private int stripes;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private TransactionTemplate snapshotTransaction;
+
+    @PostConstruct
+    public void init() {
+        snapshotTransaction = new TransactionTemplate(transactionManager);
+        snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    @EventListener
+    public void onEntriesPersisted(JournalEntriesPersistedEvent event) {
+        apply(event.entries());
+    }
+
+    /**
+     * Adds the entries to their buckets and, while a rebuild runs, records them for it. Runs in the
+     * transaction that inserts the entries.
+     */
+    void apply(List<JournalEntry> entries) {
+        applyTo(ROLLUP_TABLE, entries, ThreadLocalRandom.current().nextInt(stripes));
+        if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT to_regclass(?) IS NOT NULL", Boolean.class, PENDING_TABLE))) {
+            jdbcTemplate.batchUpdate("INSERT INTO " + PENDING_TABLE + " (id, event_timestamp) VALUES (?, ?) "
+                            + "ON CONFLICT DO NOTHING",
+                    entries, entries.size(), (ps, entry) -> {
+                        ps.setLong(1, entry.getId());
+                        ps.setTimestamp(2, Timestamp.valueOf(entry.getEventTimestamp()));
+                    });
+        }
+    }
+
+    /**
+     * Aggregates the entries in memory and upserts one row per touched bucket in a single batch.
+     * Rows are written in key order so concurrent writers lock them in the same order.
+     */
+    private void applyTo(String table, List<JournalEntry> entries, int stripe) {
+        Map<RollupKey, Long> counts = new TreeMap<>();
+        for (JournalEntry entry : entries) {
+            String eventType = String.valueOf(entry.getEventType());
+            List<String> roles = rolesOf(entry);
+            for (Granularity granularity : Granularity.values()) {
+                LocalDateTime bucket = granularity.truncate(entry.getEventTimestamp());
+                counts.merge(new RollupKey(granularity, bucket, eventType, ALL_ROLES), 1L, Long::sum);
+                for (String role : roles) {
+                    counts.merge(new RollupKey(granularity, bucket, eventType, role), 1L, Long::sum);
+                }
+            }
+        }
+        if (counts.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<RollupKey, Long>> rows = new ArrayList<>(counts.entrySet());
+        jdbcTemplate.batchUpdate(String.format(UPSERT_SQL, table), rows, rows.size(), (ps, row) -> {
+            RollupKey key = row.getKey();
+            ps.setString(1, key.granularity().name());
+            ps.setTimestamp(2, Timestamp.valueOf(key.bucketStart()));
+            ps.setString(3, key.eventType());
+            ps.setString(4, key.role());
+            ps.setInt(5, stripe);
+            ps.setLong(6, row.getValue());
+        });
+    }
+
+    /**
+     * Time series of counts in {@code from <= bucketStart < to}, oldest first. Without a role filter
+     * and without {@code byRole}, rows are per-type totals; {@code byRole} breaks role events down per
+     * role, and {@code role} restricts the series to one role.
+     */
+    public List<EventCountDto> findCounts(Granularity granularity, LocalDateTime from, LocalDateTime to,
+                                          String eventType, String role, boolean byRole) {
+        StringBuilder sql = new StringBuilder("SELECT bucket_start, event_type, role, sum(event_count) "
+                + "FROM journal_rollups WHERE granularity = ? AND bucket_start >= ? AND bucket_start < ?");
+        List<Object> params = new ArrayList<>(List.of(granularity.name(), Timestamp.valueOf(from), Timestamp.valueOf(to)));
+        if (eventType != null) {
+            sql.append(" AND event_type = ?");
+            params.add(eventType);
+        }
+        if (role != null) {
+            sql.append(" AND role = ?");
+            params.add(role);
+        } else {
+            sql.append(byRole ? " AND role <> ''" : " AND role = ''");
+        }
+        sql.append(" GROUP BY bucket_start, event_type, role ORDER BY bucket_start, event_type, role");
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> {
+            String rowRole = rs.getString(3);
+            return new EventCountDto(rs.getTimestamp(1).toLocalDateTime(), rs.getString(2),
+                    rowRole.isEmpty() ? null : rowRole, rs.getLong(4));
+        }, params.toArray());
+    }
+
+    /**
+     * Recomputes the buckets from the start of {@code from}'s day into a shadow table while ingest and
+     * reads keep using the live one, then swaps it in, as {@link UserActivityProjection#rebuild} does:
+     * <ol>
+     * <li>creating the pending table makes every journal write from then on record its entry keys;</li>
+     * <li>one repeatable-read snapshot copies the buckets before the start unchanged, then replays the
+     * archive and journal_entries from the start;</li>
+     * <li>entries committed after that snapshot are replayed from the pending table, the last of
+     * them in the swap transaction, which holds journal writes back only for the rename.</li>
+     * </ol>
+     * The start is never earlier than the oldest entry still held, hot or archived: older buckets
+     * count entries that retention has dropped, so they can only be kept, not recomputed. Without
+     * {@code from} everything still held is recomputed.
+     *
+     * @return the number of rollup rows from the start on after the rebuild
+     */
+    public int rebuild(LocalDateTime from) {
+        if (!rebuilding.compareAndSet(false, true)) {
+            throw new RebuildInProgressException("A journal rollup rebuild is already running");
+        }
+        boolean swapped = false;
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                // Waits for in-flight journal writes, so every later one sees the pending table
+                jdbcTemplate.execute("LOCK TABLE journal_entries IN SHARE MODE");
+                jdbcTemplate.execute("DROP TABLE IF EXISTS " + SHADOW_TABLE + ", " + PENDING_TABLE);
+                jdbcTemplate.execute("CREATE TABLE " + SHADOW_TABLE + " (LIKE " + ROLLUP_TABLE + " INCLUDING ALL)");
+                jdbcTemplate.execute("CREATE TABLE " + PENDING_TABLE + " ("
+                        + "id BIGINT NOT NULL, event_timestamp TIMESTAMP NOT NULL, PRIMARY KEY (id, event_timestamp))");
+            });
+            LocalDateTime start = snapshotTransaction.execute(status -> replaySnapshot(from));
+            transactionTemplate.executeWithoutResult(status -> replayPending());
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.execute("LOCK TABLE journal_entries IN SHARE MODE");
+                replayPending();
+                jdbcTemplate.execute("DROP TABLE " + PENDING_TABLE);
+                jdbcTemplate.execute("DROP TABLE " + ROLLUP_TABLE);
+                jdbcTemplate.execute("ALTER TABLE " + SHADOW_TABLE + " RENAME TO " + ROLLUP_TABLE);
+                jdbcTemplate.execute("ALTER INDEX " + SHADOW_TABLE + "_pkey RENAME TO " + ROLLUP_TABLE + "_pkey");
+            });
+            swapped = true;
+            Integer rows = jdbcTemplate.queryForObject("SELECT count(*) FROM " + ROLLUP_TABLE + " WHERE bucket_start >= ?",
+                    Integer.class, Timestamp.valueOf(start));
+            logger.info("Rebuilt journal rollups from {}: {} rows", start, rows);
+            return rows != null ? rows : 0;
+        } finally {
+            if (!swapped) {
+                jdbcTemplate.execute("DROP TABLE IF EXISTS " + SHADOW_TABLE + ", " + PENDING_TABLE);
+            }
+            rebuilding.set(false);
+        }
+    }
+
+    /**
+     * Fills the shadow table from the current snapshot and returns the start it recomputed from.
+     * Runs first in a repeatable-read transaction.
+     */
+    private LocalDateTime replaySnapshot(LocalDateTime from) {
+        // Locking the partitions first keeps the archiver from dropping one between listing and reading it
+        jdbcTemplate.execute("LOCK TABLE journal_entries IN ACCESS SHARE MODE");
+        // Entries this snapshot already sees are replayed below, not from the pending table
+        jdbcTemplate.update("DELETE FROM " + PENDING_TABLE);
+        LocalDateTime start = replayStart(from);
+        Timestamp startTimestamp = Timestamp.valueOf(start);
+        jdbcTemplate.update("INSERT INTO " + SHADOW_TABLE + " SELECT * FROM " + ROLLUP_TABLE + " WHERE bucket_start < ?",
+                startTimestamp);
+
+        if (journalArchiveStore.getNewestTimestamp().filter(newest -> !newest.isBefore(start)).isPresent()) {
+            Set<String> hotPartitions = journalPartitionManager.listRangePartitions().stream()
+                    .map(JournalPartitionManager.PartitionInfo::name)
+                    .collect(Collectors.toSet());
+            journalArchiveStore.replayOldestFirst(hotPartitions, entries -> applyTo(SHADOW_TABLE, entries.stream()
+                    .filter(entry -> !entry.getEventTimestamp().isBefore(start))
+                    .toList(), 0));
+        }
+        jdbcTemplate.update("INSERT INTO " + SHADOW_TABLE + " "
+                + "(granularity, bucket_start, event_type, role, stripe, event_count) "
+                + "SELECT g.granularity, date_trunc(g.unit, e.event_timestamp), coalesce(e.event_type, 'null'), "
+                + "r.role, 0, count(*) "
+                + "FROM journal_entries e "
+                + "CROSS JOIN (VALUES ('HOUR', 'hour'), ('DAY', 'day')) AS g (granularity, unit) "
+                + "CROSS JOIN LATERAL (" + ROLES_OF_ENTRY_SQL + ") AS r "
+                + "WHERE e.event_timestamp >= ? "
+                + "GROUP BY 1, 2, 3, 4 "
+                + "ON CONFLICT (granularity, bucket_start, event_type, role, stripe) "
+                + "DO UPDATE SET event_count = " + SHADOW_TABLE + ".event_count + EXCLUDED.event_count", startTimestamp);
+        return start;
+    }
+
+    /** The start of the day of {@code from}, or of the oldest entry still held if that is later. */
+    private LocalDateTime replayStart(LocalDateTime from) {
+        LocalDateTime oldestHot = jdbcTemplate.queryForObject("SELECT min(event_timestamp) FROM journal_entries",
+                LocalDateTime.class);
+        Optional<LocalDateTime> oldestArchived = journalArchiveStore.getOldestTimestamp();
+        LocalDateTime oldest = oldestArchived.filter(archived -> oldestHot == null || archived.isBefore(oldestHot))
+                .orElse(oldestHot);
+        if (oldest == null) {
+            logger.warn("No journal entries are held; keeping every rollup bucket as it is");
+            return NOTHING_HELD;
+        }
+        LocalDateTime start = Granularity.DAY.truncate(from != null && from.isAfter(oldest) ? from : oldest);
+        if (from != null && from.isBefore(start)) {
+            logger.info("Rollup rebuild requested from {}, but entries before {} are no longer held; keeping those buckets",
+                    from, start);
+        }
+        return start;
+    }
+
+    /** Moves the entries recorded in the pending table into the shadow table, chunk by chunk. */
+    private void replayPending() {
+        while (true) {
+            List<JournalEntry> chunk = jdbcTemplate.query("SELECT j.id, j.event_type, j.event_timestamp, j.details_json "
+                            + "FROM " + PENDING_TABLE + " p "
+                            + "JOIN journal_entries j ON j.id = p.id AND j.event_timestamp = p.event_timestamp "
+                            + "ORDER BY j.event_timestamp, j.id LIMIT ?",
+                    (rs, rowNum) -> readEntry(rs), REBUILD_CHUNK_SIZE);
+            if (chunk.isEmpty()) {
+                // Whatever is left no longer exists in journal_entries (e.g. archived since)
+                jdbcTemplate.update("DELETE FROM " + PENDING_TABLE);
+                return;
+            }
+            applyTo(SHADOW_TABLE, chunk, 0);
+            jdbcTemplate.batchUpdate("DELETE FROM " + PENDING_TABLE + " WHERE id = ? AND event_timestamp = ?",
+                    chunk, chunk.size(), (ps, entry) -> {
+                        ps.setLong(1, entry.getId());
+                        ps.setTimestamp(2, Timestamp.valueOf(entry.getEventTimestamp()));
+                    });
+        }
+    }
+
+    private static JournalEntry readEntry(ResultSet rs) throws SQLException {
+        JournalEntry entry = new JournalEntry(rs.getString("event_type"), null, null,
+                rs.getTimestamp("event_timestamp").toLocalDateTime(), rs.getString("details_json"));
+        entry.setId(rs.getLong("id"));
+        return entry;
+    }
+
+    private List<String> rolesOf(JournalEntry entry) {
+        String eventType = entry.getEventType();
+        if (entry.getDetailsJson() == null || !("USER_CREATED".equals(eventType)
+                || "ROLE_ASSIGNED".equals(eventType) || "ROLE_REMOVED".equals(eventType))) {
+            return List.of();
+        }
+        JsonNode details;
+        try {
+            details = objectMapper.readTree(entry.getDetailsJson());
+        } catch (JsonProcessingException e) {
+            logger.warn("Ignoring unreadable details of journal entry {}", entry.getId(), e);
+            return List.of();
+        }
+        List<String> roles = new ArrayList<>();
+        if ("USER_CREATED".equals(eventType) && details.path("roles").isArray()) {
+            details.path("roles").forEach(role -> roles.add(role.asText()));
+        } else if ("ROLE_ASSIGNED".equals(eventType) && details.hasNonNull("assignedRole")) {
+            roles.add(details.get("assignedRole").asText());
+        } else if ("ROLE_REMOVED".equals(eventType) && details.hasNonNull("removedRole")) {
+            roles.add(details.get("removedRole").asText());
+        }
+        return roles;
+    }
+
+    private record RollupKey(Granularity granularity, LocalDateTime bucketStart, String eventType, String role)
+            implements Comparable<RollupKey> {
+        @Override
+        public int compareTo(RollupKey other) {
+            int result = granularity.compareTo(other.granularity);
+            if (result == 0) {
+                result = bucketStart.compareTo(other.bucketStart);
+            }
+            if (result == 0) {
+                result = eventType.compareTo(other.eventType);
+            }
+            return result != 0 ? result : role.compareTo(other.role);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.journalservice.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * Owns the journal schema (Hibernate's ddl-auto is off for this service). journal_entries is a
+ * PostgreSQL table range-partitioned by event_timestamp; partitions themselves are created and
+ * dropped by {@link JournalPartitionManager}. Runs during context startup, before Kafka listeners start.
+ * <p>
+ * A pre-existing, unpartitioned journal_entries table is kept as-is and attached as the
+ * {@code journal_entries_legacy} partition covering everything up to the start of next month,
+ * so no rows are copied and retention can later drop it like any other partition.
+ */
+@Component
+public class JournalSchemaInitializer {
+    private static final Logger logger = LoggerFactory.getLogger(JournalSchemaInitializer.class);
+
+    static final String LEGACY_PARTITION = "journal_entries_legacy";
+    static final String DEFAULT_PARTITION = "journal_entries_default";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private JournalPartitionManager journalPartitionManager;
+
+    @PostConstruct
+    public void initialize() {
+        jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS journal_entries_seq START WITH 1 INCREMENT BY 50");
+
+        boolean migrateLegacy = tableExists("journal_entries") && !isPartitioned("journal_entries");
+        if (migrateLegacy) {
+            prepareLegacyTable();
+        }
+
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS journal_entries ("
+                + "id BIGINT NOT NULL, "
+                + "event_type VARCHAR(255), "
+                + "user_id BIGINT, "
+                + "username VARCHAR(255), "
+                + "event_timestamp TIMESTAMP NOT NULL, "
+                + "details_json JSONB, "
+                + "received_timestamp TIMESTAMP, "
+                + "PRIMARY KEY (id, event_timestamp)"
+                + ") PARTITION BY RANGE (event_timestamp)");
+
+        if (migrateLegacy) {
+            LocalDate upperBound = LocalDate.now().withDayOfMonth(1).plusMonths(1);
+            logger.info("Attaching existing journal rows as partition {} (up to {})", LEGACY_PARTITION, upperBound);
+            jdbcTemplate.execute("ALTER TABLE journal_entries ATTACH PARTITION " + LEGACY_PARTITION
+                    + " FOR VALUES FROM (MINVALUE) TO ('" + upperBound + "')");
+        }
+
+        // Catches rows outside every monthly range so an insert never fails for lack of a partition
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + DEFAULT_PARTITION + " PARTITION OF journal_entries DEFAULT");
+
+        seedIdSequence();
+
+        // Indexes on the parent cascade to every current and future partition.
+        // jsonb_path_ops only supports @>, which is all the detail filters use, and is much smaller than jsonb_ops
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_journal_entries_details "
+                + "ON journal_entries USING GIN (details_json jsonb_path_ops)");
+
+        // Keyset pagination order (event_timestamp DESC, id DESC), globally and per user
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_journal_entries_ts_id "
+                + "ON journal_entries (event_timestamp, id)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_journal_entries_user_ts_id "
+                + "ON journal_entries (user_id, event_timestamp, id)");
+
+        // Multi-criteria search: equality columns first, the event_timestamp range/order column last.
+        // user_id alone and user_id + time use idx_journal_entries_user_ts_id; time alone uses idx_journal_entries_ts_id
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_journal_entries_type_ts "
+                + "ON journal_entries (event_type, event_timestamp)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_journal_entries_user_type_ts "
+                + "ON journal_entries (user_id, event_type, event_timestamp)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_journal_entries_username_ts "
+                + "ON journal_entries (username, event_timestamp)");
+
+        // Per-user read model maintained by UserActivityProjection
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS user_activity_summary ("
+                + "user_id BIGINT PRIMARY KEY, "
+                + "username VARCHAR(255), "
+                + "total_events BIGINT NOT NULL DEFAULT 0, "
+                + "event_counts JSONB NOT NULL DEFAULT '{}', "
+                + "roles JSONB NOT NULL DEFAULT '[]', "
+                + "first_seen TIMESTAMP, "
+                + "last_seen TIMESTAMP)");
+
+        // Hourly/daily counters maintained by JournalRollupProjection; role '' holds the per-type totals
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS journal_rollups ("
+                + "granularity VARCHAR(8) NOT NULL, "
+                + "bucket_start TIMESTAMP NOT NULL, "
+                + "event_type VARCHAR(255) NOT NULL, "
+                + "role VARCHAR(255) NOT NULL, "
+                + "stripe SMALLINT NOT NULL, "
+                + "event_count BIGINT NOT NULL, "
+                + "PRIMARY KEY (granularity, bucket_start, event_type, role, stripe))");
+
+        // Drain position of each instance's local write-ahead log (journal.sink=wal)
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS journal_wal_checkpoint ("
+                + "node_id VARCHAR(255) PRIMARY KEY, "
+                + "position BIGINT NOT NULL)");
+
+        journalPartitionManager.maintainPartitions();
+    }
+
+    /**
+     * Brings an unpartitioned table created by earlier versions into a shape that can be attached
+     * as a partition: jsonb details, non-null partition key and no standalone primary key.
+     */
+    private void prepareLegacyTable() {
+        logger.info("Migrating unpartitioned journal_entries to {}", LEGACY_PARTITION);
+        String detailsType = jdbcTemplate.queryForObject(
+                "SELECT data_type FROM information_schema.columns "
+                        + "WHERE table_name = 'journal_entries' AND column_name = 'details_json'",
+                String.class);
+        if (!"jsonb".equals(detailsType)) {
+            jdbcTemplate.execute("ALTER TABLE journal_entries "
+                    + "ALTER COLUMN details_json TYPE jsonb USING details_json::jsonb");
+        }
+        jdbcTemplate.update("UPDATE journal_entries SET event_timestamp = received_timestamp WHERE event_timestamp IS NULL");
+        jdbcTemplate.execute("ALTER TABLE journal_entries ALTER COLUMN event_timestamp SET NOT NULL");
+        jdbcTemplate.queryForList("SELECT conname FROM pg_constraint "
+                        + "WHERE conrelid = 'journal_entries'::regclass AND contype = 'p'", String.class)
+                .forEach(constraint -> jdbcTemplate.execute(
+                        "ALTER TABLE journal_entries DROP CONSTRAINT \"" + constraint + "\""));
+        // Frees the index name for the partitioned parent; ATTACH builds the matching index on the partition
+        jdbcTemplate.execute("DROP INDEX IF EXISTS idx_journal_entries_details");
+        jdbcTemplate.execute("ALTER TABLE journal_entries RENAME TO " + LEGACY_PARTITION);
+    }
+
+    /**
+     * Moves journal_entries_seq past the highest stored id. Rows written before the sequence existed
+     * (IDENTITY ids of earlier versions) would otherwise collide with new pooled-lo blocks. The
+     * sequence is only ever raised, so running this next to live writers is harmless.
+     */
+    private void seedIdSequence() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT max(id) FROM journal_entries", Long.class);
+        if (maxId == null) {
+            return;
+        }
+        Long next = jdbcTemplate.queryForObject("SELECT CASE WHEN last_value <= ? "
+                + "THEN setval('journal_entries_seq', ?) ELSE last_value END FROM journal_entries_seq", Long.class, maxId, maxId);
+        logger.info("journal_entries_seq is at {} (highest journal id {})", next, maxId);
+    }
+
+    private boolean tableExists(String table) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT to_regclass(?) IS NOT NULL", Boolean.class, table));
+    }
+
+    private boolean isPartitioned(String table) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT relkind = 'p' FROM pg_class WHERE oid = to_regclass(?)", Boolean.class, table));
+    }
+}
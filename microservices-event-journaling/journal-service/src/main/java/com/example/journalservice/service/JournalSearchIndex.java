@@ -0,0 +1,424 @@
+package com.example.journalservice.service;
+
+import com.example.journalservice.archive.JournalArchiveStore;
+import com.example.journalservice.entity.JournalEntry;
+import com.example.journalservice.exception.SearchIndexUnavailableException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Optional in-memory inverted index over usernames and detail values
+ * ({@code journal.search-index.enabled=true}). Each term maps to a compressed Roaring bitmap of
+ * entry ids:
+ * <ul>
+ *     <li>usernames, lowercased, plus their trigrams for substring search;</li>
+ *     <li>every scalar value in {@code detailsJson}, lowercased, whole and split into word tokens.</li>
+ * </ul>
+ * Newly committed entries are indexed as they arrive. The index is snapshotted to disk periodically
+ * and on shutdown; on startup the snapshot is loaded and the tail of journal_entries written since
+ * is re-indexed, so a restart only replays recent rows instead of the whole journal. Adding an id
+ * twice is harmless, which is what makes the overlapping catch-up safe. Before each periodic
+ * snapshot, ids below the oldest one still held in journal_entries or the archive (i.e. dropped by
+ * retention) are cleared from every posting.
+ */
+@Service
+@ConditionalOnProperty(name = "journal.search-index.enabled", havingValue = "true")
+public class JournalSearchIndex {
+    private static final Logger logger = LoggerFactory.getLogger(JournalSearchIndex.class);
+
+    private static final int SNAPSHOT_MAGIC = 0x4A534958; // "JSIX"
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int CATCH_UP_CHUNK_SIZE = 5000;
+    private static final int MAX_TERM_LENGTH = 256;
+    private static final int GRAM_LENGTH = 3;
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JournalArchiveStore journalArchiveStore;
+
+    @Value("${journal.search-index.snapshot-path:journal-search-index.snapshot}")
+    private String snapshotPath;
+
+    // Ids are handed out in blocks and committed out of order, so catch-up re-reads this many ids below the snapshot
+    @Value("${journal.search-index.catch-up-margin:100000}")
+    private long catchUpMargin;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Roaring64NavigableMap> usernames = new HashMap<>();
+    private final Map<String, Roaring64NavigableMap> usernameGrams = new HashMap<>();
+    private final Map<String, Roaring64NavigableMap> detailValues = new HashMap<>();
+    private final Map<String, Roaring64NavigableMap> detailTokens = new HashMap<>();
+    private long maxIndexedId;
+    // Live writes can push maxIndexedId past it while loading, so catch-up starts from this instead
+    private long snapshotMaxId;
+    private volatile boolean ready;
+
+    @PostConstruct
+    public void start() {
+        Thread loader = new Thread(this::load, "journal-search-index-load");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (ready) {
+            writeSnapshot();
+        }
+    }
+
+    @TransactionalEventListener
+    public void onEntriesPersisted(JournalEntriesPersistedEvent event) {
+        index(event.entries());
+    }
+
+    /**
+     * Ids of entries whose username contains {@code username} and whose details contain every word
+     * of {@code detail} (a value without words must match a whole detail value); null criteria are
+     * ignored. Substring matches are candidates: trigrams can match usernames that do not contain
+     * the query, so callers verify the username on the fetched entries.
+     */
+    public Roaring64NavigableMap findCandidates(String username, String detail) {
+        if (!ready) {
+            throw new SearchIndexUnavailableException("Journal search index is still loading");
+        }
+        lock.readLock().lock();
+        try {
+            Roaring64NavigableMap result = null;
+            if (username != null) {
+                result = intersect(result, usernameCandidates(username.toLowerCase(Locale.ROOT)));
+            }
+            if (detail != null) {
+                result = intersect(result, detailCandidates(detail.toLowerCase(Locale.ROOT)));
+            }
+            return result != null ? result : new Roaring64NavigableMap();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${journal.search-index.snapshot-interval-ms:300000}")
+    public void snapshotPeriodically() {
+        if (ready) {
+            discardRemovedIds();
+            writeSnapshot();
+        }
+    }
+
+    private void load() {
+        try {
+            readSnapshot();
+            long from = Math.max(0, snapshotMaxId - catchUpMargin);
+            long indexed = 0;
+            while (true) {
+                List<JournalEntry> chunk = jdbcTemplate.query(
+                        "SELECT id, username, details_json FROM journal_entries WHERE id > ? ORDER BY id LIMIT ?",
+                        (rs, rowNum) -> {
+                            JournalEntry entry = new JournalEntry();
+                            entry.setId(rs.getLong("id"));
+                            entry.setUsername(rs.getString("username"));
+                            entry.setDetailsJson(rs.getString("details_json"));
+                            return entry;
+                        }, from, CATCH_UP_CHUNK_SIZE);
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                index(chunk);
+                indexed += chunk.size();
+                from = chunk.get(chunk.size() - 1).getId();
+            }
+            ready = true;
+            logger.info("Journal search index ready: {} usernames, {} detail tokens ({} entries replayed)",
+                    usernames.size(), detailTokens.size(), indexed);
+        } catch (Exception e) {
+            logger.error("Loading the journal search index failed; search stays unavailable", e);
+        }
+    }
+
+    private void index(List<JournalEntry> entries) {
+        lock.writeLock().lock();
+        try {
+            for (JournalEntry entry : entries) {
+                long id = entry.getId();
+                if (entry.getUsername() != null) {
+                    String username = entry.getUsername().toLowerCase(Locale.ROOT);
+                    add(usernames, username, id);
+                    for (String gram : grams(username)) {
+                        add(usernameGrams, gram, id);
+                    }
+                }
+                if (entry.getDetailsJson() != null) {
+                    indexDetails(entry, id);
+                }
+                maxIndexedId = Math.max(maxIndexedId, id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Clears the ids of entries no longer held anywhere from every posting, so searches stop
+     * looking them up. Nothing is cleared while neither tier holds an entry.
+     */
+    private void discardRemovedIds() {
+        Long oldestHot = jdbcTemplate.queryForObject("SELECT min(id) FROM journal_entries", Long.class);
+        OptionalLong oldestArchived = journalArchiveStore.getOldestId();
+        long cutoff;
+        if (oldestHot != null && oldestArchived.isPresent()) {
+            cutoff = Math.min(oldestHot, oldestArchived.getAsLong());
+        } else if (oldestHot != null) {
+            cutoff = oldestHot;
+        } else if (oldestArchived.isPresent()) {
+            cutoff = oldestArchived.getAsLong();
+        } else {
+            return;
+        }
+        Roaring64NavigableMap removed = new Roaring64NavigableMap();
+        removed.addRange(0, cutoff);
+        lock.writeLock().lock();
+        try {
+            int emptied = 0;
+            for (Map<String, Roaring64NavigableMap> dictionary : List.of(usernames, usernameGrams, detailValues, detailTokens)) {
+                int before = dictionary.size();
+                dictionary.values().removeIf(ids -> {
+                    ids.andNot(removed);
+                    return ids.isEmpty();
+                });
+                emptied += before - dictionary.size();
+            }
+            logger.debug("Cleared journal search index ids below {} ({} terms emptied)", cutoff, emptied);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void indexDetails(JournalEntry entry, long id) {
+        JsonNode details;
+        try {
+            details = objectMapper.readTree(entry.getDetailsJson());
+        } catch (JsonProcessingException e) {
+            logger.warn("Not indexing unreadable details of journal entry {}", id, e);
+            return;
+        }
+        indexValues(details, id);
+    }
+
+    private void indexValues(JsonNode node, long id) {
+        if (node.isContainerNode()) {
+            node.forEach(child -> indexValues(child, id));
+        } else if (!node.isNull()) {
+            String value = node.asText().toLowerCase(Locale.ROOT);
+            if (!value.isEmpty() && value.length() <= MAX_TERM_LENGTH) {
+                add(detailValues, value, id);
+            }
+            for (String token : tokens(value)) {
+                add(detailTokens, token, id);
+            }
+        }
+    }
+
+    private Roaring64NavigableMap usernameCandidates(String query) {
+        Roaring64NavigableMap result = new Roaring64NavigableMap();
+        if (query.length() < GRAM_LENGTH) {
+            // Too short for trigrams: scan the (much smaller) dictionary of distinct usernames
+            usernames.forEach((username, ids) -> {
+                if (username.contains(query)) {
+                    result.or(ids);
+                }
+            });
+            return result;
+        }
+        Roaring64NavigableMap intersection = null;
+        for (String gram : grams(query)) {
+            Roaring64NavigableMap ids = usernameGrams.get(gram);
+            if (ids == null) {
+                return result;
+            }
+            intersection = intersect(intersection, ids);
+        }
+        return intersection;
+    }
+
+    private Roaring64NavigableMap detailCandidates(String query) {
+        Set<String> tokens = tokens(query);
+        if (tokens.isEmpty()) {
+            return copyOf(detailValues.get(query));
+        }
+        Roaring64NavigableMap intersection = null;
+        for (String token : tokens) {
+            Roaring64NavigableMap ids = detailTokens.get(token);
+            if (ids == null) {
+                return new Roaring64NavigableMap();
+            }
+            intersection = intersect(intersection, ids);
+        }
+        return intersection;
+    }
+
+    // Never modifies 'ids', which may be a live posting list
+    private static Roaring64NavigableMap intersect(Roaring64NavigableMap result, Roaring64NavigableMap ids) {
+        if (result == null) {
+            return copyOf(ids);
+        }
+        result.and(ids);
+        return result;
+    }
+
+    private static Roaring64NavigableMap copyOf(Roaring64NavigableMap ids) {
+        Roaring64NavigableMap copy = new Roaring64NavigableMap();
+        if (ids != null) {
+            copy.or(ids);
+        }
+        return copy;
+    }
+
+    private static void add(Map<String, Roaring64NavigableMap> dictionary, String term, long id) {
+        dictionary.computeIfAbsent(term, key -> new Roaring64NavigableMap()).addLong(id);
+    }
+
+    private static Set<String> grams(String value) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= value.length(); i++) {
+            grams.add(value.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+
+    private static Set<String> tokens(String value) {
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String token : TOKEN_SEPARATOR.split(value)) {
+            if (token.length() >= 2 && token.length() <= MAX_TERM_LENGTH) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Writes the index to a temporary file, fsyncs it and renames it over the previous snapshot.
+     * Only copying the bitmaps holds the read lock; indexing goes on while the copy is serialized.
+     */
+    private void writeSnapshot() {
+        Path target = Paths.get(snapshotPath);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        long copiedMaxId;
+        List<Map<String, Roaring64NavigableMap>> copies = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            copiedMaxId = maxIndexedId;
+            for (Map<String, Roaring64NavigableMap> dictionary : List.of(usernames, usernameGrams, detailValues, detailTokens)) {
+                Map<String, Roaring64NavigableMap> copy = new HashMap<>(dictionary.size() * 4 / 3 + 1);
+                dictionary.forEach((term, ids) -> copy.put(term, copyOf(ids)));
+                copies.add(copy);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        try (FileOutputStream file = new FileOutputStream(temp.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 256 * 1024))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeLong(copiedMaxId);
+            for (Map<String, Roaring64NavigableMap> dictionary : copies) {
+                out.writeInt(dictionary.size());
+                for (Map.Entry<String, Roaring64NavigableMap> term : dictionary.entrySet()) {
+                    out.writeUTF(term.getKey());
+                    term.getValue().serialize(out);
+                }
+            }
+            out.flush();
+            file.getFD().sync();
+        } catch (IOException e) {
+            logger.error("Writing journal search index snapshot {} failed", temp, e);
+            return;
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            logger.debug("Wrote journal search index snapshot {}", target);
+        } catch (IOException e) {
+            logger.error("Replacing journal search index snapshot {} failed", target, e);
+        }
+    }
+
+    private void readSnapshot() {
+        Path source = Paths.get(snapshotPath);
+        if (!Files.exists(source)) {
+            logger.info("No journal search index snapshot at {}; indexing the whole journal", source);
+            return;
+        }
+        lock.writeLock().lock();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(source), 256 * 1024))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                throw new IOException("Unrecognized snapshot format");
+            }
+            snapshotMaxId = in.readLong();
+            for (Map<String, Roaring64NavigableMap> dictionary : List.of(usernames, usernameGrams, detailValues, detailTokens)) {
+                int terms = in.readInt();
+                for (int i = 0; i < terms; i++) {
+                    String term = in.readUTF();
+                    Roaring64NavigableMap ids = new Roaring64NavigableMap();
+                    ids.deserialize(in);
+                    // Merge rather than replace: entries committed since startup may already be indexed
+                    dictionary.merge(term, ids, (current, loaded) -> {
+                        current.or(loaded);
+                        return current;
+                    });
+                }
+            }
+            maxIndexedId = Math.max(maxIndexedId, snapshotMaxId);
+            logger.info("Loaded journal search index snapshot {} (up to id {})", source, snapshotMaxId);
+        } catch (IOException e) {
+            logger.warn("Ignoring unreadable journal search index snapshot {}; indexing the whole journal", source, e);
+            usernames.clear();
+            usernameGrams.clear();
+            detailValues.clear();
+            detailTokens.clear();
+            maxIndexedId = 0;
+            snapshotMaxId = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.journalservice.service;
+
+import com.example.journalservice.entity.JournalEntry;
+
+import java.util.List;
+
+/**
+ * Destination for journal entries built by {@link JournalEventConsumer}.
+ * Implementations may persist synchronously or buffer, but must only run
+ * {@code onCommitted} once the entries are durably committed, because the
+ * consumer acknowledges the Kafka offsets from that callback.
+ */
+public interface JournalSink {
+
+    void write(List<JournalEntry> entries, Runnable onCommitted);
+}
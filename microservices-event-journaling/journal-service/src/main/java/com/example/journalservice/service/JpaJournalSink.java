@@ -0,0 +1,29 @@
+package com.example.journalservice.service;
+
+import com.example.journalservice.entity.JournalEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Default sink: writes each batch synchronously through JPA batch inserts. If the write fails,
+ * the exception reaches the listener and the batch is not acknowledged, so Kafka redelivers it.
+ */
+@Service
+@ConditionalOnProperty(name = "journal.sink", havingValue = "jpa", matchIfMissing = true)
+public class JpaJournalSink implements JournalSink {
+    private static final Logger logger = LoggerFactory.getLogger(JpaJournalSink.class);
+
+    @Autowired
+    private JournalEntryWriter journalEntryWriter;
+
+    @Override
+    public void write(List<JournalEntry> entries, Runnable onCommitted) {
+        journalEntryWriter.writeWithFallback(entries);
+        onCommitted.run();
+    }
+}
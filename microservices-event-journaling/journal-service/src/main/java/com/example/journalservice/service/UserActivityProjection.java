@@ -0,0 +1,353 @@
+package com.example.journalservice.service;
+
+import com.example.journalservice.archive.JournalArchiveStore;
+import com.example.journalservice.dto.UserActivitySummaryDto;
+import com.example.journalservice.entity.JournalEntry;
+import com.example.journalservice.exception.RebuildInProgressException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains user_activity_summary, a per-user read model of the journal: event counts by type,
+ * first/last activity and current roles. It is updated from {@link JournalEntriesPersistedEvent}
+ * inside the transaction that inserts the entries, so the summary never drifts from the journal.
+ */
+@Service
+public class UserActivityProjection {
+    private static final Logger logger = LoggerFactory.getLogger(UserActivityProjection.class);
+
+    private static final String SUMMARY_TABLE = "user_activity_summary";
+    private static final String SHADOW_TABLE = "user_activity_summary_rebuild";
+    // Keys of entries committed while a rebuild runs; its existence is what tells writers to record them
+    private static final String PENDING_TABLE = "user_activity_summary_pending";
+    private static final String ENTRY_COLUMNS = "j.id, j.event_type, j.user_id, j.username, j.event_timestamp, j.details_json";
+    private static final int REBUILD_CHUNK_SIZE = 5000;
+    private static final TypeReference<Map<String, Long>> COUNTS_TYPE = new TypeReference<>() {
+    };
+    private static final TypeReference<List<String>> ROLES_TYPE = new TypeReference<>() {
+    };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JournalPartitionManager journalPartitionManager;
+
+    @Autowired
+    private JournalArchiveStore journalArchiveStore;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private TransactionTemplate snapshotTransaction;
+
+    @PostConstruct
+    public void init() {
+        snapshotTransaction = new TransactionTemplate(transactionManager);
+        snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    @EventListener
+    public void onEntriesPersisted(JournalEntriesPersistedEvent event) {
+        apply(event.entries());
+    }
+
+    public Optional<UserActivitySummaryDto> findSummary(Long userId) {
+        return jdbcTemplate.query("SELECT * FROM user_activity_summary WHERE user_id = ?",
+                (rs, rowNum) -> {
+                    SummaryState state = readState(rs);
+                    return new UserActivitySummaryDto(userId, state.username, state.totalEvents,
+                            state.eventCounts, new ArrayList<>(state.roles), state.firstSeen, state.lastSeen);
+                }, userId).stream().findFirst();
+    }
+
+    /**
+     * Regenerates the whole projection, archive included, into a shadow table while ingest and reads
+     * keep using the live one, then swaps it in:
+     * <ol>
+     * <li>creating the pending table makes every journal write from then on record its entry keys;</li>
+     * <li>one repeatable-read snapshot replays the archive, oldest first, then journal_entries;</li>
+     * <li>entries committed after that snapshot are replayed from the pending table, the last of
+     * them in the swap transaction, which holds journal writes back only for the rename.</li>
+     * </ol>
+     * Tables left behind by a rebuild that died with its instance are dropped by the next one.
+     *
+     * @return the number of journal entries replayed
+     */
+    public long rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            throw new RebuildInProgressException("A user activity summary rebuild is already running");
+        }
+        boolean swapped = false;
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                // Waits for in-flight journal writes, so every later one sees the pending table
+                jdbcTemplate.execute("LOCK TABLE journal_entries IN SHARE MODE");
+                jdbcTemplate.execute("DROP TABLE IF EXISTS " + SHADOW_TABLE + ", " + PENDING_TABLE);
+                jdbcTemplate.execute("CREATE TABLE " + SHADOW_TABLE + " (LIKE " + SUMMARY_TABLE + " INCLUDING ALL)");
+                jdbcTemplate.execute("CREATE TABLE " + PENDING_TABLE + " ("
+                        + "id BIGINT NOT NULL, event_timestamp TIMESTAMP NOT NULL, PRIMARY KEY (id, event_timestamp))");
+            });
+            long replayed = snapshotTransaction.execute(status -> replaySnapshot());
+            replayed += transactionTemplate.execute(status -> replayPending());
+            replayed += transactionTemplate.execute(status -> {
+                jdbcTemplate.execute("LOCK TABLE journal_entries IN SHARE MODE");
+                long count = replayPending();
+                jdbcTemplate.execute("DROP TABLE " + PENDING_TABLE);
+                jdbcTemplate.execute("DROP TABLE " + SUMMARY_TABLE);
+                jdbcTemplate.execute("ALTER TABLE " + SHADOW_TABLE + " RENAME TO " + SUMMARY_TABLE);
+                jdbcTemplate.execute("ALTER INDEX " + SHADOW_TABLE + "_pkey RENAME TO " + SUMMARY_TABLE + "_pkey");
+                return count;
+            });
+            swapped = true;
+            logger.info("Rebuilt user activity summaries from {} journal entries", replayed);
+            return replayed;
+        } finally {
+            if (!swapped) {
+                jdbcTemplate.execute("DROP TABLE IF EXISTS " + SHADOW_TABLE + ", " + PENDING_TABLE);
+            }
+            rebuilding.set(false);
+        }
+    }
+
+    /**
+     * Replays everything visible in the current snapshot into the shadow table. Runs first in a
+     * repeatable-read transaction.
+     */
+    private long replaySnapshot() {
+        // Locking the partitions first keeps the archiver from dropping one between listing and reading it
+        jdbcTemplate.execute("LOCK TABLE journal_entries IN ACCESS SHARE MODE");
+        // Entries this snapshot already sees are replayed below, not from the pending table
+        jdbcTemplate.update("DELETE FROM " + PENDING_TABLE);
+        Set<String> hotPartitions = journalPartitionManager.listRangePartitions().stream()
+                .map(JournalPartitionManager.PartitionInfo::name)
+                .collect(Collectors.toSet());
+        AtomicLong count = new AtomicLong();
+        journalArchiveStore.replayOldestFirst(hotPartitions, entries -> {
+            applyTo(SHADOW_TABLE, entries);
+            count.addAndGet(entries.size());
+        });
+
+        Timestamp lastTimestamp = Timestamp.valueOf(LocalDateTime.of(1970, 1, 1, 0, 0));
+        long lastId = Long.MIN_VALUE;
+        while (true) {
+            List<JournalEntry> chunk = jdbcTemplate.query("SELECT " + ENTRY_COLUMNS + " FROM journal_entries j "
+                            + "WHERE (j.event_timestamp, j.id) > (?, ?) ORDER BY j.event_timestamp, j.id LIMIT ?",
+                    (rs, rowNum) -> readEntry(rs), lastTimestamp, lastId, REBUILD_CHUNK_SIZE);
+            if (chunk.isEmpty()) {
+                return count.get();
+            }
+            applyTo(SHADOW_TABLE, chunk);
+            count.addAndGet(chunk.size());
+            JournalEntry last = chunk.get(chunk.size() - 1);
+            lastTimestamp = Timestamp.valueOf(last.getEventTimestamp());
+            lastId = last.getId();
+        }
+    }
+
+    /** Moves the entries recorded in the pending table into the shadow table, chunk by chunk. */
+    private long replayPending() {
+        long count = 0;
+        while (true) {
+            List<JournalEntry> chunk = jdbcTemplate.query("SELECT " + ENTRY_COLUMNS + " FROM " + PENDING_TABLE + " p "
+                            + "JOIN journal_entries j ON j.id = p.id AND j.event_timestamp = p.event_timestamp "
+                            + "ORDER BY j.event_timestamp, j.id LIMIT ?",
+                    (rs, rowNum) -> readEntry(rs), REBUILD_CHUNK_SIZE);
+            if (chunk.isEmpty()) {
+                // Whatever is left no longer exists in journal_entries (e.g. archived since)
+                jdbcTemplate.update("DELETE FROM " + PENDING_TABLE);
+                return count;
+            }
+            applyTo(SHADOW_TABLE, chunk);
+            count += chunk.size();
+            jdbcTemplate.batchUpdate("DELETE FROM " + PENDING_TABLE + " WHERE id = ? AND event_timestamp = ?",
+                    chunk, chunk.size(), (ps, entry) -> {
+                        ps.setLong(1, entry.getId());
+                        ps.setTimestamp(2, Timestamp.valueOf(entry.getEventTimestamp()));
+                    });
+        }
+    }
+
+    private static JournalEntry readEntry(ResultSet rs) throws SQLException {
+        JournalEntry entry = new JournalEntry(rs.getString("event_type"),
+                (Long) rs.getObject("user_id"), rs.getString("username"),
+                rs.getTimestamp("event_timestamp").toLocalDateTime(), rs.getString("details_json"));
+        entry.setId(rs.getLong("id"));
+        return entry;
+    }
+
+    /**
+     * Folds entries into their users' summaries and, while a rebuild runs, records them for it.
+     * Must run inside a transaction: rows are locked in user_id order so concurrent writers (other
+     * shards or instances) cannot deadlock or lose updates.
+     */
+    void apply(List<JournalEntry> entries) {
+        applyTo(SUMMARY_TABLE, entries);
+        if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT to_regclass(?) IS NOT NULL", Boolean.class, PENDING_TABLE))) {
+            jdbcTemplate.batchUpdate("INSERT INTO " + PENDING_TABLE + " (id, event_timestamp) VALUES (?, ?) "
+                            + "ON CONFLICT DO NOTHING",
+                    entries, entries.size(), (ps, entry) -> {
+                        ps.setLong(1, entry.getId());
+                        ps.setTimestamp(2, Timestamp.valueOf(entry.getEventTimestamp()));
+                    });
+        }
+    }
+
+    private void applyTo(String table, List<JournalEntry> entries) {
+        Map<Long, List<JournalEntry>> byUser = new TreeMap<>();
+        for (JournalEntry entry : entries) {
+            if (entry.getUserId() != null) {
+                byUser.computeIfAbsent(entry.getUserId(), k -> new ArrayList<>()).add(entry);
+            }
+        }
+        if (byUser.isEmpty()) {
+            return;
+        }
+        List<Long> userIds = new ArrayList<>(byUser.keySet());
+
+        jdbcTemplate.batchUpdate("INSERT INTO " + table + " (user_id) VALUES (?) ON CONFLICT (user_id) DO NOTHING",
+                userIds, userIds.size(), (ps, userId) -> ps.setLong(1, userId));
+        Map<Long, SummaryState> states = new LinkedHashMap<>();
+        jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement(
+                    "SELECT * FROM " + table + " WHERE user_id = ANY (?) ORDER BY user_id FOR UPDATE");
+            ps.setArray(1, con.createArrayOf("bigint", userIds.toArray()));
+            return ps;
+        }, rs -> {
+            states.put(rs.getLong("user_id"), readState(rs));
+        });
+
+        byUser.forEach((userId, userEntries) -> userEntries.forEach(entry -> states.get(userId).apply(entry)));
+
+        List<Map.Entry<Long, SummaryState>> updates = new ArrayList<>(states.entrySet());
+        jdbcTemplate.batchUpdate("UPDATE " + table + " SET username = ?, total_events = ?, "
+                        + "event_counts = CAST(? AS jsonb), roles = CAST(? AS jsonb), first_seen = ?, last_seen = ? "
+                        + "WHERE user_id = ?",
+                updates, updates.size(), (ps, update) -> {
+                    SummaryState state = update.getValue();
+                    ps.setString(1, state.username);
+                    ps.setLong(2, state.totalEvents);
+                    ps.setString(3, toJson(state.eventCounts));
+                    ps.setString(4, toJson(state.roles));
+                    ps.setTimestamp(5, state.firstSeen != null ? Timestamp.valueOf(state.firstSeen) : null);
+                    ps.setTimestamp(6, state.lastSeen != null ? Timestamp.valueOf(state.lastSeen) : null);
+                    ps.setLong(7, update.getKey());
+                });
+    }
+
+    private SummaryState readState(ResultSet rs) throws SQLException {
+        SummaryState state = new SummaryState();
+        state.username = rs.getString("username");
+        state.totalEvents = rs.getLong("total_events");
+        state.eventCounts = new TreeMap<>(fromJson(rs.getString("event_counts"), COUNTS_TYPE));
+        state.roles = new LinkedHashSet<>(fromJson(rs.getString("roles"), ROLES_TYPE));
+        Timestamp firstSeen = rs.getTimestamp("first_seen");
+        Timestamp lastSeen = rs.getTimestamp("last_seen");
+        state.firstSeen = firstSeen != null ? firstSeen.toLocalDateTime() : null;
+        state.lastSeen = lastSeen != null ? lastSeen.toLocalDateTime() : null;
+        return state;
+    }
+
+    private <T> T fromJson(String json, TypeReference<T> type) {
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Corrupt user_activity_summary value: " + json, e);
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize summary value", e);
+        }
+    }
+
+    private class SummaryState {
+        private String username;
+        private long totalEvents;
+        private Map<String, Long> eventCounts;
+        private Set<String> roles;
+        private LocalDateTime firstSeen;
+        private LocalDateTime lastSeen;
+
+        private void apply(JournalEntry entry) {
+            totalEvents++;
+            eventCounts.merge(String.valueOf(entry.getEventType()), 1L, Long::sum);
+            if (entry.getUsername() != null) {
+                username = entry.getUsername();
+            }
+            LocalDateTime timestamp = entry.getEventTimestamp();
+            if (firstSeen == null || timestamp.isBefore(firstSeen)) {
+                firstSeen = timestamp;
+            }
+            if (lastSeen == null || timestamp.isAfter(lastSeen)) {
+                lastSeen = timestamp;
+            }
+            applyRoleChange(entry);
+        }
+
+        private void applyRoleChange(JournalEntry entry) {
+            String eventType = entry.getEventType();
+            if ("USER_DELETED".equals(eventType)) {
+                roles.clear();
+                return;
+            }
+            if (entry.getDetailsJson() == null) {
+                return;
+            }
+            JsonNode details;
+            try {
+                details = objectMapper.readTree(entry.getDetailsJson());
+            } catch (JsonProcessingException e) {
+                logger.warn("Ignoring unreadable details of journal entry {}", entry.getId(), e);
+                return;
+            }
+            if ("USER_CREATED".equals(eventType) && details.path("roles").isArray()) {
+                roles.clear();
+                details.path("roles").forEach(role -> roles.add(role.asText()));
+            } else if ("ROLE_ASSIGNED".equals(eventType) && details.hasNonNull("assignedRole")) {
+                roles.add(details.get("assignedRole").asText());
+            } else if ("ROLE_REMOVED".equals(eventType) && details.hasNonNull("removedRole")) {
+                roles.remove(details.get("removedRole").asText());
+            }
+        }
+    }
+}
@@ -0,0 +1,388 @@
+package com.example.journalservice.service;
+
+import com.example.journalservice.entity.JournalEntry;
+import com.example.journalservice.wal.JournalWriteAheadLog;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-ahead sink: batches are appended to a local {@link JournalWriteAheadLog} and acknowledged
+ * as soon as a group commit has fsynced them, so Kafka keeps flowing while PostgreSQL is slow or
+ * down. A drainer thread replays the log into journal_entries in large batches; each batch commits
+ * together with this node's position in journal_wal_checkpoint, so after a crash the replay resumes
+ * exactly where the database left off. The node is identified by a {@code node-id} file kept next to
+ * the segments, so the checkpoint follows the log itself rather than the host it happens to run on.
+ * <p>
+ * A record that fails its checksum is quarantined (see {@link JournalWriteAheadLog#quarantine}) and
+ * draining continues after it; if no record boundary can be found past it, the drainer stops with
+ * an error rather than retrying the same bytes forever.
+ * <p>
+ * The log is bounded by {@code journal.wal.max-backlog-mb}; once the undrained backlog reaches it,
+ * writes block until the drainer catches up.
+ * <p>
+ * Coordination uses {@link ReentrantLock}s rather than monitors: {@link #write} runs on the Kafka
+ * listener threads, which may be virtual, and waiting inside {@code synchronized} would pin them.
+ */
+@Service
+@ConditionalOnProperty(name = "journal.sink", havingValue = "wal")
+public class WalJournalSink implements JournalSink {
+    private static final Logger logger = LoggerFactory.getLogger(WalJournalSink.class);
+    private static final String NODE_ID_FILE = "node-id";
+
+    @Autowired
+    private JournalEntryWriter journalEntryWriter;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private JournalMetrics journalMetrics;
+
+    @Value("${journal.wal.dir:journal-wal}")
+    private String walDir;
+
+    // Only adopted by a log written before the node-id file existed, whose checkpoint used this key
+    @Value("${journal.wal.node-id:${HOSTNAME:journal-service}}")
+    private String legacyNodeId;
+
+    @Value("${journal.wal.segment-mb:64}")
+    private long segmentMb;
+
+    @Value("${journal.wal.max-backlog-mb:2048}")
+    private long maxBacklogMb;
+
+    @Value("${journal.wal.drain-batch-size:5000}")
+    private int drainBatchSize;
+
+    @Value("${journal.wal.retry-interval-ms:1000}")
+    private long retryIntervalMs;
+
+    private JournalWriteAheadLog log;
+    private final ArrayDeque<PendingAck> pendingAcks = new ArrayDeque<>();
+    private final ReentrantLock ackLock = new ReentrantLock();
+    private final Condition acksPending = ackLock.newCondition();
+    private final ReentrantLock drainLock = new ReentrantLock();
+    private final Condition drainable = drainLock.newCondition();
+    private final ReentrantLock backlogLock = new ReentrantLock();
+    private final Condition backlogFreed = backlogLock.newCondition();
+    private volatile long drainedPosition;
+    private volatile boolean running;
+    private String nodeId;
+    private Thread syncThread;
+    private Thread drainThread;
+
+    @PostConstruct
+    public void start() throws IOException {
+        log = new JournalWriteAheadLog(Paths.get(walDir), segmentMb * 1024 * 1024);
+        nodeId = loadNodeId(Paths.get(walDir));
+        drainedPosition = log.getStartPosition();
+        logger.info("Journal WAL {} opened in {} with {} bytes to replay at most", nodeId, walDir,
+                log.getEndPosition() - log.getStartPosition());
+        running = true;
+        syncThread = new Thread(this::syncLoop, "journal-wal-sync");
+        drainThread = new Thread(this::drainLoop, "journal-wal-drain");
+        syncThread.setDaemon(true);
+        drainThread.setDaemon(true);
+        syncThread.start();
+        drainThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws IOException, InterruptedException {
+        running = false;
+        signalAll(ackLock, acksPending);
+        signalAll(drainLock, drainable);
+        syncThread.join(5000);
+        drainThread.join(5000);
+        log.close();
+    }
+
+    @Override
+    public void write(List<JournalEntry> entries, Runnable onCommitted) {
+        awaitBacklogCapacity();
+        long end;
+        try {
+            end = log.append(entries);
+        } catch (IOException e) {
+            journalMetrics.recordError("wal-append", e);
+            throw new UncheckedIOException("Appending " + entries.size() + " journal entries to the WAL failed", e);
+        }
+        ackLock.lock();
+        try {
+            pendingAcks.add(new PendingAck(end, onCommitted));
+            acksPending.signalAll();
+        } finally {
+            ackLock.unlock();
+        }
+    }
+
+    private void awaitBacklogCapacity() {
+        long maxBacklogBytes = maxBacklogMb * 1024 * 1024;
+        backlogLock.lock();
+        try {
+            while (running && log.getEndPosition() - drainedPosition >= maxBacklogBytes) {
+                backlogFreed.await(retryIntervalMs, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            backlogLock.unlock();
+        }
+    }
+
+    /**
+     * Group commit: one fsync covers every append made since the previous one, then all writers
+     * whose data is now durable are acknowledged in append order.
+     */
+    private void syncLoop() {
+        while (running || hasPendingAcks()) {
+            try {
+                ackLock.lock();
+                try {
+                    while (running && pendingAcks.isEmpty()) {
+                        acksPending.await();
+                    }
+                } finally {
+                    ackLock.unlock();
+                }
+                long durable = log.sync();
+                List<Runnable> acknowledged = new ArrayList<>();
+                ackLock.lock();
+                try {
+                    while (!pendingAcks.isEmpty() && pendingAcks.peek().position() <= durable) {
+                        acknowledged.add(pendingAcks.poll().onCommitted());
+                    }
+                } finally {
+                    ackLock.unlock();
+                }
+                acknowledged.forEach(Runnable::run);
+                signalAll(drainLock, drainable);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // Acks are withheld, so Kafka redelivers anything that never became durable
+                logger.error("WAL fsync failed", e);
+                journalMetrics.recordError("wal-sync", e);
+                sleepQuietly(retryIntervalMs);
+            }
+        }
+    }
+
+    private boolean hasPendingAcks() {
+        ackLock.lock();
+        try {
+            return !pendingAcks.isEmpty();
+        } finally {
+            ackLock.unlock();
+        }
+    }
+
+    private void drainLoop() {
+        Long checkpoint = null;
+        while (running) {
+            JournalWriteAheadLog.ReadBatch batch = null;
+            try {
+                if (checkpoint == null) {
+                    checkpoint = loadCheckpoint();
+                    markDrained(checkpoint);
+                }
+                long durable = log.getDurablePosition();
+                if (checkpoint >= durable) {
+                    drainLock.lock();
+                    try {
+                        if (running && log.getDurablePosition() <= checkpoint) {
+                            drainable.await(retryIntervalMs, TimeUnit.MILLISECONDS);
+                        }
+                    } finally {
+                        drainLock.unlock();
+                    }
+                    continue;
+                }
+                batch = log.read(checkpoint, durable, drainBatchSize);
+                long next = batch.nextPosition();
+                journalEntryWriter.writeBatch(batch.entries(), () -> saveCheckpoint(next));
+                logger.info("Drained {} journal entries from the WAL", batch.entries().size());
+                checkpoint = next;
+                markDrained(checkpoint);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (JournalWriteAheadLog.CorruptRecordException e) {
+                journalMetrics.recordError("wal-corrupt", e);
+                Long resumed = skipCorruptRecord(e.getPosition());
+                if (resumed == null) {
+                    return;
+                }
+                checkpoint = resumed;
+            } catch (IOException e) {
+                logger.error("Reading the journal WAL at position {} failed", checkpoint, e);
+                journalMetrics.recordError("wal-read", e);
+                sleepQuietly(retryIntervalMs);
+            } catch (Exception e) {
+                journalMetrics.recordError("wal-drain", e);
+                if (batch != null && isDatabaseAvailable()) {
+                    checkpoint = drainIndividually(batch, checkpoint);
+                } else {
+                    logger.warn("Journal database unavailable, WAL backlog is {} bytes; retrying in {} ms",
+                            log.getEndPosition() - drainedPosition, retryIntervalMs, e);
+                    sleepQuietly(retryIntervalMs);
+                }
+            }
+        }
+    }
+
+    /**
+     * The database is up but the batch was rejected, so some entry is bad: write them one by one,
+     * skipping the bad ones, as the JPA sink does. This path is not atomic with the checkpoint, so a
+     * crash in the middle can replay (duplicate) the entries written before it.
+     */
+    private long drainIndividually(JournalWriteAheadLog.ReadBatch batch, long checkpoint) {
+        logger.warn("Batch of {} WAL entries was rejected, retrying one by one", batch.entries().size());
+        batch.entries().forEach(entry -> entry.setId(null));
+        try {
+            journalEntryWriter.writeIndividually(batch.entries());
+        } catch (Exception e) {
+            logger.warn("Journal database failed while writing WAL entries one by one; retrying the batch in {} ms",
+                    retryIntervalMs, e);
+            sleepQuietly(retryIntervalMs);
+            return checkpoint;
+        }
+        try {
+            saveCheckpoint(batch.nextPosition());
+            markDrained(batch.nextPosition());
+        } catch (Exception e) {
+            logger.warn("Could not advance the WAL checkpoint", e);
+            return checkpoint;
+        }
+        return batch.nextPosition();
+    }
+
+    /**
+     * Moves the damaged record aside and checkpoints past it, returning the new position; the record
+     * was acknowledged to Kafka long ago, so it cannot be redelivered and is only kept for
+     * inspection. Returns null, stopping the drainer, when the log cannot be resynchronised: every
+     * later write then backs up into the backlog limit instead of vanishing silently.
+     */
+    private Long skipCorruptRecord(long position) {
+        try {
+            long resume = log.quarantine(position);
+            saveCheckpoint(resume);
+            markDrained(resume);
+            return resume;
+        } catch (Exception e) {
+            logger.error("Journal WAL is corrupt at position {} and cannot be resynchronised; draining stopped. "
+                    + "Move the damaged segment out of {} and restart to resume", position, walDir, e);
+            return null;
+        }
+    }
+
+    /**
+     * Reads the id this log's checkpoint is stored under, creating it on first start. A fresh log gets
+     * a random id; one that already holds data keeps the legacy host-based id its checkpoint was saved
+     * under, so upgrading does not replay it from the start.
+     */
+    private String loadNodeId(Path directory) throws IOException {
+        Path file = directory.resolve(NODE_ID_FILE);
+        if (Files.exists(file)) {
+            return Files.readString(file, StandardCharsets.UTF_8).trim();
+        }
+        String id = log.getEndPosition() == 0 ? UUID.randomUUID().toString() : legacyNodeId;
+        Path temp = directory.resolve(NODE_ID_FILE + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            out.write(StandardCharsets.UTF_8.encode(id));
+            out.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            // Not supported on every platform
+        }
+        return id;
+    }
+
+    /**
+     * Reads this node's drain position, creating it at the start of the log the first time. A
+     * position outside the log means the local directory was replaced, so draining starts over
+     * with what is on disk now.
+     */
+    private long loadCheckpoint() {
+        long start = log.getStartPosition();
+        jdbcTemplate.update("INSERT INTO journal_wal_checkpoint (node_id, position) VALUES (?, ?) "
+                + "ON CONFLICT (node_id) DO NOTHING", nodeId, start);
+        long position = jdbcTemplate.queryForObject(
+                "SELECT position FROM journal_wal_checkpoint WHERE node_id = ?", Long.class, nodeId);
+        if (position < start || position > log.getEndPosition()) {
+            logger.warn("WAL checkpoint {} for node {} is outside the local log [{}, {}]; replaying from {}",
+                    position, nodeId, start, log.getEndPosition(), start);
+            position = start;
+            saveCheckpoint(position);
+        }
+        return position;
+    }
+
+    private void saveCheckpoint(long position) {
+        jdbcTemplate.update("UPDATE journal_wal_checkpoint SET position = ? WHERE node_id = ?", position, nodeId);
+    }
+
+    private void markDrained(long position) throws IOException {
+        drainedPosition = position;
+        log.deleteBefore(position);
+        signalAll(backlogLock, backlogFreed);
+    }
+
+    private static void signalAll(ReentrantLock lock, Condition condition) {
+        lock.lock();
+        try {
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isDatabaseAvailable() {
+        try {
+            jdbcTemplate.queryForObject("SELECT 1", Integer.class);
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record PendingAck(long position, Runnable onCommitted) {
+    }
+}
@@ -0,0 +1,493 @@
+package com.example.journalservice.wal;
+
+import com.example.journalservice.entity.JournalEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only, segmented log of journal entries on local disk.
+ * <p>
+ * Positions are global byte offsets: a segment file is named after the position of its first byte,
+ * and the next segment starts where the previous one ends. Every record is
+ * {@code int length, int crc32c, payload}, one journal entry per record. Appends only reach the page
+ * cache; {@link #sync()} forces them to disk and advances the durable position, so callers can
+ * group many appends under one fsync. On open, the newest segment is scanned and cut back to the
+ * last intact record, dropping a write torn by a crash. A damaged record followed by an intact one
+ * is not a torn write, so it is left in place rather than cutting off the records after it.
+ * <p>
+ * A damaged record further back (failed checksum, unreadable payload) stops {@link #read} with a
+ * {@link CorruptRecordException}; {@link #quarantine} moves its bytes aside and says where reading
+ * can safely resume.
+ * <p>
+ * State is guarded by a {@link ReentrantLock}: appends write (and on a roll, fsync) while holding it,
+ * and doing that inside {@code synchronized} would pin a virtual caller's carrier thread.
+ */
+public class JournalWriteAheadLog implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(JournalWriteAheadLog.class);
+
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int RECORD_HEADER = 8;
+    private static final int MAX_RECORD_SIZE = 64 * 1024 * 1024;
+    private static final byte RECORD_VERSION = 1;
+    private static final String QUARANTINE_DIR = "quarantine";
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final TreeMap<Long, Path> segments = new TreeMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private FileChannel channel;
+    private long segmentBase;
+    private long endPosition;
+    private volatile long durablePosition;
+
+    public JournalWriteAheadLog(Path directory, long segmentBytes) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                segments.put(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())), file);
+            }
+        }
+        if (segments.isEmpty()) {
+            openSegment(0);
+        } else {
+            recoverLastSegment();
+        }
+        durablePosition = endPosition;
+    }
+
+    /**
+     * Appends the entries and returns the position just past the last one. Not durable until a
+     * {@link #sync()} returns a position at or beyond it.
+     */
+    public long append(List<JournalEntry> entries) throws IOException {
+        ByteBuffer records = encode(entries);
+        lock.lock();
+        try {
+            if (endPosition - segmentBase + records.remaining() > segmentBytes && endPosition > segmentBase) {
+                rollSegment();
+            }
+            long start = endPosition;
+            try {
+                while (records.hasRemaining()) {
+                    endPosition += channel.write(records);
+                }
+            } catch (IOException e) {
+                // Never leave half a batch behind, or every later record would sit after a corrupt one
+                channel.truncate(start - segmentBase);
+                channel.position(start - segmentBase);
+                endPosition = start;
+                throw e;
+            }
+            return endPosition;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forces everything appended so far to disk and returns the new durable position.
+     */
+    public long sync() throws IOException {
+        long target;
+        FileChannel current;
+        lock.lock();
+        try {
+            target = endPosition;
+            current = channel;
+        } finally {
+            lock.unlock();
+        }
+        if (target > durablePosition) {
+            try {
+                current.force(false);
+            } catch (ClosedChannelException e) {
+                // Rolled over meanwhile; the roll forced this segment before closing it
+            }
+            lock.lock();
+            try {
+                durablePosition = Math.max(durablePosition, target);
+            } finally {
+                lock.unlock();
+            }
+        }
+        return durablePosition;
+    }
+
+    public long getDurablePosition() {
+        return durablePosition;
+    }
+
+    public long getEndPosition() {
+        lock.lock();
+        try {
+            return endPosition;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getStartPosition() {
+        lock.lock();
+        try {
+            return segments.firstKey();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reads up to {@code maxEntries} records starting at {@code position}, never past {@code limit}.
+     * A damaged record ends the batch before it, or throws {@link CorruptRecordException} if it is
+     * the first one.
+     */
+    public ReadBatch read(long position, long limit, int maxEntries) throws IOException {
+        List<JournalEntry> entries = new ArrayList<>();
+        long next = position;
+        while (next < limit && entries.size() < maxEntries) {
+            Map.Entry<Long, Path> segment;
+            lock.lock();
+            try {
+                segment = segments.floorEntry(next);
+            } finally {
+                lock.unlock();
+            }
+            if (segment == null) {
+                throw new IOException("No WAL segment holds position " + next);
+            }
+            try (FileChannel reader = FileChannel.open(segment.getValue(), StandardOpenOption.READ)) {
+                long offset = next - segment.getKey();
+                if (offset >= reader.size()) {
+                    throw new IOException("WAL position " + next + " is past the end of " + segment.getValue());
+                }
+                while (next < limit && entries.size() < maxEntries && offset < reader.size()) {
+                    ByteBuffer payload = readRecord(reader, offset);
+                    JournalEntry entry = payload != null ? decodeOrNull(payload) : null;
+                    if (entry == null) {
+                        if (entries.isEmpty()) {
+                            throw new CorruptRecordException(next);
+                        }
+                        return new ReadBatch(entries, next);
+                    }
+                    entries.add(entry);
+                    offset += RECORD_HEADER + payload.capacity();
+                    next = segment.getKey() + offset;
+                }
+            }
+        }
+        return new ReadBatch(entries, next);
+    }
+
+    /**
+     * Copies the damaged record at {@code position} to the quarantine directory and returns the
+     * position of the record after it. When the record's length itself is damaged, the rest of its
+     * segment is quarantined and reading resumes at the next segment; in the newest segment there
+     * is no such point, and this throws.
+     */
+    public long quarantine(long position) throws IOException {
+        Map.Entry<Long, Path> segment;
+        Long nextBase;
+        lock.lock();
+        try {
+            segment = segments.floorEntry(position);
+            nextBase = segment != null ? segments.higherKey(segment.getKey()) : null;
+        } finally {
+            lock.unlock();
+        }
+        if (segment == null) {
+            throw new IOException("No WAL segment holds position " + position);
+        }
+        try (FileChannel reader = FileChannel.open(segment.getValue(), StandardOpenOption.READ)) {
+            long offset = position - segment.getKey();
+            long end = reader.size();
+            long resume;
+            ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER);
+            int length = readFully(reader, header, offset) == RECORD_HEADER ? header.getInt(0) : -1;
+            if (length >= 0 && length <= MAX_RECORD_SIZE && offset + RECORD_HEADER + length <= end) {
+                end = offset + RECORD_HEADER + length;
+                resume = segment.getKey() + end;
+            } else if (nextBase != null) {
+                resume = nextBase;
+            } else {
+                throw new IOException("Cannot find a record boundary after the damaged WAL record at " + position
+                        + " in the newest segment " + segment.getValue());
+            }
+            ByteBuffer bytes = ByteBuffer.allocate(Math.toIntExact(end - offset));
+            readFully(reader, bytes, offset);
+            Path quarantine = directory.resolve(QUARANTINE_DIR);
+            Files.createDirectories(quarantine);
+            Path file = quarantine.resolve(String.format("%s%020d.bad", SEGMENT_PREFIX, position));
+            Files.write(file, bytes.array());
+            logger.error("Quarantined {} bytes of damaged WAL data at position {} to {}; resuming at {}",
+                    bytes.capacity(), position, file, resume);
+            return resume;
+        }
+    }
+
+    /**
+     * Deletes segments that lie entirely before {@code position}; the current segment is always kept.
+     */
+    public void deleteBefore(long position) throws IOException {
+        List<Path> obsolete = new ArrayList<>();
+        lock.lock();
+        try {
+            while (segments.size() > 1) {
+                Map.Entry<Long, Path> first = segments.firstEntry();
+                Long nextBase = segments.higherKey(first.getKey());
+                if (nextBase > position) {
+                    break;
+                }
+                obsolete.add(first.getValue());
+                segments.pollFirstEntry();
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (Path file : obsolete) {
+            Files.deleteIfExists(file);
+            logger.debug("Deleted drained WAL segment {}", file);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            channel.force(false);
+            durablePosition = endPosition;
+            channel.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void rollSegment() throws IOException {
+        channel.force(false);
+        channel.close();
+        openSegment(endPosition);
+    }
+
+    private void openSegment(long base) throws IOException {
+        Path file = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, base, SEGMENT_SUFFIX));
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        segments.put(base, file);
+        segmentBase = base;
+        endPosition = base;
+        forceDirectory(); // Make the new file's directory entry durable too
+    }
+
+    private void recoverLastSegment() throws IOException {
+        Map.Entry<Long, Path> last = segments.lastEntry();
+        channel = FileChannel.open(last.getValue(), StandardOpenOption.WRITE, StandardOpenOption.READ);
+        long offset = 0;
+        long size = channel.size();
+        while (offset < size) {
+            ByteBuffer payload = readRecord(channel, offset);
+            if (payload != null) {
+                offset += RECORD_HEADER + payload.capacity();
+                continue;
+            }
+            long following = nextIntactRecord(channel, offset);
+            if (following < 0) {
+                break;
+            }
+            logger.error("Damaged WAL record at position {} is followed by intact records; keeping them",
+                    last.getKey() + offset);
+            offset = following;
+        }
+        if (offset < size) {
+            logger.warn("Truncating torn WAL tail in {}: {} of {} bytes are intact", last.getValue(), offset, size);
+            channel.truncate(offset);
+            channel.force(true);
+        }
+        channel.position(offset);
+        segmentBase = last.getKey();
+        endPosition = segmentBase + offset;
+    }
+
+    // Offset of the record after the damaged one at offset, or -1 unless its length is plausible and an intact record follows
+    private static long nextIntactRecord(FileChannel file, long offset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER);
+        if (readFully(file, header, offset) < RECORD_HEADER) {
+            return -1;
+        }
+        int length = header.getInt(0);
+        if (length < 0 || length > MAX_RECORD_SIZE) {
+            return -1;
+        }
+        long following = offset + RECORD_HEADER + length;
+        return readRecord(file, following) != null ? following : -1;
+    }
+
+    // Returns the payload, or null if the record is incomplete or fails its checksum
+    private static ByteBuffer readRecord(FileChannel file, long offset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER);
+        if (readFully(file, header, offset) < RECORD_HEADER) {
+            return null;
+        }
+        int length = header.getInt(0);
+        int checksum = header.getInt(4);
+        if (length < 0 || length > MAX_RECORD_SIZE) {
+            return null;
+        }
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        if (readFully(file, payload, offset + RECORD_HEADER) < length) {
+            return null;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(payload.array());
+        return (int) crc.getValue() == checksum ? payload.rewind() : null;
+    }
+
+    private static int readFully(FileChannel file, ByteBuffer buffer, long offset) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int read = file.read(buffer, offset + total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    private void forceDirectory() {
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            // Not supported on every platform
+        }
+    }
+
+    private static ByteBuffer encode(List<JournalEntry> entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(entries.size() * 256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        ByteArrayOutputStream record = new ByteArrayOutputStream(256);
+        DataOutputStream payload = new DataOutputStream(record);
+        CRC32C crc = new CRC32C();
+        for (JournalEntry entry : entries) {
+            record.reset();
+            payload.writeByte(RECORD_VERSION);
+            writeString(payload, entry.getEventType());
+            payload.writeBoolean(entry.getUserId() != null);
+            if (entry.getUserId() != null) {
+                payload.writeLong(entry.getUserId());
+            }
+            writeString(payload, entry.getUsername());
+            writeTimestamp(payload, entry.getEventTimestamp());
+            writeString(payload, entry.getDetailsJson());
+            writeTimestamp(payload, entry.getReceivedTimestamp());
+            payload.flush();
+
+            byte[] body = record.toByteArray();
+            crc.reset();
+            crc.update(body);
+            out.writeInt(body.length);
+            out.writeInt((int) crc.getValue());
+            out.write(body);
+        }
+        out.flush();
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+
+    // Null for a payload that passed its checksum but still cannot be decoded
+    private static JournalEntry decodeOrNull(ByteBuffer payload) {
+        try {
+            return decode(payload);
+        } catch (IOException | BufferUnderflowException | IndexOutOfBoundsException e) {
+            logger.warn("Undecodable WAL record", e);
+            return null;
+        }
+    }
+
+    private static JournalEntry decode(ByteBuffer in) throws IOException {
+        byte version = in.get();
+        if (version != RECORD_VERSION) {
+            throw new IOException("Unsupported WAL record version " + version);
+        }
+        JournalEntry entry = new JournalEntry();
+        entry.setEventType(readString(in));
+        entry.setUserId(in.get() != 0 ? in.getLong() : null);
+        entry.setUsername(readString(in));
+        entry.setEventTimestamp(readTimestamp(in));
+        entry.setDetailsJson(readString(in));
+        entry.setReceivedTimestamp(readTimestamp(in));
+        return entry;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private static void writeTimestamp(DataOutputStream out, LocalDateTime value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(value.getNano());
+        }
+    }
+
+    private static LocalDateTime readTimestamp(ByteBuffer in) {
+        return in.get() != 0 ? LocalDateTime.ofEpochSecond(in.getLong(), in.getInt(), ZoneOffset.UTC) : null;
+    }
+
+    public record ReadBatch(List<JournalEntry> entries, long nextPosition) {
+    }
+
+    /**
+     * The record at {@link #getPosition()} is damaged; see {@link #quarantine}.
+     */
+    public static class CorruptRecordException extends IOException {
+        private final long position;
+
+        public CorruptRecordException(long position) {
+            super("Corrupt WAL record at position " + position);
+            this.position = position;
+        }
+
+        public long getPosition() {
+            return position;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.journalservice;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs this module's JMH benchmarks ({@code *Benchmark} classes under src/test) with
+ * {@code mvn -Pbenchmark test}. {@code -Djmh.include=<regex>} narrows the selection.
+ */
+@Tag("benchmark")
+class JmhBenchmarksTest {
+
+    @Test
+    void runBenchmarks() throws RunnerException {
+        String include = System.getProperty("jmh.include", "com\\.example\\.journalservice\\..*Benchmark");
+        new Runner(new OptionsBuilder().include(include).build()).run();
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.journalservice;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.catalina.Context;
+import org.apache.catalina.connector.Connector;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.coyote.AbstractProtocol;
+import org.apache.tomcat.util.threads.VirtualThreadExecutor;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Load benchmark for the servlet container's threading under spring.threads.virtual.enabled: a bare
+ * embedded Tomcat whose only servlet sleeps for {@code benchmark.io-ms}, driven by
+ * {@code benchmark.clients} closed-loop clients, once on Boot's default 200-thread platform pool and
+ * once on the virtual-thread executor Boot installs when the flag is set. Reports throughput and
+ * p50/p99 latency for each.
+ * <p>
+ * It measures the container alone, not either service: no Spring context, security filter, JPA or
+ * Kafka is involved. A real endpoint that blocks on the database is also bounded by the Hikari pool
+ * (10 connections by default), so its gain from virtual threads is at most what this reports, and
+ * usually far less. Treat the numbers as an upper bound for journal-service and user-service alike.
+ * <p>
+ * Run with {@code mvn -Pbenchmark test -pl journal-service -Dtest=VirtualThreadLoadBenchmarkTest}.
+ * The virtual mode needs a Java 21 runtime and is reported as skipped on older ones. Clients and
+ * server share this JVM, so use a machine with several cores; on one core both modes are CPU-bound
+ * and the comparison says nothing.
+ */
+@Tag("benchmark")
+class VirtualThreadLoadBenchmarkTest {
+    private static final int CLIENTS = Integer.getInteger("benchmark.clients", 1000);
+    private static final long IO_MILLIS = Long.getLong("benchmark.io-ms", 20);
+    private static final int WARMUP_SECONDS = Integer.getInteger("benchmark.warmup-seconds", 3);
+    private static final int MEASURE_SECONDS = Integer.getInteger("benchmark.seconds", 10);
+    private static final int PLATFORM_MAX_THREADS = 200; // server.tomcat.threads.max default
+
+    @TempDir
+    Path baseDir;
+
+    @Test
+    void compareThroughputAndTailLatency() throws Exception {
+        List<String> report = new ArrayList<>();
+        report.add(String.format("%-10s %12s %10s %10s %10s", "mode", "requests", "req/s", "p50 ms", "p99 ms"));
+        report.add(run("platform", false));
+        if (Runtime.version().feature() >= 21) {
+            report.add(run("virtual", true));
+        } else {
+            report.add(String.format("%-10s skipped, needs Java 21 (running %s)", "virtual", Runtime.version()));
+        }
+        System.out.printf("%nBlocking handler of %d ms, %d concurrent clients, %d s measured%n%s%n",
+                IO_MILLIS, CLIENTS, MEASURE_SECONDS, String.join(System.lineSeparator(), report));
+    }
+
+    private String run(String mode, boolean virtualThreads) throws Exception {
+        Tomcat tomcat = startTomcat(virtualThreads);
+        try {
+            URI uri = URI.create("http://localhost:" + tomcat.getConnector().getLocalPort() + "/io");
+            load(uri, WARMUP_SECONDS);
+            long[] latencies = load(uri, MEASURE_SECONDS);
+            assertThat(latencies).isNotEmpty();
+            Arrays.sort(latencies);
+            return String.format("%-10s %12d %10.0f %10.1f %10.1f", mode, latencies.length,
+                    latencies.length / (double) MEASURE_SECONDS,
+                    percentile(latencies, 0.50) / 1e6, percentile(latencies, 0.99) / 1e6);
+        } finally {
+            tomcat.stop();
+            tomcat.destroy();
+        }
+    }
+
+    private Tomcat startTomcat(boolean virtualThreads) throws Exception {
+        Tomcat tomcat = new Tomcat();
+        tomcat.setBaseDir(baseDir.toString());
+        tomcat.setPort(0);
+        Connector connector = tomcat.getConnector();
+        AbstractProtocol<?> protocol = (AbstractProtocol<?>) connector.getProtocolHandler();
+        protocol.setMaxThreads(PLATFORM_MAX_THREADS);
+        protocol.setMaxConnections(CLIENTS * 2);
+        if (virtualThreads) {
+            // What Boot's TomcatVirtualThreadsWebServerFactoryCustomizer installs
+            protocol.setExecutor(new VirtualThreadExecutor("tomcat-handler-"));
+        }
+        Context context = tomcat.addContext("", baseDir.toString());
+        Tomcat.addServlet(context, "io", new BlockingServlet());
+        context.addServletMappingDecoded("/io", "io");
+        tomcat.start();
+        return tomcat;
+    }
+
+    /** Each client sends its next request as soon as the previous one answers; returns all latencies in ns. */
+    private static long[] load(URI uri, int seconds) throws Exception {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(60)).build();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        try {
+            List<Future<long[]>> results = new ArrayList<>();
+            for (int i = 0; i < CLIENTS; i++) {
+                results.add(clients.submit(() -> {
+                    long[] latencies = new long[1024];
+                    int count = 0;
+                    long start;
+                    while ((start = System.nanoTime()) < deadline) {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() != 200) {
+                            throw new IOException("Unexpected status " + response.statusCode());
+                        }
+                        if (count == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, count * 2);
+                        }
+                        latencies[count++] = System.nanoTime() - start;
+                    }
+                    return Arrays.copyOf(latencies, count);
+                }));
+            }
+            long[][] perClient = new long[CLIENTS][];
+            for (int i = 0; i < CLIENTS; i++) {
+                perClient[i] = results.get(i).get();
+            }
+            return Arrays.stream(perClient).flatMapToLong(Arrays::stream).toArray();
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(quantile * sorted.length) - 1)];
+    }
+
+    /** Blocks like a controller waiting on I/O, without holding a pooled connection. */
+    private static final class BlockingServlet extends HttpServlet {
+        @Override
+        protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+            try {
+                Thread.sleep(IO_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            response.setContentType("text/plain");
+            response.getWriter().write("ok");
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.journalservice.archive;
+
+import com.example.journalservice.entity.JournalEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JournalArchiveStoreTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void truncatedSegmentIsQuarantinedAndTheRestAreServed() throws IOException {
+        List<JournalEntry> march = rows(1, LocalDateTime.of(2025, 3, 1, 0, 0));
+        List<JournalEntry> april = rows(101, LocalDateTime.of(2025, 4, 1, 0, 0));
+        JournalSegmentTest.write(dir.resolve("journal_entries_p2025_03-0001.seg"), march);
+        Path broken = dir.resolve("journal_entries_p2025_04-0001.seg");
+        JournalSegmentTest.write(broken, april);
+        try (RandomAccessFile file = new RandomAccessFile(broken.toFile(), "rw")) {
+            file.setLength(file.length() / 2);
+        }
+
+        JournalArchiveStore store = store();
+
+        assertThat(broken).doesNotExist();
+        assertThat(dir.resolve("quarantine").resolve(broken.getFileName())).exists();
+        assertThat(store.countInTimeRange(null, null, null)).isEqualTo(march.size());
+        assertThat(store.findById(1)).isPresent();
+        assertThat(store.findById(101)).isEmpty();
+    }
+
+    @Test
+    void keysetReadsContinueFromOneSegmentIntoTheNext() throws IOException {
+        List<JournalEntry> march = rows(1, LocalDateTime.of(2025, 3, 1, 0, 0));
+        List<JournalEntry> april = rows(101, LocalDateTime.of(2025, 4, 1, 0, 0));
+        JournalSegmentTest.write(dir.resolve("journal_entries_p2025_03-0001.seg"), march);
+        JournalSegmentTest.write(dir.resolve("journal_entries_p2025_04-0001.seg"), april);
+        JournalArchiveStore store = store();
+
+        JournalEntry oldestApril = april.get(0);
+        List<JournalEntry> page = store.findBefore(null, oldestApril.getEventTimestamp().plusSeconds(1), 0, 3);
+
+        // April's oldest row, then the newest of March
+        assertThat(page).extracting(JournalEntry::getId).containsExactly(101L, 6L, 5L);
+        assertThat(store.findInTimeRange(null, null, null, 5, 3)).extracting(JournalEntry::getId)
+                .containsExactly(101L, 6L, 5L);
+    }
+
+    private JournalArchiveStore store() throws IOException {
+        JournalArchiveStore store = new JournalArchiveStore();
+        ReflectionTestUtils.setField(store, "archiveDir", dir.toString());
+        store.loadSegments();
+        return store;
+    }
+
+    private static List<JournalEntry> rows(long firstId, LocalDateTime start) {
+        List<JournalEntry> rows = new ArrayList<>();
+        IntStream.range(0, 6).forEach(i -> {
+            JournalEntry entry = new JournalEntry("USER_UPDATED", 7L, "alice", start.plusHours(i), null);
+            entry.setId(firstId + i);
+            rows.add(entry);
+        });
+        return rows;
+    }
+}
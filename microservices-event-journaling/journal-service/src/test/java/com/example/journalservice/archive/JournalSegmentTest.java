@@ -0,0 +1,152 @@
+package com.example.journalservice.archive;
+
+import com.example.journalservice.entity.JournalEntry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JournalSegmentTest {
+    private static final LocalDateTime START = LocalDateTime.of(2025, 3, 1, 0, 0);
+    private static final int ROW_GROUP_SIZE = 4;
+
+    @TempDir
+    Path dir;
+
+    private final List<JournalEntry> rows = new ArrayList<>();
+    private JournalSegment segment;
+
+    @BeforeEach
+    void writeSegment() throws IOException {
+        // 10 rows in groups of 4, 4 and 2. Rows 5 and 6 share a timestamp, so keysets must compare ids
+        for (int i = 1; i <= 10; i++) {
+            LocalDateTime timestamp = START.plusMinutes(i <= 5 ? i : i - 1).plusNanos(i * 1_000L);
+            if (i == 6) {
+                timestamp = rows.get(4).getEventTimestamp();
+            }
+            JournalEntry entry = new JournalEntry(i % 3 == 0 ? "USER_DELETED" : "USER_UPDATED",
+                    i % 4 == 0 ? null : (long) (7 + i % 2), i == 2 ? "zo\u00eb" : i % 4 == 0 ? null : "user" + (7 + i % 2),
+                    timestamp, i % 3 == 1 ? null : "{\"n\": " + i + "}");
+            entry.setId((long) i);
+            entry.setReceivedTimestamp(i % 5 == 0 ? null : timestamp.plusSeconds(i));
+            rows.add(entry);
+        }
+        segment = write(dir.resolve("journal_entries_p2025_03-0001.seg"), rows);
+    }
+
+    static JournalSegment write(Path file, List<JournalEntry> entries) throws IOException {
+        try (JournalSegmentWriter writer = new JournalSegmentWriter(file, ROW_GROUP_SIZE)) {
+            for (JournalEntry entry : entries) {
+                writer.append(entry.getId(), entry.getEventTimestamp(), entry.getReceivedTimestamp(), entry.getUserId(),
+                        entry.getEventType(), entry.getUsername(), entry.getDetailsJson());
+            }
+            writer.finish();
+        }
+        return JournalSegment.open(file);
+    }
+
+    @Test
+    void everyColumnRoundTripsAcrossRowGroups() {
+        List<List<JournalEntry>> groups = new ArrayList<>();
+        segment.forEachRowGroup(groups::add);
+
+        assertThat(groups).extracting(List::size).containsExactly(4, 4, 2);
+        assertThat(groups.stream().flatMap(List::stream).toList())
+                .usingRecursiveFieldByFieldElementComparator().containsExactlyElementsOf(rows);
+        assertThat(segment.getRowCount()).isEqualTo(10);
+        assertThat(segment.getMinTimestamp()).isEqualTo(rows.get(0).getEventTimestamp());
+        assertThat(segment.getMaxTimestamp()).isEqualTo(rows.get(9).getEventTimestamp());
+    }
+
+    @Test
+    void findByIdReturnsTheRowFromWhicheverGroupHoldsIt() {
+        for (JournalEntry row : rows) {
+            assertThat(segment.findById(row.getId())).usingRecursiveComparison().isEqualTo(row);
+        }
+        assertThat(segment.findById(0)).isNull();
+        assertThat(segment.findById(11)).isNull();
+    }
+
+    @Test
+    void countMatchesAFilterOverTheRows() {
+        long from = SegmentFormat.toMicros(rows.get(2).getEventTimestamp());
+        long to = SegmentFormat.toMicros(rows.get(8).getEventTimestamp());
+        for (Long userId : new Long[]{null, 7L, 8L, 99L}) {
+            assertThat(segment.count(userId, Long.MIN_VALUE, Long.MAX_VALUE))
+                    .as("all rows of user %s", userId).isEqualTo(expected(userId, Long.MIN_VALUE, Long.MAX_VALUE).size());
+            assertThat(segment.count(userId, from, to))
+                    .as("window rows of user %s", userId).isEqualTo(expected(userId, from, to).size());
+        }
+    }
+
+    @Test
+    void keysetPagesNeitherRepeatNorSkipRowsSharingATimestamp() {
+        for (Long userId : new Long[]{null, 7L, 8L}) {
+            List<JournalEntry> paged = new ArrayList<>();
+            long beforeTimestamp = Long.MAX_VALUE;
+            long beforeId = Long.MAX_VALUE;
+            while (true) {
+                ArchiveScan scan = new ArchiveScan(userId, Long.MIN_VALUE, Long.MAX_VALUE, beforeTimestamp, beforeId, 0, 2);
+                segment.scan(scan);
+                if (scan.results().isEmpty()) {
+                    break;
+                }
+                paged.addAll(scan.results());
+                JournalEntry last = scan.results().get(scan.results().size() - 1);
+                beforeTimestamp = SegmentFormat.toMicros(last.getEventTimestamp());
+                beforeId = last.getId();
+            }
+            assertThat(paged).as("user %s", userId).extracting(JournalEntry::getId)
+                    .containsExactlyElementsOf(ids(expected(userId, Long.MIN_VALUE, Long.MAX_VALUE)));
+        }
+
+        // Directly on the shared timestamp: only the lower id of the pair is still before the key
+        ArchiveScan scan = new ArchiveScan(null, Long.MIN_VALUE, Long.MAX_VALUE,
+                SegmentFormat.toMicros(rows.get(5).getEventTimestamp()), 6, 0, 3);
+        segment.scan(scan);
+        assertThat(scan.results()).extracting(JournalEntry::getId).containsExactly(5L, 4L, 3L);
+    }
+
+    @Test
+    void offsetPagesMatchAFilterOverTheRowsIncludingWholeSkippedGroups() {
+        long[][] windows = {
+                {Long.MIN_VALUE, Long.MAX_VALUE},
+                {SegmentFormat.toMicros(rows.get(1).getEventTimestamp()), SegmentFormat.toMicros(rows.get(9).getEventTimestamp())}
+        };
+        for (Long userId : new Long[]{null, 7L}) {
+            for (long[] window : windows) {
+                List<JournalEntry> all = expected(userId, window[0], window[1]);
+                for (int offset = 0; offset <= all.size(); offset++) {
+                    // Offsets of 2 and 6 (without a window) skip the newest one and two groups whole
+                    ArchiveScan scan = new ArchiveScan(userId, window[0], window[1], Long.MAX_VALUE, Long.MAX_VALUE, offset, 3);
+                    segment.scan(scan);
+                    assertThat(scan.results()).as("user %s, window %s..%s, offset %d", userId, window[0], window[1], offset)
+                            .extracting(JournalEntry::getId)
+                            .containsExactlyElementsOf(ids(all.subList(offset, Math.min(offset + 3, all.size()))));
+                }
+            }
+        }
+    }
+
+    /** Rows of the user (null for all) in from <= timestamp < to, newest first. */
+    private List<JournalEntry> expected(Long userId, long from, long to) {
+        return rows.stream()
+                .filter(row -> userId == null || userId.equals(row.getUserId()))
+                .filter(row -> SegmentFormat.toMicros(row.getEventTimestamp()) >= from
+                        && SegmentFormat.toMicros(row.getEventTimestamp()) < to)
+                .sorted(Comparator.comparing(JournalEntry::getEventTimestamp).thenComparing(JournalEntry::getId).reversed())
+                .toList();
+    }
+
+    private static List<Long> ids(List<JournalEntry> entries) {
+        return entries.stream().map(JournalEntry::getId).toList();
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.journalservice.config;
+
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KafkaTopicConfigTest {
+    private static EmbeddedKafkaKraftBroker broker;
+    private static KafkaAdmin kafkaAdmin;
+
+    @BeforeAll
+    static void startBroker() {
+        broker = new EmbeddedKafkaKraftBroker(1, 3, "user-events");
+        broker.afterPropertiesSet();
+        kafkaAdmin = new KafkaAdmin(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString()));
+    }
+
+    @AfterAll
+    static void stopBroker() {
+        broker.destroy();
+    }
+
+    @Test
+    void existingTopicIsNotResized() {
+        config("user-events", 6).ensureUserEventsTopic();
+
+        assertThat(partitions("user-events")).isEqualTo(3);
+    }
+
+    @Test
+    void missingTopicIsCreatedWithConfiguredPartitions() {
+        config("fresh-events", 6).ensureUserEventsTopic();
+
+        assertThat(partitions("fresh-events")).isEqualTo(6);
+    }
+
+    private static KafkaTopicConfig config(String topicName, int partitions) {
+        KafkaTopicConfig config = new KafkaTopicConfig();
+        ReflectionTestUtils.setField(config, "kafkaAdmin", kafkaAdmin);
+        ReflectionTestUtils.setField(config, "topicName", topicName);
+        ReflectionTestUtils.setField(config, "partitions", partitions);
+        ReflectionTestUtils.setField(config, "replicas", (short) 1);
+        return config;
+    }
+
+    private static int partitions(String topicName) {
+        return kafkaAdmin.describeTopics(topicName).get(topicName).partitions().size();
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.journalservice.security;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.SecretKey;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Per-request cost of authenticating a bearer token in JwtRequestFilter, before and after
+ * {@link JwtUtil#verify}:
+ * <ul>
+ *     <li>{@code legacyFilter} - the old filter's calls: extractUsername, validateToken (which parses
+ *     twice more) and extractRoles, each rebuilding the key and parser</li>
+ *     <li>{@code verifyUncached} - verify on a token not seen before: digest, one parse, cache put</li>
+ *     <li>{@code verifyCached} - verify on a token an earlier request verified</li>
+ * </ul>
+ * Run with {@code mvn -Pbenchmark test -pl journal-service -Djmh.include=JwtVerificationBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtVerificationBenchmark {
+    private static final String SECRET = "benchmark-secret-that-is-at-least-32-bytes";
+
+    private String token;
+    private LegacyJwtUtil legacy;
+    private JwtUtil cached;
+    private JwtUtil uncached;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        legacy = new LegacyJwtUtil(SECRET);
+        cached = jwtUtil();
+        uncached = jwtUtil();
+        // Evicts every entry on the put that adds it, so each verify misses
+        ReflectionTestUtils.setField(uncached, "verifiedTokens",
+                Caffeine.newBuilder().maximumSize(0).executor(Runnable::run).build());
+        token = Jwts.builder()
+                .setSubject("alice")
+                .claim("roles", List.of("ROLE_USER", "ROLE_ADMIN"))
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + 3_600_000))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes()), SignatureAlgorithm.HS256)
+                .compact();
+        cached.verify(token);
+    }
+
+    private static JwtUtil jwtUtil() {
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secretString", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "cacheMaxSize", 10_000L);
+        ReflectionTestUtils.setField(jwtUtil, "meterRegistry", new SimpleMeterRegistry());
+        jwtUtil.init();
+        return jwtUtil;
+    }
+
+    @Benchmark
+    public List<String> legacyFilter() {
+        String username = legacy.extractUsername(token);
+        if (!legacy.validateToken(token, username)) {
+            throw new IllegalStateException("Token rejected");
+        }
+        return legacy.extractRoles(token);
+    }
+
+    @Benchmark
+    public JwtClaims verifyUncached() {
+        return uncached.verify(token);
+    }
+
+    @Benchmark
+    public JwtClaims verifyCached() {
+        return cached.verify(token);
+    }
+
+    /** JwtUtil's parsing methods as they were before verify(), kept here as the baseline. */
+    static final class LegacyJwtUtil {
+        private final String secretString;
+
+        LegacyJwtUtil(String secretString) {
+            this.secretString = secretString;
+        }
+
+        private SecretKey getSigningKey() {
+            byte[] keyBytes = secretString.getBytes();
+            if (keyBytes.length < 32) {
+                byte[] paddedKeyBytes = new byte[32];
+                System.arraycopy(keyBytes, 0, paddedKeyBytes, 0, Math.min(keyBytes.length, 32));
+                keyBytes = paddedKeyBytes;
+            }
+            return Keys.hmacShaKeyFor(keyBytes);
+        }
+
+        String extractUsername(String token) {
+            return extractClaim(token, Claims::getSubject);
+        }
+
+        @SuppressWarnings("unchecked")
+        List<String> extractRoles(String token) {
+            return extractAllClaims(token).get("roles", List.class);
+        }
+
+        Date extractExpiration(String token) {
+            return extractClaim(token, Claims::getExpiration);
+        }
+
+        <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
+            return claimsResolver.apply(extractAllClaims(token));
+        }
+
+        private Claims extractAllClaims(String token) {
+            return Jwts.parserBuilder().setSigningKey(getSigningKey()).build().parseClaimsJws(token).getBody();
+        }
+
+        boolean validateToken(String token, String usernameFromToken) {
+            return extractUsername(token).equals(usernameFromToken) && !extractExpiration(token).before(new Date());
+        }
+    }
+}
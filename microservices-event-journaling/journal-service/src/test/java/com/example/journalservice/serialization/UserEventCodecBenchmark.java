@@ -0,0 +1,75 @@
+package com.example.journalservice.serialization;
+
+import com.example.journalservice.dto.UserEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode/decode cost of the binary UserEvent codec against the JSON path it replaces.
+ * Run with {@code mvn -Pbenchmark test -pl journal-service -Djmh.include=UserEventCodecBenchmark};
+ * bytes per event are printed before the measurements.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserEventCodecBenchmark {
+    private static final String TOPIC = "user-events";
+
+    private UserEvent event;
+    private JsonSerializer<UserEvent> jsonSerializer;
+    private UserEventDeserializer deserializer;
+    private byte[] json;
+    private byte[] binary;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        event = UserEventCodecTest.sampleEvent();
+        jsonSerializer = UserEventCodecTest.jsonSerializer();
+        deserializer = new UserEventDeserializer();
+        json = jsonSerializer.serialize(TOPIC, event);
+        binary = UserEventBinaryCodec.encode(event);
+        System.out.printf("Bytes per event: json=%d binary=%d%n", json.length, binary.length);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jsonSerializer.close();
+        deserializer.close();
+    }
+
+    @Benchmark
+    public byte[] encodeJson() {
+        return jsonSerializer.serialize(TOPIC, event);
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return UserEventBinaryCodec.encode(event);
+    }
+
+    @Benchmark
+    public UserEvent decodeJson() {
+        return deserializer.deserialize(TOPIC, json);
+    }
+
+    @Benchmark
+    public UserEvent decodeBinary() {
+        return deserializer.deserialize(TOPIC, binary);
+    }
+}
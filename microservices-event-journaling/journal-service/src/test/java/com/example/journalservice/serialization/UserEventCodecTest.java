@@ -0,0 +1,105 @@
+package com.example.journalservice.serialization;
+
+import com.example.journalservice.dto.UserEvent;
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UserEventCodecTest {
+    private static final String TOPIC = "user-events";
+
+    private final UserEventDeserializer deserializer = new UserEventDeserializer();
+
+    static UserEvent sampleEvent() {
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("email", "alice@example.com");
+        details.put("roles", List.of("ROLE_USER", "ROLE_ADMIN"));
+        details.put("loginCount", 42L);
+        details.put("score", 0.75);
+        details.put("verified", true);
+        details.put("address", Map.of("city", "Lisbon"));
+        return new UserEvent("USER_CREATED", 123456L, "alice",
+                LocalDateTime.of(2025, 3, 14, 15, 9, 26, 535_897_000), details);
+    }
+
+    /** The JSON path producers used before the binary codec: JsonSerializer without type headers. */
+    static JsonSerializer<UserEvent> jsonSerializer() {
+        JsonSerializer<UserEvent> serializer = new JsonSerializer<>();
+        serializer.setAddTypeInfo(false);
+        return serializer;
+    }
+
+    @Test
+    void binaryRoundTripKeepsEveryField() {
+        UserEvent event = sampleEvent();
+
+        UserEvent decoded = deserializer.deserialize(TOPIC, UserEventBinaryCodec.encode(event));
+
+        assertThat(decoded).isEqualTo(event);
+    }
+
+    @Test
+    void binaryRoundTripKeepsMissingFieldsNull() {
+        UserEvent event = new UserEvent("USER_DELETED", 7L, null, null, null);
+
+        assertThat(deserializer.deserialize(TOPIC, UserEventBinaryCodec.encode(event))).isEqualTo(event);
+    }
+
+    @Test
+    void deserializerReadsJsonAndBinaryFromTheSameTopic() {
+        UserEvent event = sampleEvent();
+        byte[] json;
+        try (JsonSerializer<UserEvent> serializer = jsonSerializer()) {
+            json = serializer.serialize(TOPIC, event);
+        }
+
+        UserEvent fromJson = deserializer.deserialize(TOPIC, json);
+        UserEvent fromBinary = deserializer.deserialize(TOPIC, UserEventBinaryCodec.encode(event));
+
+        assertThat(UserEventBinaryCodec.isBinary(json)).isFalse();
+        assertThat(fromBinary.getEventType()).isEqualTo(fromJson.getEventType());
+        assertThat(fromBinary.getUserId()).isEqualTo(fromJson.getUserId());
+        assertThat(fromBinary.getUsername()).isEqualTo(fromJson.getUsername());
+        assertThat(fromBinary.getTimestamp()).isEqualTo(fromJson.getTimestamp());
+        assertThat(fromBinary.getDetails()).containsOnlyKeys(fromJson.getDetails().keySet());
+    }
+
+    @Test
+    void binaryIsSmallerThanJson() {
+        UserEvent event = sampleEvent();
+        byte[] json;
+        try (JsonSerializer<UserEvent> serializer = jsonSerializer()) {
+            json = serializer.serialize(TOPIC, event);
+        }
+
+        assertThat(UserEventBinaryCodec.encode(event).length).isLessThan(json.length);
+    }
+
+    @Test
+    void newerSchemaVersionIsRejected() {
+        byte[] payload = UserEventBinaryCodec.encode(sampleEvent());
+        payload[1] = UserEventBinaryCodec.CURRENT_VERSION + 1;
+
+        assertThatThrownBy(() -> deserializer.deserialize(TOPIC, payload))
+                .isInstanceOf(SerializationException.class)
+                .hasMessageContaining("Unsupported UserEvent schema version");
+    }
+
+    @Test
+    void truncatedPayloadIsRejected() {
+        byte[] payload = UserEventBinaryCodec.encode(sampleEvent());
+        byte[] truncated = Arrays.copyOf(payload, payload.length - 5);
+
+        assertThatThrownBy(() -> deserializer.deserialize(TOPIC, truncated))
+                .isInstanceOf(SerializationException.class);
+    }
+}
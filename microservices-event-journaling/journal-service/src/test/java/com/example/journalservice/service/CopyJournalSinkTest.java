@@ -0,0 +1,130 @@
+package com.example.journalservice.service;
+
+import com.example.journalservice.entity.JournalEntry;
+import com.example.journalservice.support.PostgresTestDatabase;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class CopyJournalSinkTest {
+    private static final LocalDateTime DAY = LocalDateTime.of(2025, 6, 1, 0, 0);
+
+    @RegisterExtension
+    final PostgresTestDatabase database = new PostgresTestDatabase();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final JournalEntryWriter fallbackWriter = mock(JournalEntryWriter.class);
+    private final List<Long> rowsSeenAtAck = new CopyOnWriteArrayList<>();
+    private JdbcTemplate jdbcTemplate;
+    private CopyJournalSink sink;
+
+    @BeforeEach
+    void setUp() {
+        JournalPartitionManagerTest.initializeSchema(database);
+        jdbcTemplate = database.jdbcTemplate();
+
+        JournalMetrics journalMetrics = new JournalMetrics();
+        ReflectionTestUtils.setField(journalMetrics, "meterRegistry", meterRegistry);
+        journalMetrics.init();
+        sink = new CopyJournalSink();
+        ReflectionTestUtils.setField(sink, "journalCopyWriter", JournalCopyWriterTest.copyWriter(database));
+        ReflectionTestUtils.setField(sink, "transactionTemplate", database.transactionTemplate());
+        ReflectionTestUtils.setField(sink, "journalEntryWriter", fallbackWriter);
+        ReflectionTestUtils.setField(sink, "eventPublisher", eventPublisher);
+        ReflectionTestUtils.setField(sink, "journalMetrics", journalMetrics);
+        ReflectionTestUtils.setField(sink, "flushSize", 3);
+        // Only size-triggered flushes during a test
+        ReflectionTestUtils.setField(sink, "flushIntervalMs", 60_000L);
+        sink.start();
+    }
+
+    @AfterEach
+    void stopSink() {
+        sink.stop();
+    }
+
+    @Test
+    void batchesAreAcknowledgedOnlyOnceTheirCopyCommitted() throws Exception {
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() -> sink.write(List.of(entry("alice"), entry("bob")), this::ack));
+        Thread.sleep(300);
+        assertThat(first).isNotDone();
+        assertThat(rowCount()).isZero();
+
+        sink.write(List.of(entry("carol")), this::ack);
+        first.get(5, TimeUnit.SECONDS);
+
+        // Each acknowledgement saw all three rows from another connection, so they were committed
+        assertThat(rowsSeenAtAck).containsExactly(3L, 3L);
+        verify(eventPublisher).publishEvent(any(JournalEntriesPersistedEvent.class));
+        verifyNoInteractions(fallbackWriter);
+    }
+
+    @Test
+    void failedCopyRollsBackAndFallsBackToJpa() {
+        doThrow(new IllegalStateException("listener failed")).when(eventPublisher).publishEvent(any(Object.class));
+        List<Long> fallbackIds = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> {
+            invocation.<List<JournalEntry>>getArgument(0).forEach(entry -> fallbackIds.add(entry.getId()));
+            return null;
+        }).when(fallbackWriter).writeWithFallback(anyList());
+
+        sink.write(List.of(entry("alice"), entry("bob"), entry("carol")), this::ack);
+
+        // The COPY ran but its transaction rolled back; the JPA writer got the entries with their ids cleared
+        assertThat(rowCount()).isZero();
+        assertThat(fallbackIds).containsExactly(null, null, null);
+        assertThat(rowsSeenAtAck).hasSize(1);
+        assertThat(meterRegistry.get("journal.errors").tag("stage", "copy").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void failedFallbackIsNotAcknowledgedAndLaterBatchesStillAre() {
+        doThrow(new IllegalStateException("listener failed")).when(eventPublisher).publishEvent(any(Object.class));
+        doThrow(new DataAccessResourceFailureException("database down")).when(fallbackWriter).writeWithFallback(anyList());
+
+        assertThatThrownBy(() -> sink.write(List.of(entry("alice"), entry("bob"), entry("carol")), this::ack))
+                .isInstanceOf(DataAccessResourceFailureException.class);
+        assertThat(rowsSeenAtAck).isEmpty();
+
+        reset(eventPublisher);
+        sink.write(List.of(entry("dave"), entry("erin"), entry("frank")), this::ack);
+
+        assertThat(rowsSeenAtAck).containsExactly(3L);
+    }
+
+    private void ack() {
+        rowsSeenAtAck.add(rowCount());
+    }
+
+    private long rowCount() {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM journal_entries", Long.class);
+    }
+
+    private static JournalEntry entry(String username) {
+        return new JournalEntry("USER_UPDATED", 7L, username, DAY, "{\"username\": \"" + username + "\"}");
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.journalservice.service;
+
+import com.example.journalservice.entity.JournalEntry;
+import com.example.journalservice.support.PostgresTestDatabase;
+import org.hibernate.id.IdentifierGeneratorHelper;
+import org.hibernate.id.IntegralDataTypeHolder;
+import org.hibernate.id.enhanced.AccessCallback;
+import org.hibernate.id.enhanced.PooledLoOptimizer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JournalCopyWriterTest {
+    @RegisterExtension
+    final PostgresTestDatabase database = new PostgresTestDatabase();
+
+    private JdbcTemplate jdbcTemplate;
+    private JournalCopyWriter copyWriter;
+
+    @BeforeEach
+    void setUp() {
+        JournalPartitionManagerTest.initializeSchema(database);
+        jdbcTemplate = database.jdbcTemplate();
+        copyWriter = copyWriter(database);
+    }
+
+    static JournalCopyWriter copyWriter(PostgresTestDatabase database) {
+        JournalCopyWriter copyWriter = new JournalCopyWriter();
+        ReflectionTestUtils.setField(copyWriter, "dataSource", database.dataSource());
+        ReflectionTestUtils.setField(copyWriter, "jdbcTemplate", database.jdbcTemplate());
+        return copyWriter;
+    }
+
+    @Test
+    void binaryCopyRoundTripsEveryColumn() {
+        JournalEntry full = new JournalEntry("USER_UPDATED", 7L, "zo\u00eb", LocalDateTime.of(2025, 6, 1, 12, 34, 56, 123_456_000),
+                "{\"email\": \"zo\u00eb@example.com\", \"roles\": [\"ROLE_USER\"]}");
+        // Before the 2000-01-01 COPY epoch, so the microsecond offset is negative
+        full.setReceivedTimestamp(LocalDateTime.of(1999, 12, 31, 23, 59, 59, 500_000_000));
+        JournalEntry sparse = new JournalEntry("USER_DELETED", null, null, LocalDateTime.of(2025, 6, 2, 0, 0), null);
+        sparse.setReceivedTimestamp(null);
+
+        database.transactionTemplate().executeWithoutResult(status -> copyWriter.copy("journal_entries", List.of(full, sparse)));
+
+        Map<String, Object> first = row(full.getId());
+        assertThat(first).containsEntry("event_type", "USER_UPDATED").containsEntry("user_id", 7L)
+                .containsEntry("username", "zo\u00eb").containsEntry("email", "zo\u00eb@example.com")
+                .containsEntry("event_timestamp", full.getEventTimestamp())
+                .containsEntry("received_timestamp", full.getReceivedTimestamp())
+                .containsEntry("json_type", "object");
+        Map<String, Object> second = row(sparse.getId());
+        assertThat(second).containsEntry("event_type", "USER_DELETED").containsEntry("user_id", null)
+                .containsEntry("username", null).containsEntry("json_type", null)
+                .containsEntry("received_timestamp", null)
+                .containsEntry("event_timestamp", sparse.getEventTimestamp());
+    }
+
+    @Test
+    void copiedIdBlocksNeverOverlapHibernatePooledLoIds() {
+        PooledLoOptimizer hibernate = new PooledLoOptimizer(Long.class, JournalEntry.ID_ALLOCATION_SIZE);
+        AccessCallback sequence = new AccessCallback() {
+            @Override
+            public IntegralDataTypeHolder getNextValue() {
+                Long next = jdbcTemplate.queryForObject("SELECT nextval('journal_entries_seq')", Long.class);
+                return IdentifierGeneratorHelper.getIntegralDataTypeHolder(Long.class).initialize(next);
+            }
+
+            @Override
+            public String getTenantIdentifier() {
+                return null;
+            }
+        };
+        List<Long> ids = new ArrayList<>();
+        // Hibernate takes a block and has used only part of it when the COPY reserves its own
+        IntStream.range(0, 10).forEach(i -> ids.add((Long) hibernate.generate(sequence)));
+        List<JournalEntry> copied = IntStream.range(0, 120)
+                .mapToObj(i -> new JournalEntry("USER_UPDATED", (long) i, "user" + i, LocalDateTime.of(2025, 6, 1, 0, 0), null))
+                .toList();
+        database.transactionTemplate().executeWithoutResult(status -> copyWriter.copy("journal_entries", copied));
+        copied.forEach(entry -> ids.add(entry.getId()));
+        IntStream.range(0, 100).forEach(i -> ids.add((Long) hibernate.generate(sequence)));
+
+        Set<Long> distinct = new HashSet<>(ids);
+        assertThat(distinct).hasSize(ids.size());
+        // 120 entries take three whole blocks of 50, each starting at a value the sequence returned
+        assertThat(copied.stream().map(entry -> (entry.getId() - 1) / JournalEntry.ID_ALLOCATION_SIZE).distinct()).hasSize(3);
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM journal_entries", Long.class)).isEqualTo(120);
+    }
+
+    private Map<String, Object> row(long id) {
+        return jdbcTemplate.queryForObject("SELECT event_type, user_id, username, event_timestamp, received_timestamp, "
+                + "details_json->>'email' AS email, jsonb_typeof(details_json) AS json_type FROM journal_entries WHERE id = ?",
+                (rs, rowNum) -> {
+                    Map<String, Object> row = new HashMap<>();
+                    row.put("event_type", rs.getString("event_type"));
+                    row.put("user_id", rs.getObject("user_id", Long.class));
+                    row.put("username", rs.getString("username"));
+                    row.put("event_timestamp", rs.getObject("event_timestamp", LocalDateTime.class));
+                    row.put("received_timestamp", rs.getObject("received_timestamp", LocalDateTime.class));
+                    row.put("email", rs.getString("email"));
+                    row.put("json_type", rs.getString("json_type"));
+                    return row;
+                }, id);
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.journalservice.service;
+
+import com.example.journalservice.support.PostgresTestDatabase;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JournalExportServiceTest {
+    /** Rows for the heap test; {@code -Dtest.export.rows} raises or lowers it. */
+    private static final int EXPORT_ROWS = Integer.getInteger("test.export.rows", 2_000_000);
+    private static final long SAMPLE_EVERY_BYTES = 32L * 1024 * 1024;
+
+    @RegisterExtension
+    final PostgresTestDatabase database = new PostgresTestDatabase();
+
+    private JdbcTemplate jdbcTemplate;
+    private JournalExportService exportService;
+    private LocalDateTime monthStart;
+
+    @BeforeEach
+    void setUp() {
+        JournalPartitionManagerTest.initializeSchema(database);
+        jdbcTemplate = database.jdbcTemplate();
+        monthStart = LocalDate.now().withDayOfMonth(1).atStartOfDay();
+
+        exportService = new JournalExportService();
+        ReflectionTestUtils.setField(exportService, "dataSource", database.dataSource());
+        ReflectionTestUtils.setField(exportService, "transactionManager",
+                new DataSourceTransactionManager(database.dataSource()));
+        ReflectionTestUtils.setField(exportService, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(exportService, "fetchSize", 1000);
+        exportService.init();
+    }
+
+    @Test
+    void writesFilteredNdjsonOldestFirst() throws Exception {
+        insert(1, 7, "USER_CREATED", monthStart.plusHours(2), "{\"email\": \"a@example.com\"}");
+        insert(2, 7, "USER_UPDATED", monthStart.plusHours(1), null);
+        insert(3, 8, "USER_CREATED", monthStart.plusHours(3), null);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.export(JournalExportService.Format.NDJSON, 7L, null, null, null, out);
+
+        assertThat(out.toString(StandardCharsets.UTF_8).split("\n")).containsExactly(
+                "{\"id\":2,\"eventType\":\"USER_UPDATED\",\"userId\":7,\"username\":\"user7\",\"eventTimestamp\":\""
+                        + monthStart.plusHours(1) + "\",\"details\":null,\"receivedTimestamp\":null}",
+                "{\"id\":1,\"eventType\":\"USER_CREATED\",\"userId\":7,\"username\":\"user7\",\"eventTimestamp\":\""
+                        + monthStart.plusHours(2) + "\",\"details\":{\"email\": \"a@example.com\"},\"receivedTimestamp\":null}");
+    }
+
+    @Test
+    void writesCsvWithQuotedDetails() throws Exception {
+        insert(1, 7, "USER_CREATED", monthStart.plusHours(2), "{\"a\": 1, \"b\": 2}");
+        insert(2, 8, "USER_DELETED", monthStart.plusHours(3), null);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.export(JournalExportService.Format.CSV, null, "USER_CREATED",
+                monthStart, monthStart.plusDays(1), out);
+
+        assertThat(out.toString(StandardCharsets.UTF_8).split("\n")).containsExactly(
+                "id,event_type,user_id,username,event_timestamp,details_json,received_timestamp",
+                "1,USER_CREATED,7,user7," + monthStart.plusHours(2) + ",\"{\"\"a\"\": 1, \"\"b\"\": 2}\",");
+    }
+
+    @Test
+    void heapStaysFlatWhileExportingMillionsOfRows() throws Exception {
+        jdbcTemplate.update("INSERT INTO journal_entries (id, event_type, user_id, username, event_timestamp, "
+                + "details_json, received_timestamp) "
+                + "SELECT n, 'USER_UPDATED', n % 1000, 'user' || (n % 1000), ?::timestamp + n * interval '1 millisecond', "
+                + "jsonb_build_object('email', 'user' || n || '@example.com', 'roles', jsonb_build_array('ROLE_USER')), "
+                + "?::timestamp + n * interval '1 millisecond' FROM generate_series(1, ?) AS n",
+                Timestamp.valueOf(monthStart), Timestamp.valueOf(monthStart), EXPORT_ROWS);
+
+        HeapSamplingOutputStream out = new HeapSamplingOutputStream();
+        exportService.export(JournalExportService.Format.NDJSON, null, null, null, null, out);
+
+        assertThat(out.lines).isEqualTo(EXPORT_ROWS);
+        assertThat(out.samples).hasSizeGreaterThanOrEqualTo(4);
+        // A buffered export would grow by roughly the output size (hundreds of MB); a streaming one
+        // only ever retains the current fetch batch
+        long first = out.samples.get(0);
+        long peak = out.samples.stream().mapToLong(Long::longValue).max().orElseThrow();
+        assertThat(peak - first)
+                .as("retained heap growth over %d samples %s", out.samples.size(), out.samples)
+                .isLessThan(16L * 1024 * 1024);
+    }
+
+    private void insert(long id, long userId, String type, LocalDateTime timestamp, String details) {
+        jdbcTemplate.update("INSERT INTO journal_entries (id, event_type, user_id, username, event_timestamp, details_json) "
+                + "VALUES (?, ?, ?, ?, ?, ?::jsonb)", id, type, userId, "user" + userId, Timestamp.valueOf(timestamp), details);
+    }
+
+    /**
+     * Discards the export and records the heap still in use after a full GC every
+     * {@link #SAMPLE_EVERY_BYTES}, i.e. what the export retains rather than its garbage.
+     */
+    private static final class HeapSamplingOutputStream extends OutputStream {
+        private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        private final List<Long> samples = new ArrayList<>();
+        private long bytes;
+        private long nextSample = SAMPLE_EVERY_BYTES;
+        private long lines;
+
+        @Override
+        public void write(int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                if (b[i] == '\n') {
+                    lines++;
+                }
+            }
+            bytes += len;
+            if (bytes >= nextSample) {
+                nextSample += SAMPLE_EVERY_BYTES;
+                System.gc();
+                samples.add(memory.getHeapMemoryUsage().getUsed());
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.journalservice.service;
+
+import com.example.journalservice.dto.JournalEntryDto;
+import com.example.journalservice.entity.JournalEntry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class JournalLiveTailTest {
+    private final JournalLiveTail liveTail = new JournalLiveTail();
+
+    private JournalLiveTail start(String overflow, int bufferSize, int senderThreads, long writeTimeoutMs) {
+        JournalQueryService queryService = mock(JournalQueryService.class);
+        when(queryService.mapToDto(any())).thenAnswer(invocation -> {
+            JournalEntry entry = invocation.getArgument(0);
+            return new JournalEntryDto(entry.getId(), entry.getEventType(), entry.getUserId(), entry.getUsername(),
+                    entry.getEventTimestamp(), null, null);
+        });
+        ReflectionTestUtils.setField(liveTail, "journalQueryService", queryService);
+        ReflectionTestUtils.setField(liveTail, "overflow", overflow);
+        ReflectionTestUtils.setField(liveTail, "bufferSize", bufferSize);
+        ReflectionTestUtils.setField(liveTail, "senderThreads", senderThreads);
+        ReflectionTestUtils.setField(liveTail, "writeTimeoutMs", writeTimeoutMs);
+        liveTail.start();
+        return liveTail;
+    }
+
+    @AfterEach
+    void stop() {
+        liveTail.stop();
+    }
+
+    @Test
+    void disconnectingASlowSubscriberNeverWaitsOnItsWrite() throws Exception {
+        start("disconnect", 1, 4, 60_000);
+        BlockingEmitter slow = new BlockingEmitter();
+        liveTail.subscribe(slow, 7L, null);
+
+        publish(1);
+        assertThat(slow.writing.await(5, TimeUnit.SECONDS)).isTrue();
+        // One entry fills the queue, the next overflows it while the sender is still stuck in its write
+        assertTimeoutPreemptively(Duration.ofSeconds(2), () -> {
+            publish(2);
+            publish(3);
+        });
+        assertThat(slow.completedBy.get()).isNull();
+
+        slow.release.countDown();
+        assertThat(slow.completed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(slow.completedBy.get()).startsWith("journal-live-");
+        assertThat(slow.sent).containsExactly(1L);
+    }
+
+    @Test
+    void stalledWritesDoNotStarveOtherSubscribers() throws Exception {
+        start("drop", 16, 1, 50);
+        BlockingEmitter stuck = new BlockingEmitter();
+        liveTail.subscribe(stuck, 7L, null);
+        publish(1);
+        assertThat(stuck.writing.await(5, TimeUnit.SECONDS)).isTrue();
+
+        Thread.sleep(100);
+        liveTail.disconnectStalledSubscribers();
+        ThreadPoolExecutor senders = (ThreadPoolExecutor) ReflectionTestUtils.getField(liveTail, "senders");
+        assertThat(senders.getMaximumPoolSize()).isEqualTo(2);
+
+        BlockingEmitter healthy = new BlockingEmitter();
+        healthy.release.countDown();
+        liveTail.subscribe(healthy, 8L, null);
+        publish(2, 8L);
+        assertThat(healthy.firstSend.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(healthy.sent).containsExactly(2L);
+
+        stuck.release.countDown();
+        assertThat(stuck.completed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(senders.getMaximumPoolSize()).isEqualTo(1);
+    }
+
+    private void publish(long id) {
+        publish(id, 7L);
+    }
+
+    private void publish(long id, long userId) {
+        JournalEntry entry = new JournalEntry("USER_UPDATED", userId, "alice", LocalDateTime.now(), null);
+        entry.setId(id);
+        liveTail.onEntriesPersisted(new JournalEntriesPersistedEvent(List.of(entry)));
+    }
+
+    /** Emitter whose writes block until released, like one whose client stopped reading. */
+    private static final class BlockingEmitter extends SseEmitter {
+        private final CountDownLatch writing = new CountDownLatch(1);
+        private final CountDownLatch firstSend = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private final AtomicReference<String> completedBy = new AtomicReference<>();
+        private final LinkedBlockingQueue<Long> sent = new LinkedBlockingQueue<>();
+
+        @Override
+        public synchronized void send(SseEventBuilder builder) throws IOException {
+            writing.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            builder.build().stream()
+                    .filter(data -> data.getData() instanceof JournalEntryDto)
+                    .forEach(data -> sent.add(((JournalEntryDto) data.getData()).getId()));
+            firstSend.countDown();
+        }
+
+        @Override
+        public synchronized void complete() {
+            completedBy.set(Thread.currentThread().getName());
+            completed.countDown();
+        }
+    }
+}
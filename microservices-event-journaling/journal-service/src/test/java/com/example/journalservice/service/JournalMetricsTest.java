@@ -0,0 +1,123 @@
+package com.example.journalservice.service;
+
+import com.example.journalservice.dto.UserEvent;
+import com.example.journalservice.repository.JournalEntryRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Drives the real consumer, JPA sink and writer against a mocked repository and checks the meters
+ * they leave in the registry.
+ */
+class JournalMetricsTest {
+    private static final TopicPartition PARTITION_0 = new TopicPartition("user-events", 0);
+    private static final TopicPartition PARTITION_1 = new TopicPartition("user-events", 1);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final JournalEntryRepository repository = mock(JournalEntryRepository.class);
+    private final Acknowledgment acknowledgment = mock(Acknowledgment.class);
+    private final MockConsumer<String, UserEvent> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    private final JournalEventConsumer eventConsumer = new JournalEventConsumer();
+
+    @BeforeEach
+    void setUp() {
+        JournalMetrics journalMetrics = new JournalMetrics();
+        ReflectionTestUtils.setField(journalMetrics, "meterRegistry", meterRegistry);
+        journalMetrics.init();
+
+        JournalEntryWriter writer = new JournalEntryWriter();
+        ReflectionTestUtils.setField(writer, "journalEntryRepository", repository);
+        ReflectionTestUtils.setField(writer, "transactionTemplate", new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        // Stands in for the after-commit listener delivery
+        ApplicationEventPublisher eventPublisher = event -> journalMetrics.onEntriesPersisted((JournalEntriesPersistedEvent) event);
+        ReflectionTestUtils.setField(writer, "eventPublisher", eventPublisher);
+        ReflectionTestUtils.setField(writer, "journalMetrics", journalMetrics);
+        JpaJournalSink sink = new JpaJournalSink();
+        ReflectionTestUtils.setField(sink, "journalEntryWriter", writer);
+
+        ReflectionTestUtils.setField(eventConsumer, "journalSink", sink);
+        ReflectionTestUtils.setField(eventConsumer, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(eventConsumer, "journalMetrics", journalMetrics);
+        ReflectionTestUtils.setField(eventConsumer, "shardWorkers", 1);
+
+        consumer.assign(List.of(PARTITION_0, PARTITION_1));
+        consumer.updateBeginningOffsets(Map.of(PARTITION_0, 0L, PARTITION_1, 0L));
+        consumer.updateEndOffsets(Map.of(PARTITION_0, 100L, PARTITION_1, 40L));
+        consumer.seek(PARTITION_0, 90);
+        consumer.seek(PARTITION_1, 40);
+    }
+
+    @Test
+    void recordsDelaysLagAndWriteTimes() {
+        LocalDateTime produced = LocalDateTime.now().minusSeconds(2);
+
+        eventConsumer.consumeUserEvents(List.of(record(0, event(7L, produced)), record(1, event(8L, produced))),
+                acknowledgment, consumer);
+
+        verify(acknowledgment).acknowledge();
+        for (String delay : List.of("journal.ingest.receive.delay", "journal.ingest.persist.delay")) {
+            Timer timer = meterRegistry.get(delay).timer();
+            assertThat(timer.count()).as(delay).isEqualTo(2);
+            assertThat(timer.max(TimeUnit.MILLISECONDS)).as(delay).isBetween(2000.0, 60_000.0);
+        }
+        assertThat(meterRegistry.get("journal.db.write")
+                .tags("sink", "jpa", "mode", "batch", "outcome", "success").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("journal.consumer.lag").tag("partition", "0").gauge().value()).isEqualTo(10);
+        assertThat(meterRegistry.get("journal.consumer.lag").tag("partition", "1").gauge().value()).isZero();
+        assertThat(meterRegistry.find("journal.errors").counters()).isEmpty();
+    }
+
+    @Test
+    void failuresAreCountedByStageAndException() {
+        when(repository.saveAll(anyList())).thenThrow(new CannotCreateTransactionException("database down"));
+        List<ConsumerRecord<String, UserEvent>> records = new ArrayList<>();
+        records.add(record(0, event(7L, LocalDateTime.now())));
+        records.add(record(1, null)); // What ErrorHandlingDeserializer delivers for an unreadable payload
+
+        assertThatThrownBy(() -> eventConsumer.consumeUserEvents(records, acknowledgment, consumer))
+                .isInstanceOf(CannotCreateTransactionException.class);
+
+        verify(acknowledgment, never()).acknowledge();
+        assertThat(meterRegistry.get("journal.errors").tags("stage", "deserialize", "exception", "DeserializationException")
+                .counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("journal.errors").tags("stage", "write-batch", "exception", "CannotCreateTransactionException")
+                .counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("journal.db.write").tag("outcome", "failure").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("journal.ingest.persist.delay").timer().count()).isZero();
+    }
+
+    private static ConsumerRecord<String, UserEvent> record(long offset, UserEvent event) {
+        return new ConsumerRecord<>(PARTITION_0.topic(), PARTITION_0.partition(), offset, null, event);
+    }
+
+    private static UserEvent event(Long userId, LocalDateTime timestamp) {
+        return new UserEvent("USER_UPDATED", userId, "user" + userId, timestamp, Map.of("email", "user@example.com"));
+    }
+}
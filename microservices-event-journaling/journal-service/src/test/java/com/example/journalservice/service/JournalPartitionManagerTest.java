@@ -0,0 +1,79 @@
+package com.example.journalservice.service;
+
+import com.example.journalservice.support.PostgresTestDatabase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JournalPartitionManagerTest {
+    @RegisterExtension
+    final PostgresTestDatabase database = new PostgresTestDatabase();
+
+    private JdbcTemplate jdbcTemplate;
+    private JournalPartitionManager partitionManager;
+
+    /** Journal schema in a fresh test schema, with partitions up to next month. */
+    static JournalPartitionManager initializeSchema(PostgresTestDatabase database) {
+        JournalPartitionManager partitionManager = new JournalPartitionManager();
+        ReflectionTestUtils.setField(partitionManager, "jdbcTemplate", database.jdbcTemplate());
+        ReflectionTestUtils.setField(partitionManager, "transactionTemplate", database.transactionTemplate());
+        ReflectionTestUtils.setField(partitionManager, "premakeMonths", 1);
+
+        JournalSchemaInitializer initializer = new JournalSchemaInitializer();
+        ReflectionTestUtils.setField(initializer, "jdbcTemplate", database.jdbcTemplate());
+        ReflectionTestUtils.setField(initializer, "journalPartitionManager", partitionManager);
+        initializer.initialize();
+        return partitionManager;
+    }
+
+    @BeforeEach
+    void createSchema() {
+        jdbcTemplate = database.jdbcTemplate();
+        partitionManager = initializeSchema(database);
+    }
+
+    @Test
+    void createsMonthlyPartitionsAheadOfTime() {
+        LocalDate nextMonth = LocalDate.now().withDayOfMonth(1).plusMonths(1);
+
+        assertThat(partitionManager.listRangePartitions())
+                .extracting(JournalPartitionManager.PartitionInfo::upperBound)
+                .contains(nextMonth.plusMonths(1).atStartOfDay());
+    }
+
+    @Test
+    void movesRowsOutOfTheDefaultPartitionWhenTheirMonthIsCreated() {
+        LocalDate farMonth = LocalDate.now().withDayOfMonth(1).plusMonths(4);
+        insert(1, farMonth.plusDays(3));
+        insert(2, farMonth.plusMonths(2));
+        assertThat(countIn(JournalSchemaInitializer.DEFAULT_PARTITION)).isEqualTo(2);
+
+        ReflectionTestUtils.setField(partitionManager, "premakeMonths", 5);
+        partitionManager.createFuturePartitions();
+
+        assertThat(countIn("journal_entries_p" + farMonth.format(DateTimeFormatter.ofPattern("yyyy_MM")))).isEqualTo(1);
+        assertThat(countIn(JournalSchemaInitializer.DEFAULT_PARTITION)).isEqualTo(1);
+        assertThat(countIn("journal_entries")).isEqualTo(2);
+
+        // The default partition is attached again and still catches rows past the newest month
+        insert(3, farMonth.plusMonths(3));
+        assertThat(countIn(JournalSchemaInitializer.DEFAULT_PARTITION)).isEqualTo(2);
+    }
+
+    private void insert(long id, LocalDate day) {
+        jdbcTemplate.update("INSERT INTO journal_entries (id, event_type, user_id, username, event_timestamp) "
+                + "VALUES (?, 'USER_CREATED', ?, 'alice', ?)", id, id, Timestamp.valueOf(day.atTime(12, 0)));
+    }
+
+    private long countIn(String table) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM " + table, Long.class);
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.journalservice.service;
+
+import com.example.journalservice.archive.JournalArchiveStore;
+import com.example.journalservice.dto.JournalCursorPage;
+import com.example.journalservice.dto.JournalEntryDto;
+import com.example.journalservice.entity.JournalEntry;
+import com.example.journalservice.exception.InvalidJournalQueryException;
+import com.example.journalservice.repository.JournalEntryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class JournalQueryServiceTest {
+    private static final LocalDateTime DAY = LocalDateTime.of(2025, 6, 1, 0, 0);
+
+    private final JournalEntryRepository repository = mock(JournalEntryRepository.class);
+    private final JournalArchiveStore archiveStore = mock(JournalArchiveStore.class);
+    private final JournalQueryService queryService = new JournalQueryService();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(queryService, "journalEntryRepository", repository);
+        ReflectionTestUtils.setField(queryService, "journalArchiveStore", archiveStore);
+    }
+
+    @Test
+    void pagesContinueIntoTheArchiveWhenEveryHotEntryIsNewer() {
+        givenTiers(List.of(entry(1, 10), entry(2, 9)), List.of(entry(3, 5), entry(4, 4)));
+
+        assertThat(ids(queryService.getAllJournalEntries(PageRequest.of(0, 3)))).containsExactly(1L, 2L, 3L);
+        Page<JournalEntryDto> second = queryService.getAllJournalEntries(PageRequest.of(1, 3));
+        assertThat(ids(second)).containsExactly(4L);
+        assertThat(second.getTotalElements()).isEqualTo(4);
+    }
+
+    @Test
+    void lateHotEntriesAreMergedIntoTheArchiveByTimestamp() {
+        // Entry 2 arrived late for an archived month and sits in the default partition
+        givenTiers(List.of(entry(1, 10), entry(2, 3)), List.of(entry(3, 5), entry(4, 4)));
+
+        assertThat(ids(queryService.getAllJournalEntries(PageRequest.of(0, 2)))).containsExactly(1L, 3L);
+        assertThat(ids(queryService.getAllJournalEntries(PageRequest.of(1, 2)))).containsExactly(4L, 2L);
+    }
+
+    @Test
+    void otherSortsAreRejectedOnlyWhenArchivedEntriesMatch() {
+        givenTiers(List.of(entry(1, 10)), List.of(entry(3, 5)));
+        Pageable byUsername = PageRequest.of(0, 20, Sort.by("username"));
+
+        assertThatThrownBy(() -> queryService.getAllJournalEntries(byUsername))
+                .isInstanceOf(InvalidJournalQueryException.class);
+
+        when(archiveStore.countInTimeRange(isNull(), any(), any())).thenReturn(0L);
+        assertThat(ids(queryService.getAllJournalEntries(byUsername))).containsExactly(1L);
+    }
+
+    @Test
+    void indexSearchStopsAtTheCandidateCapAndHandsOutACursor() {
+        JournalSearchIndex searchIndex = mock(JournalSearchIndex.class);
+        ReflectionTestUtils.setField(queryService, "journalSearchIndex", searchIndex);
+        ReflectionTestUtils.setField(queryService, "maxSearchCandidates", 10);
+        Roaring64NavigableMap candidates = new Roaring64NavigableMap();
+        candidates.addRange(1, 101);
+        when(searchIndex.findCandidates("alice", null)).thenReturn(candidates);
+        // Only ids 1 and 2 are still held; the rest were dropped since they were indexed
+        when(archiveStore.isEmpty()).thenReturn(true);
+        when(repository.findAllById(anyIterable())).thenAnswer(invocation -> {
+            Iterable<Long> ids = invocation.getArgument(0);
+            List<JournalEntry> found = new ArrayList<>();
+            ids.forEach(id -> {
+                if (id <= 2) {
+                    found.add(entry(id, 0));
+                }
+            });
+            return found;
+        });
+
+        JournalCursorPage first = queryService.searchIndexedEntries("alice", null, null, 5);
+        assertThat(first.getContent()).isEmpty();
+        assertThat(first.getNextCursor()).isEqualTo("91");
+        assertThat(queryService.searchIndexedEntries("alice", null, "91", 5).getNextCursor()).isEqualTo("81");
+
+        JournalCursorPage last = queryService.searchIndexedEntries("alice", null, "11", 5);
+        assertThat(last.getContent()).extracting(JournalEntryDto::getId).containsExactly(2L, 1L);
+        assertThat(last.getNextCursor()).isNull();
+        // Ten candidates per request, looked up in chunks of at most six ids
+        verify(repository, times(6)).findAllById(anyIterable());
+    }
+
+    /** Both tiers newest first, as the repository (given that sort) and the archive return them. */
+    private void givenTiers(List<JournalEntry> hot, List<JournalEntry> archived) {
+        when(repository.findAll(any(Pageable.class))).thenAnswer(invocation -> {
+            Pageable page = invocation.getArgument(0);
+            List<JournalEntry> content = hot.stream().skip(page.getOffset()).limit(page.getPageSize()).toList();
+            return new PageImpl<>(content, page, hot.size());
+        });
+        when(repository.findOldestTimestamp(any(), any())).thenReturn(hot.get(hot.size() - 1).getEventTimestamp());
+        when(archiveStore.isEmpty()).thenReturn(false);
+        when(archiveStore.getNewestTimestamp()).thenReturn(Optional.of(archived.get(0).getEventTimestamp()));
+        when(archiveStore.countInTimeRange(isNull(), any(), any())).thenReturn((long) archived.size());
+        when(archiveStore.findInTimeRange(isNull(), any(), any(), anyLong(), anyInt())).thenAnswer(invocation -> {
+            long offset = invocation.getArgument(3);
+            int limit = invocation.getArgument(4);
+            return archived.stream().skip(offset).limit(limit).toList();
+        });
+    }
+
+    private static JournalEntry entry(long id, int day) {
+        JournalEntry entry = new JournalEntry("USER_UPDATED", 7L, "alice", DAY.plusDays(day), null);
+        entry.setId(id);
+        return entry;
+    }
+
+    private static List<Long> ids(Page<JournalEntryDto> page) {
+        return page.getContent().stream().map(JournalEntryDto::getId).toList();
+    }
+}
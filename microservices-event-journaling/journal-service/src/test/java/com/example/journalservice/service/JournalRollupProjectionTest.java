@@ -0,0 +1,140 @@
+package com.example.journalservice.service;
+
+import com.example.journalservice.dto.EventCountDto;
+import com.example.journalservice.entity.JournalEntry;
+import com.example.journalservice.service.JournalRollupProjection.Granularity;
+import com.example.journalservice.support.PostgresTestDatabase;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JournalRollupProjectionTest {
+    private static final LocalDateTime DROPPED_MONTH = LocalDateTime.of(2019, 12, 1, 0, 0);
+    private static final LocalDateTime ARCHIVED_MONTH = LocalDateTime.of(2020, 1, 1, 0, 0);
+    private static final LocalDateTime EPOCH = LocalDateTime.of(2019, 1, 1, 0, 0);
+
+    @RegisterExtension
+    final PostgresTestDatabase database = new PostgresTestDatabase();
+
+    @TempDir
+    Path archiveDir;
+
+    private final AtomicLong ids = new AtomicLong();
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private JournalPartitionManager partitionManager;
+    private UserActivityProjectionTest.InterleavingArchiveStore archiveStore;
+    private JournalRollupProjection projection;
+    private LocalDateTime monthStart;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        partitionManager = JournalPartitionManagerTest.initializeSchema(database);
+        jdbcTemplate = database.jdbcTemplate();
+        transactionTemplate = database.transactionTemplate();
+        monthStart = LocalDate.now().withDayOfMonth(1).atStartOfDay();
+        jdbcTemplate.execute("CREATE TABLE journal_entries_p2019_12 PARTITION OF journal_entries "
+                + "FOR VALUES FROM ('2019-12-01') TO ('2020-01-01')");
+        jdbcTemplate.execute("CREATE TABLE journal_entries_p2020_01 PARTITION OF journal_entries "
+                + "FOR VALUES FROM ('2020-01-01') TO ('2020-02-01')");
+
+        archiveStore = new UserActivityProjectionTest.InterleavingArchiveStore();
+        ReflectionTestUtils.setField(archiveStore, "archiveDir", archiveDir.toString());
+        archiveStore.loadSegments();
+
+        projection = new JournalRollupProjection();
+        ReflectionTestUtils.setField(projection, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(projection, "transactionTemplate", transactionTemplate);
+        ReflectionTestUtils.setField(projection, "transactionManager", new DataSourceTransactionManager(database.dataSource()));
+        ReflectionTestUtils.setField(projection, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(projection, "journalPartitionManager", partitionManager);
+        ReflectionTestUtils.setField(projection, "journalArchiveStore", archiveStore);
+        ReflectionTestUtils.setField(projection, "stripes", 4);
+        projection.init();
+    }
+
+    @Test
+    void fullRebuildReplaysTheArchiveAndKeepsBucketsOfDroppedMonths() throws Exception {
+        // Counted, then dropped by retention without being archived
+        ingest(new JournalEntry("USER_CREATED", 1L, "alice", DROPPED_MONTH.plusDays(3), "{\"roles\": [\"ROLE_USER\"]}"));
+        jdbcTemplate.execute("DROP TABLE journal_entries_p2019_12");
+        ingest(new JournalEntry("USER_CREATED", 2L, "bob", ARCHIVED_MONTH.plusDays(1), "{\"roles\": [\"ROLE_USER\"]}"));
+        ingest(new JournalEntry("ROLE_ASSIGNED", 2L, "bob", ARCHIVED_MONTH.plusDays(2), "{\"assignedRole\": \"ROLE_ADMIN\"}"));
+        UserActivityProjectionTest.archivePartition(database, partitionManager, archiveStore, "journal_entries_p2020_01");
+        ingest(new JournalEntry("USER_UPDATED", 2L, "bob", monthStart.plusHours(1), null));
+        ingest(new JournalEntry("USER_UPDATED", 2L, "bob", monthStart.plusHours(1).plusMinutes(5), null));
+        List<EventCountDto> totals = counts(false);
+        List<EventCountDto> byRole = counts(true);
+        jdbcTemplate.update("UPDATE journal_rollups SET event_count = 0 WHERE bucket_start >= '2020-01-01'");
+
+        int rows = projection.rebuild(null);
+
+        assertThat(counts(false)).isEqualTo(totals);
+        assertThat(counts(true)).isEqualTo(byRole);
+        assertThat(totals).extracting(EventCountDto::getBucketStart).contains(DROPPED_MONTH.plusDays(3));
+        // USER_CREATED and ROLE_ASSIGNED with and without their role in January, USER_UPDATED now, all per hour and day
+        assertThat(rows).isEqualTo(2 * (2 + 2 + 1));
+        assertThat(jdbcTemplate.queryForObject("SELECT to_regclass('journal_rollups_pending') IS NULL "
+                + "AND to_regclass('journal_rollups_rebuild') IS NULL", Boolean.class)).isTrue();
+    }
+
+    @Test
+    void rebuildFromADayKeepsOlderBucketsAsTheyAre() throws Exception {
+        ingest(new JournalEntry("USER_CREATED", 2L, "bob", ARCHIVED_MONTH.plusDays(1), null));
+        ingest(new JournalEntry("USER_UPDATED", 2L, "bob", monthStart.plusHours(1), null));
+        jdbcTemplate.update("UPDATE journal_rollups SET event_count = 42 WHERE bucket_start < ?", Timestamp.valueOf(monthStart));
+        jdbcTemplate.update("UPDATE journal_rollups SET event_count = 0 WHERE bucket_start >= ?", Timestamp.valueOf(monthStart));
+
+        projection.rebuild(monthStart.plusHours(12));
+
+        assertThat(counts(false)).extracting(EventCountDto::getCount).containsExactly(42L, 1L);
+    }
+
+    @Test
+    void entriesCommittedDuringTheRebuildAreCountedOnce() throws Exception {
+        ingest(new JournalEntry("USER_CREATED", 2L, "bob", ARCHIVED_MONTH.plusDays(1), null));
+        UserActivityProjectionTest.archivePartition(database, partitionManager, archiveStore, "journal_entries_p2020_01");
+        ingest(new JournalEntry("USER_UPDATED", 2L, "bob", monthStart.plusHours(1), null));
+        // Committed from another connection while the rebuild's snapshot is open; it must not wait on the rebuild
+        archiveStore.duringReplay = () -> CompletableFuture.runAsync(() ->
+                ingest(new JournalEntry("USER_UPDATED", 2L, "bob", monthStart.plusHours(1).plusMinutes(1), null))).join();
+
+        projection.rebuild(null);
+        ingest(new JournalEntry("USER_UPDATED", 2L, "bob", monthStart.plusHours(1).plusMinutes(2), null));
+
+        assertThat(projection.findCounts(Granularity.HOUR, monthStart, monthStart.plusDays(1), "USER_UPDATED", null, false))
+                .extracting(EventCountDto::getCount).containsExactly(3L);
+        assertThat(counts(false)).extracting(EventCountDto::getCount).containsExactly(1L, 3L);
+    }
+
+    private List<EventCountDto> counts(boolean byRole) {
+        return projection.findCounts(Granularity.DAY, EPOCH, monthStart.plusMonths(1), null, null, byRole);
+    }
+
+    /** What the journal writers do: insert and fold into the projection in one transaction. */
+    private void ingest(JournalEntry entry) {
+        entry.setId(ids.incrementAndGet());
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("INSERT INTO journal_entries (id, event_type, user_id, username, event_timestamp, details_json) "
+                            + "VALUES (?, ?, ?, ?, ?, ?::jsonb)", entry.getId(), entry.getEventType(), entry.getUserId(),
+                    entry.getUsername(), Timestamp.valueOf(entry.getEventTimestamp()), entry.getDetailsJson());
+            projection.apply(List.of(entry));
+        });
+    }
+}
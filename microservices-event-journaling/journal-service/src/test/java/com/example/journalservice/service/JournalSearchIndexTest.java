@@ -0,0 +1,110 @@
+package com.example.journalservice.service;
+
+import com.example.journalservice.archive.JournalArchiveStore;
+import com.example.journalservice.entity.JournalEntry;
+import com.example.journalservice.support.PostgresTestDatabase;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class JournalSearchIndexTest {
+    private static final LocalDateTime DAY = LocalDateTime.of(2025, 6, 1, 0, 0);
+
+    @RegisterExtension
+    final PostgresTestDatabase database = new PostgresTestDatabase();
+
+    @TempDir
+    Path dir;
+
+    private final JournalArchiveStore archiveStore = mock(JournalArchiveStore.class);
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        JournalPartitionManagerTest.initializeSchema(database);
+        jdbcTemplate = database.jdbcTemplate();
+        when(archiveStore.getOldestId()).thenReturn(OptionalLong.empty());
+    }
+
+    @Test
+    void restartCatchesUpFromTheSnapshotEvenWhenLiveWritesRunAhead() throws InterruptedException {
+        // Id 9 was reserved in a block but not yet committed when the snapshot was written
+        LongStream.of(1, 2, 3, 4, 5, 6, 7, 8, 10).forEach(id -> insert(id, "alice"));
+        JournalSearchIndex first = searchIndex();
+        first.start();
+        awaitReady(first);
+        first.stop();
+
+        insert(9, "bob");
+        JournalEntry live = insert(500, "carol");
+        JournalSearchIndex restarted = searchIndex();
+        // Committed after startup and delivered before the loader has read the snapshot
+        restarted.onEntriesPersisted(new JournalEntriesPersistedEvent(List.of(live)));
+        restarted.start();
+        awaitReady(restarted);
+
+        assertThat(restarted.findCandidates("bob", null).toArray()).containsExactly(9L);
+        assertThat(restarted.findCandidates("carol", null).toArray()).containsExactly(500L);
+        assertThat(restarted.findCandidates("alice", null).getLongCardinality()).isEqualTo(9);
+    }
+
+    @Test
+    void idsBelowTheOldestHeldEntryAreClearedFromThePostings() throws InterruptedException {
+        LongStream.rangeClosed(1, 10).forEach(id -> insert(id, id <= 3 ? "bob" : "alice"));
+        JournalSearchIndex index = searchIndex();
+        index.start();
+        awaitReady(index);
+
+        // Retention dropped ids 1 to 5, but the archive still holds everything from id 4
+        jdbcTemplate.update("DELETE FROM journal_entries WHERE id <= 5");
+        when(archiveStore.getOldestId()).thenReturn(OptionalLong.of(4));
+        index.snapshotPeriodically();
+
+        assertThat(index.findCandidates("alice", null).toArray()).containsExactly(4L, 5L, 6L, 7L, 8L, 9L, 10L);
+        assertThat(index.findCandidates("bob", null).isEmpty()).isTrue();
+        assertThat((Map<String, ?>) ReflectionTestUtils.getField(index, "usernames")).containsOnlyKeys("alice");
+    }
+
+    private JournalSearchIndex searchIndex() {
+        JournalSearchIndex index = new JournalSearchIndex();
+        ReflectionTestUtils.setField(index, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(index, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(index, "journalArchiveStore", archiveStore);
+        ReflectionTestUtils.setField(index, "snapshotPath", dir.resolve("index.snapshot").toString());
+        ReflectionTestUtils.setField(index, "catchUpMargin", 5L);
+        return index;
+    }
+
+    private static void awaitReady(JournalSearchIndex index) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (!Boolean.TRUE.equals(ReflectionTestUtils.getField(index, "ready"))) {
+            assertThat(System.nanoTime()).as("index not ready within 10 s").isLessThan(deadline);
+            Thread.sleep(20);
+        }
+    }
+
+    private JournalEntry insert(long id, String username) {
+        JournalEntry entry = new JournalEntry("USER_UPDATED", id, username, DAY, "{\"username\": \"" + username + "\"}");
+        entry.setId(id);
+        jdbcTemplate.update("INSERT INTO journal_entries (id, event_type, user_id, username, event_timestamp, details_json) "
+                + "VALUES (?, ?, ?, ?, ?, ?::jsonb)", id, entry.getEventType(), id, username,
+                Timestamp.valueOf(DAY), entry.getDetailsJson());
+        return entry;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.journalservice.service;
+
+import com.example.journalservice.support.PostgresTestDatabase;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * EXPLAINs the query behind {@code /events/search} (see JournalEntrySpecifications) for every mix of
+ * user, event type, username and time range, on a table large enough for the planner to prefer
+ * a sequential scan wherever no index fits.
+ */
+class JournalSearchPlanTest {
+    private static final int ROWS = 200_000;
+
+    @RegisterExtension
+    static final PostgresTestDatabase database = new PostgresTestDatabase();
+
+    private static JdbcTemplate jdbcTemplate;
+    private static LocalDateTime monthStart;
+
+    @BeforeAll
+    static void loadJournal() {
+        JournalPartitionManagerTest.initializeSchema(database);
+        jdbcTemplate = database.jdbcTemplate();
+        monthStart = LocalDate.now().withDayOfMonth(1).atStartOfDay();
+        // 1000 users, 8 event types, spread over this month and the next
+        jdbcTemplate.update("INSERT INTO journal_entries (id, event_type, user_id, username, event_timestamp, details_json) "
+                + "SELECT n, 'TYPE_' || (n % 8), n % 1000, 'user' || (n % 1000), "
+                + "?::timestamp + (n::bigint * 50000 / ?) * interval '1 minute', '{}' FROM generate_series(1, ?) AS n",
+                Timestamp.valueOf(monthStart), ROWS, ROWS);
+        jdbcTemplate.execute("ANALYZE journal_entries");
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM " + JournalSchemaInitializer.DEFAULT_PARTITION, Long.class)).isZero();
+    }
+
+    /** Every subset of {userId, eventType, username, time range}, encoded as four bits. */
+    static IntStream filterCombinations() {
+        return IntStream.range(0, 16);
+    }
+
+    @ParameterizedTest
+    @MethodSource("filterCombinations")
+    void everyFilterCombinationUsesAnIndex(int filters) {
+        List<String> predicates = new ArrayList<>();
+        if ((filters & 1) != 0) {
+            predicates.add("user_id = 42");
+        }
+        if ((filters & 2) != 0) {
+            predicates.add("event_type = 'TYPE_2'");
+        }
+        if ((filters & 4) != 0) {
+            predicates.add("username = 'user42'");
+        }
+        if ((filters & 8) != 0) {
+            predicates.add("event_timestamp >= '" + monthStart.plusDays(3) + "' "
+                    + "AND event_timestamp < '" + monthStart.plusDays(4) + "'");
+        }
+        // Same shape as the page query Hibernate issues: filters, newest first, one page
+        String sql = "SELECT * FROM journal_entries"
+                + (predicates.isEmpty() ? "" : " WHERE " + String.join(" AND ", predicates))
+                + " ORDER BY event_timestamp DESC LIMIT 20";
+
+        List<String> plan = jdbcTemplate.queryForList("EXPLAIN " + sql, String.class);
+
+        // The empty default partition is always sequentially scanned, at no cost
+        assertThat(plan).as(sql)
+                .filteredOn(line -> line.contains("Seq Scan"))
+                .allMatch(line -> line.contains("Seq Scan on " + JournalSchemaInitializer.DEFAULT_PARTITION));
+        assertThat(plan).as(sql).anyMatch(line -> line.contains("Index"));
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.journalservice.service;
+
+import com.example.journalservice.archive.JournalArchiveStore;
+import com.example.journalservice.dto.UserActivitySummaryDto;
+import com.example.journalservice.entity.JournalEntry;
+import com.example.journalservice.support.PostgresTestDatabase;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserActivityProjectionTest {
+    private static final LocalDateTime ARCHIVED_MONTH = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+    @RegisterExtension
+    final PostgresTestDatabase database = new PostgresTestDatabase();
+
+    @TempDir
+    Path archiveDir;
+
+    private final AtomicLong ids = new AtomicLong();
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private JournalPartitionManager partitionManager;
+    private InterleavingArchiveStore archiveStore;
+    private UserActivityProjection projection;
+    private LocalDateTime monthStart;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        partitionManager = JournalPartitionManagerTest.initializeSchema(database);
+        jdbcTemplate = database.jdbcTemplate();
+        transactionTemplate = database.transactionTemplate();
+        monthStart = LocalDate.now().withDayOfMonth(1).atStartOfDay();
+        jdbcTemplate.execute("CREATE TABLE journal_entries_p2020_01 PARTITION OF journal_entries "
+                + "FOR VALUES FROM ('2020-01-01') TO ('2020-02-01')");
+
+        archiveStore = new InterleavingArchiveStore();
+        ReflectionTestUtils.setField(archiveStore, "archiveDir", archiveDir.toString());
+        archiveStore.loadSegments();
+
+        projection = new UserActivityProjection();
+        ReflectionTestUtils.setField(projection, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(projection, "transactionTemplate", transactionTemplate);
+        ReflectionTestUtils.setField(projection, "transactionManager", new DataSourceTransactionManager(database.dataSource()));
+        ReflectionTestUtils.setField(projection, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(projection, "journalPartitionManager", partitionManager);
+        ReflectionTestUtils.setField(projection, "journalArchiveStore", archiveStore);
+        projection.init();
+    }
+
+    @Test
+    void rebuildReplaysArchivedAndHotEntries() throws Exception {
+        ingest(new JournalEntry("USER_CREATED", 1L, "alice", ARCHIVED_MONTH.plusDays(1), "{\"roles\": [\"ROLE_USER\"]}"));
+        ingest(new JournalEntry("ROLE_ASSIGNED", 1L, "alice", ARCHIVED_MONTH.plusDays(2), "{\"assignedRole\": \"ROLE_ADMIN\"}"));
+        ingest(new JournalEntry("USER_UPDATED", 1L, "alice2", monthStart.plusHours(1), null));
+        ingest(new JournalEntry("USER_CREATED", 2L, "bob", monthStart.plusHours(2), "{\"roles\": [\"ROLE_USER\"]}"));
+        archivePartition(database, partitionManager, archiveStore, "journal_entries_p2020_01");
+        UserActivitySummaryDto alice = projection.findSummary(1L).orElseThrow();
+        jdbcTemplate.update("UPDATE user_activity_summary SET total_events = 0, event_counts = '{}', roles = '[]'");
+
+        long replayed = projection.rebuild();
+
+        assertThat(replayed).isEqualTo(4);
+        assertThat(projection.findSummary(1L)).contains(alice);
+        assertThat(alice.getTotalEvents()).isEqualTo(3);
+        assertThat(alice.getRoles()).containsExactly("ROLE_USER", "ROLE_ADMIN");
+        assertThat(alice.getUsername()).isEqualTo("alice2");
+        assertThat(alice.getFirstSeen()).isEqualTo(ARCHIVED_MONTH.plusDays(1));
+        assertThat(projection.findSummary(2L).orElseThrow().getEventCounts()).isEqualTo(Map.of("USER_CREATED", 1L));
+    }
+
+    @Test
+    void entriesCommittedDuringTheRebuildAreCountedOnce() {
+        ingest(new JournalEntry("USER_CREATED", 1L, "alice", monthStart.plusHours(1), null));
+        // Committed from another connection while the rebuild's snapshot is open; it must not wait on the rebuild
+        archiveStore.duringReplay = () -> CompletableFuture.runAsync(() ->
+                ingest(new JournalEntry("USER_UPDATED", 1L, "alice", monthStart.plusHours(2), null))).join();
+
+        projection.rebuild();
+        ingest(new JournalEntry("USER_UPDATED", 1L, "alice", monthStart.plusHours(3), null));
+
+        UserActivitySummaryDto alice = projection.findSummary(1L).orElseThrow();
+        assertThat(alice.getTotalEvents()).isEqualTo(3);
+        assertThat(alice.getEventCounts()).isEqualTo(Map.of("USER_CREATED", 1L, "USER_UPDATED", 2L));
+        assertThat(jdbcTemplate.queryForObject("SELECT to_regclass('user_activity_summary_pending') IS NULL "
+                + "AND to_regclass('user_activity_summary_rebuild') IS NULL", Boolean.class)).isTrue();
+    }
+
+    /** What the journal writers do: insert and fold into the projection in one transaction. */
+    private void ingest(JournalEntry entry) {
+        entry.setId(ids.incrementAndGet());
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("INSERT INTO journal_entries (id, event_type, user_id, username, event_timestamp, details_json) "
+                            + "VALUES (?, ?, ?, ?, ?, ?::jsonb)", entry.getId(), entry.getEventType(), entry.getUserId(),
+                    entry.getUsername(), Timestamp.valueOf(entry.getEventTimestamp()), entry.getDetailsJson());
+            projection.apply(List.of(entry));
+        });
+    }
+
+    static void archivePartition(PostgresTestDatabase database, JournalPartitionManager partitionManager,
+                                 JournalArchiveStore archiveStore, String partition) throws Exception {
+        JournalArchiver archiver = new JournalArchiver();
+        ReflectionTestUtils.setField(archiver, "dataSource", database.dataSource());
+        ReflectionTestUtils.setField(archiver, "jdbcTemplate", database.jdbcTemplate());
+        ReflectionTestUtils.setField(archiver, "transactionManager", new DataSourceTransactionManager(database.dataSource()));
+        ReflectionTestUtils.setField(archiver, "journalPartitionManager", partitionManager);
+        ReflectionTestUtils.setField(archiver, "journalArchiveStore", archiveStore);
+        ReflectionTestUtils.setField(archiver, "rowGroupSize", 1024);
+        ReflectionTestUtils.setField(archiver, "maxSegmentMb", 64L);
+        ReflectionTestUtils.setField(archiver, "fetchSize", 1000);
+        archiver.init();
+        archiver.archivePartition(partition);
+    }
+
+    /** Runs a hook inside the rebuild, right after its snapshot was taken. */
+    static final class InterleavingArchiveStore extends JournalArchiveStore {
+        Runnable duringReplay = () -> {
+        };
+
+        @Override
+        public void replayOldestFirst(Set<String> hotPartitions, Consumer<List<JournalEntry>> consumer) {
+            duringReplay.run();
+            super.replayOldestFirst(hotPartitions, consumer);
+        }
+    }
+}
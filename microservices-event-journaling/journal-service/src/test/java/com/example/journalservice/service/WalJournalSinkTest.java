@@ -0,0 +1,161 @@
+package com.example.journalservice.service;
+
+import com.example.journalservice.entity.JournalEntry;
+import com.example.journalservice.support.PostgresTestDatabase;
+import com.example.journalservice.wal.JournalWriteAheadLog;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class WalJournalSinkTest {
+    private static final LocalDateTime DAY = LocalDateTime.of(2025, 6, 1, 0, 0);
+    private static final String LEGACY_NODE_ID = "journal-host-1";
+
+    @RegisterExtension
+    final PostgresTestDatabase database = new PostgresTestDatabase();
+
+    @TempDir
+    Path walDir;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<String> written = new CopyOnWriteArrayList<>();
+    private JdbcTemplate jdbcTemplate;
+    private WalJournalSink sink;
+
+    @BeforeEach
+    void setUp() {
+        JournalPartitionManagerTest.initializeSchema(database);
+        jdbcTemplate = database.jdbcTemplate();
+    }
+
+    @AfterEach
+    void stopSink() throws Exception {
+        if (sink != null) {
+            sink.stop();
+        }
+    }
+
+    @Test
+    void drainsWhatAnEarlierRunLeftBehindAndResumesFromTheCheckpoint() throws Exception {
+        start();
+        String nodeId = Files.readString(walDir.resolve("node-id"));
+        assertThat(UUID.fromString(nodeId)).isNotNull();
+        sink.write(List.of(entry("alice"), entry("bob")), () -> { });
+        awaitUntil(() -> written.size() == 2);
+        sink.stop();
+        sink = null;
+
+        // Acknowledged by the WAL but never drained, as when the process dies right after the fsync
+        long end = appendDirectly(entry("carol"), entry("dave"));
+
+        start();
+        awaitUntil(() -> written.size() == 4);
+        assertThat(written).containsExactly("alice", "bob", "carol", "dave");
+        assertThat(Files.readString(walDir.resolve("node-id"))).isEqualTo(nodeId);
+        awaitUntil(() -> checkpoint(nodeId) == end);
+    }
+
+    @Test
+    void logWithoutANodeIdKeepsItsLegacyCheckpoint() throws Exception {
+        long first = appendDirectly(entry("alice"));
+        appendDirectly(entry("bob"));
+        jdbcTemplate.update("INSERT INTO journal_wal_checkpoint (node_id, position) VALUES (?, ?)", LEGACY_NODE_ID, first);
+
+        start();
+
+        awaitUntil(() -> written.size() == 1);
+        assertThat(written).containsExactly("bob");
+        assertThat(Files.readString(walDir.resolve("node-id"))).isEqualTo(LEGACY_NODE_ID);
+    }
+
+    @Test
+    void corruptRecordIsQuarantinedAndDrainingContinues() throws Exception {
+        long first = appendDirectly(entry("alice"));
+        long second = appendDirectly(entry("bob"));
+        long end = appendDirectly(entry("carol"));
+        try (RandomAccessFile segment = new RandomAccessFile(walDir.resolve(String.format("wal-%020d.log", 0)).toFile(), "rw")) {
+            segment.seek(first + 12);
+            segment.write(0xff);
+        }
+
+        start();
+
+        awaitUntil(() -> written.size() == 2);
+        assertThat(written).containsExactly("alice", "carol");
+        assertThat(walDir.resolve("quarantine").resolve(String.format("wal-%020d.bad", first))).hasSize(second - first);
+        assertThat(meterRegistry.get("journal.errors").tag("stage", "wal-corrupt").counter().count()).isEqualTo(1);
+        String nodeId = Files.readString(walDir.resolve("node-id"));
+        awaitUntil(() -> checkpoint(nodeId) == end);
+    }
+
+    private void start() throws IOException {
+        JournalMetrics journalMetrics = new JournalMetrics();
+        ReflectionTestUtils.setField(journalMetrics, "meterRegistry", meterRegistry);
+        journalMetrics.init();
+        // Stands in for the JPA writer: records the batch and commits the checkpoint with it
+        JournalEntryWriter writer = mock(JournalEntryWriter.class);
+        doAnswer(invocation -> {
+            database.transactionTemplate().executeWithoutResult(status -> {
+                List<JournalEntry> entries = invocation.getArgument(0);
+                entries.forEach(entry -> written.add(entry.getUsername()));
+                invocation.<Runnable>getArgument(1).run();
+            });
+            return null;
+        }).when(writer).writeBatch(anyList(), any(Runnable.class));
+
+        sink = new WalJournalSink();
+        ReflectionTestUtils.setField(sink, "journalEntryWriter", writer);
+        ReflectionTestUtils.setField(sink, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(sink, "journalMetrics", journalMetrics);
+        ReflectionTestUtils.setField(sink, "walDir", walDir.toString());
+        ReflectionTestUtils.setField(sink, "legacyNodeId", LEGACY_NODE_ID);
+        ReflectionTestUtils.setField(sink, "segmentMb", 1L);
+        ReflectionTestUtils.setField(sink, "maxBacklogMb", 16L);
+        ReflectionTestUtils.setField(sink, "drainBatchSize", 100);
+        ReflectionTestUtils.setField(sink, "retryIntervalMs", 50L);
+        sink.start();
+    }
+
+    private long appendDirectly(JournalEntry... entries) throws IOException {
+        try (JournalWriteAheadLog log = new JournalWriteAheadLog(walDir, 1024 * 1024)) {
+            return log.append(List.of(entries));
+        }
+    }
+
+    private long checkpoint(String nodeId) {
+        return jdbcTemplate.queryForObject("SELECT position FROM journal_wal_checkpoint WHERE node_id = ?", Long.class, nodeId);
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met within 10 s").isLessThan(deadline);
+            Thread.sleep(20);
+        }
+    }
+
+    private static JournalEntry entry(String username) {
+        return new JournalEntry("USER_UPDATED", 7L, username, DAY, null);
+    }
+}
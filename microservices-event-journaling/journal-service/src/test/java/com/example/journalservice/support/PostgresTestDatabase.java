@@ -0,0 +1,107 @@
+package com.example.journalservice.support;
+
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.extension.AfterAllCallback;
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeAllCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import javax.sql.DataSource;
+import java.util.Properties;
+import java.util.UUID;
+
+/**
+ * PostgreSQL for tests that need the real partitioning, COPY and planner behaviour. Uses the
+ * database given by {@code -Dtest.postgres.url} (plus {@code test.postgres.user}/{@code .password})
+ * when set, otherwise a shared Testcontainers instance; tests are skipped when neither is available.
+ * Registered with {@code @RegisterExtension}, it gives every test method an empty schema of its own
+ * (dropped afterwards), so tests never see each other's tables. Registered on a static field, the
+ * schema is shared by all tests of the class instead.
+ */
+public final class PostgresTestDatabase implements BeforeAllCallback, AfterAllCallback, BeforeEachCallback, AfterEachCallback {
+    private static PostgreSQLContainer<?> container;
+
+    private DriverManagerDataSource dataSource;
+    private String schema;
+    private boolean perClass;
+
+    @Override
+    public void beforeAll(ExtensionContext context) {
+        perClass = true;
+        createSchema();
+    }
+
+    @Override
+    public void afterAll(ExtensionContext context) {
+        dropSchema();
+    }
+
+    @Override
+    public void beforeEach(ExtensionContext context) {
+        if (!perClass) {
+            createSchema();
+        }
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) {
+        if (!perClass) {
+            dropSchema();
+        }
+    }
+
+    private void dropSchema() {
+        if (schema != null) {
+            jdbcTemplate().execute("DROP SCHEMA " + schema + " CASCADE");
+            schema = null;
+        }
+    }
+
+    private void createSchema() {
+        String url = System.getProperty("test.postgres.url");
+        String user = System.getProperty("test.postgres.user", "postgres");
+        String password = System.getProperty("test.postgres.password", "");
+        if (url == null) {
+            PostgreSQLContainer<?> postgres = container();
+            url = postgres.getJdbcUrl();
+            user = postgres.getUsername();
+            password = postgres.getPassword();
+        }
+        schema = "test_" + UUID.randomUUID().toString().replace("-", "");
+        new JdbcTemplate(new DriverManagerDataSource(url, user, password)).execute("CREATE SCHEMA " + schema);
+
+        dataSource = new DriverManagerDataSource(url, user, password);
+        Properties properties = new Properties();
+        properties.setProperty("currentSchema", schema);
+        dataSource.setConnectionProperties(properties);
+    }
+
+    private static synchronized PostgreSQLContainer<?> container() {
+        if (container == null) {
+            Assumptions.assumeTrue(DockerClientFactory.instance().isDockerAvailable(),
+                    "Needs Docker or -Dtest.postgres.url");
+            container = new PostgreSQLContainer<>("postgres:16-alpine");
+            container.start();
+        }
+        return container;
+    }
+
+    public DataSource dataSource() {
+        return dataSource;
+    }
+
+    public JdbcTemplate jdbcTemplate() {
+        return new JdbcTemplate(dataSource);
+    }
+
+    public TransactionTemplate transactionTemplate() {
+        return new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+}
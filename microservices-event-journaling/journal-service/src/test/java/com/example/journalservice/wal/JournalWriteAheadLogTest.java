@@ -0,0 +1,143 @@
+package com.example.journalservice.wal;
+
+import com.example.journalservice.entity.JournalEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JournalWriteAheadLogTest {
+    private static final LocalDateTime DAY = LocalDateTime.of(2025, 6, 1, 0, 0);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void tornTailIsTruncatedOnReopen() throws IOException {
+        long intact;
+        try (JournalWriteAheadLog log = new JournalWriteAheadLog(dir, 1024 * 1024)) {
+            log.append(List.of(entry("alice"), entry("bob")));
+            intact = log.append(List.of(entry("carol")));
+            log.sync();
+        }
+        // A crash halfway through the next record: its header promises more bytes than made it to disk
+        Path segment = segments().get(0);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(file.length());
+            file.writeInt(100);
+            file.writeInt(0);
+            file.write(new byte[10]);
+        }
+
+        try (JournalWriteAheadLog log = new JournalWriteAheadLog(dir, 1024 * 1024)) {
+            assertThat(log.getEndPosition()).isEqualTo(intact);
+            assertThat(Files.size(segment)).isEqualTo(intact);
+
+            long end = log.append(List.of(entry("dave")));
+            log.sync();
+            JournalWriteAheadLog.ReadBatch batch = log.read(0, end, 100);
+            assertThat(usernames(batch)).containsExactly("alice", "bob", "carol", "dave");
+            assertThat(batch.nextPosition()).isEqualTo(end);
+        }
+    }
+
+    @Test
+    void corruptRecordIsQuarantinedAndReadingResumesAfterIt() throws IOException {
+        try (JournalWriteAheadLog log = new JournalWriteAheadLog(dir, 1024 * 1024)) {
+            long first = log.append(List.of(entry("alice")));
+            long second = log.append(List.of(entry("bob")));
+            long third = log.append(List.of(entry("carol")));
+            log.sync();
+            flipByte(segments().get(0), first + 12);
+
+            assertThat(usernames(log.read(0, third, 100))).containsExactly("alice");
+            assertThatThrownBy(() -> log.read(first, third, 100))
+                    .isInstanceOfSatisfying(JournalWriteAheadLog.CorruptRecordException.class,
+                            e -> assertThat(e.getPosition()).isEqualTo(first));
+
+            assertThat(log.quarantine(first)).isEqualTo(second);
+            assertThat(usernames(log.read(second, third, 100))).containsExactly("carol");
+            assertThat(dir.resolve("quarantine").resolve(String.format("wal-%020d.bad", first)))
+                    .hasSize(second - first);
+        }
+    }
+
+    @Test
+    void damagedRecordFollowedByIntactOnesIsNotTruncatedOnReopen() throws IOException {
+        long first;
+        long end;
+        try (JournalWriteAheadLog log = new JournalWriteAheadLog(dir, 1024 * 1024)) {
+            first = log.append(List.of(entry("alice")));
+            log.append(List.of(entry("bob")));
+            end = log.append(List.of(entry("carol")));
+            log.sync();
+        }
+        flipByte(segments().get(0), first + 12);
+
+        try (JournalWriteAheadLog log = new JournalWriteAheadLog(dir, 1024 * 1024)) {
+            assertThat(log.getEndPosition()).isEqualTo(end);
+            assertThat(usernames(log.read(log.quarantine(first), end, 100))).containsExactly("carol");
+        }
+    }
+
+    @Test
+    void damagedLengthSkipsToTheNextSegment() throws IOException {
+        try (JournalWriteAheadLog log = new JournalWriteAheadLog(dir, 260)) {
+            long first = log.append(List.of(entry("alice")));
+            log.append(List.of(entry("bob")));
+            // Too big for the first segment, so it rolls over to a second one
+            log.append(List.of(entry("carol"), entry("dave")));
+            long end = log.append(List.of(entry("erin")));
+            log.sync();
+            List<Path> segments = segments();
+            assertThat(segments).hasSize(2);
+            long secondBase = Long.parseLong(segments.get(1).getFileName().toString().replaceAll("\\D", ""));
+
+            try (RandomAccessFile file = new RandomAccessFile(segments.get(0).toFile(), "rw")) {
+                file.seek(first);
+                file.writeInt(Integer.MAX_VALUE);
+            }
+            assertThat(log.quarantine(first)).isEqualTo(secondBase);
+            assertThat(usernames(log.read(secondBase, end, 100))).containsExactly("carol", "dave", "erin");
+
+            // In the newest segment there is nothing to resynchronise on
+            try (RandomAccessFile file = new RandomAccessFile(segments.get(1).toFile(), "rw")) {
+                file.writeInt(Integer.MAX_VALUE);
+            }
+            assertThatThrownBy(() -> log.quarantine(secondBase)).isInstanceOf(IOException.class)
+                    .hasMessageContaining("newest segment");
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".log")).sorted().toList();
+        }
+    }
+
+    private static void flipByte(Path file, long position) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(position);
+            int b = raf.read();
+            raf.seek(position);
+            raf.write(b ^ 0xff);
+        }
+    }
+
+    private static JournalEntry entry(String username) {
+        return new JournalEntry("USER_UPDATED", 7L, username, DAY, null);
+    }
+
+    private static List<String> usernames(JournalWriteAheadLog.ReadBatch batch) {
+        return batch.entries().stream().map(JournalEntry::getUsername).toList();
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.userservice.config;
 
 import com.example.userservice.dto.UserEvent;
+import com.example.userservice.serialization.UserEventSerializer;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
@@ -9,7 +10,6 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
-import org.springframework.kafka.support.serializer.JsonSerializer;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -19,13 +19,43 @@ public class KafkaProducerConfig {
     @Value("${spring.kafka.bootstrap-servers}")
     private String bootstrapServers;
 
+    @Value("${user.events.codec:json}")
+    private String eventCodec;
+
+    @Value("${spring.kafka.producer.compression-type:lz4}")
+    private String compressionType;
+
+    // Idempotence with acks=all lets the producer retry without duplicating or reordering records,
+    // up to 5 requests in flight per connection
+    @Value("${spring.kafka.producer.acks:all}")
+    private String acks;
+
+    @Value("${user.events.producer.linger-ms:10}")
+    private int lingerMs;
+
+    @Value("${spring.kafka.producer.batch-size:131072}")
+    private int batchSize;
+
+    @Value("${user.events.producer.delivery-timeout-ms:120000}")
+    private int deliveryTimeoutMs;
+
+    @Value("${user.events.producer.max-block-ms:5000}")
+    private long maxBlockMs;
+
     @Bean
     public ProducerFactory<String, UserEvent> producerFactory() {
         Map<String, Object> configProps = new HashMap<>();
         configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
-        return new DefaultKafkaProducerFactory<>(configProps);
+        configProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType);
+        configProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        configProps.put(ProducerConfig.ACKS_CONFIG, acks);
+        configProps.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5);
+        configProps.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        configProps.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        configProps.put(ProducerConfig.DELIVERY_TIMEOUT_MS_CONFIG, deliveryTimeoutMs);
+        configProps.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, maxBlockMs);
+        UserEventSerializer.Codec codec = UserEventSerializer.Codec.valueOf(eventCodec.trim().toUpperCase());
+        return new DefaultKafkaProducerFactory<>(configProps, new StringSerializer(), new UserEventSerializer(codec));
     }
 
     @Bean
@@ -1,8 +1,11 @@
 package com.example.userservice.config;
 // ... imports ...
 import com.example.userservice.security.JwtRequestFilter;
+import com.example.userservice.security.PooledPasswordEncoder;
 import com.example.userservice.security.UserDetailsServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -13,7 +16,6 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
@@ -28,9 +30,23 @@ public class SecurityConfig {
     @Autowired
     private JwtRequestFilter jwtRequestFilter;
 
-    @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    @Value("${password.bcrypt.strength:10}")
+    private int bcryptStrength;
+
+    @Value("${password.hashing.threads:0}")
+    private int hashingThreads;
+
+    @Value("${password.hashing.queue-capacity:64}")
+    private int hashingQueueCapacity;
+
+    /**
+     * BCrypt on its own core-sized pool. Raising password.bcrypt.strength rehashes each user's
+     * password at their next successful login (via UserDetailsServiceImpl.updatePassword).
+     */
+    @Bean(destroyMethod = "shutdown")
+    public PooledPasswordEncoder passwordEncoder(MeterRegistry meterRegistry) {
+        return new PooledPasswordEncoder(new BCryptPasswordEncoder(bcryptStrength), hashingThreads,
+                hashingQueueCapacity, meterRegistry);
     }
 
     @Bean
@@ -43,6 +59,7 @@ public class SecurityConfig {
         http.csrf(csrf -> csrf.disable())
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/api/auth/**").permitAll() // Login and Register
+                        .requestMatchers("/actuator/health", "/actuator/prometheus").permitAll() // Probes and metric scrapers carry no JWT
                         .requestMatchers(HttpMethod.GET, "/api/users/**").hasAnyRole("USER", "ADMIN")
                         .requestMatchers("/api/users/**").hasRole("ADMIN") // Stricter for CUD on users, role management
                         .anyRequest().authenticated()
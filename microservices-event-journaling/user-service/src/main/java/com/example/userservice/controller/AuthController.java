@@ -4,10 +4,14 @@ import com.example.userservice.dto.JwtResponse;
 import com.example.userservice.dto.LoginRequest;
 import com.example.userservice.dto.UserDto;
 import com.example.userservice.dto.UserRegistrationDto;
+import com.example.userservice.exception.PasswordHashingBusyException;
 import com.example.userservice.security.JwtUtil;
 import com.example.userservice.service.UserService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -23,6 +27,9 @@ public class AuthController {
     @Autowired UserService userService;
     @Autowired JwtUtil jwtUtil;
 
+    @Value("${password.hashing.retry-after-seconds:1}")
+    private int retryAfterSeconds;
+
     @PostMapping("/register")
     public ResponseEntity<UserDto> registerUser(@Valid @RequestBody UserRegistrationDto registrationDto) {
         UserDto registeredUser = userService.registerUser(registrationDto);
@@ -40,4 +47,12 @@ public class AuthController {
 
         return ResponseEntity.ok(new JwtResponse(jwt, userDetails.getUsername(), userDetails.getAuthorities()));
     }
+
+    // Login and registration both hash a password; shed load instead of queueing behind a storm
+    @ExceptionHandler(PasswordHashingBusyException.class)
+    public ResponseEntity<String> handleHashingBusy(PasswordHashingBusyException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(e.getMessage());
+    }
 }
\ No newline at end of file
@@ -1,16 +1,31 @@
 package com.example.userservice.controller;
 // ... imports ...
 import com.example.userservice.dto.UserDto;
+import com.example.userservice.service.UserImportService;
 import com.example.userservice.service.UserService;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
+
 @RestController
 @RequestMapping("/api/users")
 public class UserController {
     @Autowired private UserService userService;
+    @Autowired private UserImportService userImportService;
+
+    // One registration per NDJSON line in, one UserImportResult per line out, streamed batch by batch
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public void importUsers(InputStream body, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        userImportService.importUsers(body, response.getOutputStream());
+    }
 
     @GetMapping("/{id}")
     @PreAuthorize("hasAnyRole('USER', 'ADMIN')") // Or just @PreAuthorize("isAuthenticated()") if any logged-in user can see
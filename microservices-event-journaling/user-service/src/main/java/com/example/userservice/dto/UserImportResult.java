@@ -0,0 +1,16 @@
+package com.example.userservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data @NoArgsConstructor @AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserImportResult {
+    private long line; // 1-based line of the uploaded NDJSON
+    private String username;
+    private String status; // CREATED, REJECTED (row is invalid or taken) or FAILED (batch could not be written)
+    private Long id;
+    private String error;
+}
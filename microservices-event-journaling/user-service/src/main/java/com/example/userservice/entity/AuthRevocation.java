@@ -0,0 +1,24 @@
+package com.example.userservice.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import java.time.Instant;
+
+/**
+ * Tokens issued to {@code username} at or before {@code revokedAt} must no longer be accepted,
+ * because the user's roles changed or the user was deleted. Kept in its own table so the record
+ * outlives a deleted user; rows older than the token lifetime are pruned.
+ */
+@Entity
+@Table(name = "auth_revocations")
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor
+public class AuthRevocation {
+    @Id
+    private String username;
+
+    @Column(nullable = false)
+    private Instant revokedAt;
+}
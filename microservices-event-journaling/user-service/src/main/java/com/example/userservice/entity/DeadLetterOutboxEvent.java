@@ -0,0 +1,43 @@
+package com.example.userservice.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+import java.time.Instant;
+
+/**
+ * An outbox row that OutboxRelay gave up on after user.outbox.max-attempts sends failed for a reason
+ * retrying cannot fix (unreadable payload, record too large, ...). Moved here so it stops holding back
+ * its user's later events; keeps the outbox id, and can be re-queued by inserting it back.
+ */
+@Entity
+@Table(name = "user_event_outbox_dead")
+@Getter @Setter @NoArgsConstructor
+public class DeadLetterOutboxEvent {
+    @Id
+    private Long id;
+
+    private String eventKey;
+
+    @Column(nullable = false)
+    private String eventType;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(columnDefinition = "jsonb", nullable = false)
+    private String payload;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(columnDefinition = "text")
+    private String lastError;
+
+    @Column(nullable = false)
+    private Instant deadAt;
+}
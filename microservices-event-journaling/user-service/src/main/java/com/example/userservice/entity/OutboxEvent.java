@@ -0,0 +1,46 @@
+package com.example.userservice.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+import java.time.Instant;
+
+/**
+ * A user event waiting to be published, written in the same transaction as the change it
+ * describes. OutboxRelay publishes rows in id order and deletes them once Kafka has acknowledged.
+ */
+@Entity
+@Table(name = "user_event_outbox")
+@Getter @Setter @NoArgsConstructor
+public class OutboxEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String eventKey; // Kafka record key (the user id), null for round-robin
+
+    @Column(nullable = false)
+    private String eventType;
+
+    // The UserEvent as JSON; the producer's serializer picks the wire format when it is relayed
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(columnDefinition = "jsonb", nullable = false)
+    private String payload;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    // Sends that failed for a reason retrying cannot fix; at user.outbox.max-attempts it is dead-lettered
+    @Column(columnDefinition = "integer not null default 0")
+    private int attempts;
+
+    public OutboxEvent(String eventKey, String eventType, String payload) {
+        this.eventKey = eventKey;
+        this.eventType = eventType;
+        this.payload = payload;
+        this.createdAt = Instant.now();
+    }
+}
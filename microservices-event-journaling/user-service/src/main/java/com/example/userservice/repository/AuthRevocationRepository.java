@@ -0,0 +1,18 @@
+package com.example.userservice.repository;
+
+import com.example.userservice.entity.AuthRevocation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.Instant;
+import java.util.List;
+
+public interface AuthRevocationRepository extends JpaRepository<AuthRevocation, String> {
+    List<AuthRevocation> findByRevokedAtAfter(Instant cutoff);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM AuthRevocation r WHERE r.revokedAt < :cutoff")
+    int deleteOlderThan(Instant cutoff);
+}
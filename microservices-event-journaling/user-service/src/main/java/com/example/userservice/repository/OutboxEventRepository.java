@@ -0,0 +1,7 @@
+package com.example.userservice.repository;
+
+import com.example.userservice.entity.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+}
@@ -5,8 +5,11 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
@@ -17,25 +20,29 @@ import java.io.IOException;
 public class JwtRequestFilter extends OncePerRequestFilter {
     @Autowired private UserDetailsServiceImpl userDetailsService;
     @Autowired private JwtUtil jwtUtil;
+    @Autowired private TokenRevocationCache tokenRevocationCache;
+
+    // claims: trust the roles in the verified token (no DB lookup); database: reload the user on every request
+    @Value("${jwt.auth.mode:claims}")
+    private String authMode;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
             throws ServletException, IOException {
         final String authorizationHeader = request.getHeader("Authorization");
-        String username = null; String jwt = null;
+        JwtClaims claims = null;
 
         if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-            jwt = authorizationHeader.substring(7);
             try {
-                username = jwtUtil.extractUsername(jwt);
+                claims = jwtUtil.verify(authorizationHeader.substring(7)); // One verification, reused below
             } catch (Exception e) {
                 logger.warn("JWT token is malformed or expired", e);
             }
         }
 
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
-            if (jwtUtil.validateToken(jwt, userDetails)) {
+        if (claims != null && claims.username() != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            UserDetails userDetails = loadPrincipal(claims);
+            if (userDetails != null && jwtUtil.validateToken(claims, userDetails)) {
                 UsernamePasswordAuthenticationToken usernamePasswordAuthenticationToken =
                         new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
                 usernamePasswordAuthenticationToken
@@ -45,4 +52,21 @@ public class JwtRequestFilter extends OncePerRequestFilter {
         }
         chain.doFilter(request, response);
     }
+
+    /**
+     * Builds the principal from the token alone in claims mode, refusing tokens issued before the
+     * user's roles last changed; in database mode, loads the current user and roles instead.
+     */
+    private UserDetails loadPrincipal(JwtClaims claims) {
+        if (!"claims".equalsIgnoreCase(authMode)) {
+            return this.userDetailsService.loadUserByUsername(claims.username());
+        }
+        if (tokenRevocationCache.isRevoked(claims)) {
+            logger.debug("Rejecting JWT for '" + claims.username() + "' issued before its roles changed");
+            return null;
+        }
+        return new User(claims.username(), "", claims.roles().stream()
+                .map(SimpleGrantedAuthority::new)
+                .toList());
+    }
 }
\ No newline at end of file
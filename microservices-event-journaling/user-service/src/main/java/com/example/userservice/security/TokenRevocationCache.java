@@ -0,0 +1,84 @@
+package com.example.userservice.security;
+
+import com.example.userservice.entity.AuthRevocation;
+import com.example.userservice.repository.AuthRevocationRepository;
+import com.example.userservice.service.UserAuthChangedEvent;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory view of auth_revocations for claims-based authentication: the instant from which each
+ * recently changed user's tokens are trusted again. Only changes younger than the token lifetime
+ * matter, so the map stays small.
+ * <p>
+ * Changes made by this instance apply as soon as they commit; changes made by other instances are
+ * picked up by reloading the table every {@code jwt.revocation.refresh-ms}, which bounds how long
+ * a stale token can survive elsewhere.
+ */
+@Component
+public class TokenRevocationCache {
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationCache.class);
+
+    @Autowired
+    private AuthRevocationRepository authRevocationRepository;
+
+    @Value("${jwt.expiration.ms}")
+    private long jwtExpirationMs;
+
+    private final Map<String, Instant> revokedAt = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        refresh();
+    }
+
+    /**
+     * A token is stale if it was issued in or before the second its user last changed: JWT
+     * {@code iat} has whole-second precision, so a token from that same second cannot be told apart.
+     */
+    public boolean isRevoked(JwtClaims claims) {
+        Instant revoked = revokedAt.get(claims.username());
+        if (revoked == null) {
+            return false;
+        }
+        return claims.issuedAt() == null || !claims.issuedAt().isAfter(revoked.truncatedTo(ChronoUnit.SECONDS));
+    }
+
+    @TransactionalEventListener
+    public void onUserAuthChanged(UserAuthChangedEvent event) {
+        revokedAt.merge(event.username(), event.changedAt(), TokenRevocationCache::latest);
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.refresh-ms:5000}")
+    public void refresh() {
+        Instant cutoff = Instant.now().minusMillis(jwtExpirationMs);
+        for (AuthRevocation revocation : authRevocationRepository.findByRevokedAtAfter(cutoff)) {
+            revokedAt.merge(revocation.getUsername(), revocation.getRevokedAt(), TokenRevocationCache::latest);
+        }
+        // Every token issued before the cutoff has expired anyway
+        revokedAt.values().removeIf(instant -> instant.isBefore(cutoff));
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.prune-interval-ms:3600000}")
+    public void prune() {
+        int pruned = authRevocationRepository.deleteOlderThan(Instant.now().minusMillis(jwtExpirationMs));
+        if (pruned > 0) {
+            logger.info("Pruned {} auth revocations older than the token lifetime", pruned);
+        }
+    }
+
+    private static Instant latest(Instant a, Instant b) {
+        return a.isAfter(b) ? a : b;
+    }
+}
@@ -0,0 +1,281 @@
+package com.example.userservice.serialization;
+
+import com.example.userservice.dto.UserEvent;
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact, schema'd binary encoding of {@link UserEvent}. Must stay byte-compatible with the
+ * copy of this class in the other service.
+ * <p>
+ * Layout (version 1): magic byte, schema version byte, presence bitmask, then the present fields
+ * in declaration order. Strings are varint length + UTF-8, numbers are zigzag varints, the timestamp
+ * is UTC epoch seconds plus nanos, and {@code details} is a tagged value tree. A decoder accepts any
+ * version up to {@link #CURRENT_VERSION} and rejects newer ones, so consumers must be upgraded before producers.
+ */
+public final class UserEventBinaryCodec {
+
+    /** First byte of every binary payload; JSON payloads never start with it. */
+    public static final byte MAGIC = (byte) 0xCE;
+    public static final byte CURRENT_VERSION = 1;
+
+    private static final int HAS_EVENT_TYPE = 1;
+    private static final int HAS_USER_ID = 1 << 1;
+    private static final int HAS_USERNAME = 1 << 2;
+    private static final int HAS_TIMESTAMP = 1 << 3;
+    private static final int HAS_DETAILS = 1 << 4;
+
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_STRING = 1;
+    private static final byte TAG_LONG = 2;
+    private static final byte TAG_DOUBLE = 3;
+    private static final byte TAG_TRUE = 4;
+    private static final byte TAG_FALSE = 5;
+    private static final byte TAG_LIST = 6;
+    private static final byte TAG_MAP = 7;
+
+    private UserEventBinaryCodec() {
+    }
+
+    public static boolean isBinary(byte[] data) {
+        return data != null && data.length > 1 && data[0] == MAGIC;
+    }
+
+    public static byte[] encode(UserEvent event) {
+        Output out = new Output(64);
+        out.write(MAGIC);
+        out.write(CURRENT_VERSION);
+        int presence = (event.getEventType() != null ? HAS_EVENT_TYPE : 0)
+                | (event.getUserId() != null ? HAS_USER_ID : 0)
+                | (event.getUsername() != null ? HAS_USERNAME : 0)
+                | (event.getTimestamp() != null ? HAS_TIMESTAMP : 0)
+                | (event.getDetails() != null ? HAS_DETAILS : 0);
+        out.write(presence);
+        if (event.getEventType() != null) {
+            writeString(out, event.getEventType());
+        }
+        if (event.getUserId() != null) {
+            writeVarLong(out, zigzag(event.getUserId()));
+        }
+        if (event.getUsername() != null) {
+            writeString(out, event.getUsername());
+        }
+        if (event.getTimestamp() != null) {
+            writeVarLong(out, zigzag(event.getTimestamp().toEpochSecond(ZoneOffset.UTC)));
+            writeVarLong(out, event.getTimestamp().getNano());
+        }
+        if (event.getDetails() != null) {
+            writeMap(out, event.getDetails());
+        }
+        return out.toByteArray();
+    }
+
+    public static UserEvent decode(byte[] data) {
+        if (!isBinary(data)) {
+            throw new SerializationException("Not a binary UserEvent payload");
+        }
+        byte version = data[1];
+        if (version < 1 || version > CURRENT_VERSION) {
+            throw new SerializationException("Unsupported UserEvent schema version " + version
+                    + " (this service understands up to " + CURRENT_VERSION + ")");
+        }
+        try {
+            ByteBuffer in = ByteBuffer.wrap(data, 2, data.length - 2);
+            int presence = in.get() & 0xFF;
+            UserEvent event = new UserEvent();
+            if ((presence & HAS_EVENT_TYPE) != 0) {
+                event.setEventType(readString(in));
+            }
+            if ((presence & HAS_USER_ID) != 0) {
+                event.setUserId(unzigzag(readVarLong(in)));
+            }
+            if ((presence & HAS_USERNAME) != 0) {
+                event.setUsername(readString(in));
+            }
+            if ((presence & HAS_TIMESTAMP) != 0) {
+                long epochSecond = unzigzag(readVarLong(in));
+                int nanos = (int) readVarLong(in);
+                event.setTimestamp(LocalDateTime.ofEpochSecond(epochSecond, nanos, ZoneOffset.UTC));
+            }
+            if ((presence & HAS_DETAILS) != 0) {
+                event.setDetails(readMap(in));
+            }
+            return event;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new SerializationException("Truncated or corrupt binary UserEvent payload", e);
+        }
+    }
+
+    private static void writeValue(Output out, Object value) {
+        if (value == null) {
+            out.write(TAG_NULL);
+        } else if (value instanceof CharSequence || value instanceof Enum<?>) {
+            out.write(TAG_STRING);
+            writeString(out, value.toString());
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            out.write(TAG_LONG);
+            writeVarLong(out, zigzag(((Number) value).longValue()));
+        } else if (value instanceof Number) {
+            out.write(TAG_DOUBLE);
+            long bits = Double.doubleToLongBits(((Number) value).doubleValue());
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                out.write((int) (bits >>> shift));
+            }
+        } else if (value instanceof Boolean) {
+            out.write((Boolean) value ? TAG_TRUE : TAG_FALSE);
+        } else if (value instanceof Iterable<?>) {
+            List<Object> items = new ArrayList<>();
+            ((Iterable<?>) value).forEach(items::add);
+            out.write(TAG_LIST);
+            writeVarLong(out, items.size());
+            items.forEach(item -> writeValue(out, item));
+        } else if (value instanceof Map<?, ?>) {
+            out.write(TAG_MAP);
+            writeMap(out, (Map<?, ?>) value);
+        } else {
+            // Anything else (dates, custom types) travels as its string form, as it would in the journal's JSON
+            out.write(TAG_STRING);
+            writeString(out, value.toString());
+        }
+    }
+
+    private static void writeMap(Output out, Map<?, ?> map) {
+        writeVarLong(out, map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            writeString(out, String.valueOf(entry.getKey()));
+            writeValue(out, entry.getValue());
+        }
+    }
+
+    private static Object readValue(ByteBuffer in) {
+        byte tag = in.get();
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_STRING:
+                return readString(in);
+            case TAG_LONG:
+                return unzigzag(readVarLong(in));
+            case TAG_DOUBLE:
+                return Double.longBitsToDouble(in.getLong());
+            case TAG_TRUE:
+                return Boolean.TRUE;
+            case TAG_FALSE:
+                return Boolean.FALSE;
+            case TAG_LIST:
+                int size = readLength(in);
+                List<Object> items = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    items.add(readValue(in));
+                }
+                return items;
+            case TAG_MAP:
+                return readMap(in);
+            default:
+                throw new IllegalArgumentException("Unknown value tag " + tag);
+        }
+    }
+
+    private static Map<String, Object> readMap(ByteBuffer in) {
+        int size = readLength(in);
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            String key = readString(in);
+            map.put(key, readValue(in));
+        }
+        return map;
+    }
+
+    private static void writeString(Output out, String value) {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, utf8.length);
+        out.write(utf8, 0, utf8.length);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = readLength(in);
+        if (length > in.remaining()) {
+            throw new IllegalArgumentException("String length " + length + " exceeds payload");
+        }
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private static int readLength(ByteBuffer in) {
+        long length = readVarLong(in);
+        if (length < 0 || length > in.remaining()) {
+            throw new IllegalArgumentException("Invalid length " + length);
+        }
+        return (int) length;
+    }
+
+    private static void writeVarLong(Output out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Varint too long");
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /** Growable byte buffer; unlike ByteArrayOutputStream its single-byte writes are not synchronized. */
+    private static final class Output {
+        private byte[] bytes;
+        private int size;
+
+        private Output(int initialCapacity) {
+            bytes = new byte[initialCapacity];
+        }
+
+        private void write(int b) {
+            ensureCapacity(1);
+            bytes[size++] = (byte) b;
+        }
+
+        private void write(byte[] source, int offset, int length) {
+            ensureCapacity(length);
+            System.arraycopy(source, offset, bytes, size, length);
+            size += length;
+        }
+
+        private void ensureCapacity(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+    }
+}
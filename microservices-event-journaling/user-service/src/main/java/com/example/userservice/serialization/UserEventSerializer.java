@@ -0,0 +1,46 @@
+package com.example.userservice.serialization;
+
+import com.example.userservice.dto.UserEvent;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+/**
+ * Value serializer for user-events that writes either JSON or the compact binary format.
+ * Journal consumers detect the format per record, so producers can switch codecs
+ * once every consumer understands the binary encoding.
+ */
+public class UserEventSerializer implements Serializer<UserEvent> {
+
+    public enum Codec { JSON, BINARY }
+
+    private final Codec codec;
+    private final JsonSerializer<UserEvent> jsonSerializer;
+
+    public UserEventSerializer(Codec codec) {
+        this.codec = codec;
+        this.jsonSerializer = new JsonSerializer<>();
+        this.jsonSerializer.setAddTypeInfo(false); // Consumers bind to their own UserEvent class, not our type header
+    }
+
+    @Override
+    public byte[] serialize(String topic, UserEvent data) {
+        return serialize(topic, null, data);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, UserEvent data) {
+        if (data == null) {
+            return null;
+        }
+        if (codec == Codec.BINARY) {
+            return UserEventBinaryCodec.encode(data);
+        }
+        return jsonSerializer.serialize(topic, headers, data);
+    }
+
+    @Override
+    public void close() {
+        jsonSerializer.close();
+    }
+}
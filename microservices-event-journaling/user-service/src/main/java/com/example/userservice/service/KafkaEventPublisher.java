@@ -1,12 +1,36 @@
 package com.example.userservice.service;
 
 import com.example.userservice.dto.UserEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.KafkaProducerException;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes user events. {@code user.events.publish} times each send until the broker acknowledges
+ * or rejects it (tagged {@code eventType} and {@code outcome}); {@code user.events.publish.failures}
+ * counts failures by {@code eventType} and {@code exception}.
+ * <p>
+ * At most {@code user.events.max-in-flight} sends may be unacknowledged at once. A caller over the
+ * limit waits up to {@code user.events.in-flight-wait-ms} for a slot, then gets a future failed with
+ * {@link RejectedExecutionException}. Waiting happens here, before the producer's buffer fills and
+ * {@code max.block.ms} applies. {@code user.events.in-flight} reports current usage.
+ */
 @Service
 public class KafkaEventPublisher {
     private static final Logger logger = LoggerFactory.getLogger(KafkaEventPublisher.class);
@@ -15,15 +39,82 @@ public class KafkaEventPublisher {
     @Autowired
     private KafkaTemplate<String, UserEvent> kafkaTemplate;
 
-    public void publishUserEvent(UserEvent event) {
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${user.events.max-in-flight:10000}")
+    private int maxInFlight;
+
+    @Value("${user.events.in-flight-wait-ms:5000}")
+    private long inFlightWaitMs;
+
+    private Semaphore inFlight;
+
+    @PostConstruct
+    public void init() {
+        inFlight = new Semaphore(maxInFlight);
+        Gauge.builder("user.events.in-flight", inFlight, permits -> maxInFlight - permits.availablePermits())
+                .description("User events sent but not yet acknowledged by the broker")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Sends the event and returns the broker's acknowledgement. Failures, including ones thrown
+     * before the record reaches the producer buffer, complete the future exceptionally.
+     */
+    public CompletableFuture<SendResult<String, UserEvent>> publishUserEvent(UserEvent event) {
+        try {
+            if (!inFlight.tryAcquire(inFlightWaitMs, TimeUnit.MILLISECONDS)) {
+                RejectedExecutionException rejected = new RejectedExecutionException(
+                        "More than " + maxInFlight + " user events awaiting acknowledgement");
+                recordFailure(event, Timer.start(meterRegistry), rejected);
+                return CompletableFuture.failedFuture(rejected);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        // Use userId as key for partitioning if desired, or null for round-robin
+        String key = event.getUserId() != null ? event.getUserId().toString() : null;
+        CompletableFuture<SendResult<String, UserEvent>> sent;
         try {
-            // Use userId as key for partitioning if desired, or null for round-robin
-            String key = event.getUserId() != null ? event.getUserId().toString() : null;
-            kafkaTemplate.send(TOPIC_NAME, key, event);
-            logger.info("Published event to {}: {}", TOPIC_NAME, event);
+            sent = kafkaTemplate.send(TOPIC_NAME, key, event);
         } catch (Exception e) {
-            logger.error("Error publishing event to Kafka: {}", event, e);
-            // Handle exception (e.g., retry, dead-letter queue)
+            sent = CompletableFuture.failedFuture(e);
         }
+        return sent.whenComplete((result, ex) -> {
+            inFlight.release();
+            if (ex != null) {
+                logger.error("Error publishing event to Kafka: {}", event, ex);
+                recordFailure(event, sample, ex);
+            } else {
+                logger.debug("Published event to {}: {}", TOPIC_NAME, event);
+                sample.stop(publishTimer(event, "success"));
+            }
+        });
+    }
+
+    private void recordFailure(UserEvent event, Timer.Sample sample, Throwable error) {
+        sample.stop(publishTimer(event, "failure"));
+        // The template wraps producer errors; tag the underlying cause
+        Throwable cause = error instanceof KafkaProducerException && error.getCause() != null ? error.getCause() : error;
+        Counter.builder("user.events.publish.failures")
+                .description("User events that could not be published")
+                .tag("eventType", String.valueOf(event.getEventType()))
+                .tag("exception", cause.getClass().getSimpleName())
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private Timer publishTimer(UserEvent event, String outcome) {
+        return Timer.builder("user.events.publish")
+                .description("Time from sending a user event to the broker acknowledging it")
+                .tag("eventType", String.valueOf(event.getEventType()))
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(meterRegistry);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,317 @@
+package com.example.userservice.service;
+
+import com.example.userservice.dto.UserEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.common.errors.RetriableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Publishes user_event_outbox rows to Kafka, keeping each key's (user's) events in id order.
+ * <p>
+ * A round claims whole keys rather than rows: it takes a session advisory lock on the hash of each
+ * of the oldest {@code user.outbox.batch-size} keys it can get, skipping keys another instance
+ * holds, then reads up to that many of their rows. Instances therefore never interleave sends for
+ * one key. The locks live on one connection kept for the round, but no transaction or row lock is
+ * held while Kafka acknowledges; the acknowledged rows are deleted afterwards, in autocommit.
+ * <p>
+ * Different keys are sent side by side; within a key each row is sent once the previous one is
+ * acknowledged, so a failure stops the key there and its later rows wait for the next round. A
+ * user's events may be repeated (delivery is at least once) but never reordered. A row failing for
+ * a reason retrying cannot fix counts an attempt, and after {@code user.outbox.max-attempts} moves
+ * to user_event_outbox_dead so it stops blocking its key; broker outages and back pressure only delay.
+ */
+@Component
+public class OutboxRelay {
+    private static final Logger logger = LoggerFactory.getLogger(OutboxRelay.class);
+
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private KafkaEventPublisher kafkaEventPublisher;
+    @Autowired private ObjectMapper objectMapper;
+    @Autowired private MeterRegistry meterRegistry;
+
+    @Value("${user.outbox.batch-size:500}")
+    private int batchSize;
+
+    @Value("${user.outbox.poll-interval-ms:1000}")
+    private long pollIntervalMs;
+
+    @Value("${user.outbox.send-timeout-ms:30000}")
+    private long sendTimeoutMs;
+
+    @Value("${user.outbox.max-attempts:5}")
+    private int maxAttempts;
+
+    private final ReentrantLock wakeLock = new ReentrantLock();
+    private final Condition wake = wakeLock.newCondition();
+    private boolean wakeRequested;
+    private volatile boolean running;
+    private Thread relayThread;
+    private Counter published;
+    private Counter failed;
+    private Counter deadLettered;
+
+    @PostConstruct
+    public void start() {
+        published = Counter.builder("user.outbox.published")
+                .description("Outbox rows published and deleted")
+                .register(meterRegistry);
+        failed = Counter.builder("user.outbox.failed")
+                .description("Outbox rows whose send failed and will be retried")
+                .register(meterRegistry);
+        deadLettered = Counter.builder("user.outbox.dead-lettered")
+                .description("Outbox rows moved to user_event_outbox_dead after max-attempts failures")
+                .register(meterRegistry);
+        running = true;
+        relayThread = new Thread(this::relayLoop, "user-outbox-relay");
+        relayThread.setDaemon(true);
+        relayThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        requestRelay();
+        relayThread.join(sendTimeoutMs);
+    }
+
+    @TransactionalEventListener
+    public void onOutboxEnqueued(UserEventOutbox.OutboxEnqueuedEvent event) {
+        requestRelay();
+    }
+
+    private void requestRelay() {
+        wakeLock.lock();
+        try {
+            wakeRequested = true;
+            wake.signal();
+        } finally {
+            wakeLock.unlock();
+        }
+    }
+
+    private void relayLoop() {
+        while (running) {
+            try {
+                RelayRound round;
+                do {
+                    round = relayBatch();
+                } while (running && round.claimed() == batchSize && round.failed() == 0);
+                awaitWork();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.error("User event outbox relay failed, retrying in {} ms", pollIntervalMs, e);
+                try {
+                    Thread.sleep(pollIntervalMs);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void awaitWork() throws InterruptedException {
+        wakeLock.lock();
+        try {
+            if (!wakeRequested && running) {
+                wake.await(pollIntervalMs, TimeUnit.MILLISECONDS); // Polling also catches rows committed by other instances
+            }
+            wakeRequested = false;
+        } finally {
+            wakeLock.unlock();
+        }
+    }
+
+    /**
+     * Claims keys, sends their rows and settles the outcome, releasing the key locks at the end.
+     */
+    RelayRound relayBatch() {
+        return jdbcTemplate.execute((ConnectionCallback<RelayRound>) con -> {
+            JdbcTemplate session = new JdbcTemplate(new SingleConnectionDataSource(con, true));
+            try {
+                return relayClaimed(session);
+            } finally {
+                session.execute("SELECT pg_advisory_unlock_all()");
+            }
+        });
+    }
+
+    private RelayRound relayClaimed(JdbcTemplate session) {
+        // The LIMIT applies before the lock calls, so only these keys are tried. The lock space is the
+        // outbox table's oid, which nothing else in the database uses.
+        List<String> keys = session.query("SELECT k.event_key FROM ("
+                        + "SELECT event_key, min(id) AS first_id FROM user_event_outbox "
+                        + "GROUP BY event_key ORDER BY first_id LIMIT ?) k "
+                        + "WHERE pg_try_advisory_lock('user_event_outbox'::regclass::oid::int, hashtext(coalesce(k.event_key, ''))) "
+                        + "ORDER BY k.first_id",
+                (rs, rowNum) -> rs.getString(1), batchSize);
+        if (keys.isEmpty()) {
+            return new RelayRound(0, 0);
+        }
+        // Read after locking, so rows another instance published meanwhile are already gone
+        List<OutboxRow> rows = session.query(con -> {
+            var ps = con.prepareStatement("SELECT id, event_key, payload, attempts FROM user_event_outbox "
+                    + "WHERE coalesce(event_key, '') = ANY (?) ORDER BY id LIMIT ?");
+            ps.setArray(1, con.createArrayOf("varchar", keys.stream().map(key -> key != null ? key : "").toArray()));
+            ps.setInt(2, batchSize);
+            return ps;
+        }, (rs, rowNum) -> new OutboxRow(rs.getLong("id"), rs.getString("event_key"), rs.getString("payload"),
+                rs.getInt("attempts")));
+
+        Map<String, List<OutboxRow>> byKey = new LinkedHashMap<>();
+        List<List<OutboxRow>> unkeyed = new ArrayList<>();
+        for (OutboxRow row : rows) {
+            if (row.key() != null) {
+                byKey.computeIfAbsent(row.key(), key -> new ArrayList<>()).add(row);
+            } else {
+                unkeyed.add(List.of(row)); // Round-robin events have no order to keep
+            }
+        }
+        ConcurrentLinkedQueue<Long> acknowledged = new ConcurrentLinkedQueue<>();
+        Map<OutboxRow, Throwable> failures = new ConcurrentHashMap<>();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        List<CompletableFuture<Void>> chains = new ArrayList<>();
+        byKey.values().forEach(keyRows -> chains.add(sendInOrder(keyRows, deadline, acknowledged, failures)));
+        unkeyed.forEach(keyRows -> chains.add(sendInOrder(keyRows, deadline, acknowledged, failures)));
+        awaitSettled(chains);
+
+        if (!acknowledged.isEmpty()) {
+            session.update(con -> {
+                var ps = con.prepareStatement("DELETE FROM user_event_outbox WHERE id = ANY (?)");
+                ps.setArray(1, con.createArrayOf("bigint", acknowledged.toArray()));
+                return ps;
+            });
+            published.increment(acknowledged.size());
+        }
+        failures.forEach((row, error) -> recordFailure(session, row, error));
+        if (acknowledged.size() < rows.size()) {
+            logger.warn("Relayed {} of {} outbox events; the rest stay queued", acknowledged.size(), rows.size());
+        }
+        return new RelayRound(rows.size(), failures.size());
+    }
+
+    /**
+     * Sends the rows one after another, each once the previous one is acknowledged. Stops at the
+     * first failure, and starts no new send once the deadline has passed.
+     */
+    private CompletableFuture<Void> sendInOrder(List<OutboxRow> rows, long deadline,
+                                                ConcurrentLinkedQueue<Long> acknowledged,
+                                                Map<OutboxRow, Throwable> failures) {
+        CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+        for (OutboxRow row : rows) {
+            chain = chain.thenCompose(previous -> {
+                if (System.nanoTime() - deadline > 0) {
+                    return CompletableFuture.failedFuture(new CancellationException("Outbox round timed out"));
+                }
+                return send(row).whenComplete((result, error) -> {
+                    if (error == null) {
+                        acknowledged.add(row.id());
+                    } else {
+                        failures.put(row, unwrap(error));
+                    }
+                }).thenApply(result -> null);
+            });
+        }
+        return chain;
+    }
+
+    /**
+     * Waits for every chain to stop. Past send-timeout-ms no further rows are started, but sends
+     * already handed to the producer are still waited for (delivery.timeout.ms bounds them): a key
+     * must not be released to another instance while one of its events may still land.
+     */
+    private void awaitSettled(List<CompletableFuture<Void>> chains) {
+        CompletableFuture<Void> all = CompletableFuture.allOf(chains.toArray(CompletableFuture[]::new));
+        try {
+            all.get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            logger.warn("Outbox sends still unacknowledged after {} ms; waiting for the producer to settle them", sendTimeoutMs);
+            all.handle((result, error) -> null).join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            all.handle((result, error) -> null).join();
+        } catch (ExecutionException e) {
+            // Individual outcomes are in the failures map
+        }
+    }
+
+    private void recordFailure(JdbcTemplate session, OutboxRow row, Throwable error) {
+        failed.increment();
+        if (isTransient(error)) {
+            return;
+        }
+        if (row.attempts() + 1 < maxAttempts) {
+            session.update("UPDATE user_event_outbox SET attempts = attempts + 1 WHERE id = ?", row.id());
+            return;
+        }
+        session.update("WITH dead AS (DELETE FROM user_event_outbox WHERE id = ? "
+                        + "RETURNING id, event_key, event_type, payload, created_at, attempts) "
+                        + "INSERT INTO user_event_outbox_dead "
+                        + "(id, event_key, event_type, payload, created_at, attempts, last_error, dead_at) "
+                        + "SELECT id, event_key, event_type, payload, created_at, attempts + 1, ?, now() FROM dead",
+                row.id(), String.valueOf(error));
+        deadLettered.increment();
+        logger.error("Outbox event {} for key {} failed {} times; moved to user_event_outbox_dead",
+                row.id(), row.key(), maxAttempts, error);
+    }
+
+    // Failures that say nothing about the row itself: the broker or the producer is unavailable or busy
+    private static boolean isTransient(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RetriableException || cause instanceof RejectedExecutionException
+                    || cause instanceof TimeoutException || cause instanceof InterruptedException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    private CompletableFuture<?> send(OutboxRow row) {
+        try {
+            return kafkaEventPublisher.publishUserEvent(objectMapper.readValue(row.payload(), UserEvent.class));
+        } catch (Exception e) {
+            logger.error("Unreadable outbox event {}", row.id(), e);
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    record RelayRound(int claimed, int failed) {
+    }
+
+    private record OutboxRow(long id, String key, String payload, int attempts) {
+    }
+}
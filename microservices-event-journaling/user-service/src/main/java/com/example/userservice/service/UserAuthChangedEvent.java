@@ -0,0 +1,10 @@
+package com.example.userservice.service;
+
+import java.time.Instant;
+
+/**
+ * Published by {@link UserService} inside the transaction that changes a user's roles or deletes
+ * the user. Tokens issued to {@code username} up to {@code changedAt} carry stale roles.
+ */
+public record UserAuthChangedEvent(String username, Instant changedAt) {
+}
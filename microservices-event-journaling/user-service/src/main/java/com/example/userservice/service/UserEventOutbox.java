@@ -0,0 +1,72 @@
+package com.example.userservice.service;
+
+import com.example.userservice.dto.UserEvent;
+import com.example.userservice.entity.OutboxEvent;
+import com.example.userservice.repository.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Records user events in user_event_outbox as part of the caller's transaction, so an event exists
+ * exactly when the change it describes commits. {@link OutboxRelay} publishes them afterwards.
+ */
+@Service
+public class UserEventOutbox {
+    @Autowired private OutboxEventRepository outboxEventRepository;
+    @Autowired private ObjectMapper objectMapper;
+    @Autowired private ApplicationEventPublisher eventPublisher;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(UserEvent event) {
+        outboxEventRepository.save(new OutboxEvent(keyOf(event), event.getEventType(), toJson(event)));
+        // Lets the relay start right after commit instead of at its next poll
+        eventPublisher.publishEvent(new OutboxEnqueuedEvent());
+    }
+
+    /**
+     * Same as {@link #enqueue} for many events, written with one JDBC batch (IDENTITY ids keep
+     * Hibernate from batching the inserts itself).
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueAll(List<UserEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        Timestamp createdAt = Timestamp.from(Instant.now());
+        jdbcTemplate.batchUpdate("INSERT INTO user_event_outbox (event_key, event_type, payload, created_at) "
+                        + "VALUES (?, ?, CAST(? AS jsonb), ?)",
+                events, events.size(), (ps, event) -> {
+                    ps.setString(1, keyOf(event));
+                    ps.setString(2, event.getEventType());
+                    ps.setString(3, toJson(event));
+                    ps.setTimestamp(4, createdAt);
+                });
+        eventPublisher.publishEvent(new OutboxEnqueuedEvent());
+    }
+
+    private static String keyOf(UserEvent event) {
+        return event.getUserId() != null ? event.getUserId().toString() : null;
+    }
+
+    private String toJson(UserEvent event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot serialize user event " + event.getEventType(), e);
+        }
+    }
+
+    public record OutboxEnqueuedEvent() {
+    }
+}
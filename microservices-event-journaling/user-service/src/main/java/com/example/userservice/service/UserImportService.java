@@ -0,0 +1,239 @@
+package com.example.userservice.service;
+
+import com.example.userservice.dto.UserEvent;
+import com.example.userservice.dto.UserImportResult;
+import com.example.userservice.dto.UserRegistrationDto;
+import com.example.userservice.entity.Role;
+import com.example.userservice.repository.RoleRepository;
+import com.example.userservice.security.PooledPasswordEncoder;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Registers users from NDJSON, one {@link UserRegistrationDto} per line, with the same rules as
+ * {@link UserService#registerUser}. Lines are processed in batches of {@code user.import.batch-size}:
+ * taken usernames and emails are found with one query, passwords are hashed in parallel, and users,
+ * their ROLE_USER links and USER_CREATED events are written in one transaction. Each batch's
+ * {@link UserImportResult}s are written out before the next batch is read, so memory use does not
+ * depend on the size of the upload.
+ */
+@Service
+public class UserImportService {
+    private static final Logger logger = LoggerFactory.getLogger(UserImportService.class);
+    private static final String DEFAULT_ROLE = "ROLE_USER";
+
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private TransactionTemplate transactionTemplate;
+    @Autowired private RoleRepository roleRepository;
+    @Autowired private PooledPasswordEncoder passwordEncoder;
+    @Autowired private UserEventOutbox userEventOutbox;
+    @Autowired private ObjectMapper objectMapper;
+    @Autowired private Validator validator;
+
+    @Value("${user.import.batch-size:500}")
+    private int batchSize;
+
+    public void importUsers(InputStream input, OutputStream output) throws IOException {
+        Long roleId = transactionTemplate.execute(status -> roleRepository.findByName(DEFAULT_ROLE)
+                .orElseGet(() -> roleRepository.save(new Role(DEFAULT_ROLE))).getId());
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        List<ImportRow> batch = new ArrayList<>(batchSize);
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            batch.add(parse(lineNumber, line));
+            if (batch.size() == batchSize) {
+                importBatch(batch, roleId);
+                writeResults(batch, output);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            importBatch(batch, roleId);
+            writeResults(batch, output);
+        }
+    }
+
+    private ImportRow parse(long lineNumber, String line) {
+        ImportRow row = new ImportRow(lineNumber);
+        try {
+            row.registration = objectMapper.readValue(line, UserRegistrationDto.class);
+        } catch (JsonProcessingException e) {
+            row.reject("Malformed JSON: " + e.getOriginalMessage());
+            return row;
+        }
+        Set<ConstraintViolation<UserRegistrationDto>> violations = validator.validate(row.registration);
+        if (!violations.isEmpty()) {
+            row.reject(violations.stream()
+                    .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; ")));
+        }
+        return row;
+    }
+
+    private void importBatch(List<ImportRow> batch, Long roleId) {
+        List<ImportRow> pending = batch.stream().filter(row -> row.result == null).toList();
+        List<ImportRow> candidates = new ArrayList<>(pending.size());
+        try {
+            candidates.addAll(rejectTaken(batch));
+            if (candidates.isEmpty()) {
+                return;
+            }
+            List<String> hashes = passwordEncoder.encodeAll(
+                    candidates.stream().map(row -> row.registration.getPassword()).toList());
+            for (int i = 0; i < candidates.size(); i++) {
+                candidates.get(i).encodedPassword = hashes.get(i);
+            }
+            transactionTemplate.executeWithoutResult(status -> insert(candidates, roleId));
+        } catch (RuntimeException e) {
+            logger.error("Bulk import of lines {}-{} failed", batch.get(0).line, batch.get(batch.size() - 1).line, e);
+            // If the lookup itself failed, every row that parsed is still undecided
+            (candidates.isEmpty() ? pending : candidates)
+                    .forEach(row -> row.fail("Batch could not be written: " + e.getClass().getSimpleName()));
+        }
+    }
+
+    /**
+     * Rejects rows whose username or email is already registered, or repeats an earlier row of the
+     * batch (earlier batches are committed, so the query covers them), and returns the rest.
+     */
+    private List<ImportRow> rejectTaken(List<ImportRow> batch) {
+        Set<String> usernames = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        for (ImportRow row : batch) {
+            if (row.result == null) {
+                usernames.add(row.registration.getUsername());
+                emails.add(row.registration.getEmail());
+            }
+        }
+        if (usernames.isEmpty()) {
+            return List.of();
+        }
+        Set<String> takenUsernames = new HashSet<>();
+        Set<String> takenEmails = new HashSet<>();
+        jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement("SELECT username, email FROM users WHERE username = ANY (?) OR email = ANY (?)");
+            ps.setArray(1, con.createArrayOf("varchar", usernames.toArray()));
+            ps.setArray(2, con.createArrayOf("varchar", emails.toArray()));
+            return ps;
+        }, rs -> {
+            takenUsernames.add(rs.getString("username"));
+            takenEmails.add(rs.getString("email"));
+        });
+
+        List<ImportRow> candidates = new ArrayList<>(batch.size());
+        for (ImportRow row : batch) {
+            if (row.result != null) {
+                continue;
+            }
+            // Claiming the values here also rejects later rows of this batch that repeat them
+            if (!takenUsernames.add(row.registration.getUsername())) {
+                row.reject("Username already exists");
+            } else if (!takenEmails.add(row.registration.getEmail())) {
+                row.reject("Email already exists");
+            } else {
+                candidates.add(row);
+            }
+        }
+        return candidates;
+    }
+
+    private void insert(List<ImportRow> rows, Long roleId) {
+        Map<String, ImportRow> byUsername = new HashMap<>();
+        rows.forEach(row -> byUsername.put(row.registration.getUsername(), row));
+        // One statement for the whole batch; rows taken by a registration since rejectTaken are skipped, not fatal
+        List<ImportRow> created = new ArrayList<>(rows.size());
+        jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement("INSERT INTO users (username, email, password) "
+                    + "SELECT * FROM unnest(?, ?, ?) ON CONFLICT DO NOTHING RETURNING id, username");
+            ps.setArray(1, con.createArrayOf("varchar", rows.stream().map(row -> row.registration.getUsername()).toArray()));
+            ps.setArray(2, con.createArrayOf("varchar", rows.stream().map(row -> row.registration.getEmail()).toArray()));
+            ps.setArray(3, con.createArrayOf("varchar", rows.stream().map(row -> row.encodedPassword).toArray()));
+            return ps;
+        }, rs -> {
+            ImportRow row = byUsername.get(rs.getString("username"));
+            row.id = rs.getLong("id");
+            created.add(row);
+        });
+
+        jdbcTemplate.batchUpdate("INSERT INTO user_roles (user_id, role_id) VALUES (?, ?)",
+                created, created.size(), (ps, row) -> {
+                    ps.setLong(1, row.id);
+                    ps.setLong(2, roleId);
+                });
+        LocalDateTime now = LocalDateTime.now();
+        userEventOutbox.enqueueAll(created.stream()
+                .map(row -> new UserEvent("USER_CREATED", row.id, row.registration.getUsername(), now,
+                        Map.of("email", row.registration.getEmail(), "roles", List.of(DEFAULT_ROLE))))
+                .toList());
+
+        for (ImportRow row : rows) {
+            if (row.id != null) {
+                row.result = new UserImportResult(row.line, row.registration.getUsername(), "CREATED", row.id, null);
+            } else {
+                row.reject("Username or email already exists");
+            }
+        }
+    }
+
+    private void writeResults(List<ImportRow> batch, OutputStream output) throws IOException {
+        for (ImportRow row : batch) {
+            output.write(objectMapper.writeValueAsBytes(row.result));
+            output.write('\n');
+        }
+        output.flush();
+    }
+
+    private static class ImportRow {
+        private final long line;
+        private UserRegistrationDto registration;
+        private String encodedPassword;
+        private Long id;
+        private UserImportResult result;
+
+        private ImportRow(long line) {
+            this.line = line;
+        }
+
+        private void reject(String error) {
+            result = new UserImportResult(line, username(), "REJECTED", null, error);
+        }
+
+        private void fail(String error) {
+            result = new UserImportResult(line, username(), "FAILED", null, error);
+        }
+
+        private String username() {
+            return registration != null ? registration.getUsername() : null;
+        }
+    }
+}
@@ -6,13 +6,18 @@ import com.example.userservice.dto.UserRegistrationDto;
 import com.example.userservice.entity.Role;
 import com.example.userservice.entity.User;
 import com.example.userservice.exception.UserNotFoundException; // Create this
+import com.example.userservice.entity.AuthRevocation;
+import com.example.userservice.repository.AuthRevocationRepository;
 import com.example.userservice.repository.RoleRepository;
 import com.example.userservice.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.Map;
@@ -24,10 +29,21 @@ public class UserService {
     @Autowired private UserRepository userRepository;
     @Autowired private RoleRepository roleRepository;
     @Autowired private PasswordEncoder passwordEncoder;
-    @Autowired private KafkaEventPublisher kafkaEventPublisher;
-
-    @Transactional
+    @Autowired private UserEventOutbox userEventOutbox;
+    @Autowired private AuthRevocationRepository authRevocationRepository;
+    @Autowired private ApplicationEventPublisher eventPublisher;
+    @Autowired private TransactionTemplate transactionTemplate;
+
+    /**
+     * Hashes the password before the transaction begins: the hash may wait for a hashing thread
+     * (or be refused with a 429), and must not hold a pooled connection meanwhile.
+     */
     public UserDto registerUser(UserRegistrationDto registrationDto) {
+        String passwordHash = passwordEncoder.encode(registrationDto.getPassword());
+        return transactionTemplate.execute(status -> createUser(registrationDto, passwordHash));
+    }
+
+    private UserDto createUser(UserRegistrationDto registrationDto, String passwordHash) {
         if (userRepository.existsByUsername(registrationDto.getUsername())) {
             throw new IllegalArgumentException("Username already exists");
         }
@@ -38,7 +54,7 @@ public class UserService {
         User user = new User(
                 registrationDto.getUsername(),
                 registrationDto.getEmail(),
-                passwordEncoder.encode(registrationDto.getPassword())
+                passwordHash
         );
         Role userRole = roleRepository.findByName("ROLE_USER")
                 .orElseGet(() -> roleRepository.save(new Role("ROLE_USER"))); // Create if not exists
@@ -49,7 +65,7 @@ public class UserService {
         UserEvent event = new UserEvent("USER_CREATED", savedUser.getId(), savedUser.getUsername(), LocalDateTime.now(),
                 Map.of("email", savedUser.getEmail(), "roles", savedUser.getRoles().stream().map(Role::getName).collect(Collectors.toList()))
         );
-        kafkaEventPublisher.publishUserEvent(event);
+        userEventOutbox.enqueue(event);
 
         return mapToUserDto(savedUser);
     }
@@ -76,7 +92,7 @@ public class UserService {
             UserEvent event = new UserEvent("USER_UPDATED", updatedUser.getId(), updatedUser.getUsername(), LocalDateTime.now(),
                     Map.of("updatedFields", Map.of("email", updatedUser.getEmail())) // Example details
             );
-            kafkaEventPublisher.publishUserEvent(event);
+            userEventOutbox.enqueue(event);
         }
         return mapToUserDto(updatedUser);
     }
@@ -85,9 +101,10 @@ public class UserService {
     public void deleteUser(Long id) {
         User user = userRepository.findById(id).orElseThrow(() -> new UserNotFoundException("User not found with id: " + id));
         userRepository.delete(user);
+        revokeIssuedTokens(user.getUsername());
 
         UserEvent event = new UserEvent("USER_DELETED", user.getId(), user.getUsername(), LocalDateTime.now(), null);
-        kafkaEventPublisher.publishUserEvent(event);
+        userEventOutbox.enqueue(event);
     }
 
     @Transactional
@@ -96,11 +113,12 @@ public class UserService {
         Role role = roleRepository.findByName(roleName).orElseThrow(() -> new IllegalArgumentException("Role not found: " + roleName));
         user.getRoles().add(role);
         User updatedUser = userRepository.save(user);
+        revokeIssuedTokens(updatedUser.getUsername());
 
         UserEvent event = new UserEvent("ROLE_ASSIGNED", updatedUser.getId(), updatedUser.getUsername(), LocalDateTime.now(),
                 Map.of("assignedRole", roleName)
         );
-        kafkaEventPublisher.publishUserEvent(event);
+        userEventOutbox.enqueue(event);
         return mapToUserDto(updatedUser);
     }
 
@@ -114,14 +132,24 @@ public class UserService {
             throw new IllegalArgumentException("User does not have role: " + roleName);
         }
         User updatedUser = userRepository.save(user);
+        revokeIssuedTokens(updatedUser.getUsername());
 
         UserEvent event = new UserEvent("ROLE_REMOVED", updatedUser.getId(), updatedUser.getUsername(), LocalDateTime.now(),
                 Map.of("removedRole", roleName)
         );
-        kafkaEventPublisher.publishUserEvent(event);
+        userEventOutbox.enqueue(event);
         return mapToUserDto(updatedUser);
     }
 
+    /**
+     * Tokens carry the roles they were issued with, so once roles change (or the user is gone)
+     * earlier tokens must be rejected. Recorded in the caller's transaction; see TokenRevocationCache.
+     */
+    private void revokeIssuedTokens(String username) {
+        Instant now = Instant.now();
+        authRevocationRepository.save(new AuthRevocation(username, now));
+        eventPublisher.publishEvent(new UserAuthChangedEvent(username, now));
+    }
 
     private UserDto mapToUserDto(User user) {
         UserDto dto = new UserDto(); // Define UserDto with id, username, email, roles
@@ -0,0 +1,151 @@
+package com.example.userservice.security;
+
+import com.example.userservice.entity.AuthRevocation;
+import com.example.userservice.entity.User;
+import com.example.userservice.repository.AuthRevocationRepository;
+import com.example.userservice.repository.UserRepository;
+import com.example.userservice.service.UserAuthChangedEvent;
+import com.example.userservice.service.UserEventOutbox;
+import com.example.userservice.service.UserService;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class JwtRequestFilterTest {
+    private static final String SECRET = "test-secret-of-at-least-thirty-two-bytes";
+
+    private final AuthRevocationRepository revocationRepository = mock(AuthRevocationRepository.class);
+    private final UserDetailsServiceImpl userDetailsService = mock(UserDetailsServiceImpl.class);
+    private final TokenRevocationCache revocationCache = new TokenRevocationCache();
+    private final JwtRequestFilter filter = new JwtRequestFilter();
+
+    @BeforeEach
+    void setUp() {
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secretString", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "jwtExpirationMs", 3_600_000L);
+        ReflectionTestUtils.setField(jwtUtil, "cacheMaxSize", 100L);
+        ReflectionTestUtils.setField(jwtUtil, "meterRegistry", new SimpleMeterRegistry());
+        jwtUtil.init();
+        ReflectionTestUtils.setField(revocationCache, "authRevocationRepository", revocationRepository);
+        ReflectionTestUtils.setField(revocationCache, "jwtExpirationMs", 3_600_000L);
+        revocationCache.init();
+
+        ReflectionTestUtils.setField(filter, "userDetailsService", userDetailsService);
+        ReflectionTestUtils.setField(filter, "jwtUtil", jwtUtil);
+        ReflectionTestUtils.setField(filter, "tokenRevocationCache", revocationCache);
+        ReflectionTestUtils.setField(filter, "authMode", "claims");
+        SecurityContextHolder.clearContext();
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void tokenFromTheSecondOfARoleChangeIsRejectedAndALaterOneAccepted() throws Exception {
+        Instant changedAt = Instant.now().truncatedTo(ChronoUnit.SECONDS).minusSeconds(10).plusMillis(700);
+        revocationCache.onUserAuthChanged(new UserAuthChangedEvent("alice", changedAt));
+
+        assertThat(authenticate(token("alice", List.of("ROLE_ADMIN"), changedAt))).isNull();
+
+        Authentication accepted = authenticate(token("alice", List.of("ROLE_USER"), changedAt.plusSeconds(1)));
+        assertThat(accepted.getName()).isEqualTo("alice");
+        assertThat(accepted.getAuthorities()).extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_USER");
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    void deletedUsersEarlierTokensAreRejected() throws Exception {
+        String token = token("alice", List.of("ROLE_USER"), Instant.now().minusSeconds(5));
+        assertThat(authenticate(token)).isNotNull();
+
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findById(7L)).thenReturn(Optional.of(new User("alice", "alice@example.com", "hash")));
+        UserService userService = new UserService();
+        ReflectionTestUtils.setField(userService, "userRepository", userRepository);
+        ReflectionTestUtils.setField(userService, "authRevocationRepository", revocationRepository);
+        ReflectionTestUtils.setField(userService, "userEventOutbox", mock(UserEventOutbox.class));
+        // Stands in for the after-commit delivery of the event
+        ApplicationEventPublisher afterCommit = event -> revocationCache.onUserAuthChanged((UserAuthChangedEvent) event);
+        ReflectionTestUtils.setField(userService, "eventPublisher", afterCommit);
+        userService.deleteUser(7L);
+
+        assertThat(authenticate(token)).isNull();
+    }
+
+    @Test
+    void otherInstancesRevocationsApplyAfterTheNextRefresh() throws Exception {
+        String token = token("bob", List.of("ROLE_ADMIN"), Instant.now().minusSeconds(5));
+        when(revocationRepository.findByRevokedAtAfter(any())).thenReturn(List.of(new AuthRevocation("bob", Instant.now())));
+        assertThat(authenticate(token)).isNotNull();
+
+        revocationCache.refresh();
+
+        assertThat(authenticate(token)).isNull();
+    }
+
+    @Test
+    void signedTokenWithoutRolesAuthenticatesWithNoAuthorities() throws Exception {
+        Authentication authentication = authenticate(token("carol", null, Instant.now().minusSeconds(5)));
+
+        assertThat(authentication.getName()).isEqualTo("carol");
+        assertThat(authentication.getAuthorities()).isEmpty();
+    }
+
+    @Test
+    void signedTokenWithMalformedRolesIsUnauthenticated() throws Exception {
+        assertThat(authenticate(token("carol", List.of(42), Instant.now().minusSeconds(5)))).isNull();
+        assertThat(authenticate(token("carol", "ROLE_ADMIN", Instant.now().minusSeconds(5)))).isNull();
+    }
+
+    /** Runs the filter on a request carrying the token; returns what it authenticated, if anything. */
+    private Authentication authenticate(String token) throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/users/7");
+        request.addHeader("Authorization", "Bearer " + token);
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        assertThat(chain.getRequest()).as("the request continues down the chain").isNotNull();
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    private static String token(String username, Object roles, Instant issuedAt) {
+        JwtBuilder builder = Jwts.builder()
+                .setSubject(username)
+                .setIssuedAt(Date.from(issuedAt))
+                .setExpiration(Date.from(Instant.now().plusSeconds(3600)));
+        if (roles != null) {
+            builder.claim("roles", roles);
+        }
+        return builder.signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)), SignatureAlgorithm.HS256)
+                .compact();
+    }
+}
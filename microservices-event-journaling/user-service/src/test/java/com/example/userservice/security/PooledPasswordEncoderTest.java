@@ -0,0 +1,150 @@
+package com.example.userservice.security;
+
+import com.example.userservice.controller.AuthController;
+import com.example.userservice.entity.User;
+import com.example.userservice.exception.PasswordHashingBusyException;
+import com.example.userservice.repository.UserRepository;
+import com.example.userservice.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class PooledPasswordEncoderTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger started = new AtomicInteger();
+    private final List<CompletableFuture<String>> blocked = new ArrayList<>();
+    private PooledPasswordEncoder encoder;
+
+    @AfterEach
+    void shutdown() throws Exception {
+        release.countDown();
+        for (CompletableFuture<String> hash : blocked) {
+            hash.get(10, TimeUnit.SECONDS);
+        }
+        encoder.shutdown();
+    }
+
+    @Test
+    void fullQueueAnswersRegistration429WithRetryAfterBeforeAnyTransaction() throws Exception {
+        encoder = new PooledPasswordEncoder(blockingEncoder(), 1, 1, meterRegistry);
+        occupy(2); // One hashing, one queued
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        UserService userService = new UserService();
+        ReflectionTestUtils.setField(userService, "passwordEncoder", encoder);
+        ReflectionTestUtils.setField(userService, "transactionTemplate", transactionTemplate);
+        AuthController authController = new AuthController();
+        ReflectionTestUtils.setField(authController, "userService", userService);
+        ReflectionTestUtils.setField(authController, "retryAfterSeconds", 3);
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(authController).build();
+
+        mockMvc.perform(post("/api/auth/register").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"alice\",\"password\":\"secret123\",\"email\":\"alice@example.com\"}"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "3"));
+
+        assertThat(meterRegistry.get("password.hashing.rejected").counter().count()).isEqualTo(1);
+        // Refused before a connection was taken for the registration
+        verifyNoInteractions(transactionTemplate);
+        assertThatThrownBy(() -> encoder.matches("secret123", "hash")).isInstanceOf(PasswordHashingBusyException.class);
+    }
+
+    @Test
+    void successfulLoginRehashesAWeakerStoredHash() {
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(6);
+        encoder = new PooledPasswordEncoder(bcrypt, 2, 8, meterRegistry);
+        User alice = new User("alice", "alice@example.com", new BCryptPasswordEncoder(4).encode("secret123"));
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findByUsername("alice")).thenReturn(Optional.of(alice));
+        UserDetailsServiceImpl userDetailsService = new UserDetailsServiceImpl();
+        ReflectionTestUtils.setField(userDetailsService, "userRepository", userRepository);
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider(encoder);
+        provider.setUserDetailsService(userDetailsService);
+        provider.setUserDetailsPasswordService(userDetailsService);
+
+        provider.authenticate(new UsernamePasswordAuthenticationToken("alice", "secret123"));
+
+        assertThat(alice.getPassword()).startsWith("$2a$06$");
+        assertThat(bcrypt.matches("secret123", alice.getPassword())).isTrue();
+        // At the configured strength now, so the next login leaves it alone
+        assertThat(encoder.upgradeEncoding(alice.getPassword())).isFalse();
+    }
+
+    @Test
+    void noRehashIsAskedForWhileTheQueueIsMoreThanHalfFull() throws Exception {
+        encoder = new PooledPasswordEncoder(blockingEncoder(), 1, 4, meterRegistry);
+        String weak = new BCryptPasswordEncoder(4).encode("secret123");
+        assertThat(encoder.upgradeEncoding(weak)).isTrue();
+
+        occupy(1 + 2); // One hashing, the queue exactly half full
+        assertThat(encoder.upgradeEncoding(weak)).isTrue();
+        occupy(1);
+        assertThat(encoder.upgradeEncoding(weak)).isFalse();
+    }
+
+    /** Starts hashes that hold their thread (or queue slot) until the test ends. */
+    private void occupy(int hashes) throws InterruptedException {
+        for (int i = 0; i < hashes; i++) {
+            blocked.add(CompletableFuture.supplyAsync(() -> encoder.encode("secret123")));
+            // Wait until the pool has taken it, so submissions are accepted in order
+            long deadline = System.nanoTime() + 10_000_000_000L;
+            while (started.get() + meterRegistry.get("password.hashing.queue.depth").gauge().value() < blocked.size()) {
+                assertThat(System.nanoTime()).as("hash not submitted within 10 s").isLessThan(deadline);
+                Thread.sleep(5);
+            }
+        }
+    }
+
+    /** BCrypt at strength 6 that first waits for the test to release it. */
+    private PasswordEncoder blockingEncoder() {
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(6);
+        return new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                started.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return bcrypt.encode(rawPassword);
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return bcrypt.matches(rawPassword, encodedPassword);
+            }
+
+            @Override
+            public boolean upgradeEncoding(String encodedPassword) {
+                return bcrypt.upgradeEncoding(encodedPassword);
+            }
+        };
+    }
+}
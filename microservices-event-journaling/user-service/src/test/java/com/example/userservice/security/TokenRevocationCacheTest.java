@@ -0,0 +1,75 @@
+package com.example.userservice.security;
+
+import com.example.userservice.entity.AuthRevocation;
+import com.example.userservice.repository.AuthRevocationRepository;
+import com.example.userservice.service.UserAuthChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TokenRevocationCacheTest {
+    private static final long TOKEN_LIFETIME_MS = 3_600_000;
+
+    private final AuthRevocationRepository repository = mock(AuthRevocationRepository.class);
+    private final TokenRevocationCache cache = new TokenRevocationCache();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(cache, "authRevocationRepository", repository);
+        ReflectionTestUtils.setField(cache, "jwtExpirationMs", TOKEN_LIFETIME_MS);
+        cache.init();
+    }
+
+    @Test
+    void tokensUpToTheSecondOfTheChangeAreRevoked() {
+        Instant changedAt = Instant.now().truncatedTo(ChronoUnit.SECONDS).minusSeconds(10).plusMillis(700);
+        cache.onUserAuthChanged(new UserAuthChangedEvent("alice", changedAt));
+
+        // iat is in whole seconds, so a token from the same second may predate the change
+        assertThat(cache.isRevoked(claims("alice", changedAt.truncatedTo(ChronoUnit.SECONDS)))).isTrue();
+        assertThat(cache.isRevoked(claims("alice", changedAt.minusSeconds(60)))).isTrue();
+        assertThat(cache.isRevoked(claims("alice", null))).isTrue();
+        assertThat(cache.isRevoked(claims("alice", changedAt.truncatedTo(ChronoUnit.SECONDS).plusSeconds(1)))).isFalse();
+        assertThat(cache.isRevoked(claims("bob", changedAt.minusSeconds(60)))).isFalse();
+    }
+
+    @Test
+    void refreshPicksUpOtherInstancesChangesAndForgetsExpiredOnes() {
+        Instant now = Instant.now();
+        cache.onUserAuthChanged(new UserAuthChangedEvent("carol", now.minusMillis(TOKEN_LIFETIME_MS).minusSeconds(60)));
+        when(repository.findByRevokedAtAfter(any())).thenReturn(List.of(new AuthRevocation("bob", now)));
+        JwtClaims bobsToken = claims("bob", now.minusSeconds(30));
+        assertThat(cache.isRevoked(bobsToken)).isFalse();
+
+        cache.refresh();
+
+        assertThat(cache.isRevoked(bobsToken)).isTrue();
+        // Every token carol could hold was issued after her change expired from the cache
+        assertThat(cache.isRevoked(claims("carol", now.minusSeconds(30)))).isFalse();
+    }
+
+    @Test
+    void laterChangesWinWhicheverPathDeliversThemFirst() {
+        Instant earlier = Instant.now().minusSeconds(120);
+        Instant later = earlier.plusSeconds(60);
+        cache.onUserAuthChanged(new UserAuthChangedEvent("alice", later));
+        when(repository.findByRevokedAtAfter(any())).thenReturn(List.of(new AuthRevocation("alice", earlier)));
+
+        cache.refresh();
+
+        assertThat(cache.isRevoked(claims("alice", later.minusSeconds(1)))).isTrue();
+    }
+
+    private static JwtClaims claims(String username, Instant issuedAt) {
+        return new JwtClaims(username, List.of("ROLE_USER"), issuedAt, Instant.now().plusSeconds(3600));
+    }
+}
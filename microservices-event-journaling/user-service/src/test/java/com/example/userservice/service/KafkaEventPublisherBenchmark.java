@@ -0,0 +1,109 @@
+package com.example.userservice.service;
+
+import com.example.userservice.config.KafkaProducerConfig;
+import com.example.userservice.dto.UserEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Acknowledged publish throughput of {@link KafkaEventPublisher} against an embedded KRaft broker
+ * (3 partitions, like user-events). Each invocation publishes {@value #EVENTS} events for 100 users
+ * and waits for every acknowledgement.
+ * <ul>
+ *     <li>{@code producer=baseline} - linger.ms=0 and Kafka's default 16 KB batches, as before tuning</li>
+ *     <li>{@code producer=tuned} - KafkaProducerConfig's defaults (linger 10 ms, 128 KB batches)</li>
+ * </ul>
+ * Both are idempotent with acks=all and lz4. Run with
+ * {@code mvn -Pbenchmark test -pl user-service -Djmh.include=KafkaEventPublisherBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KafkaEventPublisherBenchmark {
+    private static final int EVENTS = 10_000;
+    private static final String TOPIC = "user-events";
+
+    @Param({"baseline", "tuned"})
+    public String producer;
+
+    @Param({"json", "binary"})
+    public String codec;
+
+    private EmbeddedKafkaKraftBroker broker;
+    private KafkaTemplate<String, UserEvent> kafkaTemplate;
+    private KafkaEventPublisher publisher;
+    private List<UserEvent> events;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        broker = new EmbeddedKafkaKraftBroker(1, 3, TOPIC);
+        broker.afterPropertiesSet();
+
+        KafkaProducerConfig config = new KafkaProducerConfig();
+        ReflectionTestUtils.setField(config, "bootstrapServers", broker.getBrokersAsString());
+        ReflectionTestUtils.setField(config, "eventCodec", codec);
+        ReflectionTestUtils.setField(config, "compressionType", "lz4");
+        ReflectionTestUtils.setField(config, "acks", "all");
+        ReflectionTestUtils.setField(config, "lingerMs", producer.equals("tuned") ? 10 : 0);
+        ReflectionTestUtils.setField(config, "batchSize", producer.equals("tuned") ? 131072 : 16384);
+        ReflectionTestUtils.setField(config, "deliveryTimeoutMs", 120000);
+        ReflectionTestUtils.setField(config, "maxBlockMs", 5000L);
+        kafkaTemplate = new KafkaTemplate<>(config.producerFactory());
+
+        publisher = new KafkaEventPublisher();
+        ReflectionTestUtils.setField(publisher, "kafkaTemplate", kafkaTemplate);
+        ReflectionTestUtils.setField(publisher, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(publisher, "maxInFlight", EVENTS);
+        ReflectionTestUtils.setField(publisher, "inFlightWaitMs", 5000L);
+        publisher.init();
+
+        LocalDateTime now = LocalDateTime.now();
+        events = IntStream.range(0, EVENTS)
+                .mapToObj(i -> new UserEvent("USER_UPDATED", (long) (i % 100), "user" + (i % 100), now,
+                        Map.of("email", "user" + (i % 100) + "@example.com", "roles", List.of("ROLE_USER"))))
+                .toList();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ((DefaultKafkaProducerFactory<String, UserEvent>) kafkaTemplate.getProducerFactory()).destroy();
+        broker.destroy();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public void publishAcknowledged() {
+        CompletableFuture<?>[] sends = new CompletableFuture<?>[EVENTS];
+        for (int i = 0; i < EVENTS; i++) {
+            sends[i] = publisher.publishUserEvent(events.get(i));
+        }
+        CompletableFuture.allOf(sends).join();
+    }
+}
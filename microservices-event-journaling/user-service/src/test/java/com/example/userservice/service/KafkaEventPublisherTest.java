@@ -0,0 +1,95 @@
+package com.example.userservice.service;
+
+import com.example.userservice.dto.UserEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaProducerException;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class KafkaEventPublisherTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, UserEvent> kafkaTemplate = mock(KafkaTemplate.class);
+    private final KafkaEventPublisher publisher = new KafkaEventPublisher();
+    private final CompletableFuture<SendResult<String, UserEvent>> brokerAck = new CompletableFuture<>();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(publisher, "kafkaTemplate", kafkaTemplate);
+        ReflectionTestUtils.setField(publisher, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(publisher, "maxInFlight", 1);
+        ReflectionTestUtils.setField(publisher, "inFlightWaitMs", 0L);
+        publisher.init();
+        when(kafkaTemplate.send(eq("user-events"), anyString(), any(UserEvent.class))).thenReturn(brokerAck);
+    }
+
+    @Test
+    void timesEachSendUntilTheBrokerAcknowledges() {
+        UserEvent event = event("USER_CREATED");
+
+        CompletableFuture<SendResult<String, UserEvent>> sent = publisher.publishUserEvent(event);
+
+        assertThat(inFlight()).isEqualTo(1);
+        assertThat(meterRegistry.find("user.events.publish").timers()).isEmpty();
+        brokerAck.complete(new SendResult<>(new ProducerRecord<>("user-events", "7", event), null));
+
+        assertThat(sent).isCompleted();
+        assertThat(inFlight()).isZero();
+        assertThat(meterRegistry.get("user.events.publish").tags("eventType", "USER_CREATED", "outcome", "success")
+                .timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.find("user.events.publish.failures").counters()).isEmpty();
+    }
+
+    @Test
+    void countsBrokerFailuresByTheirUnderlyingException() {
+        UserEvent event = event("USER_UPDATED");
+
+        CompletableFuture<SendResult<String, UserEvent>> sent = publisher.publishUserEvent(event);
+        brokerAck.completeExceptionally(new KafkaProducerException(new ProducerRecord<>("user-events", "7", event),
+                "send failed", new TimeoutException("expired")));
+
+        assertThat(sent).isCompletedExceptionally();
+        assertThat(inFlight()).isZero();
+        assertThat(meterRegistry.get("user.events.publish.failures").tags("eventType", "USER_UPDATED", "exception", "TimeoutException")
+                .counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("user.events.publish").tags("eventType", "USER_UPDATED", "outcome", "failure")
+                .timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void sendsOverTheInFlightLimitAreRejectedAndCounted() {
+        publisher.publishUserEvent(event("USER_CREATED"));
+
+        CompletableFuture<SendResult<String, UserEvent>> rejected = publisher.publishUserEvent(event("USER_DELETED"));
+
+        assertThat(rejected).isCompletedExceptionally();
+        assertThat(meterRegistry.get("user.events.publish.failures")
+                .tags("eventType", "USER_DELETED", "exception", RejectedExecutionException.class.getSimpleName())
+                .counter().count()).isEqualTo(1);
+        assertThat(inFlight()).isEqualTo(1);
+    }
+
+    private double inFlight() {
+        return meterRegistry.get("user.events.in-flight").gauge().value();
+    }
+
+    private static UserEvent event(String type) {
+        return new UserEvent(type, 7L, "alice", LocalDateTime.now(), null);
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.userservice.service;
+
+import com.example.userservice.dto.UserEvent;
+import com.example.userservice.support.PostgresTestDatabase;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.errors.RecordTooLargeException;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OutboxRelayTest {
+    @RegisterExtension
+    final PostgresTestDatabase database = new PostgresTestDatabase();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = database.jdbcTemplate();
+        // As Hibernate creates them from OutboxEvent and DeadLetterOutboxEvent
+        jdbcTemplate.execute("CREATE TABLE user_event_outbox (id BIGSERIAL PRIMARY KEY, event_key VARCHAR(255), "
+                + "event_type VARCHAR(255) NOT NULL, payload JSONB NOT NULL, created_at TIMESTAMPTZ NOT NULL, "
+                + "attempts INTEGER NOT NULL DEFAULT 0)");
+        jdbcTemplate.execute("CREATE TABLE user_event_outbox_dead (id BIGINT PRIMARY KEY, event_key VARCHAR(255), "
+                + "event_type VARCHAR(255) NOT NULL, payload JSONB NOT NULL, created_at TIMESTAMPTZ NOT NULL, "
+                + "attempts INTEGER NOT NULL, last_error TEXT, dead_at TIMESTAMPTZ NOT NULL)");
+    }
+
+    @Test
+    void failedSendHoldsBackTheRestOfItsKey() {
+        enqueue(7, "A1");
+        enqueue(7, "A2");
+        enqueue(8, "B1");
+        enqueue(7, "A3");
+        RecordingPublisher broker = new RecordingPublisher(type -> type.equals("A1")
+                ? CompletableFuture.failedFuture(new TimeoutException("broker down"))
+                : acknowledged());
+        OutboxRelay relay = relay(broker, 5);
+
+        relay.relayBatch();
+
+        assertThat(broker.sent).containsExactly("A1", "B1");
+        assertThat(queued()).containsExactly("A1", "A2", "A3");
+        assertThat(jdbcTemplate.queryForObject("SELECT max(attempts) FROM user_event_outbox", Integer.class)).isZero();
+
+        broker.outcome = type -> acknowledged();
+        relay.relayBatch();
+
+        assertThat(broker.sent).containsExactly("A1", "B1", "A1", "A2", "A3");
+        assertThat(queued()).isEmpty();
+    }
+
+    @Test
+    void poisonRowIsDeadLetteredAfterMaxAttempts() {
+        enqueue(7, "A1");
+        enqueue(7, "A2");
+        RecordingPublisher broker = new RecordingPublisher(type -> type.equals("A1")
+                ? CompletableFuture.failedFuture(new RecordTooLargeException("too large"))
+                : acknowledged());
+        OutboxRelay relay = relay(broker, 2);
+
+        relay.relayBatch();
+        assertThat(queued()).containsExactly("A1", "A2");
+        relay.relayBatch();
+        assertThat(queued()).containsExactly("A2");
+        relay.relayBatch();
+
+        assertThat(broker.sent).containsExactly("A1", "A1", "A2");
+        assertThat(queued()).isEmpty();
+        Map<String, Object> dead = jdbcTemplate.queryForMap("SELECT event_type, attempts, last_error FROM user_event_outbox_dead");
+        assertThat(dead).containsEntry("event_type", "A1").containsEntry("attempts", 2);
+        assertThat((String) dead.get("last_error")).contains("RecordTooLargeException");
+        assertThat(meterRegistry.get("user.outbox.dead-lettered").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void keysBeingSentByAnotherInstanceAreSkipped() throws Exception {
+        enqueue(7, "A1");
+        enqueue(7, "A2");
+        CompletableFuture<SendResult<String, UserEvent>> a1Ack = new CompletableFuture<>();
+        CountDownLatch a1Sent = new CountDownLatch(1);
+        RecordingPublisher first = new RecordingPublisher(type -> {
+            if (type.equals("A1")) {
+                a1Sent.countDown();
+                return a1Ack;
+            }
+            return acknowledged();
+        });
+        CompletableFuture<OutboxRelay.RelayRound> firstRound = CompletableFuture.supplyAsync(() -> relay(first, 5).relayBatch());
+        assertThat(a1Sent.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // While the first instance waits for the broker, user 7 gains an event and user 8 appears
+        enqueue(8, "B1");
+        enqueue(7, "A3");
+        RecordingPublisher second = new RecordingPublisher(type -> acknowledged());
+        relay(second, 5).relayBatch();
+        assertThat(second.sent).containsExactly("B1");
+
+        a1Ack.complete(null);
+        assertThat(firstRound.get(5, TimeUnit.SECONDS).claimed()).isEqualTo(2);
+        assertThat(first.sent).containsExactly("A1", "A2");
+        relay(second, 5).relayBatch();
+        assertThat(second.sent).containsExactly("B1", "A3");
+        assertThat(queued()).isEmpty();
+    }
+
+    private OutboxRelay relay(RecordingPublisher publisher, int maxAttempts) {
+        OutboxRelay relay = new OutboxRelay();
+        ReflectionTestUtils.setField(relay, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(relay, "kafkaEventPublisher", publisher.mock);
+        ReflectionTestUtils.setField(relay, "objectMapper", new ObjectMapper().findAndRegisterModules());
+        ReflectionTestUtils.setField(relay, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(relay, "batchSize", 500);
+        ReflectionTestUtils.setField(relay, "sendTimeoutMs", 5000L);
+        ReflectionTestUtils.setField(relay, "maxAttempts", maxAttempts);
+        // The counters start() registers, without starting the relay thread
+        ReflectionTestUtils.setField(relay, "published", meterRegistry.counter("user.outbox.published"));
+        ReflectionTestUtils.setField(relay, "failed", meterRegistry.counter("user.outbox.failed"));
+        ReflectionTestUtils.setField(relay, "deadLettered", meterRegistry.counter("user.outbox.dead-lettered"));
+        return relay;
+    }
+
+    private void enqueue(long userId, String type) {
+        jdbcTemplate.update("INSERT INTO user_event_outbox (event_key, event_type, payload, created_at) "
+                        + "VALUES (?, ?, CAST(? AS jsonb), now())", String.valueOf(userId), type,
+                "{\"eventType\": \"" + type + "\", \"userId\": " + userId + ", \"username\": \"user" + userId + "\"}");
+    }
+
+    private List<String> queued() {
+        return jdbcTemplate.queryForList("SELECT event_type FROM user_event_outbox ORDER BY id", String.class);
+    }
+
+    private static CompletableFuture<SendResult<String, UserEvent>> acknowledged() {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /** A KafkaEventPublisher that records event types in send order and answers as told. */
+    private static final class RecordingPublisher {
+        private final KafkaEventPublisher mock = mock(KafkaEventPublisher.class);
+        private final List<String> sent = new CopyOnWriteArrayList<>();
+        private volatile Function<String, CompletableFuture<SendResult<String, UserEvent>>> outcome;
+
+        RecordingPublisher(Function<String, CompletableFuture<SendResult<String, UserEvent>>> initialOutcome) {
+            outcome = initialOutcome;
+            when(mock.publishUserEvent(any())).thenAnswer(invocation -> {
+                String type = invocation.<UserEvent>getArgument(0).getEventType();
+                sent.add(type);
+                return outcome.apply(type);
+            });
+        }
+    }
+}
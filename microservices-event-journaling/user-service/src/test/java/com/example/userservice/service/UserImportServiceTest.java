@@ -0,0 +1,204 @@
+package com.example.userservice.service;
+
+import com.example.userservice.dto.UserImportResult;
+import com.example.userservice.entity.Role;
+import com.example.userservice.repository.RoleRepository;
+import com.example.userservice.security.PooledPasswordEncoder;
+import com.example.userservice.support.PostgresTestDatabase;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class UserImportServiceTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void failedLookupMarksRowsFailedAndImportContinues() throws Exception {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        doThrow(new DataAccessResourceFailureException("connection reset"))
+                .when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        when(transactionTemplate.execute(any())).thenReturn(1L);
+        PooledPasswordEncoder passwordEncoder = mock(PooledPasswordEncoder.class);
+
+        UserImportService service = new UserImportService();
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(service, "transactionTemplate", transactionTemplate);
+        ReflectionTestUtils.setField(service, "passwordEncoder", passwordEncoder);
+        ReflectionTestUtils.setField(service, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(service, "validator", mock(Validator.class));
+        ReflectionTestUtils.setField(service, "batchSize", 2);
+
+        String upload = String.join("\n",
+                "{\"username\":\"alice\",\"email\":\"alice@example.com\",\"password\":\"secret123\"}",
+                "{not json",
+                "{\"username\":\"bob\",\"email\":\"bob@example.com\",\"password\":\"secret123\"}");
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        service.importUsers(new ByteArrayInputStream(upload.getBytes(StandardCharsets.UTF_8)), output);
+
+        List<UserImportResult> results = objectMapper.readerFor(UserImportResult.class)
+                .<UserImportResult>readValues(output.toByteArray()).readAll();
+        assertThat(results).extracting(UserImportResult::getLine, UserImportResult::getStatus)
+                .containsExactly(tuple(1L, "FAILED"), tuple(2L, "REJECTED"), tuple(3L, "FAILED"));
+        assertThat(results.get(0).getError()).isEqualTo("Batch could not be written: DataAccessResourceFailureException");
+        verifyNoInteractions(passwordEncoder);
+    }
+
+    @Nested
+    class AgainstPostgres {
+        @RegisterExtension
+        final PostgresTestDatabase database = new PostgresTestDatabase();
+
+        private final BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(4);
+        private JdbcTemplate jdbcTemplate;
+        private PooledPasswordEncoder passwordEncoder;
+        private UserImportService service;
+
+        @BeforeEach
+        void setUp() {
+            jdbcTemplate = database.jdbcTemplate();
+            // As Hibernate creates them from User, Role and OutboxEvent
+            jdbcTemplate.execute("CREATE TABLE roles (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                    + "name VARCHAR(255) NOT NULL UNIQUE)");
+            jdbcTemplate.execute("CREATE TABLE users (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                    + "username VARCHAR(255) NOT NULL UNIQUE, password VARCHAR(255) NOT NULL, email VARCHAR(255) NOT NULL UNIQUE)");
+            jdbcTemplate.execute("CREATE TABLE user_roles (user_id BIGINT NOT NULL REFERENCES users, "
+                    + "role_id BIGINT NOT NULL REFERENCES roles, PRIMARY KEY (user_id, role_id))");
+            jdbcTemplate.execute("CREATE TABLE user_event_outbox (id BIGSERIAL PRIMARY KEY, event_key VARCHAR(255), "
+                    + "event_type VARCHAR(255) NOT NULL, payload JSONB NOT NULL, created_at TIMESTAMPTZ NOT NULL, "
+                    + "attempts INTEGER NOT NULL DEFAULT 0)");
+            Role userRole = new Role("ROLE_USER");
+            userRole.setId(jdbcTemplate.queryForObject("INSERT INTO roles (name) VALUES ('ROLE_USER') RETURNING id", Long.class));
+            jdbcTemplate.update("INSERT INTO users (username, email, password) VALUES ('carol', 'carol@example.com', 'hash')");
+            RoleRepository roleRepository = mock(RoleRepository.class);
+            when(roleRepository.findByName("ROLE_USER")).thenReturn(Optional.of(userRole));
+
+            passwordEncoder = new PooledPasswordEncoder(bcrypt, 2, 16, new SimpleMeterRegistry());
+            UserEventOutbox outbox = new UserEventOutbox();
+            ReflectionTestUtils.setField(outbox, "jdbcTemplate", jdbcTemplate);
+            ReflectionTestUtils.setField(outbox, "objectMapper", new ObjectMapper().findAndRegisterModules());
+            ReflectionTestUtils.setField(outbox, "eventPublisher", mock(ApplicationEventPublisher.class));
+            service = new UserImportService();
+            ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+            ReflectionTestUtils.setField(service, "transactionTemplate", database.transactionTemplate());
+            ReflectionTestUtils.setField(service, "roleRepository", roleRepository);
+            ReflectionTestUtils.setField(service, "passwordEncoder", passwordEncoder);
+            ReflectionTestUtils.setField(service, "userEventOutbox", outbox);
+            ReflectionTestUtils.setField(service, "objectMapper", objectMapper);
+            ReflectionTestUtils.setField(service, "validator", Validation.buildDefaultValidatorFactory().getValidator());
+            ReflectionTestUtils.setField(service, "batchSize", 3);
+        }
+
+        @AfterEach
+        void shutdown() {
+            passwordEncoder.shutdown();
+        }
+
+        @Test
+        void createsUsersWithTheirRoleAndEventAndRejectsDuplicates() throws IOException {
+            List<UserImportResult> results = importUsers(
+                    registration("alice", "alice@example.com"),
+                    registration("bob", "bob@example.com"),
+                    registration("carol", "carol@other.example.com"), // Registered before the import
+                    registration("dave", "alice@example.com"), // Taken by the previous, committed batch
+                    registration("erin", "erin@example.com"),
+                    registration("erin", "erin@other.example.com")); // Repeats a row of its own batch
+
+            assertThat(results).extracting(UserImportResult::getLine, UserImportResult::getUsername,
+                    UserImportResult::getStatus, UserImportResult::getError).containsExactly(
+                    tuple(1L, "alice", "CREATED", null),
+                    tuple(2L, "bob", "CREATED", null),
+                    tuple(3L, "carol", "REJECTED", "Username already exists"),
+                    tuple(4L, "dave", "REJECTED", "Email already exists"),
+                    tuple(5L, "erin", "CREATED", null),
+                    tuple(6L, "erin", "REJECTED", "Username already exists"));
+            List<Long> createdIds = results.stream().map(UserImportResult::getId).filter(id -> id != null).toList();
+            assertThat(createdIds).hasSize(3);
+
+            assertThat(jdbcTemplate.queryForList("SELECT username FROM users ORDER BY id", String.class))
+                    .containsExactly("carol", "alice", "bob", "erin");
+            assertThat(jdbcTemplate.queryForObject("SELECT password FROM users WHERE username = 'erin'", String.class))
+                    .matches(hash -> bcrypt.matches("secret123", hash));
+            assertThat(jdbcTemplate.queryForList("SELECT u.username FROM user_roles ur JOIN users u ON u.id = ur.user_id "
+                    + "JOIN roles r ON r.id = ur.role_id WHERE r.name = 'ROLE_USER' ORDER BY u.id", String.class))
+                    .containsExactly("alice", "bob", "erin");
+            List<Map<String, Object>> events = jdbcTemplate.queryForList("SELECT event_key, event_type, "
+                    + "payload->>'username' AS username, payload->'details'->>'email' AS email FROM user_event_outbox ORDER BY id");
+            assertThat(events).extracting(event -> event.get("event_key"), event -> event.get("event_type"),
+                    event -> event.get("username"), event -> event.get("email")).containsExactly(
+                    tuple(createdIds.get(0).toString(), "USER_CREATED", "alice", "alice@example.com"),
+                    tuple(createdIds.get(1).toString(), "USER_CREATED", "bob", "bob@example.com"),
+                    tuple(createdIds.get(2).toString(), "USER_CREATED", "erin", "erin@example.com"));
+        }
+
+        @Test
+        void rowTakenAfterTheLookupIsSkippedByTheInsertNotFatal() throws IOException {
+            // A registration commits while the batch is being hashed, between the lookup and the insert
+            PooledPasswordEncoder racingEncoder = new PooledPasswordEncoder(bcrypt, 2, 16, new SimpleMeterRegistry()) {
+                @Override
+                public List<String> encodeAll(List<? extends CharSequence> rawPasswords) {
+                    jdbcTemplate.update("INSERT INTO users (username, email, password) VALUES ('frank', 'frank@example.com', 'hash')");
+                    return super.encodeAll(rawPasswords);
+                }
+            };
+            ReflectionTestUtils.setField(service, "passwordEncoder", racingEncoder);
+
+            List<UserImportResult> results;
+            try {
+                results = importUsers(registration("frank", "frank@example.com"), registration("grace", "grace@example.com"));
+            } finally {
+                racingEncoder.shutdown();
+            }
+
+            assertThat(results).extracting(UserImportResult::getUsername, UserImportResult::getStatus, UserImportResult::getError)
+                    .containsExactly(tuple("frank", "REJECTED", "Username or email already exists"),
+                            tuple("grace", "CREATED", null));
+            assertThat(jdbcTemplate.queryForObject("SELECT password FROM users WHERE username = 'frank'", String.class))
+                    .isEqualTo("hash");
+            assertThat(jdbcTemplate.queryForList("SELECT u.username FROM user_roles ur JOIN users u ON u.id = ur.user_id",
+                    String.class)).containsExactly("grace");
+            assertThat(jdbcTemplate.queryForList("SELECT payload->>'username' FROM user_event_outbox", String.class))
+                    .containsExactly("grace");
+        }
+
+        private List<UserImportResult> importUsers(String... lines) throws IOException {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            service.importUsers(new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8)), output);
+            return objectMapper.readerFor(UserImportResult.class).<UserImportResult>readValues(output.toByteArray()).readAll();
+        }
+
+        private static String registration(String username, String email) {
+            return "{\"username\":\"" + username + "\",\"email\":\"" + email + "\",\"password\":\"secret123\"}";
+        }
+    }
+}